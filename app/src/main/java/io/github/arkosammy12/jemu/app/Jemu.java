@@ -4,13 +4,20 @@ import io.github.arkosammy12.jemu.app.adapters.DefaultSystemAdapter;
 import io.github.arkosammy12.jemu.app.adapters.SystemAdapter;
 import io.github.arkosammy12.jemu.app.io.CLIArgs;
 import io.github.arkosammy12.jemu.app.io.initializers.EmulatorInitializer;
+import io.github.arkosammy12.jemu.app.util.FrameLimiter;
+import io.github.arkosammy12.jemu.app.util.RewindBuffer;
 import io.github.arkosammy12.jemu.app.util.System;
 import io.github.arkosammy12.jemu.frontend.gui.swing.commands.*;
 import io.github.arkosammy12.jemu.frontend.gui.swing.events.Event;
 import io.github.arkosammy12.jemu.frontend.gui.swing.events.MuteEvent;
 import io.github.arkosammy12.jemu.frontend.gui.swing.events.VolumeChangedEvent;
 import io.github.arkosammy12.jemu.frontend.gui.swing.menus.HelpMenu;
+import io.github.arkosammy12.jemu.core.common.Emulator;
+import io.github.arkosammy12.jemu.core.common.RomImage;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
+import io.github.arkosammy12.jemu.core.gameboy.GameBoyHost;
 import io.github.arkosammy12.jemu.frontend.audio.AudioRenderer;
 import io.github.arkosammy12.jemu.frontend.gui.swing.MainWindow;
 import net.harawata.appdirs.AppDirsFactory;
@@ -19,6 +26,7 @@ import org.tinylog.Logger;
 
 import javax.swing.*;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -38,6 +46,22 @@ public final class Jemu {
     private MainWindow mainWindow;
     private boolean running = true;
 
+    private int rewindBufferSize = RewindBuffer.DEFAULT_BUDGET_MEGABYTES;
+    private int rewindInterval = RewindBuffer.DEFAULT_CAPTURE_INTERVAL;
+    @Nullable
+    private RewindBuffer rewindBuffer;
+    // Frames are paced to the system's frame rate, and the audio renderer adjusts its sample rate to keep up with it
+    private FrameLimiter frameLimiter;
+
+    private int runAheadFrames = 0;
+    private boolean recompilerEnabled = false;
+    private Duration saveDataFlushInterval = GameBoyHost.DEFAULT_SAVE_DATA_FLUSH_INTERVAL;
+    private boolean saveDataFlushedOnVBlank = false;
+    private final StateWriter runAheadStateWriter = new StateWriter();
+    // Reads straight out of the writer's buffer, and is only created again when the writer had to grow it
+    private byte[] runAheadStateBuffer = new byte[0];
+    private StateReader runAheadStateReader = new StateReader(this.runAheadStateBuffer);
+
     public Jemu(String[] args) {
         try {
 
@@ -50,6 +74,12 @@ public final class Jemu {
                     this.uiEventListenerThread = null;
                     return;
                 }
+                this.rewindBufferSize = cliArgs.getRewindBufferSize();
+                this.rewindInterval = cliArgs.getRewindInterval();
+                this.runAheadFrames = cliArgs.getRunAheadFrames();
+                this.recompilerEnabled = cliArgs.isRecompilerEnabled();
+                this.saveDataFlushInterval = cliArgs.getSaveDataFlushInterval();
+                this.saveDataFlushedOnVBlank = cliArgs.isSaveDataFlushedOnVBlank();
             }
 
             Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> {
@@ -131,8 +161,7 @@ public final class Jemu {
                     continue;
                 }
 
-                if (!this.currentSystem.getAudioRenderer().needsFrame()) {
-                    Thread.sleep(1);
+                if (!this.frameLimiter.isFrameReady(false)) {
                     continue;
                 }
 
@@ -209,8 +238,60 @@ public final class Jemu {
             return;
         }
         this.getCurrentAudioRenderer().ifPresent(renderer -> renderer.setPaused(false));
-        this.currentSystem.getEmulator().executeFrame();
-        this.mainWindow.getStatusBar().update(this.currentSystem.getRomTitle().orElse(""), this.currentSystem.getSystemName());
+        boolean rewinding = false;
+        if (this.rewindBuffer != null) {
+            rewinding = this.currentSystem.getJPanelVideoDriver().isRewindHeld() && this.rewindBuffer.rewind();
+            if (!rewinding) {
+                this.rewindBuffer.capture();
+            }
+        }
+        int runAheadFrames = rewinding ? 0 : this.runAheadFrames;
+        long runAheadTime = 0;
+        // Frames replayed while rewinding are only shown, and the save data is written back once the game moves on
+        this.currentSystem.setSaveDataFlushSuppressed(rewinding);
+        if (runAheadFrames > 0) {
+            runAheadTime = this.executeFrameWithRunAhead(this.currentSystem.getEmulator(), runAheadFrames);
+        } else {
+            this.currentSystem.getEmulator().executeFrame();
+        }
+        AudioRenderer audioRenderer = this.currentSystem.getAudioRenderer();
+        this.mainWindow.getStatusBar().update(this.currentSystem.getRomTitle().orElse(""), this.currentSystem.getSystemName(), runAheadFrames, runAheadTime, audioRenderer.getUnderruns(), audioRenderer.getOverruns());
+    }
+
+    // Runs the frame, then keeps going for the given amount of frames with the same input and only presents the last
+    // one, which hides that many frames of lag between the game reading its input and showing the result. The audio of
+    // the extra frames is never pulled, and loading the state back leaves the samples of the real frame for the audio
+    // driver. Save data isn't written back during the extra frames, since whatever they wrote to it is rolled back.
+    // Returns the time spent on top of the real frame
+    private long executeFrameWithRunAhead(Emulator emulator, int runAheadFrames) {
+        try {
+            this.currentSystem.setVideoOutputSuppressed(true);
+            emulator.executeFrame();
+            long startTime = java.lang.System.nanoTime();
+            this.runAheadStateWriter.reset();
+            emulator.saveState(this.runAheadStateWriter);
+            this.currentSystem.setSaveDataFlushSuppressed(true);
+            for (int i = 1; i <= runAheadFrames; i++) {
+                this.currentSystem.setVideoOutputSuppressed(i < runAheadFrames);
+                emulator.executeFrame();
+            }
+            emulator.loadState(this.getRunAheadStateReader());
+            return java.lang.System.nanoTime() - startTime;
+        } finally {
+            this.currentSystem.setVideoOutputSuppressed(false);
+            this.currentSystem.setSaveDataFlushSuppressed(false);
+        }
+    }
+
+    private StateReader getRunAheadStateReader() {
+        byte[] buffer = this.runAheadStateWriter.getBuffer();
+        if (buffer != this.runAheadStateBuffer) {
+            this.runAheadStateBuffer = buffer;
+            this.runAheadStateReader = new StateReader(buffer, this.runAheadStateWriter.size());
+        } else {
+            this.runAheadStateReader.reset(this.runAheadStateWriter.size());
+        }
+        return this.runAheadStateReader;
     }
 
     private void onSteppingFrame() {
@@ -218,6 +299,7 @@ public final class Jemu {
             return;
         }
         this.getCurrentAudioRenderer().ifPresent(renderer -> renderer.setPaused(true));
+        this.currentSystem.setSaveDataFlushSuppressed(false);
         this.currentSystem.getEmulator().executeFrame();
         this.currentState = State.PAUSED;
     }
@@ -244,8 +326,8 @@ public final class Jemu {
             }
 
             @Override
-            public Optional<byte[]> getRawRom() {
-                return this.getRomPath().map(SystemAdapter::readRawRom);
+            public Optional<RomImage> getRomImage() {
+                return this.getRomPath().map(SystemAdapter::readRom);
             }
 
             @Override
@@ -253,6 +335,21 @@ public final class Jemu {
                 return Optional.ofNullable(resetEvent.getSystemDescriptor().orElse(null) instanceof System system ? system : null);
             }
 
+            @Override
+            public boolean isRecompilerEnabled() {
+                return recompilerEnabled;
+            }
+
+            @Override
+            public Duration getSaveDataFlushInterval() {
+                return saveDataFlushInterval;
+            }
+
+            @Override
+            public boolean isSaveDataFlushedOnVBlank() {
+                return saveDataFlushedOnVBlank;
+            }
+
         };
 
         this.initializeEmulator(emulatorInitializer);
@@ -263,10 +360,13 @@ public final class Jemu {
             this.currentSystem.close();
             this.currentSystem = null;
         }
+        this.rewindBuffer = null;
     }
 
     private void initializeEmulator(EmulatorInitializer initializer) {
         this.currentSystem = System.getSystemAdapter(this, initializer);
+        this.rewindBuffer = this.rewindBufferSize > 0 ? new RewindBuffer(this.currentSystem.getEmulator(), this.rewindBufferSize, this.rewindInterval) : null;
+        this.frameLimiter = new FrameLimiter(this.currentSystem.getEmulator().getFramerate(), true, true);
         this.getCurrentAudioRenderer().ifPresent(audioRenderer -> {
             audioRenderer.setMuted(this.mainWindow.getMainMenuBar().getSettingsMenu().getMuted());
             audioRenderer.setVolume(this.mainWindow.getMainMenuBar().getSettingsMenu().getVolume());
@@ -10,7 +10,6 @@ import io.github.arkosammy12.jemu.core.common.Emulator;
 import io.github.arkosammy12.jemu.core.cosmacvip.CosmacVIPKeypad;
 import io.github.arkosammy12.jemu.core.cosmacvip.CosmacVipEmulator;
 import io.github.arkosammy12.jemu.core.cosmacvip.CosmacVIPHost;
-import io.github.arkosammy12.jemu.core.drivers.VideoDriver;
 import io.github.arkosammy12.jemu.frontend.audio.AudioRenderer;
 import io.github.arkosammy12.jemu.frontend.audio.MonoAudioRenderer;
 import io.github.arkosammy12.jemu.frontend.audio.StereoAudioRenderer;
@@ -96,11 +95,6 @@ public class DefaultCosmacVIPAdapter extends DefaultSystemAdapter implements Cos
         return Optional.ofNullable(this.romTitle);
     }
 
-    @Override
-    public Optional<VideoDriver> getVideoDriver() {
-        return Optional.of(this.videoDriver);
-    }
-
     @Override
     public Optional<? extends DefaultAudioRendererDriver> getAudioDriver() {
         return Optional.of(this.audioDriver);
@@ -7,8 +7,7 @@ import io.github.arkosammy12.jemu.app.drivers.StereoAudioRendererDriver;
 import io.github.arkosammy12.jemu.app.io.initializers.CoreInitializer;
 import io.github.arkosammy12.jemu.app.util.System;
 import io.github.arkosammy12.jemu.core.common.Emulator;
-import io.github.arkosammy12.jemu.core.common.SystemHost;
-import io.github.arkosammy12.jemu.core.drivers.VideoDriver;
+import io.github.arkosammy12.jemu.core.common.RomImage;
 import io.github.arkosammy12.jemu.core.gameboy.GameBoyEmulator;
 import io.github.arkosammy12.jemu.core.gameboy.GameBoyHost;
 import io.github.arkosammy12.jemu.core.gameboy.GameBoyJoypad;
@@ -23,6 +22,7 @@ import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
 
 public class DefaultGameBoyAdapter extends DefaultSystemAdapter implements GameBoyHost {
@@ -40,6 +40,8 @@ public class DefaultGameBoyAdapter extends DefaultSystemAdapter implements GameB
     private final DefaultAudioRendererDriver audioDriver;
     private final AudioRenderer audioRenderer;
     private final Path saveDataDirectory;
+    private final Duration saveDataFlushInterval;
+    private final boolean saveDataFlushedOnVBlank;
 
     public DefaultGameBoyAdapter(CoreInitializer initializer, Model model) {
         super(initializer);
@@ -47,9 +49,9 @@ public class DefaultGameBoyAdapter extends DefaultSystemAdapter implements GameB
         String title = null;
         try {
             titleBuilder = new StringBuilder();
-            int[] rom = SystemHost.byteToIntArray(this.getRom());
+            RomImage rom = this.getRomImage();
             for (int i = HEADER_TITLE_START; i <= HEADER_TITLE_END; i++) {
-                int b = rom[i] & 0xFF;
+                int b = rom.readByte(i);
                 if (b == 0x00) {
                     break;
                 }
@@ -58,7 +60,7 @@ public class DefaultGameBoyAdapter extends DefaultSystemAdapter implements GameB
                 }
             }
             title = titleBuilder.toString();
-        } catch (ArrayIndexOutOfBoundsException e) {
+        } catch (IndexOutOfBoundsException e) {
             Logger.error("Failed to read ROM title from GameBoy cartridge header!", e);
         }
         this.romTitle = title != null ? title : initializer.getRomPath().map(path -> path.getFileName().toString()).orElse(null);
@@ -88,6 +90,8 @@ public class DefaultGameBoyAdapter extends DefaultSystemAdapter implements GameB
         };
 
         this.saveDataDirectory = this.getRomPath().getParent();
+        this.saveDataFlushInterval = initializer.getSaveDataFlushInterval();
+        this.saveDataFlushedOnVBlank = initializer.isSaveDataFlushedOnVBlank();
 
         this.emulator = switch (model) {
             case CGB -> new GameBoyColorEmulator(this);
@@ -126,6 +130,16 @@ public class DefaultGameBoyAdapter extends DefaultSystemAdapter implements GameB
         return this.saveDataDirectory;
     }
 
+    @Override
+    public Duration getSaveDataFlushInterval() {
+        return this.saveDataFlushInterval;
+    }
+
+    @Override
+    public boolean isSaveDataFlushedOnVBlank() {
+        return this.saveDataFlushedOnVBlank;
+    }
+
     @Override
     public String getSystemName() {
         return this.system.getDisplayName();
@@ -136,11 +150,6 @@ public class DefaultGameBoyAdapter extends DefaultSystemAdapter implements GameB
         return Optional.ofNullable(this.romTitle);
     }
 
-    @Override
-    public Optional<VideoDriver> getVideoDriver() {
-        return Optional.of(this.videoDriver);
-    }
-
     @Override
     public Optional<? extends DefaultAudioRendererDriver> getAudioDriver() {
         return Optional.of(this.audioDriver);
@@ -7,7 +7,6 @@ import io.github.arkosammy12.jemu.app.drivers.StereoAudioRendererDriver;
 import io.github.arkosammy12.jemu.app.io.initializers.CoreInitializer;
 import io.github.arkosammy12.jemu.app.util.System;
 import io.github.arkosammy12.jemu.core.common.Emulator;
-import io.github.arkosammy12.jemu.core.drivers.VideoDriver;
 import io.github.arkosammy12.jemu.core.nes.NESController;
 import io.github.arkosammy12.jemu.core.nes.NESEmulator;
 import io.github.arkosammy12.jemu.frontend.audio.AudioRenderer;
@@ -93,11 +92,6 @@ public class DefaultNESAdapter extends DefaultSystemAdapter {
         return Optional.ofNullable(this.romTitle);
     }
 
-    @Override
-    public Optional<? extends VideoDriver> getVideoDriver() {
-        return Optional.ofNullable(this.videoDriver);
-    }
-
     @Override
     public Optional<? extends DefaultAudioRendererDriver> getAudioDriver() {
         return Optional.ofNullable(this.audioDriver);
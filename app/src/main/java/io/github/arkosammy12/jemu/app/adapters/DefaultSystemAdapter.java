@@ -3,32 +3,36 @@ package io.github.arkosammy12.jemu.app.adapters;
 import io.github.arkosammy12.jemu.app.drivers.DefaultAudioRendererDriver;
 import io.github.arkosammy12.jemu.app.drivers.JPanelVideoDriver;
 import io.github.arkosammy12.jemu.app.io.initializers.CoreInitializer;
+import io.github.arkosammy12.jemu.core.common.RomImage;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.frontend.audio.AudioRenderer;
 
 import java.nio.file.Path;
-import java.util.Arrays;
 import java.util.Optional;
 
 public abstract class DefaultSystemAdapter implements SystemAdapter {
 
-    private final byte[] rom;
+    private final RomImage romImage;
     private final Path path;
+    private final boolean recompilerEnabled;
+
+    private boolean videoOutputSuppressed;
+    private boolean saveDataFlushSuppressed;
 
     public DefaultSystemAdapter(CoreInitializer initializer) {
-        Optional<byte[]> rawRomOptional = initializer.getRawRom();
+        Optional<RomImage> romImageOptional = initializer.getRomImage();
         Optional<Path> romPathOptional = initializer.getRomPath();
-        if (rawRomOptional.isEmpty() || romPathOptional.isEmpty()) {
+        if (romImageOptional.isEmpty() || romPathOptional.isEmpty()) {
             throw new EmulatorException("Must select a ROM file before starting emulation!");
         }
-        byte[] rom = rawRomOptional.get();
-        this.rom = Arrays.copyOf(rom, rom.length);
+        this.romImage = romImageOptional.get();
         this.path = romPathOptional.get();
+        this.recompilerEnabled = initializer.isRecompilerEnabled();
     }
 
     @Override
-    public byte[] getRom() {
-        return Arrays.copyOf(this.rom, this.rom.length);
+    public RomImage getRomImage() {
+        return this.romImage;
     }
 
     @Override
@@ -36,8 +40,33 @@ public abstract class DefaultSystemAdapter implements SystemAdapter {
         return this.path;
     }
 
+    @Override
+    public boolean isRecompilerEnabled() {
+        return this.recompilerEnabled;
+    }
+
     public abstract JPanelVideoDriver getJPanelVideoDriver();
 
+    // Cores only push frames to the driver the host hands them, so handing them none skips presenting frames that are
+    // going to be thrown away
+    public void setVideoOutputSuppressed(boolean suppressed) {
+        this.videoOutputSuppressed = suppressed;
+    }
+
+    @Override
+    public Optional<JPanelVideoDriver> getVideoDriver() {
+        return this.videoOutputSuppressed ? Optional.empty() : Optional.ofNullable(this.getJPanelVideoDriver());
+    }
+
+    public void setSaveDataFlushSuppressed(boolean suppressed) {
+        this.saveDataFlushSuppressed = suppressed;
+    }
+
+    @Override
+    public boolean isSaveDataFlushSuppressed() {
+        return this.saveDataFlushSuppressed;
+    }
+
     public abstract AudioRenderer getAudioRenderer();
 
     @Override
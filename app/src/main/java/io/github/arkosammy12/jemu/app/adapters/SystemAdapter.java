@@ -2,24 +2,22 @@ package io.github.arkosammy12.jemu.app.adapters;
 
 import io.github.arkosammy12.jemu.app.util.System;
 import io.github.arkosammy12.jemu.core.common.Emulator;
+import io.github.arkosammy12.jemu.core.common.RomImage;
 import io.github.arkosammy12.jemu.core.common.SystemHost;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 
 import java.io.Closeable;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 public interface SystemAdapter extends SystemHost, Closeable {
 
-    byte[] getRom();
-
     System getSystem();
 
     Emulator getEmulator();
 
-    static byte[] readRawRom(Path path) {
+    static RomImage readRom(Path path) {
         try {
-            return Files.readAllBytes(path);
+            return RomImage.map(path);
         } catch (Exception e) {
             throw new EmulatorException("Failed to read ROM file from path: " + path, e);
         }
@@ -10,16 +10,22 @@ public abstract class DefaultAudioRendererDriver implements AudioDriver, Closeab
 
     protected final AudioGenerator<?> audioGenerator;
     protected final AudioRenderer audioRenderer;
+    private final short[] samples;
 
     public DefaultAudioRendererDriver(AudioGenerator<?> audioGenerator, AudioRenderer audioRenderer) {
         this.audioGenerator = audioGenerator;
         this.audioRenderer = audioRenderer;
+        this.samples = new short[audioRenderer.getMaxSamplesPerFrame() * audioRenderer.getChannels()];
     }
 
     public AudioRenderer getAudioRenderer() {
         return this.audioRenderer;
     }
 
-    public abstract void onFrame();
+    public void onFrame() {
+        this.audioRenderer.updateRateControl();
+        int sampleCount = this.audioGenerator.getSampleFrame(this.samples);
+        this.audioRenderer.pushSampleFrame(this.samples, sampleCount);
+    }
 
 }
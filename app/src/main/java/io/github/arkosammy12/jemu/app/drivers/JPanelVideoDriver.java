@@ -5,29 +5,39 @@ import io.github.arkosammy12.jemu.core.drivers.VideoDriver;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class JPanelVideoDriver extends JPanel implements VideoDriver, Closeable {
 
+    public static final int REWIND_KEY = KeyEvent.VK_BACK_QUOTE;
+
+    private static final int FRAME_INDEX_MASK = 0b11;
+    private static final int FRAME_READY = 0b100;
+
     private final VideoGenerator<?> videoGenerator;
-    private final int[][] renderBuffer;
 
     private final int displayWidth;
     private final int displayHeight;
 
-    private final BufferedImage bufferedImage;
-    private final AffineTransform drawTransform = new AffineTransform();
+    // Triple buffered: the emulator thread fills the back frame and swaps it with the shared one, and painting swaps
+    // the front frame with the shared one whenever it holds a frame that hasn't been shown yet. Neither side ever waits
+    // on the other, and frames the panel didn't get to paint in time are simply overwritten
+    private final BufferedImage[] frames = new BufferedImage[3];
+    private final int[][] framePixels = new int[3][];
+    private final AtomicInteger sharedFrame = new AtomicInteger(1);
+    private int backFrame = 0;
+    private int frontFrame = 2;
 
-    private final Thread renderThread;
-    private final Object renderLock = new Object();
-    protected final Object renderBufferLock = new Object();
+    private final AffineTransform drawTransform = new AffineTransform();
 
-    private volatile boolean running = true;
-    private boolean frameRequested = false;
+    private volatile boolean rewindHeld = false;
 
     private int lastWidth = -1;
     private int lastHeight = -1;
@@ -37,44 +47,67 @@ public class JPanelVideoDriver extends JPanel implements VideoDriver, Closeable
         this.displayWidth = videoGenerator.getImageWidth();
         this.displayHeight = videoGenerator.getImageHeight();
 
-        this.renderBuffer = new int[displayWidth][displayHeight];
-        this.bufferedImage = new BufferedImage(displayWidth, displayHeight, BufferedImage.TYPE_INT_ARGB);
+        for (int i = 0; i < this.frames.length; i++) {
+            this.frames[i] = new BufferedImage(displayWidth, displayHeight, BufferedImage.TYPE_INT_ARGB);
+            this.framePixels[i] = ((DataBufferInt) this.frames[i].getRaster().getDataBuffer()).getData();
+        }
 
-        SwingUtilities.invokeLater(() -> this.addKeyListener(keyListener));
-        this.renderThread = new Thread(this::renderLoop, "jemu-render-thread");
-        this.renderThread.setDaemon(true);
-        this.renderThread.start();
-    }
+        KeyAdapter rewindKeyListener = new KeyAdapter() {
 
-    @Override
-    public void outputFrame(int[][] argb) {
-        synchronized (this.renderBufferLock) {
-            if (this.renderBuffer == null || this.videoGenerator == null) {
-                return;
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == REWIND_KEY) {
+                    rewindHeld = true;
+                }
             }
-            for (int y = 0; y < this.videoGenerator.getImageHeight(); y++) {
-                for (int x = 0; x < this.videoGenerator.getImageWidth(); x++) {
-                    this.renderBuffer[x][y] = argb[x][y];
+
+            @Override
+            public void keyReleased(KeyEvent e) {
+                if (e.getKeyCode() == REWIND_KEY) {
+                    rewindHeld = false;
                 }
             }
+
+        };
+
+        SwingUtilities.invokeLater(() -> {
+            this.addKeyListener(keyListener);
+            this.addKeyListener(rewindKeyListener);
+        });
+    }
+
+    @Override
+    public void outputFrame(int[] argb, int stride) {
+        int[] pixels = this.framePixels[this.backFrame];
+        if (stride == this.displayWidth) {
+            System.arraycopy(argb, 0, pixels, 0, pixels.length);
+        } else {
+            for (int y = 0; y < this.displayHeight; y++) {
+                System.arraycopy(argb, y * stride, pixels, y * this.displayWidth, this.displayWidth);
+            }
         }
+        this.backFrame = this.sharedFrame.getAndSet(this.backFrame | FRAME_READY) & FRAME_INDEX_MASK;
+    }
+
+    public boolean isRewindHeld() {
+        return this.rewindHeld;
     }
 
     public void requestFrame() {
-        synchronized (this.renderLock) {
-            this.frameRequested = true;
-            this.renderLock.notify();
-        }
+        this.repaint();
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        if ((this.sharedFrame.get() & FRAME_READY) != 0) {
+            this.frontFrame = this.sharedFrame.getAndSet(this.frontFrame) & FRAME_INDEX_MASK;
+        }
         this.updateTransformIfNeeded();
         Graphics2D g2 = (Graphics2D) g.create();
         try {
             g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
-            g2.drawImage(this.bufferedImage, this.drawTransform, null);
+            g2.drawImage(this.frames[this.frontFrame], this.drawTransform, null);
         } finally {
             g2.dispose();
         }
@@ -104,43 +137,10 @@ public class JPanelVideoDriver extends JPanel implements VideoDriver, Closeable
         this.lastHeight = h;
     }
 
-    private void renderLoop() {
-        while (this.running) {
-            synchronized (this.renderLock) {
-                while (this.running && !this.frameRequested) {
-                    try {
-                        this.renderLock.wait();
-                    } catch (InterruptedException _) {}
-                }
-                this.frameRequested = false;
-            }
-            this.renderFrame();
-        }
-    }
-
-    private void renderFrame() {
-        int[] pixels = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
-        synchronized (renderBufferLock) {
-            for (int y = 0; y < displayHeight; y++) {
-                int base = y * displayWidth;
-                for (int x = 0; x < displayWidth; x++) {
-                    pixels[base + x] = renderBuffer[x][y];
-                }
-            }
-        }
-        SwingUtilities.invokeLater(this::repaint);
-    }
-
     @Override
     public void close() {
-        this.running = false;
-        synchronized (this.renderLock) {
-            this.renderLock.notifyAll();
-        }
-        if (this.renderThread != null) {
-            try {
-                this.renderThread.join();
-            } catch (InterruptedException _) {}
+        for (BufferedImage frame : this.frames) {
+            frame.flush();
         }
     }
 
@@ -1,11 +1,9 @@
 package io.github.arkosammy12.jemu.app.drivers;
 
 import io.github.arkosammy12.jemu.core.common.AudioGenerator;
-import io.github.arkosammy12.jemu.frontend.audio.AudioRenderer;
 import io.github.arkosammy12.jemu.frontend.audio.MonoAudioRenderer;
 
 import java.io.IOException;
-import java.util.Optional;
 
 public class MonoAudioRendererDriver extends DefaultAudioRendererDriver {
 
@@ -15,7 +13,7 @@ public class MonoAudioRendererDriver extends DefaultAudioRendererDriver {
 
     @Override
     public int getSampleRate() {
-        return AudioRenderer.SAMPLE_RATE;
+        return this.audioRenderer.getSampleRate();
     }
 
     @Override
@@ -23,32 +21,6 @@ public class MonoAudioRendererDriver extends DefaultAudioRendererDriver {
         return this.audioRenderer.getSamplesPerFrame();
     }
 
-    @Override
-    public void onFrame() {
-        Optional<byte[]> optionalSamples = this.audioGenerator.getSampleFrame();
-        if (optionalSamples.isEmpty()) {
-            this.audioRenderer.pushSampleFrame(null);
-            return;
-        }
-        byte[] samples = optionalSamples.get();
-        this.audioRenderer.pushSampleFrame(this.resampleIfNecessary(samples));
-    }
-
-    private byte[] resampleIfNecessary(byte[] buf) {
-        return switch (this.audioGenerator.getBytesPerSample()) {
-            case BYTES_1 -> {
-                byte[] buf16 = new byte[this.audioRenderer.getBytesPerFrame()];
-                for (int i = 0; i < buf.length; i++) {
-                    int sample16 = buf[i] * 256;
-                    buf16[i * 2] = (byte) ((sample16 & 0xFF00) >>> 8);
-                    buf16[(i * 2) + 1] = (byte) (sample16 & 0xFF);
-                }
-                yield buf16;
-            }
-            case BYTES_2 -> buf;
-        };
-    }
-
     @Override
     public void close() throws IOException {
         if (this.audioRenderer != null) {
@@ -1,10 +1,13 @@
 package io.github.arkosammy12.jemu.app.io;
 
 import io.github.arkosammy12.jemu.app.Main;
+import io.github.arkosammy12.jemu.app.util.RewindBuffer;
 import io.github.arkosammy12.jemu.app.util.System;
+import io.github.arkosammy12.jemu.core.gameboy.GameBoyHost;
 import picocli.CommandLine;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
 
 @CommandLine.Command(
@@ -30,6 +33,42 @@ public final class CLIArgs {
     )
     private io.github.arkosammy12.jemu.app.util.System system;
 
+    @CommandLine.Option(
+            names = {"--rewind-buffer-size"},
+            description = "The amount of memory in MB to keep rewind history in, or 0 to disable rewinding. Defaults to ${DEFAULT-VALUE}."
+    )
+    private int rewindBufferSize = RewindBuffer.DEFAULT_BUDGET_MEGABYTES;
+
+    @CommandLine.Option(
+            names = {"--rewind-interval"},
+            description = "The amount of frames between each state captured for rewinding. Defaults to ${DEFAULT-VALUE}."
+    )
+    private int rewindInterval = RewindBuffer.DEFAULT_CAPTURE_INTERVAL;
+
+    @CommandLine.Option(
+            names = {"--run-ahead"},
+            description = "The amount of frames to run ahead of the displayed frame to reduce input lag, or 0 to disable run-ahead. Defaults to ${DEFAULT-VALUE}."
+    )
+    private int runAheadFrames = 0;
+
+    @CommandLine.Option(
+            names = {"--recompiler"},
+            description = "Compile hot Game Boy and NES code into JVM bytecode instead of interpreting it. Interrupts are only taken between compiled blocks, so timing may differ slightly from the interpreter."
+    )
+    private boolean recompilerEnabled = false;
+
+    @CommandLine.Option(
+            names = {"--save-flush-interval"},
+            description = "The amount of milliseconds between each time Game Boy save data is written back to its .sav file, or 0 to write it back every frame. Defaults to ${DEFAULT-VALUE}."
+    )
+    private long saveDataFlushInterval = GameBoyHost.DEFAULT_SAVE_DATA_FLUSH_INTERVAL.toMillis();
+
+    @CommandLine.Option(
+            names = {"--save-flush-on-vblank"},
+            description = "Write Game Boy save data back to its .sav file every time the PPU enters VBlank after it changed, instead of on the save flush interval."
+    )
+    private boolean saveDataFlushedOnVBlank = false;
+
     private final boolean exitImmediately;
 
     public CLIArgs(String[] args) {
@@ -52,6 +91,30 @@ public final class CLIArgs {
         return Optional.ofNullable(this.system);
     }
 
+    public int getRewindBufferSize() {
+        return this.rewindBufferSize;
+    }
+
+    public int getRewindInterval() {
+        return this.rewindInterval;
+    }
+
+    public int getRunAheadFrames() {
+        return this.runAheadFrames;
+    }
+
+    public boolean isRecompilerEnabled() {
+        return this.recompilerEnabled;
+    }
+
+    public Duration getSaveDataFlushInterval() {
+        return Duration.ofMillis(this.saveDataFlushInterval);
+    }
+
+    public boolean isSaveDataFlushedOnVBlank() {
+        return this.saveDataFlushedOnVBlank;
+    }
+
     public boolean exitImmediately() {
         return this.exitImmediately;
     }
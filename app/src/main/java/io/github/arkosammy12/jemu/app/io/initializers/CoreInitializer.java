@@ -1,16 +1,24 @@
 package io.github.arkosammy12.jemu.app.io.initializers;
 
 import io.github.arkosammy12.jemu.app.util.System;
+import io.github.arkosammy12.jemu.core.common.RomImage;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
 
 public interface CoreInitializer {
 
     Optional<Path> getRomPath();
 
-    Optional<byte[]> getRawRom();
+    Optional<RomImage> getRomImage();
 
     Optional<System> getSystem();
 
+    boolean isRecompilerEnabled();
+
+    Duration getSaveDataFlushInterval();
+
+    boolean isSaveDataFlushedOnVBlank();
+
 }
@@ -0,0 +1,257 @@
+package io.github.arkosammy12.jemu.app.util;
+
+import io.github.arkosammy12.jemu.core.common.Emulator;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+
+import java.lang.System;
+import java.util.Arrays;
+
+// Keeps a history of emulator states within a fixed memory budget. Every few frames the state is captured and encoded
+// into a byte ring: keyframes against zeros, and the states between them against the previous keyframe. An encoded
+// state alternates between runs of bytes equal to the reference and runs of literal bytes, which is run-length coding
+// the XOR of the two without ever building it, so a frame that only touched a few KB of RAM costs about that much.
+// When the ring runs out of room, the oldest keyframe is dropped together with the states that depend on it
+public final class RewindBuffer {
+
+    public static final int DEFAULT_BUDGET_MEGABYTES = 32;
+    public static final int DEFAULT_CAPTURE_INTERVAL = 1;
+
+    private static final int KEYFRAME_INTERVAL = 60;
+    private static final int MAX_ENTRIES = 1 << 16;
+    // Shorter runs of equal bytes are cheaper to keep as part of the surrounding literals than as runs of their own
+    private static final int MIN_EQUAL_RUN = 8;
+
+    private final Emulator emulator;
+    private final int captureInterval;
+    private final StateWriter stateWriter = new StateWriter();
+
+    private final byte[] ring;
+    private int writePosition;
+
+    private final int[] entryOffsets = new int[MAX_ENTRIES];
+    private final int[] entryLengths = new int[MAX_ENTRIES];
+    private final int[] entryStateLengths = new int[MAX_ENTRIES];
+    private final int[] entryKeyframes = new int[MAX_ENTRIES];
+    private int oldestEntry;
+    private int entryCount;
+
+    // The decoded state of the newest keyframe in the ring, which new states are encoded against
+    private byte[] keyframe = new byte[0];
+    private int keyframeLength;
+    private int keyframeEntry = -1;
+    private int entriesSinceKeyframe;
+
+    private byte[] zeros = new byte[0];
+    private byte[] encodeBuffer = new byte[0];
+    private byte[] decodeBuffer = new byte[0];
+    private StateReader stateReader = new StateReader(this.decodeBuffer);
+    private int readPosition;
+    private int framesUntilCapture;
+
+    public RewindBuffer(Emulator emulator, int budgetMegabytes, int captureInterval) {
+        this.emulator = emulator;
+        this.captureInterval = Math.max(captureInterval, 1);
+        this.ring = new byte[budgetMegabytes << 20];
+    }
+
+    // Called before every frame that runs forward
+    public void capture() {
+        if (--this.framesUntilCapture > 0) {
+            return;
+        }
+        this.framesUntilCapture = this.captureInterval;
+
+        this.stateWriter.reset();
+        this.emulator.saveState(this.stateWriter);
+        byte[] state = this.stateWriter.getBuffer();
+        int stateLength = this.stateWriter.size();
+
+        if (this.zeros.length < stateLength) {
+            this.zeros = new byte[stateLength];
+        }
+        boolean isKeyframe = this.keyframeEntry < 0 || this.entriesSinceKeyframe >= KEYFRAME_INTERVAL || stateLength != this.keyframeLength;
+        int encodedLength = this.encode(state, stateLength, isKeyframe ? this.zeros : this.keyframe);
+        if (encodedLength > this.ring.length) {
+            return;
+        }
+
+        int position = this.reserve(encodedLength);
+        // With a budget this small the keyframe itself may have been dropped to make room
+        if (!isKeyframe && this.keyframeEntry < 0) {
+            return;
+        }
+        System.arraycopy(this.encodeBuffer, 0, this.ring, position, encodedLength);
+        this.writePosition = position + encodedLength;
+
+        int entry = (this.oldestEntry + this.entryCount) & (MAX_ENTRIES - 1);
+        this.entryCount++;
+        this.entryOffsets[entry] = position;
+        this.entryLengths[entry] = encodedLength;
+        this.entryStateLengths[entry] = stateLength;
+        if (isKeyframe) {
+            if (this.keyframe.length < stateLength) {
+                this.keyframe = new byte[stateLength];
+            }
+            System.arraycopy(state, 0, this.keyframe, 0, stateLength);
+            this.keyframeLength = stateLength;
+            this.keyframeEntry = entry;
+            this.entriesSinceKeyframe = 0;
+            this.entryKeyframes[entry] = entry;
+        } else {
+            this.entriesSinceKeyframe++;
+            this.entryKeyframes[entry] = this.keyframeEntry;
+        }
+    }
+
+    // Loads the newest state and removes it from the history. Running a frame afterward shows the frame it was captured
+    // before, so calling this every frame plays the history backward
+    public boolean rewind() {
+        if (this.entryCount <= 0) {
+            return false;
+        }
+        int entry = (this.oldestEntry + this.entryCount - 1) & (MAX_ENTRIES - 1);
+        int stateLength = this.entryStateLengths[entry];
+        if (this.decodeBuffer.length < stateLength) {
+            this.decodeBuffer = new byte[stateLength];
+            this.stateReader = new StateReader(this.decodeBuffer);
+        }
+        boolean isKeyframe = this.entryKeyframes[entry] == entry;
+        if (isKeyframe) {
+            System.arraycopy(this.keyframe, 0, this.decodeBuffer, 0, stateLength);
+        } else {
+            this.decode(entry, this.keyframe, this.decodeBuffer);
+        }
+        this.entryCount--;
+        this.writePosition = this.entryOffsets[entry];
+
+        if (!isKeyframe) {
+            this.entriesSinceKeyframe--;
+        } else if (this.entryCount > 0) {
+            int newestEntry = (entry - 1) & (MAX_ENTRIES - 1);
+            int previousKeyframe = this.entryKeyframes[newestEntry];
+            this.keyframeLength = this.entryStateLengths[previousKeyframe];
+            if (this.keyframe.length < this.keyframeLength) {
+                this.keyframe = new byte[this.keyframeLength];
+            }
+            if (this.zeros.length < this.keyframeLength) {
+                this.zeros = new byte[this.keyframeLength];
+            }
+            this.decode(previousKeyframe, this.zeros, this.keyframe);
+            this.keyframeEntry = previousKeyframe;
+            this.entriesSinceKeyframe = (newestEntry - previousKeyframe) & (MAX_ENTRIES - 1);
+        } else {
+            this.keyframeEntry = -1;
+        }
+
+        this.stateReader.reset(stateLength);
+        this.emulator.loadState(this.stateReader);
+        this.framesUntilCapture = 0;
+        return true;
+    }
+
+    // Drops the oldest entries until the given amount of bytes is free, and returns the position to write them at
+    private int reserve(int length) {
+        int position = this.writePosition;
+        if (position + length > this.ring.length) {
+            // Whatever is left past the write position is older than everything before it, so it goes first
+            while (this.entryCount > 0 && this.entryOffsets[this.oldestEntry] >= position) {
+                this.dropOldestKeyframe();
+            }
+            position = 0;
+        }
+        while (this.entryCount > 0) {
+            int oldestOffset = this.entryOffsets[this.oldestEntry];
+            if (this.entryCount < MAX_ENTRIES && (oldestOffset < position || oldestOffset >= position + length)) {
+                break;
+            }
+            this.dropOldestKeyframe();
+        }
+        if (this.entryCount <= 0) {
+            position = 0;
+        }
+        return position;
+    }
+
+    private void dropOldestKeyframe() {
+        int keyframe = this.oldestEntry;
+        do {
+            this.oldestEntry = (this.oldestEntry + 1) & (MAX_ENTRIES - 1);
+            this.entryCount--;
+        } while (this.entryCount > 0 && this.entryKeyframes[this.oldestEntry] == keyframe);
+        if (keyframe == this.keyframeEntry) {
+            this.keyframeEntry = -1;
+        }
+    }
+
+    private int encode(byte[] state, int length, byte[] reference) {
+        int maxEncodedLength = length + 10 * (length / MIN_EQUAL_RUN + 1);
+        if (this.encodeBuffer.length < maxEncodedLength) {
+            this.encodeBuffer = new byte[maxEncodedLength];
+        }
+        byte[] output = this.encodeBuffer;
+        int outputPosition = 0;
+        int i = 0;
+        while (i < length) {
+            int mismatch = Arrays.mismatch(state, i, length, reference, i, length);
+            int literalStart = mismatch < 0 ? length : i + mismatch;
+            int literalEnd = literalStart;
+            int equalRun = 0;
+            while (literalEnd + equalRun < length && equalRun < MIN_EQUAL_RUN) {
+                if (state[literalEnd + equalRun] == reference[literalEnd + equalRun]) {
+                    equalRun++;
+                } else {
+                    literalEnd += equalRun + 1;
+                    equalRun = 0;
+                }
+            }
+            outputPosition = writeVarInt(output, outputPosition, literalStart - i);
+            outputPosition = writeVarInt(output, outputPosition, literalEnd - literalStart);
+            System.arraycopy(state, literalStart, output, outputPosition, literalEnd - literalStart);
+            outputPosition += literalEnd - literalStart;
+            i = literalEnd;
+        }
+        return outputPosition;
+    }
+
+    private void decode(int entry, byte[] reference, byte[] destination) {
+        int end = this.entryOffsets[entry] + this.entryLengths[entry];
+        int length = this.entryStateLengths[entry];
+        this.readPosition = this.entryOffsets[entry];
+        int i = 0;
+        while (this.readPosition < end) {
+            int equalRun = this.readVarInt();
+            System.arraycopy(reference, i, destination, i, equalRun);
+            i += equalRun;
+            int literalRun = this.readVarInt();
+            System.arraycopy(this.ring, this.readPosition, destination, i, literalRun);
+            this.readPosition += literalRun;
+            i += literalRun;
+        }
+        if (i != length) {
+            throw new IllegalStateException("Corrupted rewind buffer entry!");
+        }
+    }
+
+    private static int writeVarInt(byte[] output, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            output[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output[position++] = (byte) value;
+        return position;
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = this.ring[this.readPosition++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+}
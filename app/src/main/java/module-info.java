@@ -9,5 +9,5 @@ module app {
     requires core;
 
     opens io.github.arkosammy12.jemu.app.io to info.picocli;
-    exports io.github.arkosammy12.jemu.app.util to info.picocli;
+    exports io.github.arkosammy12.jemu.app.util to info.picocli, app.test;
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package io.github.arkosammy12.jemu.app.test.tests;
+
+import io.github.arkosammy12.jemu.app.test.util.ByteStateEmulator;
+import io.github.arkosammy12.jemu.app.util.RewindBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RewindBufferTest {
+
+    @Test
+    public void rewinds_across_keyframes() {
+        Random random = new Random(1);
+        ByteStateEmulator emulator = new ByteStateEmulator(randomBytes(random, 0x4000));
+        RewindBuffer rewindBuffer = new RewindBuffer(emulator, 8, 1);
+        // Enough states for a few keyframes, which are captured every 60 states
+        List<byte[]> history = capture(emulator, rewindBuffer, random, 150, 0x4000, 0x4000, 0x100);
+
+        // Rewinding past the newest keyframe decodes the one before it again, which the states captured next are
+        // encoded against
+        rewindAndCheck(emulator, rewindBuffer, history, 100);
+        history.addAll(capture(emulator, rewindBuffer, random, 80, 0x4000, 0x4000, 0x100));
+        rewindAndCheck(emulator, rewindBuffer, history, history.size());
+        assertFalse(rewindBuffer.rewind());
+    }
+
+    @Test
+    public void oldest_states_are_evicted_when_the_ring_wraps() {
+        Random random = new Random(2);
+        ByteStateEmulator emulator = new ByteStateEmulator(randomBytes(random, 0x10000));
+        RewindBuffer rewindBuffer = new RewindBuffer(emulator, 1, 1);
+        // States only differ from their keyframe in the first 8 KiB, so each keyframe and the states after it take up
+        // about half of the ring
+        List<byte[]> history = capture(emulator, rewindBuffer, random, 400, 0x10000, 0x2000, 0x400);
+
+        int rewound = 0;
+        while (rewindBuffer.rewind()) {
+            rewound++;
+            assertArrayEquals(history.get(history.size() - rewound), emulator.getState(), "Wrong state %d frames back".formatted(rewound));
+        }
+        assertTrue(rewound >= 60, "Only %d states were kept".formatted(rewound));
+        assertTrue(rewound < history.size(), "No states were evicted");
+    }
+
+    @Test
+    public void state_length_changes_start_a_new_keyframe() {
+        Random random = new Random(3);
+        ByteStateEmulator emulator = new ByteStateEmulator(randomBytes(random, 1000));
+        RewindBuffer rewindBuffer = new RewindBuffer(emulator, 8, 1);
+        List<byte[]> history = new ArrayList<>();
+        history.addAll(capture(emulator, rewindBuffer, random, 10, 1000, 1000, 16));
+        history.addAll(capture(emulator, rewindBuffer, random, 10, 3000, 3000, 16));
+        history.addAll(capture(emulator, rewindBuffer, random, 10, 500, 500, 16));
+        rewindAndCheck(emulator, rewindBuffer, history, history.size());
+        assertFalse(rewindBuffer.rewind());
+    }
+
+    @Test
+    public void states_larger_than_the_budget_are_not_kept() {
+        Random random = new Random(4);
+        ByteStateEmulator emulator = new ByteStateEmulator(randomBytes(random, 2 << 20));
+        RewindBuffer rewindBuffer = new RewindBuffer(emulator, 1, 1);
+        rewindBuffer.capture();
+        assertFalse(rewindBuffer.rewind());
+
+        List<byte[]> history = capture(emulator, rewindBuffer, random, 5, 0x1000, 0x1000, 16);
+        rewindAndCheck(emulator, rewindBuffer, history, history.size());
+        assertFalse(rewindBuffer.rewind());
+    }
+
+    // Captures the given amount of states of the given length, changing a block of bytes within the first changedRegion
+    // bytes between each, and returns them in the order they were captured in
+    private static List<byte[]> capture(ByteStateEmulator emulator, RewindBuffer rewindBuffer, Random random, int count, int length, int changedRegion, int changedBytes) {
+        List<byte[]> history = new ArrayList<>();
+        byte[] state = emulator.getState();
+        for (int i = 0; i < count; i++) {
+            byte[] next = new byte[length];
+            System.arraycopy(state, 0, next, 0, Math.min(state.length, length));
+            int offset = random.nextInt(changedRegion - changedBytes + 1);
+            for (int j = 0; j < changedBytes; j++) {
+                next[offset + j] = (byte) random.nextInt(256);
+            }
+            state = next;
+            emulator.setState(state);
+            rewindBuffer.capture();
+            history.add(state);
+        }
+        return history;
+    }
+
+    // Rewinds the given amount of states, checking each against the newest one left in the history
+    private static void rewindAndCheck(ByteStateEmulator emulator, RewindBuffer rewindBuffer, List<byte[]> history, int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(rewindBuffer.rewind(), "Ran out of states after %d".formatted(i));
+            assertArrayEquals(history.removeLast(), emulator.getState(), "Wrong state %d frames back".formatted(i + 1));
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,80 @@
+package io.github.arkosammy12.jemu.app.test.util;
+
+import io.github.arkosammy12.jemu.core.common.AudioGenerator;
+import io.github.arkosammy12.jemu.core.common.Emulator;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+import io.github.arkosammy12.jemu.core.common.SystemController;
+import io.github.arkosammy12.jemu.core.common.SystemHost;
+import io.github.arkosammy12.jemu.core.common.VideoGenerator;
+
+// An emulator whose whole state is a byte array that tests set directly
+public class ByteStateEmulator implements Emulator {
+
+    private byte[] state;
+
+    public ByteStateEmulator(byte[] state) {
+        this.state = state.clone();
+    }
+
+    public byte[] getState() {
+        return this.state.clone();
+    }
+
+    public void setState(byte[] state) {
+        this.state = state.clone();
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeInt(this.state.length);
+        writer.writeBytes(this.state);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.state = new byte[reader.readInt()];
+        reader.readBytes(this.state);
+    }
+
+    @Override
+    public SystemHost getHost() {
+        return null;
+    }
+
+    @Override
+    public VideoGenerator<?> getVideoGenerator() {
+        return null;
+    }
+
+    @Override
+    public AudioGenerator<?> getAudioGenerator() {
+        return null;
+    }
+
+    @Override
+    public SystemController<?> getSystemController() {
+        return null;
+    }
+
+    @Override
+    public void executeFrame() {
+
+    }
+
+    @Override
+    public void executeCycle() {
+
+    }
+
+    @Override
+    public int getFramerate() {
+        return 60;
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+}
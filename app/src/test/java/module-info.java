@@ -0,0 +1,7 @@
+module app.test {
+    requires org.junit.jupiter.api;
+    requires core;
+    requires app;
+
+    exports io.github.arkosammy12.jemu.app.test.tests;
+}
@@ -0,0 +1,126 @@
+package io.github.arkosammy12.jemu.benchmarks;
+
+import io.github.arkosammy12.jemu.core.common.RomImage;
+import io.github.arkosammy12.jemu.core.common.SystemHost;
+import io.github.arkosammy12.jemu.core.drivers.AudioDriver;
+import io.github.arkosammy12.jemu.core.drivers.VideoDriver;
+import io.github.arkosammy12.jemu.core.nes.NESEmulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Runs whole NES frames with background and sprite rendering on. Run with "-prof gc" and read gc.alloc.rate.norm for
+// the bytes allocated per frame
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class NESFrameBenchmark {
+
+    private NESEmulator emulator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RomImage romImage = RomImage.of(createRom());
+        this.emulator = new NESEmulator(new SystemHost() {
+
+            @Override
+            public RomImage getRomImage() {
+                return romImage;
+            }
+
+            @Override
+            public Path getRomPath() {
+                return Path.of("benchmark.nes");
+            }
+
+            @Override
+            public String getSystemName() {
+                return "NES";
+            }
+
+            @Override
+            public Optional<String> getRomTitle() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<? extends VideoDriver> getVideoDriver() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<? extends AudioDriver> getAudioDriver() {
+                return Optional.empty();
+            }
+
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.emulator.close();
+    }
+
+    @Benchmark
+    public void executeFrame() {
+        this.emulator.executeFrame();
+    }
+
+    // Turns on rendering and copies a page of sprites into OAM every frame, so the background and sprite shifters run
+    // on every visible dot and every scanline has sprites on it
+    private static byte[] createRom() {
+        byte[] rom = new byte[16 + 0x4000 + 0x2000];
+        rom[0] = 'N';
+        rom[1] = 'E';
+        rom[2] = 'S';
+        rom[3] = 0x1A;
+        rom[4] = 1;
+        rom[5] = 1;
+        int[] program = {
+                0x78, 0xD8,             // SEI; CLD
+                0xA2, 0xFF, 0x9A,       // LDX #$FF; TXS
+                0xA2, 0x00,             // LDX #$00
+                0x8A, 0x9D, 0x00, 0x02, // sprites: TXA; STA $0200, X
+                0xE8, 0xD0, 0xF9,       // INX; BNE sprites
+                0xA9, 0x00, 0x8D, 0x00, 0x20, // LDA #$00; STA $2000
+                0xA9, 0x1E, 0x8D, 0x01, 0x20, // LDA #$1E; STA $2001
+                0x2C, 0x02, 0x20,       // frame: BIT $2002
+                0x10, 0xFB,             // BPL frame
+                0xA9, 0x02, 0x8D, 0x14, 0x40, // LDA #$02; STA $4014
+                0x4C, 0x18, 0xC0        // JMP frame
+        };
+        for (int i = 0; i < program.length; i++) {
+            rom[16 + i] = (byte) program[i];
+        }
+        // Alternating pattern bytes, so the shifters don't only ever shift out zeroes
+        for (int i = 0; i < 0x2000; i++) {
+            rom[16 + 0x4000 + i] = (byte) ((i & 1) == 0 ? 0x55 : 0xAA);
+        }
+        // RTI for both NMI and IRQ
+        rom[16 + 0x3F00] = 0x40;
+        int vectors = 16 + 0x3FFA;
+        int[] addresses = {0xFF00, 0xC000, 0xFF00};
+        for (int i = 0; i < addresses.length; i++) {
+            rom[vectors + (i * 2)] = (byte) addresses[i];
+            rom[vectors + (i * 2) + 1] = (byte) (addresses[i] >>> 8);
+        }
+        return rom;
+    }
+
+}
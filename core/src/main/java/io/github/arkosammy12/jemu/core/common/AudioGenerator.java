@@ -1,9 +1,5 @@
 package io.github.arkosammy12.jemu.core.common;
 
-import org.jetbrains.annotations.NotNull;
-
-import java.util.Optional;
-
 public abstract class AudioGenerator<E extends Emulator> {
 
     protected final E emulator;
@@ -14,14 +10,8 @@ public abstract class AudioGenerator<E extends Emulator> {
 
     abstract public boolean isStereo();
 
-    @NotNull
-    abstract public SampleSize getBytesPerSample();
-
-    abstract public Optional<byte[]> getSampleFrame();
-
-    public enum SampleSize {
-        BYTES_1,
-        BYTES_2
-    }
+    // Fills the buffer with a frame of signed 16-bit samples, left and right interleaved when stereo, and returns how
+    // many samples each channel got. The buffer must fit a frame of the audio driver's size, and 0 means silence
+    abstract public int getSampleFrame(short[] samples);
 
 }
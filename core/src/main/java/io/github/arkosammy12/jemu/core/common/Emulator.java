@@ -1,7 +1,7 @@
 package io.github.arkosammy12.jemu.core.common;
 
 
-public interface Emulator extends AutoCloseable {
+public interface Emulator extends AutoCloseable, Snapshottable {
 
     SystemHost getHost();
 
@@ -0,0 +1,100 @@
+package io.github.arkosammy12.jemu.core.common;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+// A block of emulated memory stored one byte per byte. Addresses are relative to the start of the region and values
+// are read back unsigned. Slices share their storage with the region they were taken from, so ROM banks don't need
+// copies of their own
+public final class MemoryRegion implements Bus {
+
+    private final MemorySegment segment;
+    private final int length;
+
+    private MemoryRegion(MemorySegment segment) {
+        this.segment = segment;
+        this.length = Math.toIntExact(segment.byteSize());
+    }
+
+    public static MemoryRegion allocate(int length) {
+        return new MemoryRegion(MemorySegment.ofArray(new byte[length]));
+    }
+
+    public static MemoryRegion wrap(byte[] bytes) {
+        return new MemoryRegion(MemorySegment.ofArray(bytes));
+    }
+
+    public static MemoryRegion wrap(MemorySegment segment) {
+        return new MemoryRegion(segment);
+    }
+
+    public static MemoryRegion copyOf(byte[] bytes) {
+        return wrap(bytes.clone());
+    }
+
+    // Only the lower 8 bits of each value are kept
+    public static MemoryRegion copyOf(int[] values) {
+        MemoryRegion region = allocate(values.length);
+        for (int i = 0; i < values.length; i++) {
+            region.writeByte(i, values[i]);
+        }
+        return region;
+    }
+
+    public int length() {
+        return this.length;
+    }
+
+    public MemorySegment getSegment() {
+        return this.segment;
+    }
+
+    @Override
+    public int readByte(int address) {
+        return this.segment.get(ValueLayout.JAVA_BYTE, address) & 0xFF;
+    }
+
+    @Override
+    public void writeByte(int address, int value) {
+        this.segment.set(ValueLayout.JAVA_BYTE, address, (byte) value);
+    }
+
+    public MemoryRegion slice(int offset, int length) {
+        return new MemoryRegion(this.segment.asSlice(offset, length));
+    }
+
+    // Splits the region into consecutive banks of the given size. Throws if the region is too short to fill all of them
+    public MemoryRegion[] split(int bankCount, int bankSize) {
+        MemoryRegion[] banks = new MemoryRegion[bankCount];
+        for (int i = 0; i < bankCount; i++) {
+            banks[i] = this.slice(i * bankSize, bankSize);
+        }
+        return banks;
+    }
+
+    // Splits the region into consecutive banks of at most the given size, so a region smaller than a bank is a single bank
+    public MemoryRegion[] split(int bankSize) {
+        MemoryRegion[] banks = new MemoryRegion[Math.max((this.length + bankSize - 1) / bankSize, 1)];
+        for (int i = 0; i < banks.length; i++) {
+            banks[i] = this.slice(i * bankSize, Math.min(bankSize, this.length - i * bankSize));
+        }
+        return banks;
+    }
+
+    public void copyFrom(MemoryRegion source, int sourceAddress, int address, int length) {
+        MemorySegment.copy(source.segment, sourceAddress, this.segment, address, length);
+    }
+
+    public void copyFrom(byte[] source, int sourceAddress, int address, int length) {
+        MemorySegment.copy(source, sourceAddress, this.segment, ValueLayout.JAVA_BYTE, address, length);
+    }
+
+    public void fill(int value) {
+        this.segment.fill((byte) value);
+    }
+
+    public byte[] toByteArray() {
+        return this.segment.toArray(ValueLayout.JAVA_BYTE);
+    }
+
+}
@@ -0,0 +1,47 @@
+package io.github.arkosammy12.jemu.core.common;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A read-only ROM file handed to a core once by its host. Cores slice the region into banks instead of copying it
+public final class RomImage {
+
+    private final MemoryRegion region;
+
+    private RomImage(MemorySegment segment) {
+        this.region = MemoryRegion.wrap(segment.asReadOnly());
+    }
+
+    // The mapping outlives the channel and is released by the GC once the image and every slice of it are unreachable,
+    // so a core that is still running can never observe it being unmapped
+    public static RomImage map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new RomImage(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto()));
+        }
+    }
+
+    public static RomImage of(byte[] bytes) {
+        return new RomImage(MemorySegment.ofArray(bytes.clone()));
+    }
+
+    public int length() {
+        return this.region.length();
+    }
+
+    public int readByte(int address) {
+        return this.region.readByte(address);
+    }
+
+    public MemoryRegion getRegion() {
+        return this.region;
+    }
+
+    public byte[] toByteArray() {
+        return this.region.toByteArray();
+    }
+
+}
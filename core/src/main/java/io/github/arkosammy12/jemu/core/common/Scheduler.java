@@ -0,0 +1,98 @@
+package io.github.arkosammy12.jemu.core.common;
+
+import java.util.Arrays;
+
+// Events for components that are idle most of the time. Instead of being cycled unconditionally, a component schedules
+// the next cycle at which it has something to do, and catches up lazily when it is accessed. The events are not kept
+// sorted: tick() only compares the cycle against the earliest scheduled one, and once it is reached, scans the events
+// in the order they were registered in. Systems only register a handful of them, so a scan beats a priority queue.
+public class Scheduler implements Snapshottable {
+
+    public static final long IDLE = Long.MAX_VALUE;
+
+    private Event[] events = new Event[0];
+
+    private long cycle;
+    private long nextEventCycle = IDLE;
+
+    // Events that are due on the same cycle run in the order they were registered in
+    public Event register(Runnable action) {
+        Event event = new Event(action);
+        this.events = Arrays.copyOf(this.events, this.events.length + 1);
+        this.events[this.events.length - 1] = event;
+        return event;
+    }
+
+    // The cycle that is currently being emulated, and the one the next call to tick() will run the events of
+    public long getCycle() {
+        return this.cycle;
+    }
+
+    public void schedule(Event event, long cycle) {
+        event.cycle = cycle;
+        if (cycle < this.nextEventCycle) {
+            this.nextEventCycle = cycle;
+        }
+    }
+
+    public void cancel(Event event) {
+        event.cycle = IDLE;
+    }
+
+    public boolean isScheduled(Event event) {
+        return event.cycle != IDLE;
+    }
+
+    // Events are saved in the order they were registered in, which is fixed for a given system
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeLong(this.cycle);
+        for (Event event : this.events) {
+            writer.writeLong(event.cycle);
+        }
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.cycle = reader.readLong();
+        long nextEventCycle = IDLE;
+        for (Event event : this.events) {
+            event.cycle = reader.readLong();
+            nextEventCycle = Math.min(nextEventCycle, event.cycle);
+        }
+        this.nextEventCycle = nextEventCycle;
+    }
+
+    public void tick() {
+        while (this.nextEventCycle <= this.cycle) {
+            this.runDueEvents();
+        }
+        this.cycle++;
+    }
+
+    private void runDueEvents() {
+        for (Event event : this.events) {
+            if (event.cycle <= this.cycle) {
+                event.cycle = IDLE;
+                event.action.run();
+            }
+        }
+        long nextEventCycle = IDLE;
+        for (Event event : this.events) {
+            nextEventCycle = Math.min(nextEventCycle, event.cycle);
+        }
+        this.nextEventCycle = nextEventCycle;
+    }
+
+    public static final class Event {
+
+        private final Runnable action;
+        private long cycle = IDLE;
+
+        private Event(Runnable action) {
+            this.action = action;
+        }
+
+    }
+
+}
@@ -0,0 +1,12 @@
+package io.github.arkosammy12.jemu.core.common;
+
+// A component whose state can be saved and restored. The state is written as a flat sequence of values with no names or
+// lengths, so loadState has to read back exactly what saveState wrote, in the same order. Subclasses that add state
+// extend both methods and call the super implementation first
+public interface Snapshottable {
+
+    void saveState(StateWriter writer);
+
+    void loadState(StateReader reader);
+
+}
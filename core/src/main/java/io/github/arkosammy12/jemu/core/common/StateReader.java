@@ -0,0 +1,142 @@
+package io.github.arkosammy12.jemu.core.common;
+
+import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Objects;
+
+import static io.github.arkosammy12.jemu.core.common.StateWriter.*;
+
+// Reads back state written by a StateWriter. Arrays and memory regions are read into the component's existing storage
+public final class StateReader {
+
+    private final byte[] buffer;
+    private final MemorySegment segment;
+    private int length;
+    private int position;
+
+    public StateReader(byte[] buffer) {
+        this(buffer, buffer.length);
+    }
+
+    public StateReader(byte[] buffer, int length) {
+        this.buffer = buffer;
+        this.segment = MemorySegment.ofArray(buffer);
+        this.reset(length);
+    }
+
+    // Starts reading from the beginning of the buffer again, which now holds a state of the given length
+    public void reset(int length) {
+        Objects.checkFromIndexSize(0, length, this.buffer.length);
+        this.length = length;
+        this.position = 0;
+    }
+
+    public int remaining() {
+        return this.length - this.position;
+    }
+
+    public void readHeader(int systemId, int version) {
+        if (this.remaining() < 12 || this.readInt() != MAGIC) {
+            throw new EmulatorException("Invalid save state!");
+        }
+        int stateSystemId = this.readInt();
+        if (stateSystemId != systemId) {
+            throw new EmulatorException("Save state is for a different system ($%08X)!".formatted(stateSystemId));
+        }
+        int stateVersion = this.readInt();
+        if (stateVersion != version) {
+            throw new EmulatorException("Unsupported save state version %d, expected %d!".formatted(stateVersion, version));
+        }
+    }
+
+    public boolean readBoolean() {
+        return this.readByte() != 0;
+    }
+
+    // Unsigned
+    public int readByte() {
+        this.checkRemaining(1);
+        return this.buffer[this.position++] & 0xFF;
+    }
+
+    // Unsigned
+    public int readShort() {
+        this.checkRemaining(2);
+        int value = this.segment.get(SHORT, this.position) & 0xFFFF;
+        this.position += 2;
+        return value;
+    }
+
+    public int readInt() {
+        this.checkRemaining(4);
+        int value = this.segment.get(INT, this.position);
+        this.position += 4;
+        return value;
+    }
+
+    public long readLong() {
+        this.checkRemaining(8);
+        long value = this.segment.get(LONG, this.position);
+        this.position += 8;
+        return value;
+    }
+
+    public double readDouble() {
+        this.checkRemaining(8);
+        double value = this.segment.get(DOUBLE, this.position);
+        this.position += 8;
+        return value;
+    }
+
+    public void readBytes(byte[] values) {
+        this.checkRemaining(values.length);
+        System.arraycopy(this.buffer, this.position, values, 0, values.length);
+        this.position += values.length;
+    }
+
+    public void readBooleans(boolean[] values) {
+        this.checkRemaining(values.length);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.buffer[this.position++] != 0;
+        }
+    }
+
+    public void readInts(int[] values) {
+        this.checkRemaining(values.length * 4);
+        MemorySegment.copy(this.segment, INT, this.position, values, 0, values.length);
+        this.position += values.length * 4;
+    }
+
+    public void readLongs(long[] values) {
+        this.checkRemaining(values.length * 8);
+        MemorySegment.copy(this.segment, LONG, this.position, values, 0, values.length);
+        this.position += values.length * 8;
+    }
+
+    public void readRegion(MemoryRegion region) {
+        int length = region.length();
+        this.checkRemaining(length);
+        MemorySegment.copy(this.segment, this.position, region.getSegment(), 0, length);
+        this.position += length;
+    }
+
+    // Like readRegion, but leaves the region untouched if it already holds the same bytes. Returns whether it changed
+    public boolean readChangedRegion(MemoryRegion region) {
+        int length = region.length();
+        this.checkRemaining(length);
+        boolean changed = MemorySegment.mismatch(this.segment, this.position, this.position + length, region.getSegment(), 0, length) >= 0;
+        if (changed) {
+            MemorySegment.copy(this.segment, this.position, region.getSegment(), 0, length);
+        }
+        this.position += length;
+        return changed;
+    }
+
+    private void checkRemaining(int length) {
+        if (length > this.remaining()) {
+            throw new IndexOutOfBoundsException("Save state ended %d bytes early!".formatted(length - this.remaining()));
+        }
+    }
+
+}
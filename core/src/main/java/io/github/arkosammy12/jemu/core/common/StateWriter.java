@@ -0,0 +1,130 @@
+package io.github.arkosammy12.jemu.core.common;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Serializes component state into a growable little-endian buffer. Meant to be reused: after reset() the buffer keeps
+// its capacity, so saving a state of the same size again doesn't allocate
+public final class StateWriter {
+
+    static final int MAGIC = 0x4D454A53; // "SJEM"
+
+    static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private byte[] buffer;
+    private MemorySegment segment;
+    private int position;
+
+    public StateWriter() {
+        this(0x10000);
+    }
+
+    public StateWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+        this.segment = MemorySegment.ofArray(this.buffer);
+    }
+
+    public void reset() {
+        this.position = 0;
+    }
+
+    public int size() {
+        return this.position;
+    }
+
+    // The backing array, valid up to size(). It is replaced whenever the buffer has to grow
+    public byte[] getBuffer() {
+        return this.buffer;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.position);
+    }
+
+    // Identifies the system and the version of its state layout, which StateReader.readHeader checks before anything
+    // else is read
+    public void writeHeader(int systemId, int version) {
+        this.writeInt(MAGIC);
+        this.writeInt(systemId);
+        this.writeInt(version);
+    }
+
+    public void writeBoolean(boolean value) {
+        this.writeByte(value ? 1 : 0);
+    }
+
+    public void writeByte(int value) {
+        this.ensureCapacity(1);
+        this.buffer[this.position++] = (byte) value;
+    }
+
+    public void writeShort(int value) {
+        this.ensureCapacity(2);
+        this.segment.set(SHORT, this.position, (short) value);
+        this.position += 2;
+    }
+
+    public void writeInt(int value) {
+        this.ensureCapacity(4);
+        this.segment.set(INT, this.position, value);
+        this.position += 4;
+    }
+
+    public void writeLong(long value) {
+        this.ensureCapacity(8);
+        this.segment.set(LONG, this.position, value);
+        this.position += 8;
+    }
+
+    public void writeDouble(double value) {
+        this.ensureCapacity(8);
+        this.segment.set(DOUBLE, this.position, value);
+        this.position += 8;
+    }
+
+    public void writeBytes(byte[] values) {
+        this.ensureCapacity(values.length);
+        System.arraycopy(values, 0, this.buffer, this.position, values.length);
+        this.position += values.length;
+    }
+
+    public void writeBooleans(boolean[] values) {
+        this.ensureCapacity(values.length);
+        for (boolean value : values) {
+            this.buffer[this.position++] = (byte) (value ? 1 : 0);
+        }
+    }
+
+    public void writeInts(int[] values) {
+        this.ensureCapacity(values.length * 4);
+        MemorySegment.copy(values, 0, this.segment, INT, this.position, values.length);
+        this.position += values.length * 4;
+    }
+
+    public void writeLongs(long[] values) {
+        this.ensureCapacity(values.length * 8);
+        MemorySegment.copy(values, 0, this.segment, LONG, this.position, values.length);
+        this.position += values.length * 8;
+    }
+
+    public void writeRegion(MemoryRegion region) {
+        int length = region.length();
+        this.ensureCapacity(length);
+        MemorySegment.copy(region.getSegment(), 0, this.segment, this.position, length);
+        this.position += length;
+    }
+
+    private void ensureCapacity(int length) {
+        if (this.position + length <= this.buffer.length) {
+            return;
+        }
+        this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.position + length));
+        this.segment = MemorySegment.ofArray(this.buffer);
+    }
+
+}
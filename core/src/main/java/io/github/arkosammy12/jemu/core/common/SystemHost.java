@@ -8,7 +8,7 @@ import java.util.Optional;
 
 public interface SystemHost {
 
-    byte[] getRom();
+    RomImage getRomImage();
 
     Path getRomPath();
 
@@ -20,12 +20,15 @@ public interface SystemHost {
 
     Optional<? extends AudioDriver> getAudioDriver();
 
-    static int[] byteToIntArray(byte[] byteArray) {
-        int[] arr = new int[byteArray.length];
-        for (int i = 0; i < arr.length; i++) {
-            arr[i] = byteArray[i] & 0xFF;
-        }
-        return arr;
+    // Whether CPU cores that support it may compile hot code into JVM bytecode
+    default boolean isRecompilerEnabled() {
+        return false;
+    }
+
+    // Whether the frames being run are speculative and will be rolled back, so cores must not write save data back to
+    // disk. Save data that changed is written back after the next frame that isn't
+    default boolean isSaveDataFlushSuppressed() {
+        return false;
     }
 
 }
@@ -1,11 +1,17 @@
 package io.github.arkosammy12.jemu.core.cosmacvip;
 
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.common.VideoGenerator;
 import io.github.arkosammy12.jemu.core.cpu.CDP1802;
 
-public class CDP1861<E extends CosmacVipEmulator> extends VideoGenerator<E> implements IODevice {
+import java.util.Arrays;
+
+public class CDP1861<E extends CosmacVipEmulator> extends VideoGenerator<E> implements IODevice, Snapshottable {
 
     private static final int SCANLINES_PER_FRAME = 262;
+    private static final CDP1802.DmaStatus[] DMA_STATUSES = CDP1802.DmaStatus.values();
     protected static final int MACHINE_CYCLES_PER_SCANLINE = 14;
 
     private static final int INTERRUPT_BEGIN = 78;
@@ -23,7 +29,7 @@ public class CDP1861<E extends CosmacVipEmulator> extends VideoGenerator<E> impl
     protected static final int DMAO_BEGIN = 4;
     private static final int DMAO_END = 12;
 
-    protected final int[][] displayBuffer;
+    protected final int[] displayBuffer;
     protected long cycles;
     protected int scanlineIndex;
 
@@ -34,7 +40,7 @@ public class CDP1861<E extends CosmacVipEmulator> extends VideoGenerator<E> impl
 
     public CDP1861(E emulator) {
         super(emulator);
-        this.displayBuffer = new int[this.getImageWidth()][this.getImageHeight()];
+        this.displayBuffer = new int[this.getImageWidth() * this.getImageHeight()];
     }
 
     @Override
@@ -47,6 +53,28 @@ public class CDP1861<E extends CosmacVipEmulator> extends VideoGenerator<E> impl
         return 128;
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeInts(this.displayBuffer);
+        writer.writeLong(this.cycles);
+        writer.writeInt(this.scanlineIndex);
+        writer.writeByte(this.dmaStatus.ordinal());
+        writer.writeBoolean(this.interrupting);
+        writer.writeBoolean(this.enabled);
+        writer.writeBoolean(this.displayEnableLatch);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        reader.readInts(this.displayBuffer);
+        this.cycles = reader.readLong();
+        this.scanlineIndex = reader.readInt();
+        this.dmaStatus = DMA_STATUSES[reader.readByte()];
+        this.interrupting = reader.readBoolean();
+        this.enabled = reader.readBoolean();
+        this.displayEnableLatch = reader.readBoolean();
+    }
+
     @Override
     public CDP1802.DmaStatus getDmaStatus() {
         return this.dmaStatus;
@@ -81,7 +109,7 @@ public class CDP1861<E extends CosmacVipEmulator> extends VideoGenerator<E> impl
         if (this.cycles != 0 && (this.cycles % MACHINE_CYCLES_PER_SCANLINE == 0)) {
             this.scanlineIndex = (this.scanlineIndex + 1) % SCANLINES_PER_FRAME;
             if (this.scanlineIndex == 0) {
-                this.emulator.getHost().getVideoDriver().ifPresent(driver ->  driver.outputFrame(this.displayBuffer));
+                this.emulator.getHost().getVideoDriver().ifPresent(driver ->  driver.outputFrame(this.displayBuffer, this.imageWidth));
             }
         }
         this.cycles++;
@@ -104,9 +132,8 @@ public class CDP1861<E extends CosmacVipEmulator> extends VideoGenerator<E> impl
             if (col < 0 || col >= 64) {
                 break;
             }
-            for (int j = 0; j < 4; j++) {
-                this.displayBuffer[(col * 4) + j][row] = (value & mask) != 0 ? 0xFFFFFFFF : 0xFF000000;
-            }
+            int index = (row * this.imageWidth) + (col * 4);
+            Arrays.fill(this.displayBuffer, index, index + 4, (value & mask) != 0 ? 0xFFFFFFFF : 0xFF000000);
         }
     }
 
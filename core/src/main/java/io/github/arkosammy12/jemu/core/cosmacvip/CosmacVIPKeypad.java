@@ -1,8 +1,11 @@
 package io.github.arkosammy12.jemu.core.cosmacvip;
 
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.common.SystemController;
 
-public class CosmacVIPKeypad<E extends CosmacVipEmulator> extends SystemController<E> implements IODevice {
+public class CosmacVIPKeypad<E extends CosmacVipEmulator> extends SystemController<E> implements IODevice, Snapshottable {
 
     private final boolean[] keys = new boolean[16];
     private int latchedKey = 0;
@@ -11,6 +14,17 @@ public class CosmacVIPKeypad<E extends CosmacVipEmulator> extends SystemControll
         super(emulator);
     }
 
+    // Only the latched key is saved, the keys themselves follow what the player is holding
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeByte(this.latchedKey);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.latchedKey = reader.readByte();
+    }
+
     @Override
     public void onActionPressed(Action action) {
         if (!(action instanceof Actions vipActions)) {
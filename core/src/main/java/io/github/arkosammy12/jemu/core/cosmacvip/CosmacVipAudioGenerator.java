@@ -1,14 +1,16 @@
 package io.github.arkosammy12.jemu.core.cosmacvip;
 
 import io.github.arkosammy12.jemu.core.common.AudioGenerator;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.drivers.AudioDriver;
-import org.jetbrains.annotations.NotNull;
 
 import java.util.Optional;
 
-public class CosmacVipAudioGenerator<E extends CosmacVipEmulator> extends AudioGenerator<E> {
+public class CosmacVipAudioGenerator<E extends CosmacVipEmulator> extends AudioGenerator<E> implements Snapshottable {
 
-    public static final int SQUARE_WAVE_AMPLITUDE = 4;
+    public static final int SQUARE_WAVE_AMPLITUDE = 4 << 8;
 
     protected double phase = 0.0;
 
@@ -25,31 +27,36 @@ public class CosmacVipAudioGenerator<E extends CosmacVipEmulator> extends AudioG
     }
 
     @Override
-    public boolean isStereo() {
-        return false;
+    public void saveState(StateWriter writer) {
+        writer.writeDouble(this.phase);
     }
 
     @Override
-    public AudioGenerator.@NotNull SampleSize getBytesPerSample() {
-        return SampleSize.BYTES_1;
+    public void loadState(StateReader reader) {
+        this.phase = reader.readDouble();
+    }
+
+    @Override
+    public boolean isStereo() {
+        return false;
     }
 
     @Override
-    public Optional<byte[]> getSampleFrame() {
+    public int getSampleFrame(short[] samples) {
         Optional<? extends AudioDriver> optionalAudioDriver = this.emulator.getHost().getAudioDriver();
         if (!this.emulator.getCpu().getQ() || optionalAudioDriver.isEmpty()) {
             this.phase = 0;
-            return Optional.empty();
+            return 0;
         }
         AudioDriver audioDriver = optionalAudioDriver.get();
         double step = (4000 * Math.pow(2.0, (175 - 64) / 48.0)) / 128.0 / audioDriver.getSampleRate();
-        byte[] data = new byte[audioDriver.getSamplesPerFrame()];
-        for (int i = 0; i < data.length; i++) {
+        int samplesPerFrame = audioDriver.getSamplesPerFrame();
+        for (int i = 0; i < samplesPerFrame; i++) {
             int bitStep = (int) (this.phase * 128);
-            data[i] = (byte) (((DEFAULT_PATTERN_2[bitStep >> 3]) & (1 << (7 ^ (bitStep & 7)))) != 0 ? SQUARE_WAVE_AMPLITUDE : -SQUARE_WAVE_AMPLITUDE);
+            samples[i] = (short) (((DEFAULT_PATTERN_2[bitStep >> 3]) & (1 << (7 ^ (bitStep & 7)))) != 0 ? SQUARE_WAVE_AMPLITUDE : -SQUARE_WAVE_AMPLITUDE);
             this.phase = (this.phase + step) % 1.0;
         }
-        return Optional.of(data);
+        return samplesPerFrame;
     }
 
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package io.github.arkosammy12.jemu.core.cosmacvip;
 
-import io.github.arkosammy12.jemu.core.common.SystemHost;
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.common.Bus;
 
-public class CosmacVipBus implements Bus {
+public class CosmacVipBus implements Bus, Snapshottable {
 
     private static final int[] MONITOR_ROM = {
             0xF8, 0x80, 0xB2, 0xF8, 0x08, 0xA2, 0xE2, 0xD2,
@@ -140,31 +143,45 @@ public class CosmacVipBus implements Bus {
             0x00, 0x00, 0x00, 0x00, 0x00, 0xe0, 0x00, 0x4b
     };
 
-    protected final int[] bytes;
+    protected final MemoryRegion bytes;
     protected boolean addressMsbLatched = true;
     protected int dataBus = 0;
 
     public CosmacVipBus(CosmacVipEmulator emulator) {
-        int[] rom = SystemHost.byteToIntArray(emulator.getHost().getRom());
-        this.bytes = new int[0x1000];
+        MemoryRegion rom = emulator.getHost().getRomImage().getRegion();
+        this.bytes = MemoryRegion.allocate(0x1000);
         try {
             this.initializeRam(emulator, rom);
-        } catch (ArrayIndexOutOfBoundsException e) {
+        } catch (IndexOutOfBoundsException e) {
             throw new EmulatorException("ROM size too big for Cosmac VIP system!");
         } catch (Exception e) {
             throw new RuntimeException("Failed to initialize memory for Cosmac VIP system!", e);
         }
     }
 
-    protected void initializeRam(CosmacVipEmulator emulator, int[] rom) {
+    protected void initializeRam(CosmacVipEmulator emulator, MemoryRegion rom) {
         if (emulator.getChip8Interpreter() == CosmacVIPHost.Chip8Interpreter.CHIP_8) {
-            System.arraycopy(CHIP_8_INTERPRETER, 0, this.bytes, 0, CHIP_8_INTERPRETER.length);
-            System.arraycopy(rom, 0, this.bytes, CHIP_8_INTERPRETER.length, rom.length);
+            this.bytes.copyFrom(MemoryRegion.copyOf(CHIP_8_INTERPRETER), 0, 0, CHIP_8_INTERPRETER.length);
+            this.bytes.copyFrom(rom, 0, CHIP_8_INTERPRETER.length, rom.length());
         } else {
-            System.arraycopy(rom, 0, this.bytes, 0, rom.length);
+            this.bytes.copyFrom(rom, 0, 0, rom.length());
         }
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeRegion(this.bytes);
+        writer.writeBoolean(this.addressMsbLatched);
+        writer.writeByte(this.dataBus);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        reader.readRegion(this.bytes);
+        this.addressMsbLatched = reader.readBoolean();
+        this.dataBus = reader.readByte();
+    }
+
     @Override
     public int readByte(int address) {
         int actualAddress = this.addressMsbLatched ? address | 0x8000 : address;
@@ -172,7 +189,7 @@ public class CosmacVipBus implements Bus {
         if (actualAddress >= 0x8000) {
             value = MONITOR_ROM[actualAddress & 0x1FF];
         } else {
-            value = this.bytes[actualAddress & 0xFFF];
+            value = this.bytes.readByte(actualAddress & 0xFFF);
         }
         this.dataBus = value;
         return value;
@@ -185,7 +202,7 @@ public class CosmacVipBus implements Bus {
         if (actualAddress >= 0x8000) {
             return;
         }
-        this.bytes[actualAddress & 0xFFF] = value & 0xFF;
+        this.bytes.writeByte(actualAddress & 0xFFF, value);
     }
 
     public void unlatchAddressMsb() {
@@ -15,6 +15,9 @@ public class CosmacVipEmulator implements Emulator, CDP1802.SystemBus {
 
     public static final int CYCLES_PER_FRAME = 3668;
 
+    private static final int STATE_SYSTEM_ID = 0x20504956; // "VIP "
+    private static final int STATE_VERSION = 2;
+
     private final CosmacVIPHost host;
     private final CosmacVIPHost.Chip8Interpreter chip8Interpreter;
 
@@ -24,6 +27,8 @@ public class CosmacVipEmulator implements Emulator, CDP1802.SystemBus {
     private final AudioGenerator<?> audio;
     private final CosmacVIPKeypad<?> keypad;
     private final List<IODevice> ioDevices;
+    // Saved in this order
+    private final List<Snapshottable> stateComponents;
 
     private final int frameRate;
 
@@ -39,12 +44,15 @@ public class CosmacVipEmulator implements Emulator, CDP1802.SystemBus {
                 VP595<?> vp595 = new VP595<>(this);
                 this.audio = vp595;
                 this.ioDevices = List.of(this.vdp, this.keypad, vp595);
+                this.stateComponents = List.of(this.cpu, this.bus, this.vdp, this.keypad, vp595);
                 this.frameRate = 61;
             } else {
                 this.bus = new CosmacVipBus(this);
                 this.vdp = new CDP1861<>(this);
-                this.audio = new CosmacVipAudioGenerator<>(this);
+                CosmacVipAudioGenerator<?> audioGenerator = new CosmacVipAudioGenerator<>(this);
+                this.audio = audioGenerator;
                 this.ioDevices = List.of(this.vdp, this.keypad);
+                this.stateComponents = List.of(this.cpu, this.bus, this.vdp, this.keypad, audioGenerator);
                 this.frameRate = 60;
             }
         } catch (Exception e) {
@@ -154,6 +162,22 @@ public class CosmacVipEmulator implements Emulator, CDP1802.SystemBus {
         return false;
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeHeader(STATE_SYSTEM_ID, STATE_VERSION);
+        for (Snapshottable stateComponent : this.stateComponents) {
+            stateComponent.saveState(writer);
+        }
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        reader.readHeader(STATE_SYSTEM_ID, STATE_VERSION);
+        for (Snapshottable stateComponent : this.stateComponents) {
+            stateComponent.loadState(reader);
+        }
+    }
+
     @Override
     public void executeFrame() {
         //if (this.disassembler.isEnabled()) {
@@ -1,5 +1,7 @@
 package io.github.arkosammy12.jemu.core.cosmacvip;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+
 public class HybridChip8XBus extends CosmacVipBus {
 
     private static final int[] CHIP_8X_INTERPRETER = {
@@ -109,10 +111,10 @@ public class HybridChip8XBus extends CosmacVipBus {
     }
 
     @Override
-    protected void initializeRam(CosmacVipEmulator emulator, int[] rom) {
+    protected void initializeRam(CosmacVipEmulator emulator, MemoryRegion rom) {
         if (emulator.getChip8Interpreter() == CosmacVIPHost.Chip8Interpreter.CHIP_8X) {
-            System.arraycopy(CHIP_8X_INTERPRETER, 0, this.bytes, 0, CHIP_8X_INTERPRETER.length);
-            System.arraycopy(rom, 0, this.bytes, CHIP_8X_INTERPRETER.length, rom.length);
+            this.bytes.copyFrom(MemoryRegion.copyOf(CHIP_8X_INTERPRETER), 0, 0, CHIP_8X_INTERPRETER.length);
+            this.bytes.copyFrom(rom, 0, CHIP_8X_INTERPRETER.length, rom.length());
         } else {
             super.initializeRam(emulator, rom);
         }
@@ -1,5 +1,8 @@
 package io.github.arkosammy12.jemu.core.cosmacvip;
 
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+
 import java.util.Arrays;
 
 public class  VP590<E extends CosmacVipEmulator> extends CDP1861<E> {
@@ -19,9 +22,25 @@ public class  VP590<E extends CosmacVipEmulator> extends CDP1861<E> {
     public VP590(E emulator) {
         super(emulator);
         Arrays.fill(this.colorRam, 0xF0);
-        for (int[] ints : this.displayBuffer) {
-            Arrays.fill(ints, 0xFF000000);
-        }
+        Arrays.fill(this.displayBuffer, 0xFF000000);
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        super.saveState(writer);
+        writer.writeInts(this.colorRam);
+        writer.writeInt(this.backgroundColorIndex);
+        writer.writeBoolean(this.hiresColor);
+        writer.writeBoolean(this.colorRamModified);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        super.loadState(reader);
+        reader.readInts(this.colorRam);
+        this.backgroundColorIndex = reader.readInt();
+        this.hiresColor = reader.readBoolean();
+        this.colorRamModified = reader.readBoolean();
     }
 
     public void writeColorRam(int address, int value) {
@@ -87,9 +106,8 @@ public class  VP590<E extends CosmacVipEmulator> extends CDP1861<E> {
             if (col < 0 || col >= 64) {
                 break;
             }
-            for (int j = 0; j < 4; j++) {
-                this.displayBuffer[(col * 4) + j][row] = (value & mask) != 0 ? color : backgroundColor;
-            }
+            int index = (row * this.imageWidth) + (col * 4);
+            Arrays.fill(this.displayBuffer, index, index + 4, (value & mask) != 0 ? color : backgroundColor);
         }
     }
 
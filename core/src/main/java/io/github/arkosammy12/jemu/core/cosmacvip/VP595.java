@@ -1,14 +1,16 @@
 package io.github.arkosammy12.jemu.core.cosmacvip;
 
 import io.github.arkosammy12.jemu.core.common.AudioGenerator;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.drivers.AudioDriver;
-import org.jetbrains.annotations.NotNull;
 
 import java.util.Optional;
 
 import static io.github.arkosammy12.jemu.core.cosmacvip.CosmacVipAudioGenerator.SQUARE_WAVE_AMPLITUDE;
 
-public class VP595<E extends CosmacVipEmulator> extends AudioGenerator<E> implements IODevice {
+public class VP595<E extends CosmacVipEmulator> extends AudioGenerator<E> implements IODevice, Snapshottable {
 
     private double frequencyLatch = 27535.0 / (0x80 + 1);
     private double phase = 0.0;
@@ -17,6 +19,18 @@ public class VP595<E extends CosmacVipEmulator> extends AudioGenerator<E> implem
         super(emulator);
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeDouble(this.frequencyLatch);
+        writer.writeDouble(this.phase);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.frequencyLatch = reader.readDouble();
+        this.phase = reader.readDouble();
+    }
+
     @Override
     public boolean isOutputPort(int port) {
         return port == 3;
@@ -34,26 +48,21 @@ public class VP595<E extends CosmacVipEmulator> extends AudioGenerator<E> implem
     }
 
     @Override
-    public AudioGenerator.@NotNull SampleSize getBytesPerSample() {
-        return SampleSize.BYTES_1;
-    }
-
-    @Override
-    public Optional<byte[]> getSampleFrame() {
+    public int getSampleFrame(short[] samples) {
         double frequency = frequencyLatch;
         Optional<? extends AudioDriver> optionalAudioDriver = this.emulator.getHost().getAudioDriver();
         if (!this.emulator.getCpu().getQ() || optionalAudioDriver.isEmpty()) {
             phase = 0;
-            return Optional.empty();
+            return 0;
         }
         AudioDriver audioDriver = optionalAudioDriver.get();
-        byte[] data = new byte[audioDriver.getSamplesPerFrame()];
+        int samplesPerFrame = audioDriver.getSamplesPerFrame();
         double step = frequency / audioDriver.getSampleRate();
-        for (int i = 0; i < data.length; i++) {
-            data[i] = (byte) ((phase < 0.5) ? SQUARE_WAVE_AMPLITUDE : -SQUARE_WAVE_AMPLITUDE);
+        for (int i = 0; i < samplesPerFrame; i++) {
+            samples[i] = (short) ((phase < 0.5) ? SQUARE_WAVE_AMPLITUDE : -SQUARE_WAVE_AMPLITUDE);
             phase = (phase + step) % 1;
         }
-        return Optional.of(data);
+        return samplesPerFrame;
     }
 
 
@@ -1,12 +1,16 @@
 package io.github.arkosammy12.jemu.core.cpu;
 
 import io.github.arkosammy12.jemu.core.common.Processor;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 
 import static io.github.arkosammy12.jemu.core.cpu.CDP1802.State.*;
 
-public class CDP1802 implements Processor {
+public class CDP1802 implements Processor, Snapshottable {
 
     private static final int HANDLED = 1;
+    private static final State[] STATES = State.values();
 
     private final SystemBus systemBus;
     private int currentInstructionAddress;
@@ -50,6 +54,46 @@ public class CDP1802 implements Processor {
         return this.currentState;
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeShort(this.currentInstructionAddress);
+        writer.writeByte(this.currentState.ordinal());
+        writer.writeBoolean(this.longInstruction);
+        writer.writeBoolean(this.idling);
+        writer.writeByte(this.accumulator);
+        writer.writeBoolean(this.dataFlagRegister);
+        writer.writeByte(this.auxiliaryHoldingRegister);
+        writer.writeInts(this.registers);
+        writer.writeByte(this.programCounterIndex);
+        writer.writeByte(this.dataPointerIndex);
+        writer.writeByte(this.lowOrderInstructionDigit);
+        writer.writeByte(this.highOrderInstructionDigit);
+        writer.writeByte(this.temporaryRegister);
+        writer.writeBoolean(this.interruptEnable);
+        writer.writeBoolean(this.outputFlipFlop);
+        writer.writeBooleans(this.externalFlagInputs);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.currentInstructionAddress = reader.readShort();
+        this.currentState = STATES[reader.readByte()];
+        this.longInstruction = reader.readBoolean();
+        this.idling = reader.readBoolean();
+        this.accumulator = reader.readByte();
+        this.dataFlagRegister = reader.readBoolean();
+        this.auxiliaryHoldingRegister = reader.readByte();
+        reader.readInts(this.registers);
+        this.programCounterIndex = reader.readByte();
+        this.dataPointerIndex = reader.readByte();
+        this.lowOrderInstructionDigit = reader.readByte();
+        this.highOrderInstructionDigit = reader.readByte();
+        this.temporaryRegister = reader.readByte();
+        this.interruptEnable = reader.readBoolean();
+        this.outputFlipFlop = reader.readBoolean();
+        reader.readBooleans(this.externalFlagInputs);
+    }
+
     protected void setD(int value) {
         this.accumulator = value & 0xFF;
     }
@@ -3,7 +3,16 @@ package io.github.arkosammy12.jemu.core.cpu;
 public class NES6502 extends NMOS6502 {
 
     public NES6502(SystemBus systemBus) {
-        super(systemBus);
+        this(systemBus, false);
+    }
+
+    public NES6502(SystemBus systemBus, boolean useRecompiler) {
+        this(systemBus, true, useRecompiler);
+    }
+
+    // The instruction switches are only kept for checking the micro-op table against
+    protected NES6502(SystemBus systemBus, boolean useMicroOpTable, boolean useRecompiler) {
+        super(systemBus, useMicroOpTable, useRecompiler);
 
         // Trigger the initial resetting of the CPU
         this.brkSource = BRKSource.RESET;
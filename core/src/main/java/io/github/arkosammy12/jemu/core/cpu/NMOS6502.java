@@ -1,8 +1,16 @@
 package io.github.arkosammy12.jemu.core.cpu;
 
 import io.github.arkosammy12.jemu.core.common.Processor;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 
-public class NMOS6502 implements Processor {
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+public class NMOS6502 implements Processor, Snapshottable {
 
     private static final int RESET_VECTOR = 0xFFFC;
     private static final int NMI_VECTOR = 0xFFFA;
@@ -17,6 +25,13 @@ public class NMOS6502 implements Processor {
     private static final int Z_MASK = 1 << 1;
     private static final int C_MASK = 1;
 
+    private static final Phase[] PHASES = Phase.values();
+    private static final ReadWriteCycle[] READ_WRITE_CYCLES = ReadWriteCycle.values();
+    private static final BRKSource[] BRK_SOURCES = BRKSource.values();
+
+    private static final int MAX_COMPILED_BLOCK_LENGTH = 32;
+    private static final int COMPILE_THRESHOLD = 16;
+
     protected final SystemBus systemBus;
 
     private int programCounter; // PC, 16 bits
@@ -52,8 +67,32 @@ public class NMOS6502 implements Processor {
     private int brkVector = IRQ_BRK_VECTOR;
     private boolean pushB;
 
+    private final MicroOp[][] microOps;
+
+    private final NMOS6502Recompiler recompiler;
+    // Half-cycles already executed by a compiled block that the rest of the system has yet to catch up to
+    private int compiledSubCyclesAhead;
+    private int compiledPollSubCycle;
+
     public NMOS6502(SystemBus systemBus) {
+        this(systemBus, false);
+    }
+
+    // When enabled, each sub-cycle is dispatched through a precompiled table of micro-ops
+    // indexed by opcode and sub-cycle instead of the nested instruction switches
+    protected NMOS6502(SystemBus systemBus, boolean useMicroOpTable) {
+        this(systemBus, useMicroOpTable, false);
+    }
+
+    // When enabled, hot runs of instructions in ROM that only touch registers and internal RAM are compiled into JVM bytecode
+    protected NMOS6502(SystemBus systemBus, boolean useMicroOpTable, boolean useRecompiler) {
         this.systemBus = systemBus;
+        this.microOps = useMicroOpTable ? this.createMicroOpTable() : null;
+        this.recompiler = useRecompiler ? new NMOS6502Recompiler(this, MethodHandles.lookup()) : null;
+    }
+
+    protected MicroOp[][] createMicroOpTable() {
+        return MicroOpTable.TABLE.clone();
     }
 
     public Phase getHalfCyclePhase() {
@@ -311,6 +350,73 @@ public class NMOS6502 implements Processor {
         return this.boundaryCrossed;
     }
 
+    // Compiled blocks are only built from ROM, so they stay valid across state loads. A state saved while the rest of
+    // the system is still catching up to a compiled block resumes that catching up after it is loaded
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeShort(this.programCounter);
+        writer.writeByte(this.accumulator);
+        writer.writeByte(this.X);
+        writer.writeByte(this.Y);
+        writer.writeByte(this.processorStatus);
+        writer.writeByte(this.stackPointer);
+        writer.writeByte(this.instructionRegister);
+        writer.writeInt(this.subCycleIndex);
+        writer.writeBoolean(this.firstSubCycle);
+        writer.writeByte(this.operand);
+        writer.writeShort(this.address);
+        writer.writeShort(this.pointer);
+        writer.writeShort(this.target);
+        writer.writeShort(this.finalVar);
+        writer.writeByte(this.temp);
+        writer.writeBoolean(this.boundaryCrossed);
+        writer.writeByte(this.phase.ordinal());
+        writer.writeByte(this.readWriteCycle.ordinal());
+        writer.writeBoolean(this.cpuHalted);
+        writer.writeShort(this.lastAddress);
+        writer.writeBoolean(this.oldNMI);
+        writer.writeBoolean(this.nmiEdgeLatch);
+        writer.writeBoolean(this.disablePCWrites);
+        writer.writeByte(this.brkSource == null ? 0 : this.brkSource.ordinal() + 1);
+        writer.writeShort(this.brkVector);
+        writer.writeBoolean(this.pushB);
+        writer.writeInt(this.compiledSubCyclesAhead);
+        writer.writeInt(this.compiledPollSubCycle);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.programCounter = reader.readShort();
+        this.accumulator = reader.readByte();
+        this.X = reader.readByte();
+        this.Y = reader.readByte();
+        this.processorStatus = reader.readByte();
+        this.stackPointer = reader.readByte();
+        this.instructionRegister = reader.readByte();
+        this.subCycleIndex = reader.readInt();
+        this.firstSubCycle = reader.readBoolean();
+        this.operand = reader.readByte();
+        this.address = reader.readShort();
+        this.pointer = reader.readShort();
+        this.target = reader.readShort();
+        this.finalVar = reader.readShort();
+        this.temp = reader.readByte();
+        this.boundaryCrossed = reader.readBoolean();
+        this.phase = PHASES[reader.readByte()];
+        this.readWriteCycle = READ_WRITE_CYCLES[reader.readByte()];
+        this.cpuHalted = reader.readBoolean();
+        this.lastAddress = reader.readShort();
+        this.oldNMI = reader.readBoolean();
+        this.nmiEdgeLatch = reader.readBoolean();
+        this.disablePCWrites = reader.readBoolean();
+        int brkSource = reader.readByte();
+        this.brkSource = brkSource == 0 ? null : BRK_SOURCES[brkSource - 1];
+        this.brkVector = reader.readShort();
+        this.pushB = reader.readBoolean();
+        this.compiledSubCyclesAhead = reader.readInt();
+        this.compiledPollSubCycle = reader.readInt();
+    }
+
     @Override
     public int cycle() {
 
@@ -330,8 +436,26 @@ public class NMOS6502 implements Processor {
             return 0;
         }
 
+        if (this.compiledSubCyclesAhead > 0) {
+            this.compiledSubCyclesAhead--;
+            if (this.compiledSubCyclesAhead == this.compiledPollSubCycle) {
+                this.pollInterrupts();
+            }
+            this.onCompiledSubCycleEnd();
+            return 0;
+        }
+
+        if (this.subCycleIndex == 0 && this.runCompiledBlock()) {
+            this.onCompiledSubCycleEnd();
+            return 0;
+        }
+
         if (this.subCycleIndex >= 0) {
-            this.execute();
+            if (this.microOps != null) {
+                this.microOps[this.getIR()][this.subCycleIndex++].execute(this);
+            } else {
+                this.execute();
+            }
         }
 
         if (this.subCycleIndex < 0) {
@@ -359,13 +483,57 @@ public class NMOS6502 implements Processor {
         return 0;
     }
 
+    // Runs the compiled block starting at the instruction that was just fetched, if any. The block executes every
+    // sub-cycle of its instructions up to the fetch of the next opcode at once, and the following calls to cycle()
+    // only let the rest of the system catch up, polling for interrupts where the last instruction would have. An
+    // interrupt raised while an earlier instruction of the block would have run is taken after the block instead, up to
+    // MAX_COMPILED_BLOCK_LENGTH instructions later than the interpreter would take it.
+    private boolean runCompiledBlock() {
+        if (this.recompiler == null || this.brkSource != null || this.nmiEdgeLatch || (systemBus.getIRQ() && !getFI()) || systemBus.getRDY()) {
+            return false;
+        }
+        int result = this.recompiler.execute(getPC());
+        if (result == 0) {
+            return false;
+        }
+        int cycles = result & 0xFFFF;
+        this.compiledSubCyclesAhead = (cycles * 2) - 2;
+        this.compiledPollSubCycle = (result >>> 16) - 1;
+        this.subCycleIndex = TERMINATE_INSTRUCTION;
+        return true;
+    }
+
+    // The amount of blocks the recompiler has compiled so far, which is 0 whenever it is disabled
+    public int getCompiledBlockCount() {
+        return this.recompiler != null ? this.recompiler.getCompiledBlockCount() : 0;
+    }
+
+    protected int getMaxCompiledBlockLength() {
+        return MAX_COMPILED_BLOCK_LENGTH;
+    }
+
+    protected int getCompileThreshold() {
+        return COMPILE_THRESHOLD;
+    }
+
+    private void onCompiledSubCycleEnd() {
+        if (this.phase == Phase.PHI_2) {
+            this.sampleNMI();
+        }
+        this.phase = this.phase.getOpposite();
+    }
+
+    private void sampleNMI() {
+        boolean currentNMI = systemBus.getNMI();
+        if (!this.oldNMI && currentNMI) {
+            this.nmiEdgeLatch = true;
+        }
+        this.oldNMI = currentNMI;
+    }
+
     private void onSubCycleEnd(int originalSubCycleIndex, int originalInstructionRegister, boolean originalDisablePCWrites) {
         if (this.phase == Phase.PHI_2) {
-            boolean currentNMI = systemBus.getNMI();
-            if (!this.oldNMI && currentNMI) {
-                this.nmiEdgeLatch = true;
-            }
-            this.oldNMI = currentNMI;
+            this.sampleNMI();
             this.cpuHalted = systemBus.getRDY() && this.readWriteCycle == ReadWriteCycle.READ;
             if (this.cpuHalted) {
                 //setIR(originalInstructionRegister);
@@ -9858,6 +10026,192 @@ public class NMOS6502 implements Processor {
         addOrSubCarry(true);
     }
 
+    private void ora() {
+        int result = (getA() | getOperand()) & 0xFF;
+        setA(result);
+        setFN((result & 0x80) != 0);
+        setFZ(result == 0);
+    }
+
+    private void and() {
+        int result = (getA() & getOperand()) & 0xFF;
+        setA(result);
+        setFN((result & 0x80) != 0);
+        setFZ(result == 0);
+    }
+
+    private void eor() {
+        int result = (getA() ^ getOperand()) & 0xFF;
+        setA(result);
+        setFN((result & 0x80) != 0);
+        setFZ(result == 0);
+    }
+
+    private void cmp() {
+        setFC(getA() >= getOperand());
+        setFN(((getA() - getOperand()) & 0x80) != 0);
+        setFZ(getA() == getOperand());
+    }
+
+    private void cpy() {
+        setFC(getY() >= getOperand());
+        setFN(((getY() - getOperand()) & 0x80) != 0);
+        setFZ(getY() == getOperand());
+    }
+
+    private void bit() {
+        setFV((getOperand() & (1 << 6)) != 0);
+        setFN((getOperand() & (1 << 7)) != 0);
+        setFZ((getOperand() & getA()) == 0);
+    }
+
+    private void lda() {
+        setA(getOperand());
+        setFN((getA() & 0x80) != 0);
+        setFZ(getA() == 0);
+    }
+
+    private void ldx() {
+        setX(getOperand());
+        setFN((getX() & 0x80) != 0);
+        setFZ(getX() == 0);
+    }
+
+    private void ldy() {
+        setY(getOperand());
+        setFN((getY() & 0x80) != 0);
+        setFZ(getY() == 0);
+    }
+
+    private void lax() {
+        setA(getOperand());
+        setX(getOperand());
+        setFN((getA() & 0x80) != 0);
+        setFZ(getA() == 0);
+    }
+
+    private void las() {
+        int value = (getOperand() & getS());
+        setA(value);
+        setX(value);
+        setS(value);
+        setFN((getA() & 0x80) != 0);
+        setFZ(getA() == 0);
+    }
+
+    private void anc() {
+        int result = (getA() & getOperand()) & 0xFF;
+        setA(result);
+        setFC((result & 0x80) != 0);
+        setFN((result & 0x80) != 0);
+        setFZ(result == 0);
+    }
+
+    private void asr() {
+        setA(getA() & getOperand());
+        setFC((getA() & 1) != 0);
+        int result = (getA() >>> 1) & 0xFF;
+        setA(result);
+        setFN((result & 0x80) != 0);
+        setFZ(result == 0);
+    }
+
+    private void arr() {
+        setA(getA() & getOperand());
+        int temp = getFC() ? 0x80 : 0x00;
+        setFC((getA() & 0x80) != 0);
+        setA((getA() >>> 1) | temp);
+        setFN((getA() & 0x80) != 0);
+        setFZ(getA() == 0);
+        setFV(((getFC() ? 1 : 0) ^ ((getA() >>> 5) & 1)) != 0);
+    }
+
+    private void ane() {
+        // L. Spiro's NES instructions says that the constant 0xEE passes all known tests,
+        // so this is what we will go to
+        int result = ((getA() | 0xEE) & getX() & getOperand()) & 0xFF;
+        setA(result);
+        setFN((result & 0x80) != 0);
+        setFZ(result == 0);
+    }
+
+    private void lxa() {
+        int value = ((getA() | 0xFF) & getOperand()) & 0xFF;
+        setA(value);
+        setX(value);
+        setFN((value & 0x80) != 0);
+        setFZ(value == 0);
+    }
+
+    private void sbx() {
+        int anx = getA() & getX();
+        setFC(anx >= getOperand());
+        setX(anx - getOperand());
+        setFN((getX() & 0x80) != 0);
+        setFZ(getX() == 0);
+    }
+
+    private void asl() {
+        setFC((getOperand() & 0x80) != 0);
+        setOperand(getOperand() << 1);
+        setFN((getOperand() & 0x80) != 0);
+        setFZ(getOperand() == 0);
+    }
+
+    private void lsr() {
+        setFC((getOperand() & 1) != 0);
+        setOperand(getOperand() >>> 1);
+        setFN((getOperand() & 0x80) != 0);
+        setFZ(getOperand() == 0);
+    }
+
+    private void rol() {
+        boolean originalHighBit = (getOperand() & 0x80) != 0;
+        setOperand((getOperand() << 1) | (getFC() ? 1 : 0));
+        setFC(originalHighBit);
+        setFN((getOperand() & 0x80) != 0);
+        setFZ(getOperand() == 0);
+    }
+
+    private void ror() {
+        int temp = getFC() ? 0x80 : 0x00;
+        setFC((getOperand() & 1) != 0);
+        setOperand((getOperand() >>> 1) | temp);
+        setFN((getOperand() & 0x80) != 0);
+        setFZ(getOperand() == 0);
+    }
+
+    private void dec() {
+        setOperand(getOperand() - 1);
+        setFN((getOperand() & 0x80) != 0);
+        setFZ(getOperand() == 0);
+    }
+
+    private void slo() {
+        asl();
+        ora();
+    }
+
+    private void rla() {
+        rol();
+        and();
+    }
+
+    private void sre() {
+        lsr();
+        eor();
+    }
+
+    private void rra() {
+        ror();
+        adc();
+    }
+
+    private void dcp() {
+        dec();
+        cmp();
+    }
+
     protected void addOrSubCarry(boolean subtract) {
         int a = getA();
         int m = subtract ? getOperand() ^ 0xFF : getOperand();
@@ -10139,6 +10493,22 @@ public class NMOS6502 implements Processor {
         }
     }
 
+    private void indexAddress(int index) {
+        setTarget(getAddress() + index);
+        setAddressLow(getTargetLow());
+        setBoundaryCrossed(getAddressHigh() != getTargetHigh());
+    }
+
+    private void writeUnstableHigh(int value) {
+        if (getBoundaryCrossed()) {
+            int val = getAddressHigh() & value;
+            writeByte(getAddressLow() | (val << 8), val);
+        } else {
+            int val = ((getAddressHigh() + 1) & value) & 0xFF;
+            writeByte(getAddress(), val);
+        }
+    }
+
     private int readByte(int address) {
         this.readWriteCycle = ReadWriteCycle.READ;
         this.lastAddress = address;
@@ -10151,6 +10521,723 @@ public class NMOS6502 implements Processor {
         systemBus.getBus().writeByte(address, value);
     }
 
+    @FunctionalInterface
+    protected interface MicroOp {
+
+        void execute(NMOS6502 cpu);
+
+    }
+
+    // Each opcode is precompiled into its sequence of half-cycle micro-ops. The dispatcher advances the
+    // sub-cycle index before invoking a micro-op, so micro-ops only touch it to skip ahead or terminate.
+    private static final class MicroOpTable {
+
+        private static final MicroOp IDLE = _ -> {};
+        private static final MicroOp TERMINATE = cpu -> cpu.subCycleIndex = TERMINATE_INSTRUCTION;
+        private static final MicroOp INCREMENT_PC = cpu -> cpu.setPC(cpu.getPC() + 1);
+
+        private static final MicroOp READ_PC = cpu -> cpu.readByte(cpu.getPC());
+        private static final MicroOp FETCH_OPERAND = cpu -> cpu.setOperand(cpu.readByte(cpu.getPC()));
+        private static final MicroOp FETCH_ADDRESS = cpu -> cpu.setAddress(cpu.readByte(cpu.getPC()));
+        private static final MicroOp FETCH_ADDRESS_LOW = cpu -> cpu.setAddressLow(cpu.readByte(cpu.getPC()));
+        private static final MicroOp FETCH_ADDRESS_HIGH = cpu -> cpu.setAddressHigh(cpu.readByte(cpu.getPC()));
+        private static final MicroOp FETCH_POINTER = cpu -> cpu.setPointer(cpu.readByte(cpu.getPC()));
+
+        private static final MicroOp READ_POINTER = cpu -> cpu.readByte(cpu.getPointer());
+        private static final MicroOp READ_OPERAND_ADDRESS = cpu -> cpu.readByte(cpu.getOperand());
+        private static final MicroOp READ_ADDRESS_LOW = cpu -> cpu.setAddressLow(cpu.readByte(cpu.getPointer()));
+        private static final MicroOp READ_ADDRESS_HIGH = cpu -> cpu.setAddressHigh(cpu.readByte((cpu.getPointer() + 1) & 0xFF));
+
+        private static final MicroOp ZERO_PAGE_INDEX_X = cpu -> cpu.setAddress((cpu.getPointer() + cpu.getX()) & 0xFF);
+        private static final MicroOp ZERO_PAGE_INDEX_Y = cpu -> cpu.setAddress((cpu.getPointer() + cpu.getY()) & 0xFF);
+        private static final MicroOp POINTER_INDEX_X = cpu -> cpu.setPointer((cpu.getOperand() + cpu.getX()) & 0xFF);
+        private static final MicroOp INDEX_X = cpu -> cpu.indexAddress(cpu.getX());
+        private static final MicroOp INDEX_Y = cpu -> cpu.indexAddress(cpu.getY());
+        private static final MicroOp FIX_ADDRESS_HIGH = cpu -> cpu.setAddressHigh(cpu.getTargetHigh());
+
+        private static final MicroOp READ_OPERAND = cpu -> cpu.setOperand(cpu.readByte(cpu.getAddress()));
+        private static final MicroOp WRITE_OPERAND = cpu -> cpu.writeByte(cpu.getAddress(), cpu.getOperand());
+        // Right shifts latch the carry out before the dummy write
+        private static final MicroOp LATCH_CARRY = cpu -> cpu.setFC((cpu.getOperand() & 1) != 0);
+        private static final MicroOp READ_OPERAND_OR_SKIP_FIX = cpu -> {
+            cpu.setOperand(cpu.readByte(cpu.getAddress()));
+            if (!cpu.getBoundaryCrossed()) {
+                cpu.pollInterrupts();
+                cpu.subCycleIndex += 2;
+            }
+        };
+
+        private static final MicroOp STORE_A = cpu -> cpu.writeByte(cpu.getAddress(), cpu.getA());
+        private static final MicroOp STORE_X = cpu -> cpu.writeByte(cpu.getAddress(), cpu.getX());
+        private static final MicroOp STORE_Y = cpu -> cpu.writeByte(cpu.getAddress(), cpu.getY());
+        private static final MicroOp STORE_AX = cpu -> cpu.writeByte(cpu.getAddress(), cpu.getA() & cpu.getX());
+
+        private static final MicroOp READ_STACK = cpu -> cpu.readByte(cpu.getS() | 0x0100);
+        private static final MicroOp PULL_OPERAND = cpu -> cpu.setOperand(cpu.readByte(cpu.getS() | 0x0100));
+        private static final MicroOp INCREMENT_S = cpu -> cpu.setS(cpu.getS() + 1);
+        private static final MicroOp DECREMENT_S = cpu -> cpu.setS(cpu.getS() - 1);
+        private static final MicroOp JUMP_TO_ADDRESS = cpu -> cpu.setPC(cpu.getAddress());
+
+        private static final AddressingMode ZERO_PAGE = new AddressingMode(false, INCREMENT_PC, FETCH_ADDRESS, INCREMENT_PC);
+        private static final AddressingMode ZERO_PAGE_X = new AddressingMode(false, INCREMENT_PC, FETCH_POINTER, INCREMENT_PC, READ_POINTER, ZERO_PAGE_INDEX_X);
+        private static final AddressingMode ZERO_PAGE_Y = new AddressingMode(false, INCREMENT_PC, FETCH_POINTER, INCREMENT_PC, READ_POINTER, ZERO_PAGE_INDEX_Y);
+        private static final AddressingMode ABSOLUTE = new AddressingMode(false, INCREMENT_PC, FETCH_ADDRESS_LOW, INCREMENT_PC, FETCH_ADDRESS_HIGH, INCREMENT_PC);
+        private static final AddressingMode ABSOLUTE_X = new AddressingMode(true, INCREMENT_PC, FETCH_ADDRESS_LOW, INCREMENT_PC, FETCH_ADDRESS_HIGH, both(INCREMENT_PC, INDEX_X));
+        private static final AddressingMode ABSOLUTE_Y = new AddressingMode(true, INCREMENT_PC, FETCH_ADDRESS_LOW, INCREMENT_PC, FETCH_ADDRESS_HIGH, both(INCREMENT_PC, INDEX_Y));
+        private static final AddressingMode INDIRECT_X = new AddressingMode(false, INCREMENT_PC, FETCH_OPERAND, INCREMENT_PC, READ_OPERAND_ADDRESS, POINTER_INDEX_X, READ_ADDRESS_LOW, IDLE, READ_ADDRESS_HIGH, IDLE);
+        private static final AddressingMode INDIRECT_Y = new AddressingMode(true, INCREMENT_PC, FETCH_POINTER, INCREMENT_PC, READ_ADDRESS_LOW, IDLE, READ_ADDRESS_HIGH, INDEX_Y);
+
+        private static final MicroOp[][] TABLE = createTable();
+
+        private static MicroOp[][] createTable() {
+            MicroOp[][] table = new MicroOp[256][];
+
+            table[0x00] = brk();
+            table[0x01] = read(INDIRECT_X, NMOS6502::ora);
+            table[0x02] = jam();
+            table[0x03] = readModifyWrite(INDIRECT_X, NMOS6502::slo);
+            table[0x04] = read(ZERO_PAGE, IDLE);
+            table[0x05] = read(ZERO_PAGE, NMOS6502::ora);
+            table[0x06] = readModifyWrite(ZERO_PAGE, NMOS6502::asl);
+            table[0x07] = readModifyWrite(ZERO_PAGE, NMOS6502::slo);
+            table[0x08] = push(cpu -> cpu.getP() | B_MASK | M_MASK);
+            table[0x09] = immediate(NMOS6502::ora);
+            table[0x0A] = implied(cpu -> {
+                cpu.setFC((cpu.getA() & 0x80) != 0);
+                int result = (cpu.getA() << 1) & 0xFF;
+                cpu.setA(result);
+                cpu.setFN((result & 0x80) != 0);
+                cpu.setFZ(result == 0);
+            });
+            table[0x0B] = immediate(NMOS6502::anc);
+            table[0x0C] = read(ABSOLUTE, IDLE);
+            table[0x0D] = read(ABSOLUTE, NMOS6502::ora);
+            table[0x0E] = readModifyWrite(ABSOLUTE, NMOS6502::asl);
+            table[0x0F] = readModifyWrite(ABSOLUTE, NMOS6502::slo);
+
+            table[0x10] = branch(cpu -> !cpu.getFN());
+            table[0x11] = read(INDIRECT_Y, NMOS6502::ora);
+            table[0x12] = jam();
+            table[0x13] = readModifyWrite(INDIRECT_Y, NMOS6502::slo);
+            table[0x14] = read(ZERO_PAGE_X, IDLE);
+            table[0x15] = read(ZERO_PAGE_X, NMOS6502::ora);
+            table[0x16] = readModifyWrite(ZERO_PAGE_X, NMOS6502::asl);
+            table[0x17] = readModifyWrite(ZERO_PAGE_X, NMOS6502::slo);
+            table[0x18] = implied(cpu -> cpu.setFC(false));
+            table[0x19] = read(ABSOLUTE_Y, NMOS6502::ora);
+            table[0x1A] = implied(IDLE);
+            table[0x1B] = readModifyWrite(ABSOLUTE_Y, NMOS6502::slo);
+            table[0x1C] = read(ABSOLUTE_X, IDLE);
+            table[0x1D] = read(ABSOLUTE_X, NMOS6502::ora);
+            table[0x1E] = readModifyWrite(ABSOLUTE_X, NMOS6502::asl);
+            table[0x1F] = readModifyWrite(ABSOLUTE_X, NMOS6502::slo);
+
+            table[0x20] = jsr();
+            table[0x21] = read(INDIRECT_X, NMOS6502::and);
+            table[0x22] = jam();
+            table[0x23] = readModifyWrite(INDIRECT_X, NMOS6502::rla);
+            table[0x24] = read(ZERO_PAGE, NMOS6502::bit);
+            table[0x25] = read(ZERO_PAGE, NMOS6502::and);
+            table[0x26] = readModifyWrite(ZERO_PAGE, NMOS6502::rol);
+            table[0x27] = readModifyWrite(ZERO_PAGE, NMOS6502::rla);
+            table[0x28] = pull(cpu -> {
+                cpu.setP(cpu.getOperand());
+                cpu.setFB(false);
+                cpu.setFM(true);
+            });
+            table[0x29] = immediate(NMOS6502::and);
+            table[0x2A] = implied(cpu -> {
+                boolean originalHighBit = (cpu.getA() & 0x80) != 0;
+                int result = ((cpu.getA() << 1) | (cpu.getFC() ? 1 : 0)) & 0xFF;
+                cpu.setA(result);
+                cpu.setFC(originalHighBit);
+                cpu.setFN((result & 0x80) != 0);
+                cpu.setFZ(result == 0);
+            });
+            table[0x2B] = immediate(NMOS6502::anc);
+            table[0x2C] = read(ABSOLUTE, NMOS6502::bit);
+            table[0x2D] = read(ABSOLUTE, NMOS6502::and);
+            table[0x2E] = readModifyWrite(ABSOLUTE, NMOS6502::rol);
+            table[0x2F] = readModifyWrite(ABSOLUTE, NMOS6502::rla);
+
+            table[0x30] = branch(NMOS6502::getFN);
+            table[0x31] = read(INDIRECT_Y, NMOS6502::and);
+            table[0x32] = jam();
+            table[0x33] = readModifyWrite(INDIRECT_Y, NMOS6502::rla);
+            table[0x34] = read(ZERO_PAGE_X, IDLE);
+            table[0x35] = read(ZERO_PAGE_X, NMOS6502::and);
+            table[0x36] = readModifyWrite(ZERO_PAGE_X, NMOS6502::rol);
+            table[0x37] = readModifyWrite(ZERO_PAGE_X, NMOS6502::rla);
+            table[0x38] = implied(cpu -> cpu.setFC(true));
+            table[0x39] = read(ABSOLUTE_Y, NMOS6502::and);
+            table[0x3A] = implied(IDLE);
+            table[0x3B] = readModifyWrite(ABSOLUTE_Y, NMOS6502::rla);
+            table[0x3C] = read(ABSOLUTE_X, IDLE);
+            table[0x3D] = read(ABSOLUTE_X, NMOS6502::and);
+            table[0x3E] = readModifyWrite(ABSOLUTE_X, NMOS6502::rol);
+            table[0x3F] = readModifyWrite(ABSOLUTE_X, NMOS6502::rla);
+
+            table[0x40] = rti();
+            table[0x41] = read(INDIRECT_X, NMOS6502::eor);
+            table[0x42] = jam();
+            table[0x43] = readModifyWrite(INDIRECT_X, LATCH_CARRY, NMOS6502::sre);
+            table[0x44] = read(ZERO_PAGE, IDLE);
+            table[0x45] = read(ZERO_PAGE, NMOS6502::eor);
+            table[0x46] = readModifyWrite(ZERO_PAGE, LATCH_CARRY, NMOS6502::lsr);
+            table[0x47] = readModifyWrite(ZERO_PAGE, LATCH_CARRY, NMOS6502::sre);
+            table[0x48] = push(NMOS6502::getA);
+            table[0x49] = immediate(NMOS6502::eor);
+            table[0x4A] = implied(cpu -> {
+                cpu.setFC((cpu.getA() & 1) != 0);
+                int result = (cpu.getA() >>> 1) & 0xFF;
+                cpu.setA(result);
+                cpu.setFN(false);
+                cpu.setFZ(result == 0);
+            });
+            table[0x4B] = immediate(NMOS6502::asr);
+            table[0x4C] = jmpAbsolute();
+            table[0x4D] = read(ABSOLUTE, NMOS6502::eor);
+            table[0x4E] = readModifyWrite(ABSOLUTE, LATCH_CARRY, NMOS6502::lsr);
+            table[0x4F] = readModifyWrite(ABSOLUTE, LATCH_CARRY, NMOS6502::sre);
+
+            table[0x50] = branch(cpu -> !cpu.getFV());
+            table[0x51] = read(INDIRECT_Y, NMOS6502::eor);
+            table[0x52] = jam();
+            table[0x53] = readModifyWrite(INDIRECT_Y, LATCH_CARRY, NMOS6502::sre);
+            table[0x54] = read(ZERO_PAGE_X, IDLE);
+            table[0x55] = read(ZERO_PAGE_X, NMOS6502::eor);
+            table[0x56] = readModifyWrite(ZERO_PAGE_X, LATCH_CARRY, NMOS6502::lsr);
+            table[0x57] = readModifyWrite(ZERO_PAGE_X, LATCH_CARRY, NMOS6502::sre);
+            table[0x58] = implied(cpu -> cpu.setFI(false));
+            table[0x59] = read(ABSOLUTE_Y, NMOS6502::eor);
+            table[0x5A] = implied(IDLE);
+            table[0x5B] = readModifyWrite(ABSOLUTE_Y, LATCH_CARRY, NMOS6502::sre);
+            table[0x5C] = read(ABSOLUTE_X, IDLE);
+            table[0x5D] = read(ABSOLUTE_X, NMOS6502::eor);
+            table[0x5E] = readModifyWrite(ABSOLUTE_X, LATCH_CARRY, NMOS6502::lsr);
+            table[0x5F] = readModifyWrite(ABSOLUTE_X, LATCH_CARRY, NMOS6502::sre);
+
+            table[0x60] = rts();
+            table[0x61] = read(INDIRECT_X, NMOS6502::adc);
+            table[0x62] = jam();
+            table[0x63] = readModifyWrite(INDIRECT_X, NMOS6502::rra);
+            table[0x64] = read(ZERO_PAGE, IDLE);
+            table[0x65] = read(ZERO_PAGE, NMOS6502::adc);
+            table[0x66] = readModifyWrite(ZERO_PAGE, NMOS6502::ror);
+            table[0x67] = readModifyWrite(ZERO_PAGE, NMOS6502::rra);
+            table[0x68] = pull(NMOS6502::lda);
+            table[0x69] = immediate(NMOS6502::adc);
+            table[0x6A] = implied(cpu -> {
+                int temp = cpu.getFC() ? 0x80 : 0x00;
+                cpu.setFC((cpu.getA() & 1) != 0);
+                int result = ((cpu.getA() >>> 1) | temp) & 0xFF;
+                cpu.setA(result);
+                cpu.setFN((result & 0x80) != 0);
+                cpu.setFZ(result == 0);
+            });
+            table[0x6B] = immediate(NMOS6502::arr);
+            table[0x6C] = jmpIndirect();
+            table[0x6D] = read(ABSOLUTE, NMOS6502::adc);
+            table[0x6E] = readModifyWrite(ABSOLUTE, NMOS6502::ror);
+            table[0x6F] = readModifyWrite(ABSOLUTE, NMOS6502::rra);
+
+            table[0x70] = branch(NMOS6502::getFV);
+            table[0x71] = read(INDIRECT_Y, NMOS6502::adc);
+            table[0x72] = jam();
+            table[0x73] = readModifyWrite(INDIRECT_Y, NMOS6502::rra);
+            table[0x74] = read(ZERO_PAGE_X, IDLE);
+            table[0x75] = read(ZERO_PAGE_X, NMOS6502::adc);
+            table[0x76] = readModifyWrite(ZERO_PAGE_X, NMOS6502::ror);
+            table[0x77] = readModifyWrite(ZERO_PAGE_X, NMOS6502::rra);
+            table[0x78] = implied(cpu -> cpu.setFI(true));
+            table[0x79] = read(ABSOLUTE_Y, NMOS6502::adc);
+            table[0x7A] = implied(IDLE);
+            table[0x7B] = readModifyWrite(ABSOLUTE_Y, NMOS6502::rra);
+            table[0x7C] = read(ABSOLUTE_X, IDLE);
+            table[0x7D] = read(ABSOLUTE_X, NMOS6502::adc);
+            table[0x7E] = readModifyWrite(ABSOLUTE_X, NMOS6502::ror);
+            table[0x7F] = readModifyWrite(ABSOLUTE_X, NMOS6502::rra);
+
+            table[0x80] = immediate(IDLE);
+            table[0x81] = write(INDIRECT_X, STORE_A);
+            table[0x82] = immediate(IDLE);
+            table[0x83] = write(INDIRECT_X, STORE_AX);
+            table[0x84] = write(ZERO_PAGE, STORE_Y);
+            table[0x85] = write(ZERO_PAGE, STORE_A);
+            table[0x86] = write(ZERO_PAGE, STORE_X);
+            table[0x87] = write(ZERO_PAGE, STORE_AX);
+            table[0x88] = implied(cpu -> {
+                cpu.setY(cpu.getY() - 1);
+                cpu.setFN((cpu.getY() & 0x80) != 0);
+                cpu.setFZ(cpu.getY() == 0);
+            });
+            table[0x89] = immediate(IDLE);
+            table[0x8A] = implied(cpu -> {
+                cpu.setA(cpu.getX());
+                cpu.setFN((cpu.getA() & 0x80) != 0);
+                cpu.setFZ(cpu.getA() == 0);
+            });
+            table[0x8B] = immediate(NMOS6502::ane);
+            table[0x8C] = write(ABSOLUTE, STORE_Y);
+            table[0x8D] = write(ABSOLUTE, STORE_A);
+            table[0x8E] = write(ABSOLUTE, STORE_X);
+            table[0x8F] = write(ABSOLUTE, STORE_AX);
+
+            table[0x90] = branch(cpu -> !cpu.getFC());
+            table[0x91] = write(INDIRECT_Y, STORE_A);
+            table[0x92] = jam();
+            table[0x93] = shaIndirectY();
+            table[0x94] = write(ZERO_PAGE_X, STORE_Y);
+            table[0x95] = write(ZERO_PAGE_X, STORE_A);
+            table[0x96] = write(ZERO_PAGE_Y, STORE_X);
+            table[0x97] = write(ZERO_PAGE_Y, STORE_AX);
+            table[0x98] = implied(cpu -> {
+                cpu.setA(cpu.getY());
+                cpu.setFN((cpu.getA() & 0x80) != 0);
+                cpu.setFZ(cpu.getA() == 0);
+            });
+            table[0x99] = write(ABSOLUTE_Y, STORE_A);
+            table[0x9A] = implied(cpu -> cpu.setS(cpu.getX()));
+            table[0x9B] = write(ABSOLUTE_Y, cpu -> {
+                cpu.setS(cpu.getA() & cpu.getX());
+                cpu.writeUnstableHigh(cpu.getA() & cpu.getX());
+            });
+            table[0x9C] = write(ABSOLUTE_X, cpu -> cpu.writeUnstableHigh(cpu.getY()));
+            table[0x9D] = write(ABSOLUTE_X, STORE_A);
+            table[0x9E] = write(ABSOLUTE_Y, cpu -> cpu.writeUnstableHigh(cpu.getX()));
+            table[0x9F] = write(ABSOLUTE_Y, cpu -> cpu.writeUnstableHigh(cpu.getA() & cpu.getX()));
+
+            table[0xA0] = immediate(NMOS6502::ldy);
+            table[0xA1] = read(INDIRECT_X, NMOS6502::lda);
+            table[0xA2] = immediate(NMOS6502::ldx);
+            table[0xA3] = read(INDIRECT_X, NMOS6502::lax);
+            table[0xA4] = read(ZERO_PAGE, NMOS6502::ldy);
+            table[0xA5] = read(ZERO_PAGE, NMOS6502::lda);
+            table[0xA6] = read(ZERO_PAGE, NMOS6502::ldx);
+            table[0xA7] = read(ZERO_PAGE, NMOS6502::lax);
+            table[0xA8] = implied(cpu -> {
+                cpu.setY(cpu.getA());
+                cpu.setFN((cpu.getY() & 0x80) != 0);
+                cpu.setFZ(cpu.getY() == 0);
+            });
+            table[0xA9] = immediate(NMOS6502::lda);
+            table[0xAA] = implied(cpu -> {
+                cpu.setX(cpu.getA());
+                cpu.setFN((cpu.getX() & 0x80) != 0);
+                cpu.setFZ(cpu.getX() == 0);
+            });
+            table[0xAB] = immediate(NMOS6502::lxa);
+            table[0xAC] = read(ABSOLUTE, NMOS6502::ldy);
+            table[0xAD] = read(ABSOLUTE, NMOS6502::lda);
+            table[0xAE] = read(ABSOLUTE, NMOS6502::ldx);
+            table[0xAF] = read(ABSOLUTE, NMOS6502::lax);
+
+            table[0xB0] = branch(NMOS6502::getFC);
+            table[0xB1] = read(INDIRECT_Y, NMOS6502::lda);
+            table[0xB2] = jam();
+            table[0xB3] = read(INDIRECT_Y, NMOS6502::lax);
+            table[0xB4] = read(ZERO_PAGE_X, NMOS6502::ldy);
+            table[0xB5] = read(ZERO_PAGE_X, NMOS6502::lda);
+            table[0xB6] = read(ZERO_PAGE_Y, NMOS6502::ldx);
+            table[0xB7] = read(ZERO_PAGE_Y, NMOS6502::lax);
+            table[0xB8] = implied(cpu -> cpu.setFV(false));
+            table[0xB9] = read(ABSOLUTE_Y, NMOS6502::lda);
+            table[0xBA] = implied(cpu -> {
+                cpu.setX(cpu.getS());
+                cpu.setFN((cpu.getX() & 0x80) != 0);
+                cpu.setFZ(cpu.getX() == 0);
+            });
+            table[0xBB] = read(ABSOLUTE_Y, NMOS6502::las);
+            table[0xBC] = read(ABSOLUTE_X, NMOS6502::ldy);
+            table[0xBD] = read(ABSOLUTE_X, NMOS6502::lda);
+            table[0xBE] = read(ABSOLUTE_Y, NMOS6502::ldx);
+            table[0xBF] = read(ABSOLUTE_Y, NMOS6502::lax);
+
+            table[0xC0] = immediate(NMOS6502::cpy);
+            table[0xC1] = read(INDIRECT_X, NMOS6502::cmp);
+            table[0xC2] = immediate(IDLE);
+            table[0xC3] = readModifyWrite(INDIRECT_X, NMOS6502::dcp);
+            table[0xC4] = read(ZERO_PAGE, NMOS6502::cpy);
+            table[0xC5] = read(ZERO_PAGE, NMOS6502::cmp);
+            table[0xC6] = readModifyWrite(ZERO_PAGE, NMOS6502::dec);
+            table[0xC7] = readModifyWrite(ZERO_PAGE, NMOS6502::dcp);
+            table[0xC8] = implied(cpu -> {
+                cpu.setY(cpu.getY() + 1);
+                cpu.setFN((cpu.getY() & 0x80) != 0);
+                cpu.setFZ(cpu.getY() == 0);
+            });
+            table[0xC9] = immediate(NMOS6502::cmp);
+            table[0xCA] = implied(cpu -> {
+                cpu.setX(cpu.getX() - 1);
+                cpu.setFN((cpu.getX() & 0x80) != 0);
+                cpu.setFZ(cpu.getX() == 0);
+            });
+            table[0xCB] = immediate(NMOS6502::sbx);
+            table[0xCC] = read(ABSOLUTE, NMOS6502::cpy);
+            table[0xCD] = read(ABSOLUTE, NMOS6502::cmp);
+            table[0xCE] = readModifyWrite(ABSOLUTE, NMOS6502::dec);
+            table[0xCF] = readModifyWrite(ABSOLUTE, NMOS6502::dcp);
+
+            table[0xD0] = branch(cpu -> !cpu.getFZ());
+            table[0xD1] = read(INDIRECT_Y, NMOS6502::cmp);
+            table[0xD2] = jam();
+            table[0xD3] = readModifyWrite(INDIRECT_Y, NMOS6502::dcp);
+            table[0xD4] = read(ZERO_PAGE_X, IDLE);
+            table[0xD5] = read(ZERO_PAGE_X, NMOS6502::cmp);
+            table[0xD6] = readModifyWrite(ZERO_PAGE_X, NMOS6502::dec);
+            table[0xD7] = readModifyWrite(ZERO_PAGE_X, NMOS6502::dcp);
+            table[0xD8] = implied(cpu -> cpu.setFD(false));
+            table[0xD9] = read(ABSOLUTE_Y, NMOS6502::cmp);
+            table[0xDA] = implied(IDLE);
+            table[0xDB] = readModifyWrite(ABSOLUTE_Y, NMOS6502::dcp);
+            table[0xDC] = read(ABSOLUTE_X, IDLE);
+            table[0xDD] = read(ABSOLUTE_X, NMOS6502::cmp);
+            table[0xDE] = readModifyWrite(ABSOLUTE_X, NMOS6502::dec);
+            table[0xDF] = readModifyWrite(ABSOLUTE_X, NMOS6502::dcp);
+
+            table[0xE0] = immediate(NMOS6502::cpx);
+            table[0xE1] = read(INDIRECT_X, NMOS6502::sbc);
+            table[0xE2] = immediate(IDLE);
+            table[0xE3] = readModifyWrite(INDIRECT_X, NMOS6502::isc);
+            table[0xE4] = read(ZERO_PAGE, NMOS6502::cpx);
+            table[0xE5] = read(ZERO_PAGE, NMOS6502::sbc);
+            table[0xE6] = readModifyWrite(ZERO_PAGE, NMOS6502::inc);
+            table[0xE7] = readModifyWrite(ZERO_PAGE, NMOS6502::isc);
+            table[0xE8] = implied(cpu -> {
+                cpu.setX(cpu.getX() + 1);
+                cpu.setFN((cpu.getX() & 0x80) != 0);
+                cpu.setFZ(cpu.getX() == 0);
+            });
+            table[0xE9] = immediate(NMOS6502::sbc);
+            table[0xEA] = implied(IDLE);
+            table[0xEB] = immediate(NMOS6502::sbc);
+            table[0xEC] = read(ABSOLUTE, NMOS6502::cpx);
+            table[0xED] = read(ABSOLUTE, NMOS6502::sbc);
+            table[0xEE] = readModifyWrite(ABSOLUTE, NMOS6502::inc);
+            table[0xEF] = readModifyWrite(ABSOLUTE, NMOS6502::isc);
+
+            table[0xF0] = branch(NMOS6502::getFZ);
+            table[0xF1] = read(INDIRECT_Y, NMOS6502::sbc);
+            table[0xF2] = jam();
+            table[0xF3] = readModifyWrite(INDIRECT_Y, NMOS6502::isc);
+            table[0xF4] = read(ZERO_PAGE_X, IDLE);
+            table[0xF5] = read(ZERO_PAGE_X, NMOS6502::sbc);
+            table[0xF6] = readModifyWrite(ZERO_PAGE_X, NMOS6502::inc);
+            table[0xF7] = readModifyWrite(ZERO_PAGE_X, NMOS6502::isc);
+            table[0xF8] = implied(cpu -> cpu.setFD(true));
+            table[0xF9] = read(ABSOLUTE_Y, NMOS6502::sbc);
+            table[0xFA] = implied(IDLE);
+            table[0xFB] = readModifyWrite(ABSOLUTE_Y, NMOS6502::isc);
+            table[0xFC] = read(ABSOLUTE_X, IDLE);
+            table[0xFD] = read(ABSOLUTE_X, NMOS6502::sbc);
+            table[0xFE] = readModifyWrite(ABSOLUTE_X, NMOS6502::inc);
+            table[0xFF] = readModifyWrite(ABSOLUTE_X, NMOS6502::isc);
+
+            return table;
+        }
+
+        private static MicroOp both(MicroOp first, MicroOp second) {
+            return cpu -> {
+                first.execute(cpu);
+                second.execute(cpu);
+            };
+        }
+
+        private static MicroOp polled(MicroOp microOp) {
+            return cpu -> {
+                microOp.execute(cpu);
+                cpu.pollInterrupts();
+            };
+        }
+
+        private static MicroOp[] sequence(MicroOp[] head, MicroOp... tail) {
+            MicroOp[] sequence = Arrays.copyOf(head, head.length + tail.length);
+            System.arraycopy(tail, 0, sequence, head.length, tail.length);
+            return sequence;
+        }
+
+        private static MicroOp[] implied(MicroOp operation) {
+            return new MicroOp[] { INCREMENT_PC, polled(READ_PC), operation, TERMINATE };
+        }
+
+        private static MicroOp[] immediate(MicroOp operation) {
+            return new MicroOp[] { INCREMENT_PC, polled(FETCH_OPERAND), both(INCREMENT_PC, operation), TERMINATE };
+        }
+
+        private static MicroOp[] read(AddressingMode mode, MicroOp operation) {
+            MicroOp[] addressing = mode.indexed() ? sequence(mode.microOps(), READ_OPERAND_OR_SKIP_FIX, FIX_ADDRESS_HIGH) : mode.microOps();
+            return sequence(addressing, polled(READ_OPERAND), operation, TERMINATE);
+        }
+
+        private static MicroOp[] readModifyWrite(AddressingMode mode, MicroOp operation) {
+            return readModifyWrite(mode, IDLE, operation);
+        }
+
+        private static MicroOp[] readModifyWrite(AddressingMode mode, MicroOp prepare, MicroOp operation) {
+            MicroOp[] addressing = mode.indexed() ? sequence(mode.microOps(), READ_OPERAND, FIX_ADDRESS_HIGH) : mode.microOps();
+            return sequence(addressing, READ_OPERAND, prepare, WRITE_OPERAND, operation, polled(WRITE_OPERAND), IDLE, TERMINATE);
+        }
+
+        private static MicroOp[] write(AddressingMode mode, MicroOp store) {
+            MicroOp[] addressing = mode.indexed() ? sequence(mode.microOps(), READ_OPERAND, FIX_ADDRESS_HIGH) : mode.microOps();
+            return sequence(addressing, polled(store), IDLE, TERMINATE);
+        }
+
+        private static MicroOp[] push(ToIntFunction<NMOS6502> value) {
+            return new MicroOp[] {
+                    INCREMENT_PC,
+                    READ_PC,
+                    IDLE,
+                    polled(cpu -> cpu.writeByte(cpu.getS() | 0x0100, value.applyAsInt(cpu))),
+                    DECREMENT_S,
+                    TERMINATE
+            };
+        }
+
+        private static MicroOp[] pull(MicroOp operation) {
+            return new MicroOp[] {
+                    INCREMENT_PC,
+                    READ_PC,
+                    IDLE,
+                    READ_STACK,
+                    INCREMENT_S,
+                    polled(PULL_OPERAND),
+                    operation,
+                    TERMINATE
+            };
+        }
+
+        private static MicroOp[] branch(Predicate<NMOS6502> condition) {
+            return new MicroOp[] {
+                    INCREMENT_PC,
+                    cpu -> {
+                        cpu.setOperand(cpu.readByte(cpu.getPC()));
+                        cpu.pollInterrupts();
+                        if (condition.test(cpu)) {
+                            int base = (cpu.getPC() + 1) & 0xFFFF;
+                            cpu.setAddress((base + (byte) cpu.getOperand()) & 0xFFFF);
+                            cpu.setBoundaryCrossed(cpu.getAddressHigh() != ((base >>> 8) & 0xFF));
+                        }
+                    },
+                    cpu -> {
+                        cpu.setPC(cpu.getPC() + 1);
+                        if (!condition.test(cpu)) {
+                            cpu.subCycleIndex += 4;
+                        }
+                    },
+                    READ_PC,
+                    cpu -> {
+                        cpu.setPCL(cpu.getAddressLow());
+                        if (!cpu.getBoundaryCrossed()) {
+                            cpu.subCycleIndex += 2;
+                        }
+                    },
+                    polled(READ_PC),
+                    cpu -> cpu.setPCH(cpu.getAddressHigh()),
+                    TERMINATE
+            };
+        }
+
+        private static MicroOp[] jsr() {
+            return new MicroOp[] {
+                    INCREMENT_PC,
+                    FETCH_ADDRESS_LOW,
+                    INCREMENT_PC,
+                    READ_STACK,
+                    IDLE,
+                    cpu -> cpu.writeByte(cpu.getS() | 0x0100, cpu.getPCH()),
+                    IDLE,
+                    cpu -> cpu.writeByte(((cpu.getS() - 1) & 0xFF) | 0x0100, cpu.getPCL()),
+                    IDLE,
+                    polled(FETCH_ADDRESS_HIGH),
+                    cpu -> {
+                        cpu.setPC(cpu.getAddress());
+                        cpu.setS(cpu.getS() - 2);
+                    },
+                    TERMINATE
+            };
+        }
+
+        private static MicroOp[] rts() {
+            return new MicroOp[] {
+                    INCREMENT_PC,
+                    READ_PC,
+                    INCREMENT_PC,
+                    READ_STACK,
+                    IDLE,
+                    cpu -> cpu.setAddressLow(cpu.readByte(((cpu.getS() + 1) & 0xFF) | 0x0100)),
+                    cpu -> cpu.setS(cpu.getS() + 2),
+                    cpu -> cpu.setAddressHigh(cpu.readByte(cpu.getS() | 0x0100)),
+                    JUMP_TO_ADDRESS,
+                    polled(READ_PC),
+                    INCREMENT_PC,
+                    TERMINATE
+            };
+        }
+
+        private static MicroOp[] rti() {
+            return new MicroOp[] {
+                    INCREMENT_PC,
+                    READ_PC,
+                    INCREMENT_PC,
+                    READ_STACK,
+                    IDLE,
+                    cpu -> cpu.setTemp(cpu.readByte(((cpu.getS() + 1) & 0xFF) | 0x0100)),
+                    cpu -> {
+                        boolean originalB = cpu.getFB();
+                        boolean originalM = cpu.getFM();
+                        cpu.setP(cpu.getTemp());
+                        cpu.setFB(originalB);
+                        cpu.setFM(originalM);
+                    },
+                    cpu -> cpu.setAddressLow(cpu.readByte(((cpu.getS() + 2) & 0xFF) | 0x0100)),
+                    cpu -> cpu.setS(cpu.getS() + 3),
+                    polled(cpu -> cpu.setAddressHigh(cpu.readByte(cpu.getS() | 0x0100))),
+                    JUMP_TO_ADDRESS,
+                    TERMINATE
+            };
+        }
+
+        private static MicroOp[] jmpAbsolute() {
+            return new MicroOp[] {
+                    INCREMENT_PC,
+                    FETCH_ADDRESS_LOW,
+                    INCREMENT_PC,
+                    polled(FETCH_ADDRESS_HIGH),
+                    JUMP_TO_ADDRESS,
+                    TERMINATE
+            };
+        }
+
+        private static MicroOp[] jmpIndirect() {
+            return new MicroOp[] {
+                    INCREMENT_PC,
+                    cpu -> cpu.setPointerLow(cpu.readByte(cpu.getPC())),
+                    INCREMENT_PC,
+                    cpu -> cpu.setPointerHigh(cpu.readByte(cpu.getPC())),
+                    INCREMENT_PC,
+                    cpu -> cpu.setAddressLow(cpu.readByte(cpu.getPointer())),
+                    IDLE,
+                    polled(cpu -> cpu.setAddressHigh(cpu.readByte((cpu.getPointerHigh() << 8) | ((cpu.getPointerLow() + 1) & 0xFF)))),
+                    JUMP_TO_ADDRESS,
+                    TERMINATE
+            };
+        }
+
+        private static MicroOp[] shaIndirectY() {
+            // The write lands one half-cycle later when the page boundary is crossed
+            return sequence(INDIRECT_Y.microOps(),
+                    READ_OPERAND,
+                    cpu -> {
+                        if (cpu.getBoundaryCrossed()) {
+                            cpu.subCycleIndex++;
+                        }
+                        cpu.setAddressHigh(cpu.getTargetHigh());
+                    },
+                    cpu -> {
+                        int value = ((cpu.getAddressHigh() + 1) & cpu.getA() & cpu.getX()) & 0xFF;
+                        cpu.writeByte(cpu.getAddress(), value);
+                        cpu.pollInterrupts();
+                        cpu.subCycleIndex++;
+                    },
+                    cpu -> {
+                        int value = (cpu.getAddressHigh() & cpu.getA() & cpu.getX()) & 0xFF;
+                        cpu.writeByte((value << 8) | cpu.getAddressLow(), value);
+                        cpu.pollInterrupts();
+                    },
+                    IDLE,
+                    TERMINATE
+            );
+        }
+
+        private static MicroOp[] brk() {
+            return new MicroOp[] {
+                    INCREMENT_PC,
+                    READ_PC,
+                    INCREMENT_PC,
+                    cpu -> {
+                        if (cpu.brkSource == BRKSource.RESET) {
+                            cpu.readByte(cpu.getS() | 0x0100);
+                        } else {
+                            cpu.writeByte(cpu.getS() | 0x0100, cpu.getPCH());
+                        }
+                    },
+                    IDLE,
+                    cpu -> {
+                        if (cpu.brkSource == BRKSource.RESET) {
+                            cpu.readByte(((cpu.getS() - 1) & 0xFF) | 0x0100);
+                        } else {
+                            cpu.writeByte(((cpu.getS() - 1) & 0xFF) | 0x0100, cpu.getPCL());
+                        }
+                    },
+                    cpu -> {
+                        int brkVector = IRQ_BRK_VECTOR;
+                        if (cpu.brkSource == BRKSource.RESET) {
+                            brkVector = RESET_VECTOR;
+                        } else if (cpu.nmiEdgeLatch) {
+                            brkVector = NMI_VECTOR;
+                            cpu.nmiEdgeLatch = false;
+                        }
+
+                        if (cpu.brkSource != BRKSource.SOFTWARE) {
+                            cpu.pushB = false;
+                        }
+
+                        cpu.setBrkVector(brkVector);
+                    },
+                    cpu -> {
+                        if (cpu.brkSource == BRKSource.RESET) {
+                            cpu.readByte(((cpu.getS() - 2) & 0xFF) | 0x0100);
+                        } else {
+                            int P = cpu.getP();
+                            if (cpu.pushB) {
+                                P |= B_MASK;
+                            }
+                            cpu.writeByte(((cpu.getS() - 2) & 0xFF) | 0x0100, P);
+                        }
+                    },
+                    cpu -> cpu.setS(cpu.getS() - 3),
+                    cpu -> cpu.setAddressLow(cpu.readByte(cpu.getBrkVector())),
+                    cpu -> {
+                        cpu.setFI(true);
+                        cpu.setFB(false);
+                    },
+                    cpu -> {
+                        cpu.disablePCWrites = false;
+                        // Does not poll interrupts
+                        cpu.setAddressHigh(cpu.readByte((cpu.getBrkVector() + 1) & 0xFFFF));
+                    },
+                    cpu -> {
+                        cpu.setPC(cpu.getAddress());
+                        cpu.brkSource = null;
+                    },
+                    TERMINATE
+            };
+        }
+
+        private static MicroOp[] jam() {
+            return new MicroOp[] {
+                    INCREMENT_PC,
+                    READ_PC,
+                    IDLE,
+                    cpu -> cpu.readByte(0xFFFF),
+                    IDLE,
+                    cpu -> cpu.readByte(0xFFFE),
+                    IDLE,
+                    // Does not poll interrupts
+                    cpu -> cpu.readByte(0xFFFE),
+                    IDLE,
+                    cpu -> {
+                        cpu.readByte(0xFFFF);
+                        cpu.subCycleIndex = 8;
+                    }
+            };
+        }
+
+        private record AddressingMode(boolean indexed, MicroOp... microOps) {}
+
+    }
+
     public interface SystemBus extends io.github.arkosammy12.jemu.core.common.SystemBus {
 
         boolean getIRQ();
@@ -10161,6 +11248,20 @@ public class NMOS6502 implements Processor {
 
         boolean getRDY();
 
+        // The ROM bank mapped at the given address, or -1 if code at the address must always be interpreted
+        default int getCodeBank(int address) {
+            return -1;
+        }
+
+        default int readCode(int address) {
+            return this.getBus().readByte(address);
+        }
+
+        // Whether accesses to the given address are invisible to the rest of the system, so compiled blocks may perform them early
+        default boolean isInternalRam(int address) {
+            return false;
+        }
+
     }
 
     public enum ReadWriteCycle {
@@ -0,0 +1,425 @@
+package io.github.arkosammy12.jemu.core.cpu;
+
+import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.Label;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.constant.ConstantDescs.*;
+
+// Compiles straight-line runs of official 6502 instructions into hidden classes. Only instructions whose bus accesses
+// are either reads from ROM or accesses to internal RAM are compiled, since nothing else in the system can observe those
+// being performed ahead of time. Blocks return the amount of cycles they took in the lower 16 bits, and how many
+// half-cycles before the fetch of the next opcode the last instruction polls for interrupts in the upper 16 bits.
+final class NMOS6502Recompiler {
+
+    private static final ClassDesc CD_NMOS6502 = ClassDesc.of(NMOS6502.class.getName());
+    private static final ClassDesc CD_BLOCK = ClassDesc.of(Block.class.getName());
+    private static final ClassDesc CD_COMPILED_BLOCK = ClassDesc.of(NMOS6502.class.getPackageName(), "NMOS6502CompiledBlock");
+
+    private static final MethodTypeDesc MTD_EXECUTE = MethodTypeDesc.of(CD_int, CD_NMOS6502);
+    private static final MethodTypeDesc MTD_GET = MethodTypeDesc.of(CD_int);
+    private static final MethodTypeDesc MTD_SET = MethodTypeDesc.of(CD_void, CD_int);
+    private static final MethodTypeDesc MTD_GET_FLAG = MethodTypeDesc.of(CD_boolean);
+    private static final MethodTypeDesc MTD_SET_FLAG = MethodTypeDesc.of(CD_void, CD_boolean);
+    private static final MethodTypeDesc MTD_READ = MethodTypeDesc.of(CD_int, CD_int);
+    private static final MethodTypeDesc MTD_WRITE = MethodTypeDesc.of(CD_void, CD_int, CD_int);
+
+    // Indexed by the aaa bits of the opcode
+    private static final String[] GROUP_ONE = {"ora", "and", "eor", "adc", null, "lda", "cmp", "sbc"};
+    private static final String[] GROUP_TWO = {"asl", "rol", "lsr", "ror", null, "ldx", "dec", "inc"};
+    private static final String[] GROUP_THREE = {null, "bit", null, null, null, "ldy", "cpy", "cpx"};
+    private static final String[] BRANCH_FLAGS = {"getFN", "getFV", "getFC", "getFZ"};
+
+    private static final int STORE = 4;
+    private static final int POLL_DISTANCE = 2;
+    private static final int BRANCH_POLL_DISTANCE = 4;
+
+    private static final Block NO_BLOCK = _ -> 0;
+
+    private final NMOS6502 cpu;
+    private final MethodHandles.Lookup lookup;
+    private final ClassFile classFile;
+
+    private final Int2ObjectOpenHashMap<Block> blocks = new Int2ObjectOpenHashMap<>();
+    private final Int2IntOpenHashMap hits = new Int2IntOpenHashMap();
+
+    NMOS6502Recompiler(NMOS6502 cpu, MethodHandles.Lookup lookup) {
+        this.cpu = cpu;
+        this.lookup = lookup;
+        this.classFile = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(ClassHierarchyResolver.ofClassLoading(lookup)));
+    }
+
+    int execute(int address) {
+        int bank = this.cpu.systemBus.getCodeBank(address);
+        if (bank < 0) {
+            return 0;
+        }
+        // Blocks are keyed by bank as well as address, so switching banks never requires invalidating them
+        int key = (bank << 16) | address;
+        Block block = this.blocks.get(key);
+        if (block == null) {
+            if (this.hits.addTo(key, 1) < this.cpu.getCompileThreshold()) {
+                return 0;
+            }
+            this.hits.remove(key);
+            block = this.compile(address, bank);
+            this.blocks.put(key, block);
+        }
+        return block.execute(this.cpu);
+    }
+
+    int getCompiledBlockCount() {
+        int count = 0;
+        for (Block block : this.blocks.values()) {
+            if (block != NO_BLOCK) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Block compile(int startAddress, int bank) {
+        List<Instruction> instructions = new ArrayList<>();
+        int address = startAddress;
+        while (instructions.size() < this.cpu.getMaxCompiledBlockLength()) {
+            int opcode = this.readCode(address, startAddress, bank);
+            if (opcode < 0) {
+                break;
+            }
+            AddressingMode mode = getAddressingMode(opcode);
+            if (mode == null) {
+                break;
+            }
+            int operand = 0;
+            boolean operandReadable = true;
+            for (int i = mode.length - 1; i >= 1; i--) {
+                int value = this.readCode(address + i, startAddress, bank);
+                if (value < 0) {
+                    operandReadable = false;
+                    break;
+                }
+                operand = (operand << 8) | value;
+            }
+            if (!operandReadable || !this.isCompilableOperand(mode, operand)) {
+                break;
+            }
+            Instruction instruction = new Instruction(opcode, mode, operand, (address + mode.length) & 0xFFFF);
+            instructions.add(instruction);
+            address += mode.length;
+            if (mode == AddressingMode.RELATIVE || mode == AddressingMode.JUMP) {
+                break;
+            }
+        }
+        if (instructions.isEmpty()) {
+            return NO_BLOCK;
+        }
+        byte[] bytes = this.classFile.build(CD_COMPILED_BLOCK, classBuilder -> classBuilder
+                .withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC)
+                .withSuperclass(CD_Object)
+                .withInterfaceSymbols(CD_BLOCK)
+                .withMethodBody(INIT_NAME, MTD_void, ClassFile.ACC_PUBLIC, codeBuilder -> codeBuilder
+                        .aload(0)
+                        .invokespecial(CD_Object, INIT_NAME, MTD_void)
+                        .return_())
+                .withMethodBody("execute", MTD_EXECUTE, ClassFile.ACC_PUBLIC, codeBuilder -> new Emitter(codeBuilder).emit(instructions)));
+        try {
+            MethodHandles.Lookup blockLookup = this.lookup.defineHiddenClass(bytes, true, MethodHandles.Lookup.ClassOption.NESTMATE);
+            return (Block) blockLookup.findConstructor(blockLookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new EmulatorException("Error compiling 6502 block at $%04X: ".formatted(startAddress), e);
+        }
+    }
+
+    private int readCode(int address, int startAddress, int bank) {
+        // Blocks never cross into a different memory region
+        if (((address ^ startAddress) & 0xC000) != 0 || address > 0xFFFF || this.cpu.systemBus.getCodeBank(address) != bank) {
+            return -1;
+        }
+        return this.cpu.systemBus.readCode(address);
+    }
+
+    private boolean isCompilableOperand(AddressingMode mode, int operand) {
+        return switch (mode) {
+            // Zero page accesses, indexed or not, never leave the zero page
+            case ZERO_PAGE, ZERO_PAGE_X, ZERO_PAGE_Y -> this.cpu.systemBus.isInternalRam(0x0000) && this.cpu.systemBus.isInternalRam(0x00FF);
+            case ABSOLUTE -> this.cpu.systemBus.isInternalRam(operand);
+            default -> true;
+        };
+    }
+
+    // Returns the addressing mode of a compilable official opcode, or null if it must be interpreted
+    private static AddressingMode getAddressingMode(int opcode) {
+        int aaa = (opcode & 0b11100000) >>> 5;
+        int bbb = (opcode & 0b00011100) >>> 2;
+        int cc = opcode & 0b00000011;
+        return switch (cc) {
+            case 0b01 -> switch (bbb) {
+                case 0b001 -> AddressingMode.ZERO_PAGE;
+                case 0b010 -> aaa != STORE ? AddressingMode.IMMEDIATE : null;
+                case 0b011 -> AddressingMode.ABSOLUTE;
+                case 0b101 -> AddressingMode.ZERO_PAGE_X;
+                default -> null;
+            };
+            case 0b10 -> switch (bbb) {
+                case 0b000 -> opcode == 0xA2 ? AddressingMode.IMMEDIATE : null; // LDX #
+                case 0b001 -> AddressingMode.ZERO_PAGE;
+                case 0b010 -> AddressingMode.IMPLIED; // ASL A, ROL A, LSR A, ROR A, TXA, TAX, DEX, NOP
+                case 0b011 -> AddressingMode.ABSOLUTE;
+                case 0b101 -> aaa == STORE || aaa == 5 ? AddressingMode.ZERO_PAGE_Y : AddressingMode.ZERO_PAGE_X;
+                case 0b110 -> opcode == 0x9A || opcode == 0xBA ? AddressingMode.IMPLIED : null; // TXS, TSX
+                default -> null;
+            };
+            case 0b00 -> switch (bbb) {
+                case 0b000 -> aaa >= 5 ? AddressingMode.IMMEDIATE : null; // LDY #, CPY #, CPX #
+                case 0b001 -> aaa == 1 || aaa >= STORE ? AddressingMode.ZERO_PAGE : null; // BIT, STY, LDY, CPY, CPX
+                case 0b010 -> aaa >= STORE ? AddressingMode.IMPLIED : null; // DEY, TAY, INY, INX
+                case 0b011 -> {
+                    if (opcode == 0x4C) {
+                        yield AddressingMode.JUMP;
+                    }
+                    yield aaa == 1 || aaa >= STORE ? AddressingMode.ABSOLUTE : null;
+                }
+                case 0b100 -> AddressingMode.RELATIVE;
+                case 0b101 -> aaa == STORE || aaa == 5 ? AddressingMode.ZERO_PAGE_X : null; // STY, LDY
+                // CLC, SEC, TYA, CLV, CLD, SED. CLI and SEI are left to the interpreter since they delay interrupt polling.
+                case 0b110 -> aaa != 2 && aaa != 3 ? AddressingMode.IMPLIED : null;
+                default -> null;
+            };
+            default -> null;
+        };
+    }
+
+    @FunctionalInterface
+    interface Block {
+
+        int execute(NMOS6502 cpu);
+
+    }
+
+    private enum AddressingMode {
+        IMPLIED(1, 2),
+        IMMEDIATE(2, 2),
+        ZERO_PAGE(2, 3),
+        ZERO_PAGE_X(2, 4),
+        ZERO_PAGE_Y(2, 4),
+        ABSOLUTE(3, 4),
+        RELATIVE(2, 2),
+        JUMP(3, 3);
+
+        private final int length;
+        private final int cycles;
+
+        AddressingMode(int length, int cycles) {
+            this.length = length;
+            this.cycles = cycles;
+        }
+
+    }
+
+    private record Instruction(int opcode, AddressingMode mode, int operand, int nextAddress) {}
+
+    private static final class Emitter {
+
+        private static final int ADDRESS_SLOT = 2;
+
+        private final CodeBuilder codeBuilder;
+
+        private int cycles;
+
+        private Emitter(CodeBuilder codeBuilder) {
+            this.codeBuilder = codeBuilder;
+        }
+
+        private void emit(List<Instruction> instructions) {
+            for (Instruction instruction : instructions) {
+                switch (instruction.mode()) {
+                    case RELATIVE -> {
+                        this.emitBranch(instruction);
+                        return;
+                    }
+                    case JUMP -> {
+                        this.emitExit(instruction.operand(), this.cycles + AddressingMode.JUMP.cycles, POLL_DISTANCE);
+                        return;
+                    }
+                    case IMPLIED -> this.emitImplied(instruction.opcode());
+                    default -> this.emitMemory(instruction);
+                }
+            }
+            this.emitExit(instructions.getLast().nextAddress(), this.cycles, POLL_DISTANCE);
+        }
+
+        private void emitImplied(int opcode) {
+            switch (opcode) {
+                case 0x0A, 0x2A, 0x4A, 0x6A -> { // ASL A, ROL A, LSR A, ROR A
+                    this.cpu().cpu().get("A").set("Operand");
+                    this.call(GROUP_TWO[(opcode & 0b11100000) >>> 5]);
+                    this.cpu().cpu().get("Operand").set("A");
+                }
+                case 0x8A -> this.transfer("X", "lda"); // TXA
+                case 0x98 -> this.transfer("Y", "lda"); // TYA
+                case 0xAA -> this.transfer("A", "ldx"); // TAX
+                case 0xA8 -> this.transfer("A", "ldy"); // TAY
+                case 0xBA -> this.transfer("S", "ldx"); // TSX
+                case 0x9A -> this.cpu().cpu().get("X").set("S"); // TXS
+                case 0xE8 -> this.step("X", 1, "ldx"); // INX
+                case 0xCA -> this.step("X", -1, "ldx"); // DEX
+                case 0xC8 -> this.step("Y", 1, "ldy"); // INY
+                case 0x88 -> this.step("Y", -1, "ldy"); // DEY
+                case 0x18 -> this.setFlag("FC", false); // CLC
+                case 0x38 -> this.setFlag("FC", true); // SEC
+                case 0xB8 -> this.setFlag("FV", false); // CLV
+                case 0xD8 -> this.setFlag("FD", false); // CLD
+                case 0xF8 -> this.setFlag("FD", true); // SED
+                case 0xEA -> {} // NOP
+                default -> throw new EmulatorException("Opcode $%02X cannot be compiled!".formatted(opcode));
+            }
+            this.cycles += AddressingMode.IMPLIED.cycles;
+        }
+
+        private void emitMemory(Instruction instruction) {
+            int opcode = instruction.opcode();
+            int aaa = (opcode & 0b11100000) >>> 5;
+            int cc = opcode & 0b00000011;
+            AddressingMode mode = instruction.mode();
+            String[] group = switch (cc) {
+                case 0b01 -> GROUP_ONE;
+                case 0b10 -> GROUP_TWO;
+                default -> GROUP_THREE;
+            };
+            if (mode == AddressingMode.IMMEDIATE) {
+                this.cpu().loadConstant(instruction.operand()).set("Operand");
+                this.call(group[aaa]);
+                this.cycles += mode.cycles;
+                return;
+            }
+            this.emitAddress(mode, instruction.operand());
+            if (aaa == STORE) { // STA, STX, STY
+                String register = switch (cc) {
+                    case 0b01 -> "A";
+                    case 0b10 -> "X";
+                    default -> "Y";
+                };
+                this.cpu().address().cpu().get(register);
+                this.codeBuilder.invokevirtual(CD_NMOS6502, "writeByte", MTD_WRITE);
+                this.cycles += mode.cycles;
+            } else if (cc == 0b10 && aaa != 5) { // ASL, ROL, LSR, ROR, DEC, INC
+                // Internal RAM can't observe the dummy write of the unmodified value, so only the final write is performed
+                this.cpu().cpu().address().read().set("Operand");
+                this.call(group[aaa]);
+                this.cpu().address().cpu().get("Operand");
+                this.codeBuilder.invokevirtual(CD_NMOS6502, "writeByte", MTD_WRITE);
+                this.cycles += mode.cycles + 2;
+            } else {
+                this.cpu().cpu().address().read().set("Operand");
+                this.call(group[aaa]);
+                this.cycles += mode.cycles;
+            }
+        }
+
+        // Leaves the effective address in a local, since read-modify-write instructions need it twice
+        private void emitAddress(AddressingMode mode, int operand) {
+            this.loadConstant(operand);
+            switch (mode) {
+                case ZERO_PAGE_X -> this.cpu().get("X");
+                case ZERO_PAGE_Y -> this.cpu().get("Y");
+                default -> {
+                    this.codeBuilder.istore(ADDRESS_SLOT);
+                    return;
+                }
+            }
+            this.codeBuilder.iadd();
+            this.loadConstant(0xFF);
+            this.codeBuilder.iand();
+            this.codeBuilder.istore(ADDRESS_SLOT);
+        }
+
+        private void emitBranch(Instruction instruction) {
+            int opcode = instruction.opcode();
+            int nextAddress = instruction.nextAddress();
+            int target = (nextAddress + (byte) instruction.operand()) & 0xFFFF;
+            boolean expected = (opcode & 0b00100000) != 0;
+            Label notTaken = this.codeBuilder.newLabel();
+            this.cpu().codeBuilder.invokevirtual(CD_NMOS6502, BRANCH_FLAGS[(opcode & 0b11000000) >>> 6], MTD_GET_FLAG);
+            if (expected) {
+                this.codeBuilder.ifeq(notTaken);
+            } else {
+                this.codeBuilder.ifne(notTaken);
+            }
+            // Taken branches that stay within the same page poll for interrupts before their last two cycles
+            if ((target & 0xFF00) != (nextAddress & 0xFF00)) {
+                this.emitExit(target, this.cycles + 4, POLL_DISTANCE);
+            } else {
+                this.emitExit(target, this.cycles + 3, BRANCH_POLL_DISTANCE);
+            }
+            this.codeBuilder.labelBinding(notTaken);
+            this.emitExit(nextAddress, this.cycles + 2, POLL_DISTANCE);
+        }
+
+        private void emitExit(int pc, int cycles, int pollDistance) {
+            this.cpu().loadConstant(pc).set("PC");
+            this.loadConstant((pollDistance << 16) | cycles).codeBuilder.ireturn();
+        }
+
+        private void transfer(String source, String load) {
+            this.cpu().cpu().get(source).set("Operand");
+            this.call(load);
+        }
+
+        private void step(String register, int delta, String load) {
+            this.cpu().cpu().get(register).loadConstant(delta).codeBuilder.iadd();
+            this.set("Operand");
+            this.call(load);
+        }
+
+        private void setFlag(String flag, boolean value) {
+            this.cpu().loadConstant(value ? 1 : 0).codeBuilder.invokevirtual(CD_NMOS6502, "set" + flag, MTD_SET_FLAG);
+        }
+
+        private void call(String method) {
+            this.cpu().codeBuilder.invokevirtual(CD_NMOS6502, method, MTD_void);
+        }
+
+        private Emitter read() {
+            this.codeBuilder.invokevirtual(CD_NMOS6502, "readByte", MTD_READ);
+            return this;
+        }
+
+        private Emitter address() {
+            this.codeBuilder.iload(ADDRESS_SLOT);
+            return this;
+        }
+
+        private Emitter cpu() {
+            this.codeBuilder.aload(1);
+            return this;
+        }
+
+        private Emitter get(String register) {
+            this.codeBuilder.invokevirtual(CD_NMOS6502, "get" + register, MTD_GET);
+            return this;
+        }
+
+        private Emitter set(String register) {
+            this.codeBuilder.invokevirtual(CD_NMOS6502, "set" + register, MTD_SET);
+            return this;
+        }
+
+        private Emitter loadConstant(int value) {
+            this.codeBuilder.loadConstant(value);
+            return this;
+        }
+
+    }
+
+}
@@ -1,9 +1,14 @@
 package io.github.arkosammy12.jemu.core.cpu;
 
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.common.Processor;
 
-public class SM83<S extends SM83.SystemBus> implements Processor {
+import java.lang.invoke.MethodHandles;
+
+public class SM83<S extends SM83.SystemBus> implements Processor, Snapshottable {
 
     public static final int INSTRUCTION_FINISHED_FLAG = 1;
 
@@ -33,6 +38,14 @@ public class SM83<S extends SM83.SystemBus> implements Processor {
     public static final int PREFIX = 0xCB;
     protected static final int TERMINATE_INSTRUCTION = -1;
 
+    private static final int MAX_COMPILED_BLOCK_LENGTH = 32;
+    private static final int COMPILE_THRESHOLD = 16;
+
+    // Unprefixed opcodes occupy the first half of the table, CB-prefixed opcodes the second half
+    private static final int PREFIXED_INSTRUCTIONS_OFFSET = 0x100;
+    private static final Instruction[] INSTRUCTIONS = createInstructionTable();
+    private static final Mode[] MODES = Mode.values();
+
     protected final S systemBus;
 
     private final int[] hram = new int[127];
@@ -56,9 +69,18 @@ public class SM83<S extends SM83.SystemBus> implements Processor {
     private boolean haltBug = false;
     private boolean servicingInterrupt = false;
     protected int machineCycleIndex = 0;
+    private int opcodeAddress;
+
+    private final SM83Recompiler recompiler;
 
     public SM83(S systemBus) {
+        this(systemBus, false);
+    }
+
+    // When enabled, hot runs of register-only instructions in ROM are compiled into JVM bytecode and run through runCompiledBlock()
+    public SM83(S systemBus, boolean useRecompiler) {
         this.systemBus = systemBus;
+        this.recompiler = useRecompiler ? new SM83Recompiler(this, MethodHandles.lookup()) : null;
     }
 
     public Mode getMode() {
@@ -259,6 +281,49 @@ public class SM83<S extends SM83.SystemBus> implements Processor {
         return this.WZ & 0xFF;
     }
 
+    // Compiled blocks only depend on ROM contents, so they stay valid across state loads
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeInts(this.hram);
+        writer.writeShort(this.programCounter);
+        writer.writeShort(this.stackPointer);
+        writer.writeByte(this.instructionRegister);
+        writer.writeBoolean(this.interruptMasterEnable);
+        writer.writeBoolean(this.enableInterrupts);
+        writer.writeShort(this.AF);
+        writer.writeShort(this.BC);
+        writer.writeShort(this.DE);
+        writer.writeShort(this.HL);
+        writer.writeShort(this.WZ);
+        writer.writeByte(this.mode.ordinal());
+        writer.writeBoolean(this.opcodeIsPrefixed);
+        writer.writeBoolean(this.haltBug);
+        writer.writeBoolean(this.servicingInterrupt);
+        writer.writeInt(this.machineCycleIndex);
+        writer.writeShort(this.opcodeAddress);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        reader.readInts(this.hram);
+        this.programCounter = reader.readShort();
+        this.stackPointer = reader.readShort();
+        this.instructionRegister = reader.readByte();
+        this.interruptMasterEnable = reader.readBoolean();
+        this.enableInterrupts = reader.readBoolean();
+        this.AF = reader.readShort();
+        this.BC = reader.readShort();
+        this.DE = reader.readShort();
+        this.HL = reader.readShort();
+        this.WZ = reader.readShort();
+        this.mode = MODES[reader.readByte()];
+        this.opcodeIsPrefixed = reader.readBoolean();
+        this.haltBug = reader.readBoolean();
+        this.servicingInterrupt = reader.readBoolean();
+        this.machineCycleIndex = reader.readInt();
+        this.opcodeAddress = reader.readShort();
+    }
+
     public int cycle() {
         int flags = 0;
 
@@ -271,10 +336,8 @@ public class SM83<S extends SM83.SystemBus> implements Processor {
             boolean servicedInterrupt = this.servicingInterrupt;
             if (this.servicingInterrupt) {
                 this.serviceInterrupt();
-            } else if (this.opcodeIsPrefixed) {
-                this.executePrefixed();
             } else {
-                this.execute();
+                INSTRUCTIONS[this.opcodeIsPrefixed ? PREFIXED_INSTRUCTIONS_OFFSET | getIR() : getIR()].execute(this);
             }
             if (this.machineCycleIndex < 0) {
                 this.opcodeIsPrefixed = false;
@@ -301,7 +364,38 @@ public class SM83<S extends SM83.SystemBus> implements Processor {
         }
     }
 
+    // Runs the compiled block starting at the current instruction, if any, and returns the amount of M-cycles it took.
+    // The block leaves the CPU as if its last instruction had just finished, so nextState() must be called afterward.
+    // Interrupts are only checked once the block is done, so one raised while the rest of the system catches up is
+    // taken after the block's last instruction rather than after the instruction it was raised during. That is later
+    // than the interpreter would take it by up to a block's length, which is bounded by MAX_COMPILED_BLOCK_LENGTH
+    // instructions. Timing-sensitive programs should be run with the recompiler disabled.
+    public int runCompiledBlock() {
+        if (this.recompiler == null || this.servicingInterrupt || this.mode != Mode.EXECUTING || getEI()) {
+            return 0;
+        }
+        boolean instructionBoundary = this.opcodeIsPrefixed ? this.machineCycleIndex < 0 && getIR() == PREFIX : this.machineCycleIndex == 0;
+        if (!instructionBoundary || getPC() != ((this.opcodeAddress + 1) & 0xFFFF)) {
+            return 0;
+        }
+        int mCycles = this.recompiler.execute(this.opcodeAddress);
+        if (mCycles > 0) {
+            this.opcodeIsPrefixed = false;
+            this.machineCycleIndex = TERMINATE_INSTRUCTION;
+        }
+        return mCycles;
+    }
+
+    protected int getMaxCompiledBlockLength() {
+        return MAX_COMPILED_BLOCK_LENGTH;
+    }
+
+    protected int getCompileThreshold() {
+        return COMPILE_THRESHOLD;
+    }
+
     private void fetch() {
+        this.opcodeAddress = getPC();
         setIR(this.systemBus.getBus().readByte(getPC()));
         if (!this.haltBug) {
             setPC(getPC() + 1);
@@ -379,1585 +473,1206 @@ public class SM83<S extends SM83.SystemBus> implements Processor {
         };
     }
 
-    protected void execute() {
-        int x = getX(getIR());
-        int y = getY(getIR());
-        int z = getZ(getIR());
-        int p = getP(getIR());
-        int q = getQ(getIR());
+    private void nop() {
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void illegal() {
+        // Illegal opcodes lock up the CPU
+    }
 
-        switch (x) {
+    private void ldNnSp() {
+        switch (machineCycleIndex) {
             case 0 -> {
-                switch (z) {
-                    case 0 -> {
-                        switch (y) {
-                            case 0 -> { // NOP
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                            case 1 -> { // LD (nn), SP
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setW(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        systemBus.getBus().writeByte(getWZ(), getSP() & 0xFF);
-                                        setWZ(getWZ() + 1);
-                                        machineCycleIndex = 3;
-                                    }
-                                    case 3 -> {
-                                        systemBus.getBus().writeByte(getWZ(), (getSP() & 0xFF00) >>> 8);
-                                        machineCycleIndex = 4;
-                                    }
-                                    case 4 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 2 -> { //  STOP
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        if (this.systemBus.isButtonHeld()) {
-                                            if (this.interruptsPending()) {
-                                                this.systemBus.onStopInstruction(false);
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            } else {
-                                                setPC(getPC() + 1);
-                                                this.mode = Mode.HALTED;
-                                                this.systemBus.onStopInstruction(false);
-                                                machineCycleIndex = 1;
-                                            }
-                                        } else if (this.interruptsPending()) {
-                                            this.mode = Mode.STOPPED;
-                                            this.systemBus.onStopInstruction(true);
-                                            machineCycleIndex = 2;
-                                        } else {
-                                            setPC(getPC() + 1);
-                                            this.mode = Mode.STOPPED;
-                                            this.systemBus.onStopInstruction(true);
-                                            machineCycleIndex = 2;
-                                        }
-                                    } case 1 -> {
-                                        if (interruptsPending()) { // HALT mode
-                                            this.mode = Mode.EXECUTING;
-                                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                                        } else {
-                                            machineCycleIndex = 1;
-                                        }
-                                    }
-                                    case 2 -> {
-                                        if (this.systemBus.isButtonHeld()) { // STOP mode
-                                            this.mode = Mode.EXECUTING;
-                                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                                        } else {
-                                            machineCycleIndex = 2;
-                                        }
-                                    }
-                                }
-                            }
-                            case 3 -> { // JR d
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        int e = (byte) getZ();
-                                        setWZ(getPC() + e);
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        setPC(getWZ());
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 4, 5, 6, 7 -> { // JR cc[y-4], d
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        if (getCC(y - 4)) {
-                                            machineCycleIndex = 2;
-                                        } else {
-                                            machineCycleIndex = 1;
-                                        }
-                                    }
-                                    case 1 -> { // cc == false
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                    case 2 -> { // cc == true
-                                        int e = (byte) getZ();
-                                        setWZ(getPC() + e);
-                                        machineCycleIndex = 3;
-                                    }
-                                    case 3 -> {
-                                        setPC(getWZ());
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    case 1 -> {
-                        switch (q) {
-                            case 0 -> { // LR rp[p], nn
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setW(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        setRP(p, getWZ());
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 1 -> { // ADD HL, rp[p]
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        int left = getL();
-                                        int right = getRP(p) & 0xFF;
-                                        int result = left + right;
-                                        setL(result);
-                                        setFN(false);
-                                        setFH((left & 0xF) + (right & 0xF) > 0xF);
-                                        setFC(result > 0xFF);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        int left = getH();
-                                        int right = (getRP(p) & 0xFF00) >>> 8;
-                                        int result = left + right + (getFC() ? 1 : 0);
-                                        setH(result);
-                                        setFN(false);
-                                        setFH((left & 0xF) + (right & 0xF) + (getFC() ? 1 : 0) > 0xF);
-                                        setFC(result > 0xFF);
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    case 2 -> {
-                        switch (q) {
-                            case 0 -> {
-                                switch (p) {
-                                    case 0 -> { // LD (BC), A
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                systemBus.getBus().writeByte(getBC(), getA());
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                    case 1 -> { // LD (DE), A
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                systemBus.getBus().writeByte(getDE(), getA());
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                    case 2 -> { // LD (HL+), A
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                systemBus.getBus().writeByte(getHL(), getA());
-                                                setHL(getHL() + 1);
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                    case 3 -> { // LD (HL-), A
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                systemBus.getBus().writeByte(getHL(), getA());
-                                                setHL(getHL() - 1);
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                            case 1 -> {
-                                switch (p) {
-                                    case 0 -> { // LD A, (BC)
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                setZ(systemBus.getBus().readByte(getBC()));
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                setA(getZ());
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                    case 1 -> { // LD A, (DE)
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                setZ(systemBus.getBus().readByte(getDE()));
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                setA(getZ());
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                    case 2 -> { // LD A, (HL+)
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                setZ(systemBus.getBus().readByte(getHL()));
-                                                setHL(getHL() + 1);
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                setA(getZ());
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                    case 3 -> { // LD A, (HL-)
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                setZ(systemBus.getBus().readByte(getHL()));
-                                                setHL(getHL() - 1);
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                setA(getZ());
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    case 3 -> {
-                        switch (q) {
-                            case 0 -> { // INC rp[p]
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setRP(p, getRP(p) + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 1 -> { // DEC rp[p]
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setRP(p, getRP(p) - 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    case 4 -> {
-                        if (y == 6) { // INC (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(this.systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    int result = getZ() + 1;
-                                    this.systemBus.getBus().writeByte(getHL(), result);
-                                    setFZ((result & 0xFF) == 0);
-                                    setFN(false);
-                                    setFH((getZ() & 0xF) + 1 > 0xF);
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // INC r[y]
-                            int ry = getR(y);
-                            int result = ry + 1;
-                            setR(y, result);
-                            setFZ((result & 0xFF) == 0);
-                            setFN(false);
-                            setFH((ry & 0xF) + 1 > 0xF);
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 5 -> {
-                        if (y == 6) { // DEC (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(this.systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    int result = getZ() - 1;
-                                    this.systemBus.getBus().writeByte(getHL(), result);
-                                    setFZ((result & 0xFF) == 0);
-                                    setFN(true);
-                                    setFH((getZ() & 0xF) < 1);
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // DEC r[y]
-                            int ry = getR(y);
-                            int result = ry - 1;
-                            setR(y, result);
-                            setFZ((result & 0xFF) == 0);
-                            setFN(true);
-                            setFH((ry & 0xF) < 1);
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 6 -> {
-                        if (y == 6) { // LD (HL), n
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getPC()));
-                                    setPC(getPC() + 1);
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    systemBus.getBus().writeByte(getHL(), getZ());
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // LD r[y], n
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getPC()));
-                                    setPC(getPC() + 1);
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    setR(y, getZ());
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        }
-                    }
-                    case 7 -> {
-                        switch (y) {
-                            case 0 -> { // RLCA
-                                boolean shiftedOut = (getA() & 0x80) != 0;
-                                setA((getA() << 1) | (shiftedOut ? 1 : 0));
-                                setFZ(false);
-                                setFN(false);
-                                setFH(false);
-                                setFC(shiftedOut);
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                            case 1 -> { // RRCA
-                                boolean shiftedOut = (getA() & 1) != 0;
-                                setA((shiftedOut ? 0x80 : 0x00) | (getA() >>> 1));
-                                setFZ(false);
-                                setFN(false);
-                                setFH(false);
-                                setFC(shiftedOut);
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                            case 2 -> { // RLA
-                                boolean shiftedOut = (getA() & 0x80) != 0;
-                                setA((getA() << 1) | (getFC() ? 1 : 0));
-                                setFZ(false);
-                                setFN(false);
-                                setFH(false);
-                                setFC(shiftedOut);
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                            case 3 -> { // RRA
-                                boolean shiftedOut = (getA() & 1) != 0;
-                                setA((getFC() ? 0x80 : 0x00) | (getA() >>> 1));
-                                setFZ(false);
-                                setFN(false);
-                                setFH(false);
-                                setFC(shiftedOut);
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                            case 4 -> { // DAA
-                                int correction = 0;
-                                if (getFH() || (!getFN() && (getA() & 0x0F) > 0x09)) {
-                                    correction |= 0x06;
-                                }
-                                if (getFC() || (!getFN() && (getA() & 0xFF) > 0x99)) {
-                                    correction |= 0x60;
-                                    setFC(true);
-                                }
-                                boolean carry = false;
-                                int right = correction;
-                                if (getFN()) {
-                                    carry = true;
-                                    right = (~right) & 0xFF;
-                                }
-                                int result = (getA() + right + (carry ? 1 : 0));
-                                setA(result);
-                                setFH(false);
-                                setFZ((result & 0xFF) == 0);
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                            case 5 -> { // CPL
-                                setA(~getA());
-                                setFN(true);
-                                setFH(true);
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                            case 6 -> { // SCF
-                                setFN(false);
-                                setFH(false);
-                                setFC(true);
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                            case 7 -> { // CCF
-                                setFN(false);
-                                setFH(false);
-                                setFC(!getFC());
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                        }
-                    }
-                }
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
             }
             case 1 -> {
-                if (z == 6 && y == 6) { // HALT
-                    switch (machineCycleIndex) {
-                        case 0 -> {
-                            if (interruptsPending()) {
-                                this.haltBug = true;
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            } else {
-                                this.mode = Mode.HALTED;
-                                machineCycleIndex = 1;
-                            }
-                        }
-                        case 1 -> {
-                            if (interruptsPending()) {
-                                this.mode = Mode.EXECUTING;
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            } else {
-                                machineCycleIndex = 1;
-                            }
-                        }
-                    }
-                } else if (z == 6) { // LD r, (HL)
-                    switch (machineCycleIndex) {
-                        case 0 -> {
-                            setZ(systemBus.getBus().readByte(getHL()));
-                            machineCycleIndex = 1;
-                        } case 1 -> {
-                            setR(y, getZ());
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                } else if (y == 6) { // LD (HL), r
-                    switch (machineCycleIndex) {
-                        case 0 -> {
-                            systemBus.getBus().writeByte(getHL(), getR(z));
-                            machineCycleIndex = 1;
-                        }
-                        case 1 -> {
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                } else { // LD r[y], r[z]
-                    setR(y, getR(z));
-                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                }
+                setW(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 2;
             }
-            case 2 -> { // alu[y] r[z]
-                switch (y) {
-                    case 0 -> {
-                        if (z == 6) { // ADD (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    setA(add(getA(), getZ()));
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // ADD A, r[z]
-                            setA(add(getA(), getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 1 -> {
-                        if (z == 6) { // ADC (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(this.systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    setA(adc(getA(), getZ()));
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // ADC A, r[z]
-                            setA(adc(getA(), getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 2 -> {
-                        if (z == 6) { // SUB (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(this.systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    setA(sub(getA(), getZ()));
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // SUB r[z]
-                            setA(sub(getA(), getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 3 -> {
-                        if (z == 6) { // SBC (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(this.systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    setA(sbc(getA(), getZ()));
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // SBC A, r[z]
-                            setA(sbc(getA(), getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 4 -> {
-                        if (z == 6) { // AND (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(this.systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    setA(and(getA(), getZ()));
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // AND r[z]
-                            setA(and(getA(), getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 5 -> {
-                        if (z == 6) { // XOR (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(this.systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    setA(xor(getA(), getZ()));
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // XOR r[z]
-                            setA(xor(getA(), getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 6 -> {
-                        if (z == 6) { // OR (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(this.systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    setA(or(getA(), getZ()));
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // OR r[z]
-                            setA(or(getA(), getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 7 -> {
-                        if (z == 6) {
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(this.systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    sub(getA(), getZ());
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // CP r[z]
-                            sub(getA(), getR(z));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                }
+            case 2 -> {
+                systemBus.getBus().writeByte(getWZ(), getSP() & 0xFF);
+                setWZ(getWZ() + 1);
+                machineCycleIndex = 3;
             }
             case 3 -> {
-                switch (z) {
-                    case 0 -> {
-                        switch (y) {
-                            case 0, 1, 2, 3 -> { // RET cc[y]
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        if (getCC(y)) {
-                                            machineCycleIndex = 1;
-                                        } else {
-                                            machineCycleIndex = 4;
-                                        }
-                                    }
-                                    case 1 -> {
-                                        setZ(systemBus.getBus().readByte(getSP()));
-                                        setSP(getSP() + 1);
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        setW(systemBus.getBus().readByte(getSP()));
-                                        setSP(getSP() + 1);
-                                        machineCycleIndex = 3;
-                                    }
-                                    case 3 -> {
-                                        setPC(getWZ());
-                                        machineCycleIndex = 4;
-                                    }
-                                    case 4 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 4 -> { // LD (0xFF00 + n), A
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        systemBus.getBus().writeByte(0xFF00 | getZ(), getA());
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 5 -> { // ADD SP, d
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(this.systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        int left = (getSP() & 0xFF);
-                                        int Z = getZ();
-                                        int result = left + Z;
-                                        setZ(result);
-                                        setFZ(false);
-                                        setFN(false);
-                                        setFH((left & 0xF) + (Z & 0xF) > 0xF);
-                                        setFC(result > 0xFF);
-
-                                        // Temporarily store the sign extension on the W register
-                                        setW(Processor.getBit(7, Z) != 0 ? 0xFF : 0x00);
-
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        int result = ((getSP() & 0xFF00) >>> 8) + getW() + (getFC() ? 1 : 0);
-                                        setW(result);
-                                        machineCycleIndex = 3;
-                                    }
-                                    case 3 -> {
-                                        setSP(getWZ());
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 6 -> { // LD A, (0xFF00 + n)
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setZ(systemBus.getBus().readByte(0xFF00 | getZ()));
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        setA(getZ());
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 7 -> { // LD HL, SP + d
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        int spLow = (getSP() & 0xFF);
-                                        int result = spLow + getZ();
-                                        setL(result);
-                                        setFZ(false);
-                                        setFN(false);
-                                        setFH((spLow & 0xF) + (getZ() & 0xF) > 0xF);
-                                        setFC(result > 0xFF);
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        int adj = Processor.getBit(7, getZ()) != 0 ? 0xFF : 0x00;
-                                        int result = ((getSP() & 0xFF00) >>> 8) + adj + (getFC() ? 1 : 0);
-                                        setH(result);
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    case 1 -> {
-                        switch (q) {
-                            case 0 -> { // POP rp2[p]
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getSP()));
-                                        setSP(getSP() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setW(systemBus.getBus().readByte(getSP()));
-                                        setSP(getSP() + 1);
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        setRP2(p, getWZ());
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 1 -> {
-                                switch (p) {
-                                    case 0 -> { // RET
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                setZ(systemBus.getBus().readByte(getSP()));
-                                                setSP(getSP() + 1);
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                setW(systemBus.getBus().readByte(getSP()));
-                                                setSP(getSP() + 1);
-                                                machineCycleIndex = 2;
-                                            }
-                                            case 2 -> {
-                                                setPC(getWZ());
-                                                machineCycleIndex = 3;
-                                            }
-                                            case 3 -> {
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                    case 1 -> { // RETI
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                setZ(systemBus.getBus().readByte(getSP()));
-                                                setSP(getSP() + 1);
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                setW(systemBus.getBus().readByte(getSP()));
-                                                setSP(getSP() + 1);
-                                                machineCycleIndex = 2;
-                                            }
-                                            case 2 -> {
-                                                setPC(getWZ());
-                                                setIME(true);
-                                                machineCycleIndex = 3;
-                                            }
-                                            case 3 -> {
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                    case 2 -> { // JP HL
-                                        setPC(getHL());
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                    case 3 -> { // LD SP, HL
-                                        switch (machineCycleIndex) {
-                                            case 0 -> {
-                                                setSP(getHL());
-                                                machineCycleIndex = 1;
-                                            }
-                                            case 1 -> {
-                                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    case 2 -> {
-                        switch (y) {
-                            case 0, 1, 2, 3 -> { // JP cc[y], nn
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setW(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        if (getCC(y)) {
-                                            machineCycleIndex = 2;
-                                        } else {
-                                            machineCycleIndex = 3;
-                                        }
-                                    }
-                                    case 2 -> {
-                                        setPC(getWZ());
-                                        machineCycleIndex = 3;
-                                    }
-                                    case 3 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 4 -> { // LD (0xFF00 + C), A
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        systemBus.getBus().writeByte(0xFF00 | getC(), getA());
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 5 -> { // LD (nn), A
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setW(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        systemBus.getBus().writeByte(getWZ(), getA());
-                                        machineCycleIndex = 3;
-                                    }
-                                    case 3 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 6 -> { // LD A, (0xFF00 + C)
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(0xFF00 | getC()));
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setA(getZ());
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 7 -> { // LD A, (nn)
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setW(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        setZ(systemBus.getBus().readByte(getWZ()));
-                                        machineCycleIndex = 3;
-                                    }
-                                    case 3 -> {
-                                        setA(getZ());
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    case 3 -> {
-                        switch (y) {
-                            case 0 -> { // JP nn
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 ->  {
-                                        setW(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        setPC(getWZ());
-                                        machineCycleIndex = 3;
-                                    }
-                                    case 3 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 6 -> { // DI
-                                setEI(false);
-                                setIME(false);
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                            case 7 -> { // EI
-                                setEI(true);
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                        }
-                    }
-                    case 4 -> {
-                        switch (y) {
-                            case 0, 1, 2, 3 -> { // CALL cc[y], nn
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setW(systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        if (getCC(y)) {
-                                            machineCycleIndex = 2;
-                                        } else {
-                                            machineCycleIndex = 5;
-                                        }
-                                    }
-                                    case 2 -> {
-                                        setSP(getSP() - 1);
-                                        machineCycleIndex = 3;
-                                    }
-                                    case 3 -> {
-                                        systemBus.getBus().writeByte(getSP(), (getPC() & 0xFF00) >>> 8);
-                                        setSP(getSP() - 1);
-                                        machineCycleIndex = 4;
-                                    }
-                                    case 4 -> {
-                                        systemBus.getBus().writeByte(getSP(), (getPC() & 0xFF));
-                                        setPC(getWZ());
-                                        machineCycleIndex = 5;
-                                    }
-                                    case 5 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    case 5 -> {
-                        switch (q) {
-                            case 0 -> { // PUSH rp2[p]
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setSP(getSP() - 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        systemBus.getBus().writeByte(getSP(), (getRP2(p) & 0xFF00) >>> 8);
-                                        setSP(getSP() - 1);
-                                        machineCycleIndex = 2;
-                                    }
-                                    case 2 -> {
-                                        systemBus.getBus().writeByte(getSP(), getRP2(p) & 0xFF);
-                                        machineCycleIndex = 3;
-                                    }
-                                    case 3 -> {
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 1 -> {
-                                if (p == 0) { // CALL nn
-                                    switch (machineCycleIndex) {
-                                        case 0 -> {
-                                            setZ(systemBus.getBus().readByte(getPC()));
-                                            setPC(getPC() + 1);
-                                            machineCycleIndex = 1;
-                                        }
-                                        case 1 -> {
-                                            setW(systemBus.getBus().readByte(getPC()));
-                                            setPC(getPC() + 1);
-                                            machineCycleIndex = 2;
-                                        }
-                                        case 2 -> {
-                                            setSP(getSP() - 1);
-                                            machineCycleIndex = 3;
-                                        }
-                                        case 3 -> {
-                                            systemBus.getBus().writeByte(getSP(), (getPC() & 0xFF00) >>> 8);
-                                            setSP(getSP() - 1);
-                                            machineCycleIndex = 4;
-                                        }
-                                        case 4 -> {
-                                            systemBus.getBus().writeByte(getSP(), (getPC() & 0xFF));
-                                            setPC(getWZ());
-                                            machineCycleIndex = 5;
-                                        }
-                                        case 5 -> {
-                                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    case 6 -> { // alu[y] n
-                        switch (y) {
-                            case 0 -> { // ADD A, n
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(this.systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setA(add(getA(), getZ()));
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 1 -> { // ADC A, n
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(this.systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setA(adc(getA(), getZ()));
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 2 -> { // SUB A, n
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(this.systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setA(sub(getA(), getZ()));
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 3 -> { // SBC A, n
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(this.systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setA(sbc(getA(), getZ()));
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 4 -> { // AND n
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(this.systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setA(and(getA(), getZ()));
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 5 -> { // XOR n
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(this.systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setA(xor(getA(), getZ()));
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 6 -> { // OR n
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(this.systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        setA(or(getA(), getZ()));
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                            case 7 -> { // // CP n
-                                switch (machineCycleIndex) {
-                                    case 0 -> {
-                                        setZ(this.systemBus.getBus().readByte(getPC()));
-                                        setPC(getPC() + 1);
-                                        machineCycleIndex = 1;
-                                    }
-                                    case 1 -> {
-                                        sub(getA(), getZ());
-                                        machineCycleIndex = TERMINATE_INSTRUCTION;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    case 7 -> { // RST y*8
-                        switch (machineCycleIndex) {
-                            case 0 -> {
-                                setSP(getSP() - 1);
-                                machineCycleIndex = 1;
-                            }
-                            case 1 -> {
-                                systemBus.getBus().writeByte(getSP(), (getPC() & 0xFF00) >>> 8);
-                                setSP(getSP() - 1);
-                                machineCycleIndex = 2;
-                            }
-                            case 2 -> {
-                                systemBus.getBus().writeByte(getSP(), getPC() & 0xFF);
-                                setPC(y * 8);
-                                machineCycleIndex = 3;
-                            }
-                            case 3 -> {
-                                machineCycleIndex = TERMINATE_INSTRUCTION;
-                            }
-                        }
-                    }
-                }
+                systemBus.getBus().writeByte(getWZ(), (getSP() & 0xFF00) >>> 8);
+                machineCycleIndex = 4;
+            }
+            case 4 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
             }
         }
-
     }
 
-    private void executePrefixed() {
-        int x = getX(getIR());
-        int y = getY(getIR());
-        int z = getZ(getIR());
-        switch (x) {
+    protected void stop() {
+        switch (machineCycleIndex) {
             case 0 -> {
-                switch (y) { // rot[y] r[z]
-                    case 0 -> {
-                        if (z == 6) { // RLC (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    systemBus.getBus().writeByte(getHL(), rlc(getZ()));
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // RLC r[z]
-                            setR(z, rlc(getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 1 -> {
-                        if (z == 6) { // RRC (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    systemBus.getBus().writeByte(getHL(), rrc(getZ()));
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // RRC r[z]
-                            setR(z, rrc(getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 2 -> {
-                        if (z == 6) { // RL (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    systemBus.getBus().writeByte(getHL(), rl(getZ()));
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // RL r[z]
-                            setR(z, rl(getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 3 -> {
-                        if (z == 6) { // RR (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    systemBus.getBus().writeByte(getHL(), rr(getZ()));
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // RR r[z]
-                            setR(z, rr(getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 4 -> {
-                        if (z == 6) { // SLA (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    systemBus.getBus().writeByte(getHL(), sla(getZ()));
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // SLA r[z]
-                            setR(z, sla(getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 5 -> {
-                        if (z == 6) { // SRA (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    int operand = getZ();
-                                    boolean shiftedOut = (operand & 1) != 0;
-                                    boolean bit = (operand & 0x80) != 0;
-                                    int result = (bit ? 0x80 : 0x00) | (operand >>> 1);
-                                    systemBus.getBus().writeByte(getHL(), result);
-                                    setFZ((result & 0xFF) == 0);
-                                    setFN(false);
-                                    setFH(false);
-                                    setFC(shiftedOut);
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // SRA r[z]
-                            int operand = getR(z);
-                            boolean shiftedOut = (operand & 1) != 0;
-                            boolean bit = (operand & 0x80) != 0;
-                            int result = (bit ? 0x80 : 0x00) | (operand >>> 1);
-                            setR(z, result);
-                            setFZ((result & 0xFF) == 0);
-                            setFN(false);
-                            setFH(false);
-                            setFC(shiftedOut);
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 6 -> {
-                        if (z == 6) { // SWAP (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    systemBus.getBus().writeByte(getHL(), swap(getZ()));
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // SWAP r[z]
-                            setR(z, swap(getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                    case 7 -> {
-                        if (z == 6) { // SRL (HL)
-                            switch (machineCycleIndex) {
-                                case 0 -> {
-                                    setZ(systemBus.getBus().readByte(getHL()));
-                                    machineCycleIndex = 1;
-                                }
-                                case 1 -> {
-                                    systemBus.getBus().writeByte(getHL(), srl(getZ()));
-                                    machineCycleIndex = 2;
-                                }
-                                case 2 -> {
-                                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                                }
-                            }
-                        } else { // SRL r[z]
-                            setR(z, srl(getR(z)));
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
+                if (this.systemBus.isButtonHeld()) {
+                    if (this.interruptsPending()) {
+                        this.systemBus.onStopInstruction(false);
+                        machineCycleIndex = TERMINATE_INSTRUCTION;
+                    } else {
+                        setPC(getPC() + 1);
+                        this.mode = Mode.HALTED;
+                        this.systemBus.onStopInstruction(false);
+                        machineCycleIndex = 1;
                     }
+                } else if (this.interruptsPending()) {
+                    this.mode = Mode.STOPPED;
+                    this.systemBus.onStopInstruction(true);
+                    machineCycleIndex = 2;
+                } else {
+                    setPC(getPC() + 1);
+                    this.mode = Mode.STOPPED;
+                    this.systemBus.onStopInstruction(true);
+                    machineCycleIndex = 2;
                 }
-            }
-            case 1 -> {
-                if (z == 6) { // BIT y, (HL)
-                    switch (machineCycleIndex) {
-                        case 0 -> {
-                            setZ(systemBus.getBus().readByte(getHL()));
-                            machineCycleIndex = 1;
-                        }
-                        case 1 -> {
-                            bit(y, getZ());
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                } else { // BIT y, r[z]
-                    bit(y, getR(z));
+            } case 1 -> {
+                if (interruptsPending()) { // HALT mode
+                    this.mode = Mode.EXECUTING;
                     machineCycleIndex = TERMINATE_INSTRUCTION;
+                } else {
+                    machineCycleIndex = 1;
                 }
             }
             case 2 -> {
-                if (z == 6) { // RES y, (HL)
-                    switch (machineCycleIndex) {
-                        case 0 -> {
-                            setZ(systemBus.getBus().readByte(getHL()));
-                            machineCycleIndex = 1;
-                        }
-                        case 1 -> {
-                            systemBus.getBus().writeByte(getHL(), Processor.clearBit(getZ(), 1 << y));
-                            machineCycleIndex = 2;
-                        }
-                        case 2 -> {
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                } else { // RES y, r[z]
-                    setR(z, Processor.clearBit(getR(z), 1 << y));
+                if (this.systemBus.isButtonHeld()) { // STOP mode
+                    this.mode = Mode.EXECUTING;
                     machineCycleIndex = TERMINATE_INSTRUCTION;
+                } else {
+                    machineCycleIndex = 2;
                 }
             }
-            case 3 -> {
-                if (z == 6) {
-                    switch (machineCycleIndex) {
-                        case 0 -> {
-                            setZ(systemBus.getBus().readByte(getHL()));
-                            machineCycleIndex = 1;
-                        }
-                        case 1 -> {
-                            systemBus.getBus().writeByte(getHL(), Processor.setBit(getZ(), 1 << y));
-                            machineCycleIndex = 2;
-                        }
-                        case 2 -> {
-                            machineCycleIndex = TERMINATE_INSTRUCTION;
-                        }
-                    }
-                } else { // SET y, r[z]
-                    setR(z, Processor.setBit(getR(z), 1 << y));
-                    machineCycleIndex = TERMINATE_INSTRUCTION;
-                }
+        }
+    }
+
+    private void jr() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                int e = (byte) getZ();
+                setWZ(getPC() + e);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                setPC(getWZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
             }
         }
     }
 
-    private boolean getCC(int index) {
-        return switch (index) {
-            case 0 -> !getFZ();
-            case 1 -> getFZ();
-            case 2 -> !getFC();
-            case 3 -> getFC();
-            default -> throw new EmulatorException("Illegal condition index " + index + " for SM83 core!");
-        };
+    private void jrCc(int cc) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                if (getCC(cc)) {
+                    machineCycleIndex = 2;
+                } else {
+                    machineCycleIndex = 1;
+                }
+            }
+            case 1 -> { // cc == false
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+            case 2 -> { // cc == true
+                int e = (byte) getZ();
+                setWZ(getPC() + e);
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                setPC(getWZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
     }
 
-    private void setR(int index, int value) {
-        switch (index) {
-            case 0 -> setB(value);
-            case 1 -> setC(value);
-            case 2 -> setD(value);
-            case 3 -> setE(value);
-            case 4 -> setH(value);
-            case 5 -> setL(value);
-            case 6 -> throw new EmulatorException("Index 6 for \"r\" must be handled separately!");
-            case 7 -> setA(value);
-            default -> throw new EmulatorException("Illegal index " + index + " for \"r\" table!");
+    private void ldRpNn(int p) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setW(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                setRP(p, getWZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
         }
     }
 
-    private int getR(int index) {
-        return switch (index) {
-            case 0 -> getB();
-            case 1 -> getC();
-            case 2 -> getD();
-            case 3 -> getE();
-            case 4 -> getH();
-            case 5 -> getL();
-            case 6 -> throw new EmulatorException("Index 6 for \"r\" must be handled separately!");
-            case 7 -> getA();
-            default -> throw new EmulatorException("Illegal index " + index + " for \"r\" table!");
-        };
+    private void addHlRp(int p) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                int left = getL();
+                int right = getRP(p) & 0xFF;
+                int result = left + right;
+                setL(result);
+                setFN(false);
+                setFH((left & 0xF) + (right & 0xF) > 0xF);
+                setFC(result > 0xFF);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                int left = getH();
+                int right = (getRP(p) & 0xFF00) >>> 8;
+                int result = left + right + (getFC() ? 1 : 0);
+                setH(result);
+                setFN(false);
+                setFH((left & 0xF) + (right & 0xF) + (getFC() ? 1 : 0) > 0xF);
+                setFC(result > 0xFF);
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
     }
 
-    private void setRP(int index, int value) {
-        switch (index) {
-            case 0 -> setBC(value);
-            case 1 -> setDE(value);
-            case 2 -> setHL(value);
-            case 3 -> setSP(value);
-            default -> throw new EmulatorException("Illegal index " + index + " for \"rp\" table!");
+    private void ldBcA() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                systemBus.getBus().writeByte(getBC(), getA());
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
         }
     }
 
-    private int getRP(int index) {
-        return switch (index) {
-            case 0 -> getBC();
-            case 1 -> getDE();
-            case 2 -> getHL();
-            case 3 -> getSP();
-            default -> throw new EmulatorException("Illegal index " + index + " for \"rp\" table!");
-        };
+    private void ldDeA() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                systemBus.getBus().writeByte(getDE(), getA());
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
     }
 
-    private void setRP2(int index, int value) {
-        switch (index) {
-            case 0 -> setBC(value);
-            case 1 -> setDE(value);
-            case 2 -> setHL(value);
-            case 3 -> setAF(value);
-            default -> throw new EmulatorException("Illegal index " + index + " for \"rp2\" table!");
+    private void ldHliA() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                systemBus.getBus().writeByte(getHL(), getA());
+                setHL(getHL() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
         }
     }
 
-    private int getRP2(int index) {
-        return switch (index) {
-            case 0 -> getBC();
-            case 1 -> getDE();
-            case 2 -> getHL();
-            case 3 -> getAF();
-            default -> throw new EmulatorException("Illegal index " + index + " for \"rp2\" table!");
-        };
+    private void ldHldA() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                systemBus.getBus().writeByte(getHL(), getA());
+                setHL(getHL() - 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
     }
 
-    private int add(int left, int right) {
-        int result = left + right;
-        setFZ((result & 0xFF) == 0);
-        setFN(false);
-        setFH((left & 0xF) + (right & 0xF) > 0xF);
-        setFC(result > 0xFF);
-        return result;
+    private void ldABc() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getBC()));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setA(getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
     }
 
-    private int adc(int left, int right) {
-        int result = left + right + (getFC() ? 1 : 0);
-        setFZ((result & 0xFF) == 0);
-        setFN(false);
-        setFH((left & 0xF) + (right & 0xF) + (getFC() ? 1 : 0) > 0xF);
-        setFC(result > 0xFF);
-        return result;
+    private void ldADe() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getDE()));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setA(getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
     }
 
-    private int sub(int left, int right) {
-        int result = left - right;
-        setFZ((result & 0xFF) == 0);
-        setFN(true);
-        setFH((left & 0xF) < (right & 0xF));
-        setFC(left < right);
-        return result;
+    private void ldAHli() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getHL()));
+                setHL(getHL() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setA(getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldAHld() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getHL()));
+                setHL(getHL() - 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setA(getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void incRp(int p) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setRP(p, getRP(p) + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void decRp(int p) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setRP(p, getRP(p) - 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void incHL() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(this.systemBus.getBus().readByte(getHL()));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                int result = getZ() + 1;
+                this.systemBus.getBus().writeByte(getHL(), result);
+                setFZ((result & 0xFF) == 0);
+                setFN(false);
+                setFH((getZ() & 0xF) + 1 > 0xF);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void incR(int y) {
+        setR(y, inc(getR(y)));
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void decHL() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(this.systemBus.getBus().readByte(getHL()));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                int result = getZ() - 1;
+                this.systemBus.getBus().writeByte(getHL(), result);
+                setFZ((result & 0xFF) == 0);
+                setFN(true);
+                setFH((getZ() & 0xF) < 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void decR(int y) {
+        setR(y, dec(getR(y)));
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void ldHLN() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                systemBus.getBus().writeByte(getHL(), getZ());
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldRN(int y) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setR(y, getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void rlca() {
+        boolean shiftedOut = (getA() & 0x80) != 0;
+        setA((getA() << 1) | (shiftedOut ? 1 : 0));
+        setFZ(false);
+        setFN(false);
+        setFH(false);
+        setFC(shiftedOut);
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void rrca() {
+        boolean shiftedOut = (getA() & 1) != 0;
+        setA((shiftedOut ? 0x80 : 0x00) | (getA() >>> 1));
+        setFZ(false);
+        setFN(false);
+        setFH(false);
+        setFC(shiftedOut);
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void rla() {
+        boolean shiftedOut = (getA() & 0x80) != 0;
+        setA((getA() << 1) | (getFC() ? 1 : 0));
+        setFZ(false);
+        setFN(false);
+        setFH(false);
+        setFC(shiftedOut);
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void rra() {
+        boolean shiftedOut = (getA() & 1) != 0;
+        setA((getFC() ? 0x80 : 0x00) | (getA() >>> 1));
+        setFZ(false);
+        setFN(false);
+        setFH(false);
+        setFC(shiftedOut);
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void daa() {
+        int correction = 0;
+        if (getFH() || (!getFN() && (getA() & 0x0F) > 0x09)) {
+            correction |= 0x06;
+        }
+        if (getFC() || (!getFN() && (getA() & 0xFF) > 0x99)) {
+            correction |= 0x60;
+            setFC(true);
+        }
+        boolean carry = false;
+        int right = correction;
+        if (getFN()) {
+            carry = true;
+            right = (~right) & 0xFF;
+        }
+        int result = (getA() + right + (carry ? 1 : 0));
+        setA(result);
+        setFH(false);
+        setFZ((result & 0xFF) == 0);
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void cpl() {
+        setA(~getA());
+        setFN(true);
+        setFH(true);
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void scf() {
+        setFN(false);
+        setFH(false);
+        setFC(true);
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void ccf() {
+        setFN(false);
+        setFH(false);
+        setFC(!getFC());
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void halt() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                if (interruptsPending()) {
+                    this.haltBug = true;
+                    machineCycleIndex = TERMINATE_INSTRUCTION;
+                } else {
+                    this.mode = Mode.HALTED;
+                    machineCycleIndex = 1;
+                }
+            }
+            case 1 -> {
+                if (interruptsPending()) {
+                    this.mode = Mode.EXECUTING;
+                    machineCycleIndex = TERMINATE_INSTRUCTION;
+                } else {
+                    machineCycleIndex = 1;
+                }
+            }
+        }
+    }
+
+    private void ldRHL(int y) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getHL()));
+                machineCycleIndex = 1;
+            } case 1 -> {
+                setR(y, getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldHLR(int z) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                systemBus.getBus().writeByte(getHL(), getR(z));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldRR(int y, int z) {
+        setR(y, getR(z));
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void aluR(AluOperation operation, int z) {
+        operation.execute(this, getR(z));
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void aluHL(AluOperation operation) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(this.systemBus.getBus().readByte(getHL()));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                operation.execute(this, getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void aluN(AluOperation operation) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(this.systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                operation.execute(this, getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void retCc(int cc) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                if (getCC(cc)) {
+                    machineCycleIndex = 1;
+                } else {
+                    machineCycleIndex = 4;
+                }
+            }
+            case 1 -> {
+                setZ(systemBus.getBus().readByte(getSP()));
+                setSP(getSP() + 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                setW(systemBus.getBus().readByte(getSP()));
+                setSP(getSP() + 1);
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                setPC(getWZ());
+                machineCycleIndex = 4;
+            }
+            case 4 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldhNA() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                systemBus.getBus().writeByte(0xFF00 | getZ(), getA());
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void addSpD() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(this.systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                int left = (getSP() & 0xFF);
+                int Z = getZ();
+                int result = left + Z;
+                setZ(result);
+                setFZ(false);
+                setFN(false);
+                setFH((left & 0xF) + (Z & 0xF) > 0xF);
+                setFC(result > 0xFF);
+
+                // Temporarily store the sign extension on the W register
+                setW(Processor.getBit(7, Z) != 0 ? 0xFF : 0x00);
+
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                int result = ((getSP() & 0xFF00) >>> 8) + getW() + (getFC() ? 1 : 0);
+                setW(result);
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                setSP(getWZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldhAN() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setZ(systemBus.getBus().readByte(0xFF00 | getZ()));
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                setA(getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldHLSpD() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                int spLow = (getSP() & 0xFF);
+                int result = spLow + getZ();
+                setL(result);
+                setFZ(false);
+                setFN(false);
+                setFH((spLow & 0xF) + (getZ() & 0xF) > 0xF);
+                setFC(result > 0xFF);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                int adj = Processor.getBit(7, getZ()) != 0 ? 0xFF : 0x00;
+                int result = ((getSP() & 0xFF00) >>> 8) + adj + (getFC() ? 1 : 0);
+                setH(result);
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void pop(int p) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getSP()));
+                setSP(getSP() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setW(systemBus.getBus().readByte(getSP()));
+                setSP(getSP() + 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                setRP2(p, getWZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ret() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getSP()));
+                setSP(getSP() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setW(systemBus.getBus().readByte(getSP()));
+                setSP(getSP() + 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                setPC(getWZ());
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void reti() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getSP()));
+                setSP(getSP() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setW(systemBus.getBus().readByte(getSP()));
+                setSP(getSP() + 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                setPC(getWZ());
+                setIME(true);
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void jpHL() {
+        setPC(getHL());
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void ldSpHL() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setSP(getHL());
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void jpCc(int cc) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setW(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                if (getCC(cc)) {
+                    machineCycleIndex = 2;
+                } else {
+                    machineCycleIndex = 3;
+                }
+            }
+            case 2 -> {
+                setPC(getWZ());
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldhCA() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                systemBus.getBus().writeByte(0xFF00 | getC(), getA());
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldNnA() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setW(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                systemBus.getBus().writeByte(getWZ(), getA());
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldhAC() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(0xFF00 | getC()));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setA(getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void ldANn() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setW(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                setZ(systemBus.getBus().readByte(getWZ()));
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                setA(getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void jpNn() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 ->  {
+                setW(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                setPC(getWZ());
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void di() {
+        setEI(false);
+        setIME(false);
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void ei() {
+        setEI(true);
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void callCc(int cc) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setW(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                if (getCC(cc)) {
+                    machineCycleIndex = 2;
+                } else {
+                    machineCycleIndex = 5;
+                }
+            }
+            case 2 -> {
+                setSP(getSP() - 1);
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                systemBus.getBus().writeByte(getSP(), (getPC() & 0xFF00) >>> 8);
+                setSP(getSP() - 1);
+                machineCycleIndex = 4;
+            }
+            case 4 -> {
+                systemBus.getBus().writeByte(getSP(), (getPC() & 0xFF));
+                setPC(getWZ());
+                machineCycleIndex = 5;
+            }
+            case 5 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void push(int p) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setSP(getSP() - 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                systemBus.getBus().writeByte(getSP(), (getRP2(p) & 0xFF00) >>> 8);
+                setSP(getSP() - 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                systemBus.getBus().writeByte(getSP(), getRP2(p) & 0xFF);
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void callNn() {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                setW(systemBus.getBus().readByte(getPC()));
+                setPC(getPC() + 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                setSP(getSP() - 1);
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                systemBus.getBus().writeByte(getSP(), (getPC() & 0xFF00) >>> 8);
+                setSP(getSP() - 1);
+                machineCycleIndex = 4;
+            }
+            case 4 -> {
+                systemBus.getBus().writeByte(getSP(), (getPC() & 0xFF));
+                setPC(getWZ());
+                machineCycleIndex = 5;
+            }
+            case 5 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void rst(int vector) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setSP(getSP() - 1);
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                systemBus.getBus().writeByte(getSP(), (getPC() & 0xFF00) >>> 8);
+                setSP(getSP() - 1);
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                systemBus.getBus().writeByte(getSP(), getPC() & 0xFF);
+                setPC(vector);
+                machineCycleIndex = 3;
+            }
+            case 3 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void rotR(RotateOperation operation, int z) {
+        setR(z, operation.execute(this, getR(z)));
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void rotHL(RotateOperation operation) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getHL()));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                systemBus.getBus().writeByte(getHL(), operation.execute(this, getZ()));
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void bitR(int y, int z) {
+        bit(y, getR(z));
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void bitHL(int y) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getHL()));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                bit(y, getZ());
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void resR(int y, int z) {
+        setR(z, Processor.clearBit(getR(z), 1 << y));
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void resHL(int y) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getHL()));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                systemBus.getBus().writeByte(getHL(), Processor.clearBit(getZ(), 1 << y));
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private void setBitR(int y, int z) {
+        setR(z, Processor.setBit(getR(z), 1 << y));
+        machineCycleIndex = TERMINATE_INSTRUCTION;
+    }
+
+    private void setBitHL(int y) {
+        switch (machineCycleIndex) {
+            case 0 -> {
+                setZ(systemBus.getBus().readByte(getHL()));
+                machineCycleIndex = 1;
+            }
+            case 1 -> {
+                systemBus.getBus().writeByte(getHL(), Processor.setBit(getZ(), 1 << y));
+                machineCycleIndex = 2;
+            }
+            case 2 -> {
+                machineCycleIndex = TERMINATE_INSTRUCTION;
+            }
+        }
+    }
+
+    private boolean getCC(int index) {
+        return switch (index) {
+            case 0 -> !getFZ();
+            case 1 -> getFZ();
+            case 2 -> !getFC();
+            case 3 -> getFC();
+            default -> throw new EmulatorException("Illegal condition index " + index + " for SM83 core!");
+        };
+    }
+
+    private void setR(int index, int value) {
+        switch (index) {
+            case 0 -> setB(value);
+            case 1 -> setC(value);
+            case 2 -> setD(value);
+            case 3 -> setE(value);
+            case 4 -> setH(value);
+            case 5 -> setL(value);
+            case 6 -> throw new EmulatorException("Index 6 for \"r\" must be handled separately!");
+            case 7 -> setA(value);
+            default -> throw new EmulatorException("Illegal index " + index + " for \"r\" table!");
+        }
+    }
+
+    private int getR(int index) {
+        return switch (index) {
+            case 0 -> getB();
+            case 1 -> getC();
+            case 2 -> getD();
+            case 3 -> getE();
+            case 4 -> getH();
+            case 5 -> getL();
+            case 6 -> throw new EmulatorException("Index 6 for \"r\" must be handled separately!");
+            case 7 -> getA();
+            default -> throw new EmulatorException("Illegal index " + index + " for \"r\" table!");
+        };
+    }
+
+    private void setRP(int index, int value) {
+        switch (index) {
+            case 0 -> setBC(value);
+            case 1 -> setDE(value);
+            case 2 -> setHL(value);
+            case 3 -> setSP(value);
+            default -> throw new EmulatorException("Illegal index " + index + " for \"rp\" table!");
+        }
+    }
+
+    private int getRP(int index) {
+        return switch (index) {
+            case 0 -> getBC();
+            case 1 -> getDE();
+            case 2 -> getHL();
+            case 3 -> getSP();
+            default -> throw new EmulatorException("Illegal index " + index + " for \"rp\" table!");
+        };
+    }
+
+    private void setRP2(int index, int value) {
+        switch (index) {
+            case 0 -> setBC(value);
+            case 1 -> setDE(value);
+            case 2 -> setHL(value);
+            case 3 -> setAF(value);
+            default -> throw new EmulatorException("Illegal index " + index + " for \"rp2\" table!");
+        }
+    }
+
+    private int getRP2(int index) {
+        return switch (index) {
+            case 0 -> getBC();
+            case 1 -> getDE();
+            case 2 -> getHL();
+            case 3 -> getAF();
+            default -> throw new EmulatorException("Illegal index " + index + " for \"rp2\" table!");
+        };
+    }
+
+    private int inc(int operand) {
+        int result = operand + 1;
+        setFZ((result & 0xFF) == 0);
+        setFN(false);
+        setFH((operand & 0xF) + 1 > 0xF);
+        return result;
+    }
+
+    private int dec(int operand) {
+        int result = operand - 1;
+        setFZ((result & 0xFF) == 0);
+        setFN(true);
+        setFH((operand & 0xF) < 1);
+        return result;
+    }
+
+    // Both halves of ADD HL, rr at once
+    private void addHL(int right) {
+        int low = getL() + (right & 0xFF);
+        int carry = low > 0xFF ? 1 : 0;
+        int left = getH();
+        int rightHigh = (right & 0xFF00) >>> 8;
+        int result = left + rightHigh + carry;
+        setL(low);
+        setH(result);
+        setFN(false);
+        setFH((left & 0xF) + (rightHigh & 0xF) + carry > 0xF);
+        setFC(result > 0xFF);
+    }
+
+    private int add(int left, int right) {
+        int result = left + right;
+        setFZ((result & 0xFF) == 0);
+        setFN(false);
+        setFH((left & 0xF) + (right & 0xF) > 0xF);
+        setFC(result > 0xFF);
+        return result;
+    }
+
+    private int adc(int left, int right) {
+        int result = left + right + (getFC() ? 1 : 0);
+        setFZ((result & 0xFF) == 0);
+        setFN(false);
+        setFH((left & 0xF) + (right & 0xF) + (getFC() ? 1 : 0) > 0xF);
+        setFC(result > 0xFF);
+        return result;
+    }
+
+    private int sub(int left, int right) {
+        int result = left - right;
+        setFZ((result & 0xFF) == 0);
+        setFN(true);
+        setFH((left & 0xF) < (right & 0xF));
+        setFC(left < right);
+        return result;
     }
 
 
@@ -2047,6 +1762,17 @@ public class SM83<S extends SM83.SystemBus> implements Processor {
         return result;
     }
 
+    private int sra(int operand) {
+        boolean shiftedOut = (operand & 1) != 0;
+        boolean bit = (operand & 0x80) != 0;
+        int result = (bit ? 0x80 : 0x00) | (operand >>> 1);
+        setFZ((result & 0xFF) == 0);
+        setFN(false);
+        setFH(false);
+        setFC(shiftedOut);
+        return result;
+    }
+
     private int swap(int operand) {
         int lsb = operand & 0xF;
         int msb = (operand & 0xF0) >>> 4;
@@ -2094,6 +1820,179 @@ public class SM83<S extends SM83.SystemBus> implements Processor {
         return (opcode & 0b00001000) >>> 3;
     }
 
+    private static Instruction[] createInstructionTable() {
+        Instruction[] instructions = new Instruction[0x200];
+        for (int opcode = 0; opcode < 0x100; opcode++) {
+            instructions[opcode] = decode(opcode);
+            instructions[PREFIXED_INSTRUCTIONS_OFFSET | opcode] = decodePrefixed(opcode);
+        }
+        return instructions;
+    }
+
+    private static Instruction decode(int opcode) {
+        int x = getX(opcode);
+        int y = getY(opcode);
+        int z = getZ(opcode);
+        int p = getP(opcode);
+        int q = getQ(opcode);
+
+        return switch (x) {
+            case 0 -> switch (z) {
+                case 0 -> switch (y) {
+                    case 0 -> SM83::nop;
+                    case 1 -> SM83::ldNnSp;
+                    case 2 -> SM83::stop;
+                    case 3 -> SM83::jr;
+                    default -> cpu -> cpu.jrCc(y - 4);
+                };
+                case 1 -> q == 0 ? cpu -> cpu.ldRpNn(p) : cpu -> cpu.addHlRp(p);
+                case 2 -> switch (p) {
+                    case 0 -> q == 0 ? SM83::ldBcA : SM83::ldABc;
+                    case 1 -> q == 0 ? SM83::ldDeA : SM83::ldADe;
+                    case 2 -> q == 0 ? SM83::ldHliA : SM83::ldAHli;
+                    default -> q == 0 ? SM83::ldHldA : SM83::ldAHld;
+                };
+                case 3 -> q == 0 ? cpu -> cpu.incRp(p) : cpu -> cpu.decRp(p);
+                case 4 -> y == 6 ? SM83::incHL : cpu -> cpu.incR(y);
+                case 5 -> y == 6 ? SM83::decHL : cpu -> cpu.decR(y);
+                case 6 -> y == 6 ? SM83::ldHLN : cpu -> cpu.ldRN(y);
+                default -> switch (y) {
+                    case 0 -> SM83::rlca;
+                    case 1 -> SM83::rrca;
+                    case 2 -> SM83::rla;
+                    case 3 -> SM83::rra;
+                    case 4 -> SM83::daa;
+                    case 5 -> SM83::cpl;
+                    case 6 -> SM83::scf;
+                    default -> SM83::ccf;
+                };
+            };
+            case 1 -> {
+                if (z == 6 && y == 6) {
+                    yield SM83::halt;
+                } else if (z == 6) {
+                    yield cpu -> cpu.ldRHL(y);
+                } else if (y == 6) {
+                    yield cpu -> cpu.ldHLR(z);
+                } else {
+                    yield cpu -> cpu.ldRR(y, z);
+                }
+            }
+            case 2 -> {
+                AluOperation operation = getAluOperation(y);
+                yield z == 6 ? cpu -> cpu.aluHL(operation) : cpu -> cpu.aluR(operation, z);
+            }
+            default -> switch (z) {
+                case 0 -> switch (y) {
+                    case 0, 1, 2, 3 -> cpu -> cpu.retCc(y);
+                    case 4 -> SM83::ldhNA;
+                    case 5 -> SM83::addSpD;
+                    case 6 -> SM83::ldhAN;
+                    default -> SM83::ldHLSpD;
+                };
+                case 1 -> {
+                    if (q == 0) {
+                        yield cpu -> cpu.pop(p);
+                    }
+                    yield switch (p) {
+                        case 0 -> SM83::ret;
+                        case 1 -> SM83::reti;
+                        case 2 -> SM83::jpHL;
+                        default -> SM83::ldSpHL;
+                    };
+                }
+                case 2 -> switch (y) {
+                    case 0, 1, 2, 3 -> cpu -> cpu.jpCc(y);
+                    case 4 -> SM83::ldhCA;
+                    case 5 -> SM83::ldNnA;
+                    case 6 -> SM83::ldhAC;
+                    default -> SM83::ldANn;
+                };
+                case 3 -> switch (y) {
+                    case 0 -> SM83::jpNn;
+                    case 6 -> SM83::di;
+                    case 7 -> SM83::ei;
+                    default -> SM83::illegal;
+                };
+                case 4 -> y < 4 ? cpu -> cpu.callCc(y) : SM83::illegal;
+                case 5 -> {
+                    if (q == 0) {
+                        yield cpu -> cpu.push(p);
+                    }
+                    yield p == 0 ? SM83::callNn : SM83::illegal;
+                }
+                case 6 -> {
+                    AluOperation operation = getAluOperation(y);
+                    yield cpu -> cpu.aluN(operation);
+                }
+                default -> cpu -> cpu.rst(y * 8);
+            };
+        };
+    }
+
+    private static Instruction decodePrefixed(int opcode) {
+        int x = getX(opcode);
+        int y = getY(opcode);
+        int z = getZ(opcode);
+
+        return switch (x) {
+            case 0 -> {
+                RotateOperation operation = getRotateOperation(y);
+                yield z == 6 ? cpu -> cpu.rotHL(operation) : cpu -> cpu.rotR(operation, z);
+            }
+            case 1 -> z == 6 ? cpu -> cpu.bitHL(y) : cpu -> cpu.bitR(y, z);
+            case 2 -> z == 6 ? cpu -> cpu.resHL(y) : cpu -> cpu.resR(y, z);
+            default -> z == 6 ? cpu -> cpu.setBitHL(y) : cpu -> cpu.setBitR(y, z);
+        };
+    }
+
+    private static AluOperation getAluOperation(int y) {
+        return switch (y) {
+            case 0 -> (cpu, operand) -> cpu.setA(cpu.add(cpu.getA(), operand));
+            case 1 -> (cpu, operand) -> cpu.setA(cpu.adc(cpu.getA(), operand));
+            case 2 -> (cpu, operand) -> cpu.setA(cpu.sub(cpu.getA(), operand));
+            case 3 -> (cpu, operand) -> cpu.setA(cpu.sbc(cpu.getA(), operand));
+            case 4 -> (cpu, operand) -> cpu.setA(cpu.and(cpu.getA(), operand));
+            case 5 -> (cpu, operand) -> cpu.setA(cpu.xor(cpu.getA(), operand));
+            case 6 -> (cpu, operand) -> cpu.setA(cpu.or(cpu.getA(), operand));
+            default -> (cpu, operand) -> cpu.sub(cpu.getA(), operand); // CP
+        };
+    }
+
+    private static RotateOperation getRotateOperation(int y) {
+        return switch (y) {
+            case 0 -> SM83::rlc;
+            case 1 -> SM83::rrc;
+            case 2 -> SM83::rl;
+            case 3 -> SM83::rr;
+            case 4 -> SM83::sla;
+            case 5 -> SM83::sra;
+            case 6 -> SM83::swap;
+            default -> SM83::srl;
+        };
+    }
+
+    @FunctionalInterface
+    private interface Instruction {
+
+        void execute(SM83<?> cpu);
+
+    }
+
+    @FunctionalInterface
+    private interface AluOperation {
+
+        void execute(SM83<?> cpu, int operand);
+
+    }
+
+    @FunctionalInterface
+    private interface RotateOperation {
+
+        int execute(SM83<?> cpu, int operand);
+
+    }
+
     public interface SystemBus extends io.github.arkosammy12.jemu.core.common.SystemBus {
 
         int getIE();
@@ -2106,6 +2005,15 @@ public class SM83<S extends SM83.SystemBus> implements Processor {
 
         void onStopInstruction(boolean resetDiv);
 
+        // The ROM bank mapped at the given address, or -1 if code at the address must always be interpreted
+        default int getCodeBank(int address) {
+            return -1;
+        }
+
+        default int readCode(int address) {
+            return this.getBus().readByte(address);
+        }
+
     }
 
     public enum Mode {
@@ -0,0 +1,411 @@
+package io.github.arkosammy12.jemu.core.cpu;
+
+import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.Label;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.constant.ConstantDescs.*;
+
+// Compiles straight-line runs of SM83 instructions into hidden classes. Only instructions that never touch the bus
+// besides fetching their operands from ROM are compiled, so that peripherals can be caught up once a block finishes.
+final class SM83Recompiler {
+
+    private static final ClassDesc CD_SM83 = ClassDesc.of(SM83.class.getName());
+    private static final ClassDesc CD_BLOCK = ClassDesc.of(Block.class.getName());
+    private static final ClassDesc CD_COMPILED_BLOCK = ClassDesc.of(SM83.class.getPackageName(), "SM83CompiledBlock");
+
+    private static final MethodTypeDesc MTD_EXECUTE = MethodTypeDesc.of(CD_int, CD_SM83);
+    private static final MethodTypeDesc MTD_GET = MethodTypeDesc.of(CD_int);
+    private static final MethodTypeDesc MTD_SET = MethodTypeDesc.of(CD_void, CD_int);
+    private static final MethodTypeDesc MTD_FLAG = MethodTypeDesc.of(CD_boolean);
+    private static final MethodTypeDesc MTD_UNARY = MethodTypeDesc.of(CD_int, CD_int);
+    private static final MethodTypeDesc MTD_BINARY = MethodTypeDesc.of(CD_int, CD_int, CD_int);
+    private static final MethodTypeDesc MTD_BIT = MethodTypeDesc.of(CD_void, CD_int, CD_int);
+
+    private static final String[] R = {"B", "C", "D", "E", "H", "L", null, "A"};
+    private static final String[] RP = {"BC", "DE", "HL", "SP"};
+    private static final String[] ALU = {"add", "adc", "sub", "sbc", "and", "xor", "or", "sub"};
+    private static final String[] ROT = {"rlc", "rrc", "rl", "rr", "sla", "sra", "swap", "srl"};
+    private static final String[] ACCUMULATOR_OPS = {"rlca", "rrca", "rla", "rra", "daa", "cpl", "scf", "ccf"};
+
+    private static final int CP = 7;
+
+    private static final Block NO_BLOCK = _ -> 0;
+
+    private final SM83<?> cpu;
+    private final MethodHandles.Lookup lookup;
+    private final ClassFile classFile;
+
+    private final Int2ObjectOpenHashMap<Block> blocks = new Int2ObjectOpenHashMap<>();
+    private final Int2IntOpenHashMap hits = new Int2IntOpenHashMap();
+
+    SM83Recompiler(SM83<?> cpu, MethodHandles.Lookup lookup) {
+        this.cpu = cpu;
+        this.lookup = lookup;
+        this.classFile = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(ClassHierarchyResolver.ofClassLoading(lookup)));
+    }
+
+    int execute(int address) {
+        int bank = this.cpu.systemBus.getCodeBank(address);
+        if (bank < 0) {
+            return 0;
+        }
+        // Blocks are keyed by bank as well as address, so switching banks never requires invalidating them
+        int key = (bank << 16) | address;
+        Block block = this.blocks.get(key);
+        if (block == null) {
+            if (this.hits.addTo(key, 1) < this.cpu.getCompileThreshold()) {
+                return 0;
+            }
+            this.hits.remove(key);
+            block = this.compile(address, bank);
+            this.blocks.put(key, block);
+        }
+        return block.execute(this.cpu);
+    }
+
+    private Block compile(int startAddress, int bank) {
+        List<Instruction> instructions = new ArrayList<>();
+        int address = startAddress;
+        while (instructions.size() < this.cpu.getMaxCompiledBlockLength()) {
+            int opcode = this.readCode(address, startAddress, bank);
+            if (opcode < 0) {
+                break;
+            }
+            boolean prefixed = opcode == SM83.PREFIX;
+            int length;
+            if (prefixed) {
+                opcode = this.readCode(address + 1, startAddress, bank);
+                if (opcode < 0 || (opcode & 0b111) == 6) {
+                    break;
+                }
+                length = 2;
+            } else {
+                length = getCompiledLength(opcode);
+                if (length <= 0) {
+                    break;
+                }
+            }
+            int operand = 0;
+            boolean operandReadable = true;
+            for (int i = length - 1; i >= (prefixed ? 2 : 1); i--) {
+                int value = this.readCode(address + i, startAddress, bank);
+                if (value < 0) {
+                    operandReadable = false;
+                    break;
+                }
+                operand = (operand << 8) | value;
+            }
+            if (!operandReadable) {
+                break;
+            }
+            Instruction instruction = new Instruction(opcode, prefixed, operand, (address + length) & 0xFFFF);
+            instructions.add(instruction);
+            address += length;
+            if (instruction.endsBlock()) {
+                break;
+            }
+        }
+        if (instructions.isEmpty()) {
+            return NO_BLOCK;
+        }
+        byte[] bytes = this.classFile.build(CD_COMPILED_BLOCK, classBuilder -> classBuilder
+                .withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC)
+                .withSuperclass(CD_Object)
+                .withInterfaceSymbols(CD_BLOCK)
+                .withMethodBody(INIT_NAME, MTD_void, ClassFile.ACC_PUBLIC, codeBuilder -> codeBuilder
+                        .aload(0)
+                        .invokespecial(CD_Object, INIT_NAME, MTD_void)
+                        .return_())
+                .withMethodBody("execute", MTD_EXECUTE, ClassFile.ACC_PUBLIC, codeBuilder -> new Emitter(codeBuilder).emit(instructions)));
+        try {
+            MethodHandles.Lookup blockLookup = this.lookup.defineHiddenClass(bytes, true, MethodHandles.Lookup.ClassOption.NESTMATE);
+            return (Block) blockLookup.findConstructor(blockLookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new EmulatorException("Error compiling SM83 block at $%04X: ".formatted(startAddress), e);
+        }
+    }
+
+    private int readCode(int address, int startAddress, int bank) {
+        // Blocks never cross into a different memory region
+        if (((address ^ startAddress) & 0xC000) != 0 || address > 0xFFFF || this.cpu.systemBus.getCodeBank(address) != bank) {
+            return -1;
+        }
+        return this.cpu.systemBus.readCode(address);
+    }
+
+    // Returns the length of a compilable unprefixed instruction, or 0 if it must be interpreted
+    private static int getCompiledLength(int opcode) {
+        int x = (opcode & 0b11000000) >>> 6;
+        int y = (opcode & 0b00111000) >>> 3;
+        int z = opcode & 0b00000111;
+        int p = (opcode & 0b00110000) >>> 4;
+        int q = (opcode & 0b00001000) >>> 3;
+        return switch (x) {
+            case 0 -> switch (z) {
+                case 0 -> y == 0 ? 1 : y >= 3 ? 2 : 0; // NOP, JR d, JR cc, d
+                case 1 -> q == 0 ? 3 : 1; // LD rp[p], nn, ADD HL, rp[p]
+                case 3, 7 -> 1; // INC rp[p], DEC rp[p], RLCA, RRCA, RLA, RRA, DAA, CPL, SCF, CCF
+                case 4, 5 -> y != 6 ? 1 : 0; // INC r[y], DEC r[y]
+                case 6 -> y != 6 ? 2 : 0; // LD r[y], n
+                default -> 0;
+            };
+            case 1 -> y != 6 && z != 6 ? 1 : 0; // LD r[y], r[z]
+            case 2 -> z != 6 ? 1 : 0; // alu[y] r[z]
+            default -> switch (z) {
+                case 1 -> q == 1 && p >= 2 ? 1 : 0; // JP HL, LD SP, HL
+                case 2 -> y < 4 ? 3 : 0; // JP cc[y], nn
+                case 3 -> y == 0 ? 3 : 0; // JP nn
+                case 6 -> 2; // alu[y] n
+                default -> 0;
+            };
+        };
+    }
+
+    @FunctionalInterface
+    interface Block {
+
+        int execute(SM83<?> cpu);
+
+    }
+
+    private record Instruction(int opcode, boolean prefixed, int operand, int nextAddress) {
+
+        private boolean endsBlock() {
+            return !this.prefixed && (this.opcode == 0x18 || (this.opcode & 0b11100111) == 0b00100000 || this.opcode == 0xC3 || (this.opcode & 0b11100111) == 0b11000010 || this.opcode == 0xE9);
+        }
+
+    }
+
+    private static final class Emitter {
+
+        private final CodeBuilder codeBuilder;
+
+        private int mCycles;
+
+        // Compile-time tracking of the internal WZ register, which only gets written back once the block exits
+        private int wzHigh = -1;
+        private int wzLow = -1;
+
+        private Emitter(CodeBuilder codeBuilder) {
+            this.codeBuilder = codeBuilder;
+        }
+
+        private void emit(List<Instruction> instructions) {
+            for (Instruction instruction : instructions) {
+                if (instruction.prefixed()) {
+                    this.emitPrefixed(instruction);
+                } else if (instruction.endsBlock()) {
+                    this.emitBranch(instruction);
+                    return;
+                } else {
+                    this.emitInstruction(instruction);
+                }
+            }
+            this.emitExit(instructions.getLast().nextAddress(), this.mCycles, this.wzHigh, this.wzLow);
+        }
+
+        private void emitInstruction(Instruction instruction) {
+            int opcode = instruction.opcode();
+            int operand = instruction.operand();
+            int x = (opcode & 0b11000000) >>> 6;
+            int y = (opcode & 0b00111000) >>> 3;
+            int z = opcode & 0b00000111;
+            int p = (opcode & 0b00110000) >>> 4;
+            int q = (opcode & 0b00001000) >>> 3;
+            switch (x) {
+                case 0 -> {
+                    switch (z) {
+                        case 0 -> this.mCycles += 1; // NOP
+                        case 1 -> {
+                            if (q == 0) { // LD rp[p], nn
+                                this.cpu().loadConstant(operand).set(RP[p]);
+                                this.wzHigh = operand >>> 8;
+                                this.wzLow = operand & 0xFF;
+                                this.mCycles += 3;
+                            } else { // ADD HL, rp[p]
+                                this.cpu().cpu().get(RP[p]).codeBuilder.invokevirtual(CD_SM83, "addHL", MTD_SET);
+                                this.mCycles += 2;
+                            }
+                        }
+                        case 3 -> { // INC rp[p], DEC rp[p]
+                            this.cpu().cpu().get(RP[p]).loadConstant(1);
+                            if (q == 0) {
+                                this.codeBuilder.iadd();
+                            } else {
+                                this.codeBuilder.isub();
+                            }
+                            this.set(RP[p]);
+                            this.mCycles += 2;
+                        }
+                        case 4, 5 -> { // INC r[y], DEC r[y]
+                            this.cpu().cpu().cpu().get(R[y]).codeBuilder.invokevirtual(CD_SM83, z == 4 ? "inc" : "dec", MTD_UNARY);
+                            this.set(R[y]);
+                            this.mCycles += 1;
+                        }
+                        case 6 -> { // LD r[y], n
+                            this.cpu().loadConstant(operand).set(R[y]);
+                            this.wzLow = operand;
+                            this.mCycles += 2;
+                        }
+                        case 7 -> { // RLCA, RRCA, RLA, RRA, DAA, CPL, SCF, CCF
+                            this.cpu().codeBuilder.invokevirtual(CD_SM83, ACCUMULATOR_OPS[y], MTD_void);
+                            this.mCycles += 1;
+                        }
+                        default -> throw new EmulatorException("Opcode $%02X cannot be compiled!".formatted(opcode));
+                    }
+                }
+                case 1 -> { // LD r[y], r[z]
+                    this.cpu().cpu().get(R[z]).set(R[y]);
+                    this.mCycles += 1;
+                }
+                case 2 -> { // alu[y] r[z]
+                    this.alu(y);
+                    this.cpu().get(R[z]).codeBuilder.invokevirtual(CD_SM83, ALU[y], MTD_BINARY);
+                    this.storeAlu(y);
+                    this.mCycles += 1;
+                }
+                default -> {
+                    if (z == 6) { // alu[y] n
+                        this.alu(y);
+                        this.loadConstant(operand).codeBuilder.invokevirtual(CD_SM83, ALU[y], MTD_BINARY);
+                        this.storeAlu(y);
+                        this.wzLow = operand;
+                        this.mCycles += 2;
+                    } else { // LD SP, HL
+                        this.cpu().cpu().get("HL").set("SP");
+                        this.mCycles += 2;
+                    }
+                }
+            }
+        }
+
+        private void emitPrefixed(Instruction instruction) {
+            int opcode = instruction.opcode();
+            int x = (opcode & 0b11000000) >>> 6;
+            int y = (opcode & 0b00111000) >>> 3;
+            int z = opcode & 0b00000111;
+            switch (x) {
+                case 0 -> { // rot[y] r[z]
+                    this.cpu().cpu().cpu().get(R[z]).codeBuilder.invokevirtual(CD_SM83, ROT[y], MTD_UNARY);
+                    this.set(R[z]);
+                }
+                case 1 -> { // BIT y, r[z]
+                    this.cpu().loadConstant(y).cpu().get(R[z]).codeBuilder.invokevirtual(CD_SM83, "bit", MTD_BIT);
+                }
+                case 2 -> { // RES y, r[z]
+                    this.cpu().cpu().get(R[z]).loadConstant(~(1 << y) & 0xFF).codeBuilder.iand();
+                    this.set(R[z]);
+                }
+                default -> { // SET y, r[z]
+                    this.cpu().cpu().get(R[z]).loadConstant(1 << y).codeBuilder.ior();
+                    this.set(R[z]);
+                }
+            }
+            this.mCycles += 2;
+        }
+
+        private void emitBranch(Instruction instruction) {
+            int opcode = instruction.opcode();
+            int operand = instruction.operand();
+            int nextAddress = instruction.nextAddress();
+            int y = (opcode & 0b00111000) >>> 3;
+            switch (opcode) {
+                case 0x18 -> { // JR d
+                    int target = (nextAddress + (byte) operand) & 0xFFFF;
+                    this.emitExit(target, this.mCycles + 3, target >>> 8, target & 0xFF);
+                }
+                case 0xC3 -> this.emitExit(operand, this.mCycles + 4, operand >>> 8, operand & 0xFF); // JP nn
+                case 0xE9 -> { // JP HL
+                    this.cpu().cpu().get("HL").set("PC");
+                    this.emitWZ(this.wzHigh, this.wzLow);
+                    this.loadConstant(this.mCycles + 1).codeBuilder.ireturn();
+                }
+                default -> {
+                    boolean relative = (opcode & 0b11000000) == 0;
+                    int cc = relative ? y - 4 : y;
+                    Label notTaken = this.codeBuilder.newLabel();
+                    this.cpu().codeBuilder.invokevirtual(CD_SM83, cc < 2 ? "getFZ" : "getFC", MTD_FLAG);
+                    if ((cc & 1) == 0) {
+                        this.codeBuilder.ifne(notTaken);
+                    } else {
+                        this.codeBuilder.ifeq(notTaken);
+                    }
+                    if (relative) { // JR cc[y - 4], d
+                        int target = (nextAddress + (byte) operand) & 0xFFFF;
+                        this.emitExit(target, this.mCycles + 3, target >>> 8, target & 0xFF);
+                        this.codeBuilder.labelBinding(notTaken);
+                        this.emitExit(nextAddress, this.mCycles + 2, this.wzHigh, operand);
+                    } else { // JP cc[y], nn
+                        this.emitExit(operand, this.mCycles + 4, operand >>> 8, operand & 0xFF);
+                        this.codeBuilder.labelBinding(notTaken);
+                        this.emitExit(nextAddress, this.mCycles + 3, operand >>> 8, operand & 0xFF);
+                    }
+                }
+            }
+        }
+
+        private void emitExit(int pc, int mCycles, int wzHigh, int wzLow) {
+            this.cpu().loadConstant(pc).set("PC");
+            this.emitWZ(wzHigh, wzLow);
+            this.loadConstant(mCycles).codeBuilder.ireturn();
+        }
+
+        private void emitWZ(int wzHigh, int wzLow) {
+            if (wzHigh >= 0) {
+                this.cpu().loadConstant((wzHigh << 8) | wzLow).set("WZ");
+            } else if (wzLow >= 0) {
+                this.cpu().loadConstant(wzLow).set("Z");
+            }
+        }
+
+        // Pushes the receiver for storing the result, followed by the receiver and accumulator for the operation itself
+        private void alu(int y) {
+            if (y != CP) {
+                this.cpu();
+            }
+            this.cpu().cpu().get("A");
+        }
+
+        private void storeAlu(int y) {
+            if (y == CP) {
+                this.codeBuilder.pop();
+            } else {
+                this.set("A");
+            }
+        }
+
+        private Emitter cpu() {
+            this.codeBuilder.aload(1);
+            return this;
+        }
+
+        private Emitter get(String register) {
+            this.codeBuilder.invokevirtual(CD_SM83, "get" + register, MTD_GET);
+            return this;
+        }
+
+        private Emitter set(String register) {
+            this.codeBuilder.invokevirtual(CD_SM83, "set" + register, MTD_SET);
+            return this;
+        }
+
+        private Emitter loadConstant(int value) {
+            this.codeBuilder.loadConstant(value);
+            return this;
+        }
+
+    }
+
+}
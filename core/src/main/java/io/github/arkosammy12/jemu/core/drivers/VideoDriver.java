@@ -2,6 +2,7 @@ package io.github.arkosammy12.jemu.core.drivers;
 
 public interface VideoDriver {
 
-    void outputFrame(int[][] argb);
+    // Pixels are stored row by row, with the pixel at (x, y) found at argb[(y * stride) + x]
+    void outputFrame(int[] argb, int stride);
 
 }
@@ -2,15 +2,18 @@ package io.github.arkosammy12.jemu.core.gameboy;
 
 import io.github.arkosammy12.jemu.core.common.Bus;
 import io.github.arkosammy12.jemu.core.common.AudioGenerator;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.drivers.AudioDriver;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
-import org.jetbrains.annotations.NotNull;
+import io.github.arkosammy12.jemu.core.util.BlipBuffer;
 
 import java.util.Optional;
 
 import static io.github.arkosammy12.jemu.core.gameboy.DMGMMIOBus.*;
 
-public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> implements Bus {
+public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> implements Bus, Snapshottable {
 
     private static final int UNUSED_BITS_NR10 = 0b10000000;
     private static final int UNUSED_BITS_NRX1 = 0b00111111;
@@ -20,11 +23,34 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
     private static final int UNUSED_BITS_NR52 = 0b01110000;
 
     private static final float MAX_VOLUME = 15.0f;
-    private static final float SAMPLE_SCALE = 127.0f;
-
-    private final byte[] leftChannelSamples = new byte[GameBoyEmulator.T_CYCLES_PER_FRAME];
-    private final byte[] rightChannelSamples = new byte[GameBoyEmulator.T_CYCLES_PER_FRAME];
-    private int currentSampleIndex = 0;
+    private static final float SAMPLE_SCALE = Short.MAX_VALUE;
+    // Levels are channel amplitudes in half volume steps, times the master volume of their side, summed up. This is
+    // the level where the old mixer's output reached full scale
+    private static final float LEVEL_SCALE = MAX_VOLUME * 2 * 8 * 4;
+    // How much of its charge the high pass filter's capacitor keeps every T-cycle
+    private static final double CAPACITOR_CHARGE_FACTOR = 0.999958;
+
+    private static final int FRAME_SEQUENCER_TICK = -1;
+    private static final int LOG_CAPACITY = 256;
+
+    // Used until an audio driver asks for samples
+    private static final int DEFAULT_SAMPLE_RATE = 48000;
+    // Past this many T-cycles without a frame being read, nobody is listening and the samples are dropped
+    private static final int MAX_UNREAD_FRAME_CYCLES = GameBoyEmulator.T_CYCLES_PER_FRAME * 2;
+    private static final int BUFFERED_FRAMES = 5;
+    // Rate control moves the sample rate a fraction of a percent every frame, which only needs the buffers' rates
+    // updated. Their capacity and the high pass filter's charge are only worked out again past this much of a change
+    private static final double RECONFIGURE_RATE_DELTA = 0.01;
+
+    private final BlipBuffer leftBuffer;
+    private final BlipBuffer rightBuffer;
+    private int frameCycles;
+    private boolean anyDacEnabled;
+
+    private int sampleRate;
+    private int configuredSampleRate;
+    private double capacitorCharge;
+    private int[] frameSamples = new int[0];
 
     private int frameSequencerStep;
 
@@ -40,17 +66,81 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
     private double leftCapacitor = 0;
     private double rightCapacitor = 0;
 
+    // Register writes and frame sequencer ticks are logged along with the cycle they happened on, and are replayed
+    // in order whenever the channels are caught up
+    private final long[] logCycles = new long[LOG_CAPACITY];
+    private final int[] logAddresses = new int[LOG_CAPACITY];
+    private final int[] logValues = new int[LOG_CAPACITY];
+    private int logSize;
+
+    private long syncedCycle;
+
     public DMGAPU(E emulator) {
         super(emulator);
         this.channel3 = this.createChannel3();
+        this.leftBuffer = new BlipBuffer(this.getClockRate(), DEFAULT_SAMPLE_RATE, 0);
+        this.rightBuffer = new BlipBuffer(this.getClockRate(), DEFAULT_SAMPLE_RATE, 0);
+        this.setSampleRate(DEFAULT_SAMPLE_RATE);
     }
 
     protected DMGAPU<?>.Channel3 createChannel3() {
         return new Channel3();
     }
 
+    // Pending log entries are saved as they are, so saving doesn't catch the channels up
+    @Override
+    public void saveState(StateWriter writer) {
+        this.leftBuffer.saveState(writer);
+        this.rightBuffer.saveState(writer);
+        writer.writeInt(this.frameCycles);
+        writer.writeBoolean(this.anyDacEnabled);
+        writer.writeInt(this.frameSequencerStep);
+        writer.writeByte(this.nr50);
+        writer.writeByte(this.nr51);
+        writer.writeByte(this.nr52);
+        this.channel1.saveState(writer);
+        this.channel2.saveState(writer);
+        this.channel3.saveState(writer);
+        this.channel4.saveState(writer);
+        writer.writeDouble(this.leftCapacitor);
+        writer.writeDouble(this.rightCapacitor);
+        writer.writeInt(this.logSize);
+        for (int i = 0; i < this.logSize; i++) {
+            writer.writeLong(this.logCycles[i]);
+            writer.writeInt(this.logAddresses[i]);
+            writer.writeInt(this.logValues[i]);
+        }
+        writer.writeLong(this.syncedCycle);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.leftBuffer.loadState(reader);
+        this.rightBuffer.loadState(reader);
+        this.frameCycles = reader.readInt();
+        this.anyDacEnabled = reader.readBoolean();
+        this.frameSequencerStep = reader.readInt();
+        this.nr50 = reader.readByte();
+        this.nr51 = reader.readByte();
+        this.nr52 = reader.readByte();
+        this.channel1.loadState(reader);
+        this.channel2.loadState(reader);
+        this.channel3.loadState(reader);
+        this.channel4.loadState(reader);
+        this.leftCapacitor = reader.readDouble();
+        this.rightCapacitor = reader.readDouble();
+        this.logSize = reader.readInt();
+        for (int i = 0; i < this.logSize; i++) {
+            this.logCycles[i] = reader.readLong();
+            this.logAddresses[i] = reader.readInt();
+            this.logValues[i] = reader.readInt();
+        }
+        this.syncedCycle = reader.readLong();
+    }
+
     @Override
     public int readByte(int address) {
+        this.sync();
         if (address >= WAVERAM_START && address <= WAVERAM_END) {
             return this.channel3.readWaveRam(address);
         } else {
@@ -79,6 +169,17 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
 
     @Override
     public void writeByte(int address, int value) {
+        if (address == NR52_ADDR) {
+            // Powering the APU on resets the timer's view of the frame sequencer, so it has to happen right away
+            this.sync();
+            this.applyWrite(address, value);
+            this.updateOutputs();
+        } else {
+            this.log(address, value);
+        }
+    }
+
+    private void applyWrite(int address, int value) {
         if (address >= WAVERAM_START && address <= WAVERAM_END) {
             this.channel3.writeWaveRam(address, value);
         } else if (this.getMasterAudioEnable() || address == NR52_ADDR || address == NR11_ADDR || address == NR21_ADDR || address == NR31_ADDR || address == NR41_ADDR) {
@@ -164,121 +265,147 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
     }
 
     @Override
-    public AudioGenerator.@NotNull SampleSize getBytesPerSample() {
-        return SampleSize.BYTES_1;
-    }
-
-    @Override
-    public Optional<byte[]> getSampleFrame() {
+    public int getSampleFrame(short[] out) {
         Optional<? extends AudioDriver> optionalAudioDriver = this.emulator.getHost().getAudioDriver();
         if (optionalAudioDriver.isEmpty()) {
-            return Optional.empty();
+            return 0;
         }
 
         AudioDriver audioDriver = optionalAudioDriver.get();
         int samplesPerFrame = audioDriver.getSamplesPerFrame();
-
-        byte[] out = new byte[samplesPerFrame * 2];
-        double step = (double) GameBoyEmulator.T_CYCLES_PER_FRAME / samplesPerFrame;
-        double pos = 0.0;
+        this.sync();
+        this.endFrame();
+        // Everything up to here was mixed at the old rate, so a new one only starts with the next frame
+        if (audioDriver.getSampleRate() != this.sampleRate) {
+            this.setSampleRate(audioDriver.getSampleRate());
+        }
+        if (this.frameSamples.length < samplesPerFrame * 2) {
+            this.frameSamples = new int[samplesPerFrame * 2];
+        }
+        int[] samples = this.frameSamples;
+        int sampleCount = this.leftBuffer.readSamples(samples, 0, samplesPerFrame, 2);
+        this.rightBuffer.readSamples(samples, 1, samplesPerFrame, 2);
+        // A frame that came up short repeats its last sample, and one that ran long only keeps a frame's worth around
+        for (int i = Math.max(sampleCount, 1) * 2; i < samplesPerFrame * 2; i++) {
+            samples[i] = samples[i - 2];
+        }
+        this.leftBuffer.skipSamples(this.leftBuffer.getSamplesAvailable() - samplesPerFrame);
+        this.rightBuffer.skipSamples(this.rightBuffer.getSamplesAvailable() - samplesPerFrame);
 
         for (int i = 0; i < samplesPerFrame; i++) {
-            int index = Math.toIntExact(Math.round(pos));
-            int nextIndex = Math.min(index + 1, GameBoyEmulator.T_CYCLES_PER_FRAME - 1);
+            out[i * 2] = toSample(this.highPassFilterLeft(samples[i * 2] / LEVEL_SCALE));
+            out[(i * 2) + 1] = toSample(this.highPassFilterRight(samples[(i * 2) + 1] / LEVEL_SCALE));
+        }
+        return samplesPerFrame;
+    }
 
-            out[i * 2] = this.leftChannelSamples[nextIndex];
-            out[(i * 2) + 1] = this.rightChannelSamples[nextIndex];
+    // Frames are paced to the host's frame rate, so that is the rate their cycles come out at
+    private double getClockRate() {
+        return (double) GameBoyEmulator.T_CYCLES_PER_FRAME * this.emulator.getFramerate();
+    }
 
-            pos += step;
+    private void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.leftBuffer.setRates(this.getClockRate(), sampleRate);
+        this.rightBuffer.setRates(this.getClockRate(), sampleRate);
+        if (Math.abs(sampleRate - this.configuredSampleRate) > this.configuredSampleRate * RECONFIGURE_RATE_DELTA) {
+            this.configureSampleRate(sampleRate);
         }
-        this.currentSampleIndex = 0;
-        return Optional.of(out);
+    }
+
+    private void configureSampleRate(int sampleRate) {
+        this.configuredSampleRate = sampleRate;
+        int capacity = BUFFERED_FRAMES * (int) Math.ceil((double) sampleRate / this.emulator.getFramerate());
+        this.leftBuffer.setCapacity(capacity);
+        this.rightBuffer.setCapacity(capacity);
+        this.capacitorCharge = Math.pow(CAPACITOR_CHARGE_FACTOR, this.getClockRate() / sampleRate);
+    }
+
+    private void endFrame() {
+        this.leftBuffer.endFrame(this.frameCycles);
+        this.rightBuffer.endFrame(this.frameCycles);
+        this.frameCycles = 0;
     }
 
     public void cycle(boolean tickFrameSequencer) {
         if (tickFrameSequencer) {
-            this.tickFrameSequencer();
-        }
-        for (int i = 0; i < 4; i++) {
-            int ch1 = 0;
-            int ch2 = 0;
-            int ch3 = 0;
-            int ch4 = 0;
-            if (this.getMasterAudioEnable()) {
-                ch1 = this.channel1.tick();
-                ch2 = this.channel2.tick();
-                ch3 = this.channel3.tick();
-                ch4 = this.channel4.tick();
-            }
-            this.mixChannels(ch1, ch2, ch3, ch4);
+            this.log(FRAME_SEQUENCER_TICK, 0);
         }
     }
 
-    private void mixChannels(float ch1, float ch2, float ch3, float ch4) {
-
-        ch1 = (float) ((ch1 - (this.channel1.envelopeCurrentVolume / 2.0)) / MAX_VOLUME);
-        ch2 = (float) ((ch2 - (this.channel2.envelopeCurrentVolume / 2.0)) / MAX_VOLUME);
-
-        ch3 /= MAX_VOLUME;
-        ch4 = (float) ((ch4 - (this.channel4.envelopeCurrentVolume / 2.0)) / MAX_VOLUME);
-
-        double left = 0;
-        double right = 0;
+    public void sync() {
+        this.sync(this.emulator.getScheduler().getCycle());
+    }
 
-        if (this.channel1.getLeft()) {
-            left += ch1;
-        }
-        if (this.channel2.getLeft()) {
-            left += ch2;
-        }
-        if (this.channel3.getLeft()) {
-            left += ch3;
-        }
-        if (this.channel4.getLeft()) {
-            left += ch4;
+    // Replays the logged events and synthesizes every cycle before the given one
+    public void sync(long cycle) {
+        for (int i = 0; i < this.logSize; i++) {
+            this.synthesize(this.logCycles[i]);
+            int address = this.logAddresses[i];
+            if (address == FRAME_SEQUENCER_TICK) {
+                this.tickFrameSequencer();
+            } else {
+                this.applyWrite(address, this.logValues[i]);
+            }
+            this.updateOutputs();
         }
+        this.logSize = 0;
+        this.synthesize(cycle);
+    }
 
-        if (this.channel1.getRight()) {
-            right += ch1;
+    private void log(int address, int value) {
+        if (this.logSize >= LOG_CAPACITY) {
+            this.sync();
         }
-        if (this.channel2.getRight()) {
-            right += ch2;
+        this.logCycles[this.logSize] = this.emulator.getScheduler().getCycle();
+        this.logAddresses[this.logSize] = address;
+        this.logValues[this.logSize] = value;
+        this.logSize++;
+    }
+
+    // Between events, the channels only change their output when their period timers reload, so each one runs
+    // straight to its next reload instead of ticking every T-cycle
+    private void synthesize(long cycle) {
+        if (cycle <= this.syncedCycle) {
+            return;
         }
-        if (this.channel3.getRight()) {
-            right += ch3;
+        if (this.frameCycles >= MAX_UNREAD_FRAME_CYCLES) {
+            this.endFrame();
+            this.leftBuffer.skipSamples(this.leftBuffer.getSamplesAvailable());
+            this.rightBuffer.skipSamples(this.rightBuffer.getSamplesAvailable());
         }
-        if (this.channel4.getRight()) {
-            right += ch4;
+        int cycles = (int) (cycle - this.syncedCycle) * 4;
+        if (this.getMasterAudioEnable()) {
+            this.channel1.run(this.frameCycles, cycles);
+            this.channel2.run(this.frameCycles, cycles);
+            this.channel3.run(this.frameCycles, cycles);
+            this.channel4.run(this.frameCycles, cycles);
         }
+        this.frameCycles += cycles;
+        this.syncedCycle = cycle;
+    }
 
-        left *= (float) -1 * (this.getLeftVolume() + 1) / 8.0f;
-        right *= (float) -1 * (this.getRightVolume() + 1) / 8.0f;
-
-        left /= 4.0f;
-        right /= 4.0f;
-
-        boolean dacEnable = this.channel1.getDacEnable() || this.channel2.getDacEnable() || this.channel3.getDacEnable() || this.channel4.getDacEnable();
+    private void updateOutputs() {
+        this.anyDacEnabled = this.channel1.getDacEnable() || this.channel2.getDacEnable() || this.channel3.getDacEnable() || this.channel4.getDacEnable();
+        this.channel1.updateOutput(this.frameCycles);
+        this.channel2.updateOutput(this.frameCycles);
+        this.channel3.updateOutput(this.frameCycles);
+        this.channel4.updateOutput(this.frameCycles);
+    }
 
-        this.leftChannelSamples[this.currentSampleIndex] = (byte) (this.highPassFilterLeft(left, dacEnable) * SAMPLE_SCALE);
-        this.rightChannelSamples[this.currentSampleIndex] = (byte) (this.highPassFilterRight(right, dacEnable) * SAMPLE_SCALE);
-        this.currentSampleIndex = (this.currentSampleIndex + 1) % GameBoyEmulator.T_CYCLES_PER_FRAME;
+    private static short toSample(double level) {
+        return (short) Math.clamp((long) (level * SAMPLE_SCALE), Short.MIN_VALUE, Short.MAX_VALUE);
     }
 
-    private double highPassFilterLeft(double in, boolean dacEnable) {
-        double out = 0;
-        if (dacEnable) {
-            out = in - this.leftCapacitor;
-            this.leftCapacitor = in - out * 0.999958;
-        }
+    private double highPassFilterLeft(double in) {
+        double out = in - this.leftCapacitor;
+        this.leftCapacitor = in - out * this.capacitorCharge;
         return out;
     }
 
-    private double highPassFilterRight(double in, boolean dacEnable) {
-        double out = 0;
-        if (dacEnable) {
-            out = in - this.rightCapacitor;
-            this.rightCapacitor = in - out * 0.999958;
-        }
+    private double highPassFilterRight(double in) {
+        double out = in - this.rightCapacitor;
+        this.rightCapacitor = in - out * this.capacitorCharge;
         return out;
     }
 
@@ -326,7 +453,7 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
         return this.nr50 & 0b111;
     }
 
-    protected abstract class AudioChannel {
+    protected abstract class AudioChannel implements Snapshottable {
 
         public int nrx1;
         public int nrx2;
@@ -335,6 +462,32 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
 
         public int lengthTimer;
 
+        // The levels this channel last added to each side's buffer
+        private int leftLevel;
+        private int rightLevel;
+
+        @Override
+        public void saveState(StateWriter writer) {
+            writer.writeByte(this.nrx1);
+            writer.writeByte(this.nrx2);
+            writer.writeByte(this.nrx3);
+            writer.writeByte(this.nrx4);
+            writer.writeInt(this.lengthTimer);
+            writer.writeInt(this.leftLevel);
+            writer.writeInt(this.rightLevel);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            this.nrx1 = reader.readByte();
+            this.nrx2 = reader.readByte();
+            this.nrx3 = reader.readByte();
+            this.nrx4 = reader.readByte();
+            this.lengthTimer = reader.readInt();
+            this.leftLevel = reader.readInt();
+            this.rightLevel = reader.readInt();
+        }
+
         abstract protected void setEnabled(boolean enable);
 
         abstract protected boolean getEnabled();
@@ -402,7 +555,28 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
             return 64;
         }
 
-        abstract protected int tick();
+        // Advances the channel by the given amount of T-cycles, starting at the given T-cycle of the frame
+        abstract protected void run(int time, int cycles);
+
+        // The value the channel's DAC is fed with
+        abstract protected int getOutput();
+
+        // The output relative to the middle of the DAC's range, in half volume steps
+        abstract protected int getAmplitude();
+
+        protected final void updateOutput(int time) {
+            int amplitude = anyDacEnabled ? this.getAmplitude() : 0;
+            int leftLevel = this.getLeft() ? amplitude * -(getLeftVolume() + 1) : 0;
+            int rightLevel = this.getRight() ? amplitude * -(getRightVolume() + 1) : 0;
+            if (leftLevel != this.leftLevel) {
+                leftBuffer.addDelta(time, leftLevel - this.leftLevel);
+                this.leftLevel = leftLevel;
+            }
+            if (rightLevel != this.rightLevel) {
+                rightBuffer.addDelta(time, rightLevel - this.rightLevel);
+                this.rightLevel = rightLevel;
+            }
+        }
 
         protected void trigger() {
             if (this.getDacEnable()) {
@@ -448,6 +622,26 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
         int envelopeCurrentVolume;
         private boolean envelopeUpdating;
 
+        @Override
+        public void saveState(StateWriter writer) {
+            super.saveState(writer);
+            writer.writeInt(this.waveDutyIndex);
+            writer.writeInt(this.wavePeriodTimer);
+            writer.writeInt(this.envelopePeriodTimer);
+            writer.writeInt(this.envelopeCurrentVolume);
+            writer.writeBoolean(this.envelopeUpdating);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            super.loadState(reader);
+            this.waveDutyIndex = reader.readInt();
+            this.wavePeriodTimer = reader.readInt();
+            this.envelopePeriodTimer = reader.readInt();
+            this.envelopeCurrentVolume = reader.readInt();
+            this.envelopeUpdating = reader.readBoolean();
+        }
+
         @Override
         protected void setEnabled(boolean enable) {
             if (enable) {
@@ -531,7 +725,24 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
         }
 
         @Override
-        protected int tick() {
+        protected void run(int time, int cycles) {
+            if (!this.getEnabled()) {
+                return;
+            }
+            // The timer reloads on the tick that takes it to 0, or on the next one if it already is
+            while (Math.max(this.wavePeriodTimer, 1) <= cycles) {
+                int ticks = Math.max(this.wavePeriodTimer, 1);
+                time += ticks;
+                cycles -= ticks;
+                this.wavePeriodTimer = (2048 - this.getPeriodFull()) * 4;
+                this.waveDutyIndex = (this.waveDutyIndex + 1) % 8;
+                this.updateOutput(time - 1);
+            }
+            this.wavePeriodTimer -= cycles;
+        }
+
+        @Override
+        protected int getOutput() {
             if (!this.getEnabled()) {
                 if (this.getDacEnable()) {
                     return 0xF;
@@ -539,11 +750,6 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
                     return 0;
                 }
             }
-            this.wavePeriodTimer--;
-            if (this.wavePeriodTimer <= 0) {
-                this.wavePeriodTimer = (2048 - this.getPeriodFull()) * 4;
-                this.waveDutyIndex = (this.waveDutyIndex + 1) % 8;
-            }
             if (this.getPeriodFull() > 2046) {
                 return 0;
             }
@@ -551,6 +757,11 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
             return amplitude * this.envelopeCurrentVolume;
         }
 
+        @Override
+        protected int getAmplitude() {
+            return (getMasterAudioEnable() ? this.getOutput() * 2 : 0) - this.envelopeCurrentVolume;
+        }
+
         @Override
         protected void trigger() {
             super.trigger();
@@ -599,6 +810,26 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
         private int sweepTimer;
         private boolean sweepNegateUsedSinceTrigger;
 
+        @Override
+        public void saveState(StateWriter writer) {
+            super.saveState(writer);
+            writer.writeByte(this.nr10);
+            writer.writeBoolean(this.sweepEnable);
+            writer.writeInt(this.sweepShadow);
+            writer.writeInt(this.sweepTimer);
+            writer.writeBoolean(this.sweepNegateUsedSinceTrigger);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            super.loadState(reader);
+            this.nr10 = reader.readByte();
+            this.sweepEnable = reader.readBoolean();
+            this.sweepShadow = reader.readInt();
+            this.sweepTimer = reader.readInt();
+            this.sweepNegateUsedSinceTrigger = reader.readBoolean();
+        }
+
         @Override
         protected void setEnabled(boolean enable) {
             if (enable) {
@@ -725,6 +956,32 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
         protected boolean fetchedFirstByte;
         protected boolean firstFetchConsumed;
 
+        @Override
+        public void saveState(StateWriter writer) {
+            super.saveState(writer);
+            writer.writeInts(this.waveRam);
+            writer.writeByte(this.nr30);
+            writer.writeInt(this.waveSampleBuffer);
+            writer.writeInt(this.waveRamIndex);
+            writer.writeInt(this.wavePeriodTimer);
+            writer.writeInt(this.currentOutputLevel);
+            writer.writeBoolean(this.fetchedFirstByte);
+            writer.writeBoolean(this.firstFetchConsumed);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            super.loadState(reader);
+            reader.readInts(this.waveRam);
+            this.nr30 = reader.readByte();
+            this.waveSampleBuffer = reader.readInt();
+            this.waveRamIndex = reader.readInt();
+            this.wavePeriodTimer = reader.readInt();
+            this.currentOutputLevel = reader.readInt();
+            this.fetchedFirstByte = reader.readBoolean();
+            this.firstFetchConsumed = reader.readBoolean();
+        }
+
         @Override
         protected void setEnabled(boolean enable) {
             if (enable) {
@@ -814,37 +1071,40 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
         }
 
         @Override
-        protected int tick() {
+        protected void run(int time, int cycles) {
             if (!this.getEnabled()) {
-                int amplitude;
-                if (this.waveRamIndex % 2 == 0) {
-                    amplitude = (this.waveSampleBuffer >>> 4) & 0xF;
-                } else {
-                    amplitude = this.waveSampleBuffer & 0xF;
-                }
-
-                return amplitude >>> this.getShiftAmount();
+                return;
             }
-
-            this.wavePeriodTimer--;
-            if (this.wavePeriodTimer <= 0) {
+            while (Math.max(this.wavePeriodTimer, 1) <= cycles) {
+                int ticks = Math.max(this.wavePeriodTimer, 1);
+                time += ticks;
+                cycles -= ticks;
                 this.wavePeriodTimer = (2048 - this.getPeriodFull()) * 2;
                 this.waveRamIndex = (this.waveRamIndex + 1) % 32;
                 this.waveSampleBuffer = this.waveRam[this.waveRamIndex / 2];
                 this.currentOutputLevel = this.getOutputLevel();
                 this.fetchedFirstByte = true;
+                this.updateOutput(time - 1);
             }
+            this.wavePeriodTimer -= cycles;
+        }
 
+        @Override
+        protected int getOutput() {
             int amplitude;
             if (this.waveRamIndex % 2 == 0) {
                 amplitude = (this.waveSampleBuffer >>> 4) & 0xF;
             } else {
                 amplitude = this.waveSampleBuffer & 0xF;
             }
-
             return amplitude >>> this.getShiftAmount();
         }
 
+        @Override
+        protected int getAmplitude() {
+            return getMasterAudioEnable() ? this.getOutput() * 2 : 0;
+        }
+
         protected int getShiftAmount() {
             return switch (this.currentOutputLevel) {
                 case 0 -> 4;
@@ -890,6 +1150,26 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
         private int wavePeriodTimer;
         private int lfsr;
 
+        @Override
+        public void saveState(StateWriter writer) {
+            super.saveState(writer);
+            writer.writeInt(this.envelopePeriodTimer);
+            writer.writeInt(this.envelopeCurrentVolume);
+            writer.writeBoolean(this.envelopeUpdating);
+            writer.writeInt(this.wavePeriodTimer);
+            writer.writeInt(this.lfsr);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            super.loadState(reader);
+            this.envelopePeriodTimer = reader.readInt();
+            this.envelopeCurrentVolume = reader.readInt();
+            this.envelopeUpdating = reader.readBoolean();
+            this.wavePeriodTimer = reader.readInt();
+            this.lfsr = reader.readInt();
+        }
+
         @Override
         protected void setEnabled(boolean enable) {
             if (enable) {
@@ -974,17 +1254,14 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
         }
 
         @Override
-        protected int tick() {
+        protected void run(int time, int cycles) {
             if (!this.getEnabled()) {
-                if (this.getDacEnable()) {
-                    return 0xF;
-                } else {
-                    return 0;
-                }
+                return;
             }
-
-            this.wavePeriodTimer--;
-            if (this.wavePeriodTimer <= 0) {
+            while (Math.max(this.wavePeriodTimer, 1) <= cycles) {
+                int ticks = Math.max(this.wavePeriodTimer, 1);
+                time += ticks;
+                cycles -= ticks;
                 this.wavePeriodTimer = (this.getClockDivider() > 0 ? (this.getClockDivider() << 4) : 8) << this.getClockShift();
                 int xorResult = (this.lfsr & 0b01) ^ ((this.lfsr & 0b10) >>> 1);
                 this.lfsr = ((this.lfsr >>> 1) | (xorResult << 14)) & 0x7FFF;
@@ -992,11 +1269,29 @@ public class DMGAPU<E extends GameBoyEmulator> extends AudioGenerator<E> impleme
                     this.lfsr = (this.lfsr & (~(1 << 6))) & 0x7FFF;
                     this.lfsr = (this.lfsr | (xorResult << 6)) & 0x7FFF;
                 }
+                this.updateOutput(time - 1);
+            }
+            this.wavePeriodTimer -= cycles;
+        }
+
+        @Override
+        protected int getOutput() {
+            if (!this.getEnabled()) {
+                if (this.getDacEnable()) {
+                    return 0xF;
+                } else {
+                    return 0;
+                }
             }
             int amplitude = ~this.lfsr & 0x01;
             return amplitude * this.envelopeCurrentVolume;
         }
 
+        @Override
+        protected int getAmplitude() {
+            return (getMasterAudioEnable() ? this.getOutput() * 2 : 0) - this.envelopeCurrentVolume;
+        }
+
         @Override
         protected void trigger() {
             super.trigger();
@@ -2,11 +2,17 @@ package io.github.arkosammy12.jemu.core.gameboy;
 
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.Scheduler;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+import org.jetbrains.annotations.Nullable;
 
 import static io.github.arkosammy12.jemu.core.gameboy.DMGMMIOBus.BANK_ADDR;
 import static io.github.arkosammy12.jemu.core.gameboy.DMGMMIOBus.DMA_ADDR;
 
-public class DMGBus<E extends GameBoyEmulator> implements Bus {
+public class DMGBus<E extends GameBoyEmulator> implements Bus, Snapshottable {
 
     // Bootix boot-rom for the DMG. Courtesy of Ashiepaws https://github.com/Ashiepaws/Bootix
     protected static final int[] BOOTIX = {
@@ -69,9 +75,15 @@ public class DMGBus<E extends GameBoyEmulator> implements Bus {
 
     public static final int IE_REGISTER = 0xFFFF;
 
+    private static final int PAGE_SIZE = 0x100;
+    private static final MemoryRegion[] UNMAPPED_PAGES = new MemoryRegion[0x100];
+    private static final MemoryRegion BOOTIX_REGION = MemoryRegion.copyOf(BOOTIX);
+
     protected final E emulator;
 
-    protected final int[][] workRam;
+    protected final MemoryRegion[] workRam;
+
+    private final Scheduler.Event oamDmaEvent;
 
     private int oamDmaControl;
     private int oamTransferDelay;
@@ -80,21 +92,141 @@ public class DMGBus<E extends GameBoyEmulator> implements Bus {
 
     protected boolean enableBootRom = true;
 
+    // Memory that the CPU can access directly, with one entry per 256 byte page. Pages without a backing array go
+    // through the full address decoding
+    private final MemoryRegion[] readPages = new MemoryRegion[0x100];
+    private final int[] readPageOffsets = new int[0x100];
+    private final MemoryRegion[] writePages = new MemoryRegion[0x100];
+    private final int[] writePageOffsets = new int[0x100];
+
+    // While an OAM DMA transfer holds the bus every access has to check for conflicts, so no page is mapped
+    private MemoryRegion[] activeReadPages = this.readPages;
+    private MemoryRegion[] activeWritePages = this.writePages;
+
     public DMGBus(E emulator) {
         this.emulator = emulator;
         this.workRam = this.createWorkRam();
+        this.oamDmaEvent = emulator.getScheduler().register(this::onOamDmaEvent);
     }
 
-    protected int[][] createWorkRam() {
-        return new int[1][0x2000];
+    protected MemoryRegion[] createWorkRam() {
+        return new MemoryRegion[]{MemoryRegion.allocate(0x2000)};
     }
 
     public boolean isBootRomEnabled() {
         return this.enableBootRom;
     }
 
+    public boolean isOamDmaActive() {
+        return this.oamTransferInProgress || this.oamTransferDelay > 0;
+    }
+
+    // The page table isn't saved. The emulator maps memory again once every component has been loaded
+    @Override
+    public void saveState(StateWriter writer) {
+        for (MemoryRegion bank : this.workRam) {
+            writer.writeRegion(bank);
+        }
+        writer.writeByte(this.oamDmaControl);
+        writer.writeInt(this.oamTransferDelay);
+        writer.writeBoolean(this.oamTransferInProgress);
+        writer.writeInt(this.oamTransferredBytes);
+        writer.writeBoolean(this.enableBootRom);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        for (MemoryRegion bank : this.workRam) {
+            reader.readRegion(bank);
+        }
+        this.oamDmaControl = reader.readByte();
+        this.oamTransferDelay = reader.readInt();
+        this.setOamTransferInProgress(reader.readBoolean());
+        this.oamTransferredBytes = reader.readInt();
+        this.enableBootRom = reader.readBoolean();
+    }
+
+    // Rebuilds the page table from the current cartridge banks, boot ROM and work RAM banks
+    public void mapMemory() {
+        this.mapCartridge();
+        this.mapWorkRam();
+    }
+
+    protected void mapCartridge() {
+        this.mapCartridgeRegion(ROM0_START, ROM0_END);
+        this.mapCartridgeRegion(ROMX_START, ROMX_END);
+        this.mapCartridgeRegion(SRAM_START, SRAM_END);
+        if (this.enableBootRom) {
+            this.mapBootRom();
+        }
+    }
+
+    protected void mapBootRom() {
+        this.mapReadPages(0x0000, 0x00FF, BOOTIX_REGION, 0);
+    }
+
+    protected void mapWorkRam() {
+        this.mapPages(WRAM0_START, WRAMX_END, this.workRam[0], 0);
+        this.mapPages(ECHO_START, ECHO_END, this.workRam[0], 0);
+    }
+
+    private void mapCartridgeRegion(int startAddress, int endAddress) {
+        GameBoyCartridge cartridge = this.emulator.getCartridge();
+        boolean released = startAddress == SRAM_START && cartridge.isSaveDataReleased();
+        MemoryRegion readMemory = released ? null : cartridge.getReadMemory(startAddress);
+        MemoryRegion writeMemory = released ? null : cartridge.getWriteMemory(startAddress);
+        // Writes to mapped RAM skip the cartridge, so it has to assume the RAM changes from the moment it is mapped
+        if (startAddress == SRAM_START && writeMemory != null && this.writePages[SRAM_START >>> 8] != writeMemory) {
+            cartridge.markSaveDataDirty();
+        }
+        this.mapReadPages(startAddress, endAddress, readMemory, readMemory == null ? 0 : startAddress & (readMemory.length() - 1));
+        this.mapWritePages(startAddress, endAddress, writeMemory, writeMemory == null ? 0 : startAddress & (writeMemory.length() - 1));
+    }
+
+    protected final void mapPages(int startAddress, int endAddress, @Nullable MemoryRegion memory, int offset) {
+        this.mapReadPages(startAddress, endAddress, memory, offset);
+        this.mapWritePages(startAddress, endAddress, memory, offset);
+    }
+
+    // Pages past the end of the given memory are left unmapped
+    protected final void mapReadPages(int startAddress, int endAddress, @Nullable MemoryRegion memory, int offset) {
+        for (int address = startAddress; address <= endAddress; address += PAGE_SIZE) {
+            int pageOffset = offset + address - startAddress;
+            this.readPages[address >>> 8] = memory != null && pageOffset < memory.length() ? memory : null;
+            this.readPageOffsets[address >>> 8] = pageOffset;
+        }
+    }
+
+    protected final void mapWritePages(int startAddress, int endAddress, @Nullable MemoryRegion memory, int offset) {
+        for (int address = startAddress; address <= endAddress; address += PAGE_SIZE) {
+            int pageOffset = offset + address - startAddress;
+            this.writePages[address >>> 8] = memory != null && pageOffset < memory.length() ? memory : null;
+            this.writePageOffsets[address >>> 8] = pageOffset;
+        }
+    }
+
     @Override
     public int readByte(int address) {
+        int page = address >>> 8;
+        MemoryRegion memory = this.activeReadPages[page];
+        if (memory != null) {
+            return memory.readByte(this.readPageOffsets[page] + (address & 0xFF));
+        }
+        return this.readByteUnmapped(address);
+    }
+
+    @Override
+    public void writeByte(int address, int value) {
+        int page = address >>> 8;
+        MemoryRegion memory = this.activeWritePages[page];
+        if (memory != null) {
+            memory.writeByte(this.writePageOffsets[page] + (address & 0xFF), value);
+        } else {
+            this.writeByteUnmapped(address, value);
+        }
+    }
+
+    protected int readByteUnmapped(int address) {
         if (this.isOamBusConflict(address)) {
             // TODO: Perhaps this value is only returned when reading from OAM. Otherwise return the current value being read by OAM. Check numism test ROM for info.
             return 0xFF;
@@ -109,11 +241,11 @@ public class DMGBus<E extends GameBoyEmulator> implements Bus {
         } else if (address >= SRAM_START && address <= SRAM_END) {
             return this.emulator.getCartridge().readByte(address);
         } else if (address >= WRAM0_START && address <= WRAM0_END) {
-            return this.workRam[0][address - WRAM0_START];
+            return this.workRam[0].readByte(address - WRAM0_START);
         } else if (address >= WRAMX_START && address <= WRAMX_END) {
-            return this.workRam[0][address - WRAM0_START];
+            return this.workRam[0].readByte(address - WRAM0_START);
         } else if (address >= ECHO_START && address <= ECHO_END) {
-            return this.workRam[0][address & 0x1FFF];
+            return this.workRam[0].readByte(address & 0x1FFF);
         } else if (address >= OAM_START && address <= OAM_END) {
             return this.emulator.getVideoGenerator().readByte(address);
         } else if (address >= UNUSED_START && address <= UNUSED_END) {
@@ -133,25 +265,26 @@ public class DMGBus<E extends GameBoyEmulator> implements Bus {
         }
     }
 
-    @Override
-    public void writeByte(int address, int value) {
+    protected void writeByteUnmapped(int address, int value) {
         if (this.oamTransferInProgress && address < 0xFF00) {
             return;
         }
         if (address >= ROM0_START && address <= ROM0_END) {
             this.emulator.getCartridge().writeByte(address, value);
+            this.mapCartridge();
         } else if (address >= ROMX_START && address <= ROMX_END) {
             this.emulator.getCartridge().writeByte(address, value);
+            this.mapCartridge();
         } else if (address >= VRAM_START && address <= VRAM_END) {
             this.emulator.getVideoGenerator().writeByte(address, value);
         } else if (address >= SRAM_START && address <= SRAM_END) {
             this.emulator.getCartridge().writeByte(address, value);
         } else if (address >= WRAM0_START && address <= WRAM0_END) {
-            this.workRam[0][address - WRAM0_START] = value;
+            this.workRam[0].writeByte(address - WRAM0_START, value);
         } else if (address >= WRAMX_START && address <= WRAMX_END) {
-            this.workRam[0][address - WRAM0_START] = value;
+            this.workRam[0].writeByte(address - WRAM0_START, value);
         } else if (address >= ECHO_START && address <= ECHO_END) {
-            this.workRam[0][address & 0x1FFF] = value;
+            this.workRam[0].writeByte(address & 0x1FFF, value);
         } else if (address >= OAM_START && address <= OAM_END) {
             this.emulator.getVideoGenerator().writeByte(address, value);
         } else if (address >= UNUSED_START && address <= UNUSED_END) {
@@ -161,8 +294,12 @@ public class DMGBus<E extends GameBoyEmulator> implements Bus {
                 case DMA_ADDR -> {
                     this.oamDmaControl = value & 0xFF;
                     this.oamTransferDelay = 2;
+                    this.emulator.getScheduler().schedule(this.oamDmaEvent, this.emulator.getScheduler().getCycle());
+                }
+                case BANK_ADDR -> {
+                    this.enableBootRom = false;
+                    this.mapCartridge();
                 }
-                case BANK_ADDR -> this.enableBootRom = false;
                 default -> this.emulator.getMMIOBus().writeByte(address, value);
             }
         } else if (address >= HRAM_START && address <= HRAM_END) {
@@ -174,26 +311,43 @@ public class DMGBus<E extends GameBoyEmulator> implements Bus {
         }
     }
 
-    public void cycleOamDMA() {
+    private void onOamDmaEvent() {
+        // The PPU has already run for this M-cycle by the time DMA transfers happen
+        this.emulator.getVideoGenerator().sync(this.emulator.getScheduler().getCycle() + 1);
+        for (int i = 0; i < this.emulator.getCpuCyclesPerTick(); i++) {
+            this.cycleOamDMA();
+        }
+        if (this.isOamDmaActive()) {
+            this.emulator.getScheduler().schedule(this.oamDmaEvent, this.emulator.getScheduler().getCycle() + 1);
+        }
+    }
+
+    private void cycleOamDMA() {
         if (this.oamTransferInProgress) {
             int sourceAddress = (this.oamDmaControl << 8) | (this.oamTransferredBytes);
             int oamByte = this.readByteDma(sourceAddress);
             this.emulator.getVideoGenerator().writeOamDma(0xFE00 | this.oamTransferredBytes, oamByte);
             this.oamTransferredBytes++;
             if (this.oamTransferredBytes > 0x9F) {
-                this.oamTransferInProgress = false;
+                this.setOamTransferInProgress(false);
             }
         }
         if (this.oamTransferDelay > 0) {
             this.oamTransferDelay--;
             if (this.oamTransferDelay <= 0) {
-                this.oamTransferInProgress = true;
+                this.setOamTransferInProgress(true);
                 this.oamTransferredBytes = 0;
             }
         }
 
     }
 
+    private void setOamTransferInProgress(boolean oamTransferInProgress) {
+        this.oamTransferInProgress = oamTransferInProgress;
+        this.activeReadPages = oamTransferInProgress ? UNMAPPED_PAGES : this.readPages;
+        this.activeWritePages = oamTransferInProgress ? UNMAPPED_PAGES : this.writePages;
+    }
+
     protected int readByteDma(int address) {
         if (this.enableBootRom && address >= 0x0000 && address <= 0x00FF) {
             return BOOTIX[address];
@@ -206,13 +360,13 @@ public class DMGBus<E extends GameBoyEmulator> implements Bus {
         } else if (address >= SRAM_START && address <= SRAM_END) {
             return this.emulator.getCartridge().readByte(address);
         } else if (address >= WRAM0_START && address <= WRAM0_END) {
-            return this.workRam[0][address - WRAM0_START];
+            return this.workRam[0].readByte(address - WRAM0_START);
         } else if (address >= WRAMX_START && address <= WRAMX_END) {
-            return this.workRam[0][address - WRAM0_START];
+            return this.workRam[0].readByte(address - WRAM0_START);
         } else if (address >= ECHO_START && address <= ECHO_END) {
-            return this.workRam[0][address & 0x1FFF];
+            return this.workRam[0].readByte(address & 0x1FFF);
         } else if (address >= 0xFE00 && address <= 0xFFFF) {
-            return this.workRam[0][address & 0x1FFF];
+            return this.workRam[0].readByte(address & 0x1FFF);
         } else {
             throw new EmulatorException("Invalid GameBoy memory address %04X!".formatted(address));
         }
@@ -1,8 +1,11 @@
 package io.github.arkosammy12.jemu.core.gameboy;
 
 import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 
-public class DMGMMIOBus<E extends GameBoyEmulator> implements Bus {
+public class DMGMMIOBus<E extends GameBoyEmulator> implements Bus, Snapshottable {
 
     public static final int JOYP_ADDR = 0xFF00;
 
@@ -71,6 +74,18 @@ public class DMGMMIOBus<E extends GameBoyEmulator> implements Bus {
         this.emulator = emulator;
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeByte(this.interruptFlag);
+        writer.writeByte(this.interruptEnable);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.interruptFlag = reader.readByte();
+        this.interruptEnable = reader.readByte();
+    }
+
     public int getIE() {
         return this.interruptEnable;
     }
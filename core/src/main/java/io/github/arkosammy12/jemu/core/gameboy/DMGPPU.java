@@ -1,22 +1,25 @@
 package io.github.arkosammy12.jemu.core.gameboy;
 
 import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
 import io.github.arkosammy12.jemu.core.common.VideoGenerator;
 import io.github.arkosammy12.jemu.core.common.Processor;
+import io.github.arkosammy12.jemu.core.common.Scheduler;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.cpu.SM83;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
-import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
 import org.tinylog.Logger;
 
 import java.util.Arrays;
-import java.util.LinkedList;
 
 import static io.github.arkosammy12.jemu.core.gameboy.DMGBus.*;
 import static io.github.arkosammy12.jemu.core.gameboy.DMGMMIOBus.*;
 
-public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> implements Bus {
+public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> implements Bus, Snapshottable {
 
-    private static final int WIDTH = 160;
+    protected static final int WIDTH = 160;
     private static final int HEIGHT = 144;
 
     private static final int CYCLES_PER_SCANLINE = 456;
@@ -29,7 +32,9 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
             0xFF0F380F
     };
 
-    protected final int[] vRam = new int[0x2000];
+    private static final Mode[] MODES = Mode.values();
+
+    protected final MemoryRegion vRam = MemoryRegion.allocate(0x2000);
     private final int[] oam = new int[0x00A0]; // TODO: OAM BUG (ONLY FOR DMG) GODDAMMIT!
 
     private int lcdControl;
@@ -45,7 +50,7 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
     private int windowX;
 
     // TODO: Implement the PPU behavior when the CPU is in STOP mode for the DMG and CGB
-    protected final int[][] lcd;
+    protected final int[] lcd;
 
     protected Mode currentMode = Mode.MODE_0_HBLANK;
     private int scanlineCycle;
@@ -66,10 +71,18 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
     private boolean windowYCondition;
     private boolean windowXCondition;
 
-    protected final Integer[] spriteBuffer = new Integer[10];
+    // The first scheduler cycle whose dots have not been run yet
+    private long syncedCycle;
+    // The earliest scheduler cycle during which the PPU may request an interrupt
+    private long interruptCycle;
+
+    protected final int[] spriteBuffer = new int[10];
+    private int spriteBufferCount;
+    // One bit per sprite buffer entry whose pixels have already been pushed into the sprite FIFO
+    protected int fetchedSprites;
     private int scannedEntries = 0;
 
-    protected final IntArrayFIFOQueue backgroundFifo = new IntArrayFIFOQueue(8);
+    protected final PixelFifo backgroundFifo = new PixelFifo();
     protected int bgFifoStep = 0;
     protected boolean bgFifoFirstFetch = true;
     protected int bgFifoFetcherX;
@@ -78,7 +91,8 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
     protected int bgFifoTileDataLow;
     protected int bgFifoTileDataHigh;
 
-    protected final LinkedList<Integer> spriteFifo = new LinkedList<>();
+    // Always holds 8 entries, with transparent ones where no sprite has a pixel
+    protected final PixelFifo spriteFifo = new PixelFifo();
     protected int spriteFifoCurrentEntryIndex;
     protected int spriteFifoStep = 0;
     protected int spriteFifoCurrentTileNumber;
@@ -86,15 +100,22 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
     protected int spriteFifoTileDataLow;
     protected int spriteFifoTileDataHigh;
 
+    // Lines whose Mode 3 starts from a clean FIFO state are drawn all at once, and their dots only count down to the end
+    // of Mode 3 afterward. A write that could change what the rest of the line looks like replays the FIFO up to the
+    // current dot, and the line carries on from there one dot at a time
+    private final int[] scanlineBuffer = new int[WIDTH];
+    private final int[] scanlineSpriteFifo = new int[PixelFifo.CAPACITY];
+    private boolean scanlineRendered;
+    private int scanlineRenderedDots;
+    private int scanlineDrawingDots;
+    private boolean scanlineWindowRendered;
+
     public DMGPPU(E emulator) {
         super(emulator);
-        this.lcd = new int[this.getImageWidth()][this.getImageHeight()];
-        for (int[] ints : this.lcd) {
-            Arrays.fill(ints, this.getLcdOffColor());
-        }
-        Arrays.fill(this.spriteBuffer, null);
-        for (int i = 0; i < 8; i++) {
-            this.spriteFifo.offer(null);
+        this.lcd = new int[this.getImageWidth() * this.getImageHeight()];
+        Arrays.fill(this.lcd, this.getLcdOffColor());
+        for (int i = 0; i < PixelFifo.CAPACITY; i++) {
+            this.spriteFifo.enqueue(0);
         }
     }
 
@@ -112,8 +133,126 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
         return 0xFF9BBC0F;
     }
 
+    // The LCD is saved along with everything else, so a loaded state shows the same picture it was saved with
+    @Override
+    public void saveState(StateWriter writer) {
+        this.cancelScanlineRendering();
+        writer.writeRegion(this.vRam);
+        writer.writeInts(this.oam);
+        writer.writeByte(this.lcdControl);
+        writer.writeByte(this.ppuStatus);
+        writer.writeByte(this.scrollY);
+        writer.writeByte(this.scrollX);
+        writer.writeByte(this.lcdY);
+        writer.writeByte(this.lcdYCompare);
+        writer.writeByte(this.backgroundPalette);
+        writer.writeByte(this.objectPalette0);
+        writer.writeByte(this.objectPalette1);
+        writer.writeByte(this.windowY);
+        writer.writeByte(this.windowX);
+        writer.writeInts(this.lcd);
+
+        writer.writeByte(this.currentMode.ordinal());
+        writer.writeInt(this.scanlineCycle);
+        writer.writeInt(this.dotCycleIndex);
+        writer.writeInt(this.scanlineNumber);
+        writer.writeInt(this.statModeForInterrupt);
+        writer.writeBoolean(this.enablePixelWrites);
+        writer.writeInt(this.enablePixelWritesDelay);
+        writer.writeBoolean(this.oldStatInterruptLine);
+        writer.writeBoolean(this.windowPixelRendered);
+        writer.writeInt(this.pixelX);
+        writer.writeInt(this.discardedPixels);
+        writer.writeInt(this.windowLine);
+        writer.writeBoolean(this.windowYCondition);
+        writer.writeBoolean(this.windowXCondition);
+        writer.writeLong(this.syncedCycle);
+        writer.writeLong(this.interruptCycle);
+
+        writer.writeInts(this.spriteBuffer);
+        writer.writeInt(this.spriteBufferCount);
+        writer.writeInt(this.fetchedSprites);
+        writer.writeInt(this.scannedEntries);
+
+        this.backgroundFifo.saveState(writer);
+        writer.writeInt(this.bgFifoStep);
+        writer.writeBoolean(this.bgFifoFirstFetch);
+        writer.writeInt(this.bgFifoFetcherX);
+        writer.writeInt(this.bgFifoCurrentTileNumber);
+        writer.writeInt(this.bgFifoTileDataEffectiveAddress);
+        writer.writeInt(this.bgFifoTileDataLow);
+        writer.writeInt(this.bgFifoTileDataHigh);
+
+        this.spriteFifo.saveState(writer);
+        writer.writeInt(this.spriteFifoCurrentEntryIndex);
+        writer.writeInt(this.spriteFifoStep);
+        writer.writeInt(this.spriteFifoCurrentTileNumber);
+        writer.writeInt(this.spriteFifoTileDataEffectiveAddress);
+        writer.writeInt(this.spriteFifoTileDataLow);
+        writer.writeInt(this.spriteFifoTileDataHigh);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        reader.readRegion(this.vRam);
+        reader.readInts(this.oam);
+        this.lcdControl = reader.readByte();
+        this.ppuStatus = reader.readByte();
+        this.scrollY = reader.readByte();
+        this.scrollX = reader.readByte();
+        this.lcdY = reader.readByte();
+        this.lcdYCompare = reader.readByte();
+        this.backgroundPalette = reader.readByte();
+        this.objectPalette0 = reader.readByte();
+        this.objectPalette1 = reader.readByte();
+        this.windowY = reader.readByte();
+        this.windowX = reader.readByte();
+        reader.readInts(this.lcd);
+
+        this.currentMode = MODES[reader.readByte()];
+        this.scanlineCycle = reader.readInt();
+        this.dotCycleIndex = reader.readInt();
+        this.scanlineNumber = reader.readInt();
+        this.statModeForInterrupt = reader.readInt();
+        this.enablePixelWrites = reader.readBoolean();
+        this.enablePixelWritesDelay = reader.readInt();
+        this.oldStatInterruptLine = reader.readBoolean();
+        this.windowPixelRendered = reader.readBoolean();
+        this.pixelX = reader.readInt();
+        this.discardedPixels = reader.readInt();
+        this.windowLine = reader.readInt();
+        this.windowYCondition = reader.readBoolean();
+        this.windowXCondition = reader.readBoolean();
+        this.syncedCycle = reader.readLong();
+        this.interruptCycle = reader.readLong();
+
+        reader.readInts(this.spriteBuffer);
+        this.spriteBufferCount = reader.readInt();
+        this.fetchedSprites = reader.readInt();
+        this.scannedEntries = reader.readInt();
+
+        this.backgroundFifo.loadState(reader);
+        this.bgFifoStep = reader.readInt();
+        this.bgFifoFirstFetch = reader.readBoolean();
+        this.bgFifoFetcherX = reader.readInt();
+        this.bgFifoCurrentTileNumber = reader.readInt();
+        this.bgFifoTileDataEffectiveAddress = reader.readInt();
+        this.bgFifoTileDataLow = reader.readInt();
+        this.bgFifoTileDataHigh = reader.readInt();
+
+        this.spriteFifo.loadState(reader);
+        this.spriteFifoCurrentEntryIndex = reader.readInt();
+        this.spriteFifoStep = reader.readInt();
+        this.spriteFifoCurrentTileNumber = reader.readInt();
+        this.spriteFifoTileDataEffectiveAddress = reader.readInt();
+        this.spriteFifoTileDataLow = reader.readInt();
+        this.spriteFifoTileDataHigh = reader.readInt();
+        this.scanlineRendered = false;
+    }
+
     @Override
     public int readByte(int address) {
+        this.sync();
         if (address >= OAM_START && address <= OAM_END) {
             int ppuMode = this.getPpuMode();
             if (Mode.MODE_0_HBLANK.matchesValue(ppuMode) || Mode.MODE_1_VBLANK.matchesValue(ppuMode) || !this.getLcdPpuEnable()) {
@@ -124,7 +263,7 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
 
         } else if (address >= VRAM_START && address <= VRAM_END) {
             if (!Mode.MODE_3_DRAWING.matchesValue(this.getPpuMode()) || !this.getLcdPpuEnable()) {
-                return this.vRam[address - VRAM_START];
+                return this.vRam.readByte(address - VRAM_START);
             } else {
                 return 0xFF;
             }
@@ -148,6 +287,7 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
 
     @Override
     public void writeByte(int address, int value) {
+        this.sync();
         if (address >= OAM_START && address <= OAM_END) {
             int ppuMode = this.getPpuMode();
             if (Mode.MODE_0_HBLANK.matchesValue(ppuMode) || Mode.MODE_1_VBLANK.matchesValue(ppuMode) || !this.getLcdPpuEnable()) {
@@ -155,9 +295,13 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
             }
         } else if (address >= VRAM_START && address <= VRAM_END) {
             if (!Mode.MODE_3_DRAWING.matchesValue(this.getPpuMode()) || !this.getLcdPpuEnable()) {
-                this.vRam[address - VRAM_START] = value & 0xFF;
+                this.cancelScanlineRendering();
+                this.vRam.writeByte(address - VRAM_START, value);
             }
         } else {
+            switch (address) {
+                case LCDC_ADDR, SCY_ADDR, SCX_ADDR, BGP_ADDR, OBP0_ADDR, OBP1_ADDR, WY_ADDR, WX_ADDR -> this.cancelScanlineRendering();
+            }
             switch (address) {
                 case LCDC_ADDR -> {
                     boolean oldLcdEnable = this.getLcdPpuEnable();
@@ -189,6 +333,8 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
                 case WX_ADDR -> this.windowX = value & 0xFF;
                 default -> throw new EmulatorException("Invalid address $%04X for GameBoy PPU!".formatted(address));
             }
+            // A register write can raise the STAT interrupt line on the very next dot
+            this.interruptCycle = this.syncedCycle;
         }
     }
 
@@ -200,17 +346,94 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
     private void onLcdOff() {
         this.enablePixelWrites = false;
         this.enablePixelWritesDelay = -1;
-        for (int[] ints : this.lcd) {
-            Arrays.fill(ints, this.getLcdOffColor());
-        }
-        this.emulator.getHost().getVideoDriver().ifPresent(driver -> driver.outputFrame(this.lcd));
+        Arrays.fill(this.lcd, this.getLcdOffColor());
+        this.emulator.getHost().getVideoDriver().ifPresent(driver -> driver.outputFrame(this.lcd, WIDTH));
     }
 
+    // Called once per M-cycle. The PPU only runs here when it may request an interrupt during the current M-cycle,
+    // and otherwise catches up in one go when it is accessed
     public void cycle() {
-        this.cycleDot();
-        this.cycleDot();
-        this.cycleDot();
-        this.cycleDot();
+        long cycle = this.emulator.getScheduler().getCycle();
+        if (cycle >= this.interruptCycle) {
+            this.sync(cycle + 1);
+        }
+    }
+
+    // Catches up to the start of the current M-cycle, which is where CPU accesses happen
+    public void sync() {
+        this.sync(this.emulator.getScheduler().getCycle());
+    }
+
+    // Runs the dots of every M-cycle before the given scheduler cycle
+    public void sync(long cycle) {
+        if (cycle <= this.syncedCycle) {
+            return;
+        }
+        if (this.getLcdPpuEnable()) {
+            for (long dots = (cycle - this.syncedCycle) * 4; dots > 0; dots--) {
+                // Once a drawn line has set its STAT mode, nothing else happens until its last dot of Mode 3
+                if (this.scanlineRendered && this.currentMode == Mode.MODE_3_DRAWING && this.dotCycleIndex == 4) {
+                    int skippedDots = (int) Math.min(dots - 1, this.scanlineDrawingDots - this.scanlineRenderedDots - 1);
+                    if (skippedDots > 0) {
+                        this.scanlineCycle += skippedDots;
+                        this.scanlineRenderedDots += skippedDots;
+                        dots -= skippedDots;
+                    }
+                }
+                this.cycleDot();
+            }
+        }
+        this.syncedCycle = cycle;
+        this.updateInterruptCycle();
+    }
+
+    // Computes a lower bound for the next M-cycle in which a VBlank or STAT interrupt may be requested, assuming that
+    // no registers are written in the meantime
+    private void updateInterruptCycle() {
+        if (!this.getLcdPpuEnable()) {
+            this.interruptCycle = Scheduler.IDLE;
+            return;
+        }
+        int dots = this.getDotsUntilVBlank();
+        if ((this.ppuStatus & 0b01111000) != 0) {
+            dots = Math.min(dots, this.getDotsUntilStatChange());
+        }
+        this.interruptCycle = this.syncedCycle + dots / 4;
+    }
+
+    private int getDotsUntilVBlank() {
+        int lines;
+        if (this.scanlineNumber < 144 || (this.scanlineNumber == 144 && this.scanlineCycle <= 3)) {
+            lines = 144 - this.scanlineNumber;
+        } else {
+            lines = SCANLINES_PER_FRAME - this.scanlineNumber + 144;
+        }
+        return lines * CYCLES_PER_SCANLINE + 3 - this.scanlineCycle;
+    }
+
+    private int getDotsUntilStatChange() {
+        // Mode 2, LY=LYC and the line 153 LY reset all happen within the first dots of a scanline
+        if (this.scanlineCycle < 4) {
+            return 0;
+        }
+        int dots = CYCLES_PER_SCANLINE - this.scanlineCycle + 2;
+        if (this.getMode0InterruptSelect()) {
+            // At most one pixel is pushed per dot, so HBlank can't start before the remaining pixels are drawn
+            int minimumDrawingDots = this.scanlineRendered ? this.scanlineDrawingDots - this.scanlineRenderedDots + 3 : Math.max(0, 168 - this.pixelX) + 3;
+            switch (this.currentMode) {
+                case MODE_2_OAM_SCAN -> dots = Math.min(dots, 80 - this.scanlineCycle + minimumDrawingDots);
+                case MODE_3_DRAWING -> dots = Math.min(dots, minimumDrawingDots);
+                case MODE_0_HBLANK -> {
+                    if (this.dotCycleIndex <= 3) {
+                        dots = Math.min(dots, 3 - this.dotCycleIndex);
+                    } else if (this.scanlineCycle < 80) {
+                        dots = Math.min(dots, 80 - this.scanlineCycle + minimumDrawingDots);
+                    }
+                }
+                case MODE_1_VBLANK -> {}
+            }
+        }
+        return dots;
     }
 
     private void cycleDot() {
@@ -317,7 +540,8 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
                         }
                     }
 
-                    this.emulator.getHost().getVideoDriver().ifPresent(driver -> driver.outputFrame(this.lcd));
+                    this.emulator.getHost().getVideoDriver().ifPresent(driver -> driver.outputFrame(this.lcd, WIDTH));
+                    this.emulator.getCartridge().onVBlank();
                 } else if (this.scanlineNumber == 153) {
                     this.lcdY = 0;
                     this.clearLyEqualsLycFlag();
@@ -374,11 +598,12 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
         this.bgFifoTileDataLow = 0;
         this.bgFifoTileDataHigh = 0;
 
-        Arrays.fill(this.spriteBuffer, null);
+        this.spriteBufferCount = 0;
+        this.fetchedSprites = 0;
 
         this.spriteFifo.clear();
-        for (int i = 0; i < 8; i++) {
-            this.spriteFifo.add(null);
+        for (int i = 0; i < PixelFifo.CAPACITY; i++) {
+            this.spriteFifo.enqueue(0);
         }
 
         this.spriteFifoStep = 0;
@@ -425,13 +650,8 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
         int spriteX = this.getOamByte(0xFE00 + (this.scannedEntries * 4) + 1);
         int tileIndex = this.getOamByte(0xFE00 + (this.scannedEntries * 4) + 2);
         int spriteAttributes = this.getOamByte(0xFE00 + (this.scannedEntries * 4) + 3);
-        for (int i = 0; i < 10; i++) {
-            if (this.spriteBuffer[i] == null) {
-                if ((this.scanlineNumber + 16 >= spriteY) && (this.scanlineNumber + 16 < spriteY + (this.getObjectSize() ? 16 : 8))) {
-                    this.spriteBuffer[i] = createSpriteBufferEntry(spriteY, spriteX, tileIndex, spriteAttributes);
-                }
-                break;
-            }
+        if (this.spriteBufferCount < this.spriteBuffer.length && (this.scanlineNumber + 16 >= spriteY) && (this.scanlineNumber + 16 < spriteY + (this.getObjectSize() ? 16 : 8))) {
+            this.spriteBuffer[this.spriteBufferCount++] = createSpriteBufferEntry(spriteY, spriteX, tileIndex, spriteAttributes);
         }
         this.scannedEntries++;
     }
@@ -439,27 +659,279 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
     private void onDrawing() {
         switch (this.dotCycleIndex) {
             case 0 -> {
-                this.tickDraw();
+                this.renderScanline();
+                this.drawDot();
                 this.dotCycleIndex = 1;
             }
             case 1 -> {
-                this.tickDraw();
+                this.drawDot();
                 this.dotCycleIndex = 2;
             }
             case 2 -> {
-                this.tickDraw();
+                this.drawDot();
                 this.dotCycleIndex = 3;
             }
             case 3 -> {
                 this.setPpuMode(Mode.MODE_3_DRAWING.getValue());
                 this.setStatModeForInterrupt(Mode.MODE_3_DRAWING.getValue());
-                this.tickDraw();
+                this.drawDot();
                 this.dotCycleIndex = 4;
             }
             case 4 -> {
-                this.tickDraw();
+                this.drawDot();
+            }
+        }
+    }
+
+    private void drawDot() {
+        if (!this.scanlineRendered) {
+            this.tickDraw();
+            return;
+        }
+        this.scanlineRenderedDots++;
+        if (this.scanlineRenderedDots >= this.scanlineDrawingDots) {
+            this.scanlineRendered = false;
+            if (this.enablePixelWrites) {
+                System.arraycopy(this.scanlineBuffer, 0, this.lcd, this.scanlineNumber * WIDTH, WIDTH);
+            }
+            if (this.scanlineWindowRendered) {
+                this.windowPixelRendered = true;
+            }
+            this.pixelX = 168;
+        }
+    }
+
+    // Called before writes that may change how the current line is drawn
+    protected final void cancelScanlineRendering() {
+        if (!this.scanlineRendered) {
+            return;
+        }
+        this.scanlineRendered = false;
+        for (int i = 0; i < this.scanlineRenderedDots; i++) {
+            this.tickDraw();
+        }
+    }
+
+    private boolean isDrawingStateReset() {
+        if (this.pixelX != 0 || this.discardedPixels != 0 || this.windowXCondition || !this.backgroundFifo.isEmpty() || this.bgFifoStep != 0 || !this.bgFifoFirstFetch || this.bgFifoFetcherX != 0) {
+            return false;
+        }
+        if (this.spriteFifoStep != 0 || this.spriteFifoCurrentEntryIndex >= 0 || this.fetchedSprites != 0 || this.spriteFifo.size() != PixelFifo.CAPACITY) {
+            return false;
+        }
+        for (int i = 0; i < PixelFifo.CAPACITY; i++) {
+            if (this.spriteFifo.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Runs the same fetcher and pixel shifter steps as tickDraw, on local state and without going through the FIFOs.
+    // The background FIFO only ever holds the pixels of a single fetch, so it's tracked as that fetch and a count
+    @SuppressWarnings("DuplicatedCode")
+    private void renderScanline() {
+        if (!this.isDrawingStateReset()) {
+            return;
+        }
+        int[] spriteFifo = this.scanlineSpriteFifo;
+        Arrays.fill(spriteFifo, 0);
+        int spriteFifoHead = 0;
+        boolean spriteFetchesEnabled = this.isFetchingSprites(0);
+        int spriteCount = this.spriteBufferCount;
+        int fetchedSprites = 0;
+        int spriteStep = 0;
+        int spriteEntryIndex = -1;
+
+        int bgDiscardTarget = this.scrollX % 8;
+        boolean windowEnable = this.getWindowEnable();
+        boolean windowXCondition = false;
+        boolean windowRendered = false;
+        int pixelX = 0;
+        int discardedPixels = 0;
+        int bgStep = 0;
+        boolean bgFirstFetch = true;
+        int bgFetcherX = 0;
+        boolean fetchWindow = false;
+        int fetchPixelX = 0;
+        int fetchFetcherX = 0;
+        int bgTile = 0;
+        int bgTileIndex = 0;
+        int bgPixelCount = 0;
+
+        int dots = 0;
+        do {
+            if (++dots > CYCLES_PER_SCANLINE - 80) {
+                return;
+            }
+            boolean originalWindowCondition = windowXCondition && this.windowYCondition;
+            if (pixelX == this.windowX + 1 && windowEnable) {
+                windowXCondition = true;
+            }
+            boolean renderingWindow = windowXCondition && this.windowYCondition;
+            if (!originalWindowCondition && renderingWindow) {
+                bgStep = 0;
+                bgFetcherX = 0;
+                windowRendered = true;
+                bgPixelCount = 0;
+            }
+
+            int currentSpriteEntryIndex = -1;
+            if (spriteFetchesEnabled) {
+                for (int i = 0; i < spriteCount; i++) {
+                    if ((fetchedSprites & (1 << i)) == 0 && getSpriteXFromSpriteEntry(this.spriteBuffer[i]) == pixelX) {
+                        currentSpriteEntryIndex = i;
+                        break;
+                    }
+                }
+            }
+            boolean fetchingSprite = currentSpriteEntryIndex >= 0;
+
+            if (!fetchingSprite && bgPixelCount > 0) {
+                int bgPixel = this.getScanlineBackgroundPixel(bgTile, bgTileIndex);
+                bgTileIndex++;
+                bgPixelCount--;
+                int objPixel = spriteFifo[spriteFifoHead];
+                spriteFifo[spriteFifoHead] = 0;
+                spriteFifoHead = (spriteFifoHead + 1) & (PixelFifo.CAPACITY - 1);
+                // Discarded pixels are always at the very left, where no sprite can have pixels yet
+                if (!renderingWindow && discardedPixels < bgDiscardTarget) {
+                    discardedPixels++;
+                } else {
+                    if (pixelX >= 8) {
+                        this.scanlineBuffer[pixelX - 8] = this.getScanlinePixelColor(bgPixel, objPixel);
+                    }
+                    pixelX++;
+                }
+            }
+
+            if (!fetchingSprite || bgPixelCount <= 0 || bgStep <= 4) {
+                switch (bgStep) {
+                    case 1 -> {
+                        fetchWindow = renderingWindow;
+                        fetchPixelX = pixelX;
+                        fetchFetcherX = bgFetcherX;
+                        bgStep = 2;
+                    }
+                    case 3 -> {
+                        if (bgFirstFetch) {
+                            bgFirstFetch = false;
+                            bgTile = 0;
+                            bgTileIndex = 0;
+                            bgPixelCount = 8;
+                            bgStep = 0;
+                        } else {
+                            bgStep = 4;
+                        }
+                    }
+                    case 5, 6 -> {
+                        if (bgPixelCount <= 0) {
+                            bgTile = this.fetchScanlineTile(fetchWindow, fetchFetcherX, fetchPixelX);
+                            bgTileIndex = 0;
+                            bgPixelCount = 8;
+                            bgFetcherX++;
+                            bgStep = 0;
+                        } else {
+                            bgStep = 6;
+                        }
+                    }
+                    default -> bgStep++;
+                }
+            } else {
+                if (spriteEntryIndex < 0) {
+                    spriteEntryIndex = currentSpriteEntryIndex;
+                }
+                if (spriteStep < 5) {
+                    spriteStep++;
+                } else {
+                    this.fetchScanlineSprite(spriteFifo, spriteFifoHead, spriteEntryIndex);
+                    fetchedSprites |= 1 << spriteEntryIndex;
+                    spriteEntryIndex = -1;
+                    spriteStep = 0;
+                }
+            }
+        } while (pixelX < 168);
+
+        this.scanlineWindowRendered = windowRendered;
+        this.scanlineRendered = true;
+        this.scanlineRenderedDots = 0;
+        this.scanlineDrawingDots = dots;
+    }
+
+    // The tile data that a fetch at the given position pushes into the background FIFO, with the low byte in bits 0-7
+    // and the high byte in bits 8-15
+    protected int fetchScanlineTile(boolean window, int fetcherX, int pixelX) {
+        int tileMapIndex;
+        int row;
+        if (window) {
+            tileMapIndex = ((fetcherX & 0x1F) + ((this.windowLine >>> 3) * 32)) & 0x3FF;
+            row = this.windowLine % 8;
+        } else {
+            tileMapIndex = ((((pixelX + this.scrollX) >> 3) & 0x1F) + ((((this.scanlineNumber + this.scrollY) & 0xFF) >>> 3) * 32)) & 0x3FF;
+            row = (this.scanlineNumber + this.scrollY) % 8;
+        }
+        int tileNumber = this.getVRamByte(((window ? this.getWindowTileMap() : this.getBackgroundTileMap()) ? 0x9C00 : 0x9800) + tileMapIndex);
+        int effectiveAddress = this.getBackgroundAndWindowTiles() ? 0x8000 + (tileNumber * 16) : 0x9000 + (((byte) tileNumber) * 16);
+        effectiveAddress = (effectiveAddress + (2 * row)) & 0xFFFF;
+        return this.getVRamByte(effectiveAddress) | (this.getVRamByte((effectiveAddress + 1) & 0xFFFF) << 8);
+    }
+
+    protected int getScanlineBackgroundPixel(int tile, int index) {
+        int bit = 7 - index;
+        return (((tile >>> (8 + bit)) & 1) << 1) | ((tile >>> bit) & 1);
+    }
+
+    // Mixes the sprite's pixels into the sprite FIFO the same way the last step of tickSpriteFifo does
+    protected void fetchScanlineSprite(int[] spriteFifo, int spriteFifoHead, int entryIndex) {
+        int spriteEntry = this.spriteBuffer[entryIndex];
+        int spriteAttributes = getSpriteAttributesFromEntry(spriteEntry);
+        int effectiveAddress = this.getScanlineSpriteTileAddress(spriteEntry);
+        int tileData = this.getVRamByte(effectiveAddress) | (this.getVRamByte((effectiveAddress + 1) & 0xFFFF) << 8);
+        int spriteX = getSpriteXFromSpriteEntry(spriteEntry);
+        boolean xFlip = getXFlipFromObjAttributes(spriteAttributes);
+        boolean priority = getPriorityFromObjAttributes(spriteAttributes);
+        boolean palette = getDmgPaletteFromObjAttributes(spriteAttributes);
+        for (int i = 0; i < 8; i++) {
+            if (spriteX + i < 8) {
+                continue;
             }
+            int bit = xFlip ? i : 7 - i;
+            int colorNumber = (((tileData >>> (8 + bit)) & 1) << 1) | ((tileData >>> bit) & 1);
+            if (colorNumber == 0) {
+                continue;
+            }
+            int slot = (spriteFifoHead + i) & (PixelFifo.CAPACITY - 1);
+            if (getDmgColorNumberFromObjPixelEntry(spriteFifo[slot]) == 0) {
+                spriteFifo[slot] = createDmgObjPixelEntry(colorNumber, priority, palette);
+            }
+        }
+    }
+
+    protected final int getScanlineSpriteTileAddress(int spriteEntry) {
+        boolean objSize = this.getObjectSize();
+        int spriteAttributes = getSpriteAttributesFromEntry(spriteEntry);
+        int tileIndex = getTileIndexFromSpriteEntry(spriteEntry);
+        int width = objSize ? 15 : 7;
+        if (objSize) {
+            tileIndex &= ~1;
+        }
+        int row = ((this.scanlineNumber + 16) - getSpriteYFromSpriteEntry(spriteEntry)) % (width + 1);
+        if (row < 0) {
+            row += (width + 1);
         }
+        int offset = getYFlipFromObjAttributes(spriteAttributes) ? (width - row) * 2 : row * 2;
+        return (0x8000 + tileIndex * 16 + offset) & 0xFFFF;
+    }
+
+    protected int getScanlinePixelColor(int bgPixel, int objPixel) {
+        if (!this.getBackgroundAndWindowEnable()) {
+            bgPixel = 0;
+        }
+        int objColorNumber = this.getObjectEnable() ? getDmgColorNumberFromObjPixelEntry(objPixel) : 0;
+        if (objColorNumber != 0 && !(getDmgPriorityForObjPixelEntry(objPixel) && bgPixel != 0)) {
+            return DMG_PALETTE[((getDmgPaletteForObjPixelEntry(objPixel) ? this.objectPalette1 : this.objectPalette0) >>> (objColorNumber * 2)) & 0b11];
+        }
+        return DMG_PALETTE[(this.backgroundPalette >> (bgPixel * 2)) & 0b11];
     }
 
     //private int dotsSpentInSpritePlusStalling;
@@ -666,13 +1138,13 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
                         continue;
                     }
 
-                    Integer currentQueuedPixel = this.spriteFifo.get(i);
-                    if (currentQueuedPixel == null || getDmgColorNumberFromObjPixelEntry(currentQueuedPixel) == 0) {
+                    int currentQueuedPixel = this.spriteFifo.get(i);
+                    if (getDmgColorNumberFromObjPixelEntry(currentQueuedPixel) == 0) {
                         this.spriteFifo.set(i, createDmgObjPixelEntry(colorNumber, priority, palette));
                     }
                 }
 
-                this.spriteBuffer[this.spriteFifoCurrentEntryIndex] = null;
+                this.fetchedSprites |= 1 << this.spriteFifoCurrentEntryIndex;
                 this.spriteFifoCurrentEntryIndex = -1;
                 this.spriteFifoStep = 0;
 
@@ -688,38 +1160,38 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
             return;
         }
 
-        int bgPixel = this.backgroundFifo.dequeueInt();
+        int bgPixel = this.backgroundFifo.dequeue();
         if (!this.getBackgroundAndWindowEnable()) {
             bgPixel = 0;
         }
         int bgPaletteIndex = (this.backgroundPalette >> (bgPixel * 2)) & 0b11;
-        Integer finalPixel = DMG_PALETTE[bgPaletteIndex];
+        int finalPixel = DMG_PALETTE[bgPaletteIndex];
 
+        boolean discarded = false;
         int bgDiscardTarget = this.scrollX % 8;
         if (!this.isRenderingWindow() && this.discardedPixels < bgDiscardTarget) {
             this.discardedPixels++;
-            finalPixel = null;
+            discarded = true;
         }
 
-        Integer objPixel = this.spriteFifo.poll();
-        this.spriteFifo.offer(null);
-        if (objPixel != null) {
-            int objColorNumber = getDmgColorNumberFromObjPixelEntry(objPixel);
-            if (!this.getObjectEnable()) {
-                objColorNumber = 0;
-            }
-            boolean objPriority = getDmgPriorityForObjPixelEntry(objPixel);
-            boolean objPalette = getDmgPaletteForObjPixelEntry(objPixel);
-            if (objColorNumber != 0 && !(objPriority && bgPixel != 0)) {
-                int objPaletteIndex = ((objPalette ? this.objectPalette1 : this.objectPalette0) >>> (objColorNumber * 2)) & 0b11;
-                finalPixel = DMG_PALETTE[objPaletteIndex];
-            }
+        int objPixel = this.spriteFifo.dequeue();
+        this.spriteFifo.enqueue(0);
+        int objColorNumber = getDmgColorNumberFromObjPixelEntry(objPixel);
+        if (!this.getObjectEnable()) {
+            objColorNumber = 0;
+        }
+        boolean objPriority = getDmgPriorityForObjPixelEntry(objPixel);
+        boolean objPalette = getDmgPaletteForObjPixelEntry(objPixel);
+        if (objColorNumber != 0 && !(objPriority && bgPixel != 0)) {
+            int objPaletteIndex = ((objPalette ? this.objectPalette1 : this.objectPalette0) >>> (objColorNumber * 2)) & 0b11;
+            finalPixel = DMG_PALETTE[objPaletteIndex];
+            discarded = false;
         }
 
         // TODO: Emulate color shown in the LCD during CPU STOP mode depending on which mode the STOP mode lands on. Same for CGB
-        if (finalPixel != null) {
+        if (!discarded) {
             if (this.pixelX >= 8 && this.enablePixelWrites) {
-                this.lcd[this.pixelX - 8][this.scanlineNumber] = finalPixel;
+                this.lcd[(this.scanlineNumber * WIDTH) + this.pixelX - 8] = finalPixel;
             }
             this.pixelX++;
         }
@@ -818,16 +1290,15 @@ public class DMGPPU<E extends GameBoyEmulator> extends VideoGenerator<E> impleme
 
     protected int getVRamByte(int address) {
         if (address >= VRAM_START && address <= VRAM_END) {
-            return this.vRam[address - VRAM_START];
+            return this.vRam.readByte(address - VRAM_START);
         } else {
             throw new EmulatorException("Invalid GameBoy VRAM address \"%04X\"!".formatted(address));
         }
     }
 
     private int getSpriteEntryIndexMatchingX(int x) {
-        for (int i = 0; i < 10; i++) {
-            Integer spriteEntry = this.spriteBuffer[i];
-            if (spriteEntry != null && getSpriteXFromSpriteEntry(spriteEntry) == x) {
+        for (int i = 0; i < this.spriteBufferCount; i++) {
+            if ((this.fetchedSprites & (1 << i)) == 0 && getSpriteXFromSpriteEntry(this.spriteBuffer[i]) == x) {
                 return i;
             }
         }
@@ -1,18 +1,23 @@
 package io.github.arkosammy12.jemu.core.gameboy;
 
 import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.common.Scheduler;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.cpu.SM83;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 
 import static io.github.arkosammy12.jemu.core.gameboy.DMGMMIOBus.SB_ADDR;
 import static io.github.arkosammy12.jemu.core.gameboy.DMGMMIOBus.SC_ADDR;
 
-public class DMGSerialController<E extends GameBoyEmulator> implements Bus {
+public class DMGSerialController<E extends GameBoyEmulator> implements Bus, Snapshottable {
 
     private static final int BIT_2_MASK = 1 << 2;
     private static final int BIT_7_MASK = 1 << 7;
 
     private final E emulator;
+    private final Scheduler.Event serialEvent;
 
     private int internalClock;
     private boolean oldSerialInput;
@@ -23,12 +28,39 @@ public class DMGSerialController<E extends GameBoyEmulator> implements Bus {
     private int serialData = 0xFF;
     private int serialControl;
 
+    // The first scheduler cycle that has not been applied to the internal clock yet
+    private long syncedCycle;
+
     public DMGSerialController(E emulator) {
         this.emulator = emulator;
+        this.serialEvent = emulator.getScheduler().register(this::onSerialEvent);
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeByte(this.internalClock);
+        writer.writeBoolean(this.oldSerialInput);
+        writer.writeBoolean(this.transferring);
+        writer.writeInt(this.transferredBits);
+        writer.writeByte(this.serialData);
+        writer.writeByte(this.serialControl);
+        writer.writeLong(this.syncedCycle);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.internalClock = reader.readByte();
+        this.oldSerialInput = reader.readBoolean();
+        this.transferring = reader.readBoolean();
+        this.transferredBits = reader.readInt();
+        this.serialData = reader.readByte();
+        this.serialControl = reader.readByte();
+        this.syncedCycle = reader.readLong();
     }
 
     @Override
     public int readByte(int address) {
+        this.sync();
         return switch (address) {
             case SB_ADDR -> this.serialData;
             case SC_ADDR -> 0xFF;
@@ -38,6 +70,7 @@ public class DMGSerialController<E extends GameBoyEmulator> implements Bus {
 
     @Override
     public void writeByte(int address, int value) {
+        this.sync();
         switch (address) {
             case SB_ADDR -> this.serialData = value & 0xFF;
             case SC_ADDR -> {
@@ -45,13 +78,38 @@ public class DMGSerialController<E extends GameBoyEmulator> implements Bus {
                 if (this.getSerialEnable()) {
                     this.transferring = true;
                     this.transferredBits = 0;
+                    this.emulator.getScheduler().schedule(this.serialEvent, this.emulator.getScheduler().getCycle());
                 }
             }
             default -> throw new EmulatorException("Invalid address $%04X for GameBoy serial controller!".formatted(address));
         }
     }
 
-    public void cycle() {
+    // Brings the internal clock up to date with the current scheduler cycle. Outside of transfers, the clock is the only
+    // state that changes over time, so it can be advanced in one step
+    public void sync() {
+        long elapsedCycles = this.emulator.getScheduler().getCycle() - this.syncedCycle;
+        if (elapsedCycles <= 0) {
+            return;
+        }
+        long elapsedClocks = elapsedCycles * this.emulator.getCpuCyclesPerTick() * 4;
+        this.internalClock = (int) ((this.internalClock + elapsedClocks) & 0xFF);
+        this.oldSerialInput = this.getFrequencyBit() && this.getClockSelect();
+        this.syncedCycle += elapsedCycles;
+    }
+
+    private void onSerialEvent() {
+        this.sync();
+        for (int i = 0; i < this.emulator.getCpuCyclesPerTick(); i++) {
+            this.cycle();
+        }
+        this.syncedCycle++;
+        if (this.transferring) {
+            this.emulator.getScheduler().schedule(this.serialEvent, this.syncedCycle);
+        }
+    }
+
+    private void cycle() {
         this.cycleSerial();
         this.cycleSerial();
         this.cycleSerial();
@@ -61,8 +119,7 @@ public class DMGSerialController<E extends GameBoyEmulator> implements Bus {
     private void cycleSerial() {
         this.internalClock = (this.internalClock + 1) & 0xFF;
 
-        boolean frequencyBit = ((this.getClockSpeed() ? BIT_2_MASK : BIT_7_MASK) & this.internalClock) != 0;
-        boolean serialInput = frequencyBit && this.getClockSelect();
+        boolean serialInput = this.getFrequencyBit() && this.getClockSelect();
 
         if (this.oldSerialInput && !serialInput && this.transferring) {
             // Shift 1s into SB as there is no GameBoy supplying serial data
@@ -78,6 +135,10 @@ public class DMGSerialController<E extends GameBoyEmulator> implements Bus {
     }
 
 
+    private boolean getFrequencyBit() {
+        return ((this.getClockSpeed() ? BIT_2_MASK : BIT_7_MASK) & this.internalClock) != 0;
+    }
+
     private boolean getSerialEnable() {
         return (this.serialControl & (1 << 7)) != 0;
     }
@@ -2,11 +2,14 @@ package io.github.arkosammy12.jemu.core.gameboy;
 
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.cpu.SM83;
 
 import static io.github.arkosammy12.jemu.core.gameboy.DMGMMIOBus.*;
 
-public class DMGTimerController<E extends GameBoyEmulator> implements Bus {
+public class DMGTimerController<E extends GameBoyEmulator> implements Bus, Snapshottable {
 
     protected final E emulator;
 
@@ -36,6 +39,30 @@ public class DMGTimerController<E extends GameBoyEmulator> implements Bus {
         this.emulator = emulator;
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeShort(this.systemClock);
+        writer.writeByte(this.timerCounter);
+        writer.writeByte(this.timerModulo);
+        writer.writeByte(this.timerControl);
+        writer.writeBoolean(this.oldTimerInput);
+        writer.writeBoolean(this.reloadOccurred);
+        writer.writeInt(this.reloadDelay);
+        writer.writeBoolean(this.oldDivBit4);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.systemClock = reader.readShort();
+        this.timerCounter = reader.readByte();
+        this.timerModulo = reader.readByte();
+        this.timerControl = reader.readByte();
+        this.oldTimerInput = reader.readBoolean();
+        this.reloadOccurred = reader.readBoolean();
+        this.reloadDelay = reader.readInt();
+        this.oldDivBit4 = reader.readBoolean();
+    }
+
     @Override
     public int readByte(int address) {
         return switch (address) {
@@ -1,42 +1,57 @@
 package io.github.arkosammy12.jemu.core.gameboy;
 
 import io.github.arkosammy12.jemu.core.common.Bus;
-import io.github.arkosammy12.jemu.core.common.SystemHost;
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import org.apache.commons.io.FilenameUtils;
+import org.jetbrains.annotations.Nullable;
 import org.tinylog.Logger;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.Optional;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-public abstract class GameBoyCartridge implements Bus {
+import static io.github.arkosammy12.jemu.core.gameboy.DMGBus.SRAM_START;
+
+public abstract class GameBoyCartridge implements Bus, Snapshottable {
 
     public static final int CARTRIDGE_TYPE_ADDRESS = 0x0147;
     public static final int ROM_SIZE_ADDRESS = 0x0148;
     public static final int RAM_SIZE_ADDRESS = 0x0149;
 
     private final GameBoyEmulator gameBoyEmulator;
-    protected final int[] originalRom;
+    protected final MemoryRegion rom;
 
     protected final int cartridgeType;
     protected final int romSizeHeader;
     protected final int ramSizeHeader;
 
+    private @Nullable MemoryRegion saveData;
+    private @Nullable Arena saveDataArena;
+    private @Nullable ExecutorService saveDataFlusher;
+    private boolean saveDataDirty;
+    private boolean saveDataReleased;
+    private long lastSaveDataFlush;
+
     public GameBoyCartridge(GameBoyEmulator emulator, int cartridgeType) {
         this.gameBoyEmulator = emulator;
-        int[] rom = SystemHost.byteToIntArray(emulator.getHost().getRom());
-        this.originalRom = Arrays.copyOf(rom, rom.length);
+        this.rom = emulator.getHost().getRomImage().getRegion();
         this.cartridgeType = cartridgeType;
-        this.romSizeHeader = rom[ROM_SIZE_ADDRESS];
-        this.ramSizeHeader = rom[RAM_SIZE_ADDRESS];
+        this.romSizeHeader = this.rom.readByte(ROM_SIZE_ADDRESS);
+        this.ramSizeHeader = this.rom.readByte(RAM_SIZE_ADDRESS);
     }
 
     public static GameBoyCartridge getCartridge(GameBoyEmulator emulator) {
-        int cartridgeType = SystemHost.byteToIntArray(emulator.getHost().getRom())[CARTRIDGE_TYPE_ADDRESS];
+        int cartridgeType = emulator.getHost().getRomImage().readByte(CARTRIDGE_TYPE_ADDRESS);
         return switch (cartridgeType) {
             case 0x00, 0x08, 0x09 -> new MBC0(emulator, cartridgeType);
             case 0x01, 0x02, 0x03 -> new MBC1(emulator, cartridgeType);
@@ -48,59 +63,134 @@ public abstract class GameBoyCartridge implements Bus {
         };
     }
 
-    public void cycle() {
+    // The index of the ROM bank currently mapped at the given address in $0000-$7FFF
+    public abstract int getRomBank(int address);
 
+    // The memory currently backing the region of $0000-$3FFF, $4000-$7FFF or $A000-$BFFF that starts at the given
+    // address, for the bus to read from directly. An address in the region maps to index (address & (length - 1)),
+    // and null means accesses have to go through readByte. The bus maps the regions again after every write to $0000-$7FFF
+    public @Nullable MemoryRegion getReadMemory(int address) {
+        return null;
     }
 
-    protected final Optional<int[]> readSaveData() {
-        Path saveDataDirectory = this.gameBoyEmulator.getHost().getSaveDataDirectory();
-        String romName = FilenameUtils.getBaseName(this.gameBoyEmulator.getHost().getRomPath().toString());
+    public @Nullable MemoryRegion getWriteMemory(int address) {
+        return null;
+    }
+
+    // Battery-backed RAM is mapped straight from the cartridge's .sav file, so the bus writes into the page cache and
+    // flushing only writes back the pages that changed. RAM without a battery, or whose file can't be mapped, is kept in
+    // memory instead. Loading a state writes its RAM into the mapping too, so the file always follows what the game sees
+    protected final @Nullable MemoryRegion createRam(int length, boolean hasBattery) {
+        if (length <= 0) {
+            return null;
+        }
+        if (!hasBattery) {
+            return MemoryRegion.allocate(length);
+        }
+        GameBoyHost host = this.gameBoyEmulator.getHost();
+        Path saveDataDirectory = host.getSaveDataDirectory();
+        String romName = FilenameUtils.getBaseName(host.getRomPath().toString());
         Path saveDataFilePath = saveDataDirectory.resolve("%s.sav".formatted(romName));
+        Arena arena = Arena.ofShared();
         try {
-            byte[] bytes = Files.readAllBytes(saveDataFilePath);
-            int[] saveData = SystemHost.byteToIntArray(bytes);
-            return Optional.of(saveData);
-        } catch (NoSuchFileException e) {
-            Logger.warn("Save data for GameBoy ROM file %s not found!".formatted(saveDataFilePath));
-            return Optional.empty();
-        } catch (IOException e) {
-            Logger.error("Error reading save data for GameBoy ROM file: {}", e);
-            return Optional.empty();
+            Files.createDirectories(saveDataDirectory);
+            try (FileChannel channel = FileChannel.open(saveDataFilePath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                this.saveData = MemoryRegion.wrap(channel.map(FileChannel.MapMode.READ_WRITE, 0, length, arena));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            arena.close();
+            Logger.error("Error mapping save data file for GameBoy cartridge: {}", e);
+            return MemoryRegion.allocate(length);
         }
+        this.saveDataArena = arena;
+        this.saveDataFlusher = Executors.newSingleThreadExecutor(Thread.ofPlatform().daemon().name("GameBoy save data flusher").factory());
+        return this.saveData;
     }
 
-    public void save() {
-        Optional<int[]> saveDataOptional = this.getSaveData();
-        if (saveDataOptional.isEmpty()) {
-            return;
-        }
-        int[] saveData = saveDataOptional.get();
+    // For save data that only changes through readByte and writeByte. The bus also marks it whenever it is handed RAM
+    // to write to directly, which is then assumed to have changed until the next flush after it was unmapped again
+    protected final void markSaveDataDirty() {
+        this.saveDataDirty = true;
+    }
 
-        Path saveDataDirectory = this.gameBoyEmulator.getHost().getSaveDataDirectory();
-        String romName = FilenameUtils.getBaseName(this.gameBoyEmulator.getHost().getRomPath().toString());
-        if (!Files.exists(saveDataDirectory)) {
-            try {
-                Files.createDirectory(saveDataDirectory);
-            } catch (IOException e) {
-                Logger.error("Error creating save data directory for GameBoy system cartridge: {}", e);
-                return;
-            }
+    // Once the save data has been written back on close, its memory is gone and the bus must not map it anymore
+    public boolean isSaveDataReleased() {
+        return this.saveDataReleased;
+    }
+
+    // Gives subclasses the chance to copy state that isn't stored in the save data as it changes into it before a flush
+    protected void updateSaveData() {
+
+    }
+
+    // Called by the emulator at the end of every frame, unless the host has save data flushed on VBlank. Returns
+    // whether a flush was started
+    public boolean flushSaveData() {
+        if (this.saveData == null || this.saveDataFlusher == null || this.gameBoyEmulator.getHost().isSaveDataFlushSuppressed()) {
+            return false;
         }
-        Path saveDataFilePath = saveDataDirectory.resolve("%s.sav".formatted(romName));
-        byte[] bytes = new byte[saveData.length];
-        for (int i = 0; i < bytes.length; i++) {
-            bytes[i] = (byte) (saveData[i] & 0xFF);
+        long now = System.nanoTime();
+        if (now - this.lastSaveDataFlush < this.gameBoyEmulator.getHost().getSaveDataFlushInterval().toNanos()) {
+            return false;
         }
+        return this.startSaveDataFlush(now);
+    }
 
-        try {
-            Files.write(saveDataFilePath, bytes);
-        } catch (IOException e) {
-            Logger.error("Error writing save data for GameBoy system cartridge: {}", e);
+    // Called by the PPU whenever it enters VBlank. Returns whether a flush was started
+    public boolean onVBlank() {
+        GameBoyHost host = this.gameBoyEmulator.getHost();
+        if (this.saveData == null || this.saveDataFlusher == null || !host.isSaveDataFlushedOnVBlank() || host.isSaveDataFlushSuppressed()) {
+            return false;
         }
+        return this.startSaveDataFlush(System.nanoTime());
+    }
+
+    private boolean startSaveDataFlush(long now) {
+        this.updateSaveData();
+        boolean directlyWritable = this.getWriteMemory(SRAM_START) != null;
+        if (!this.saveDataDirty && !directlyWritable) {
+            return false;
+        }
+        this.saveDataDirty = directlyWritable;
+        this.lastSaveDataFlush = now;
+        MemorySegment segment = this.saveData.getSegment();
+        this.saveDataFlusher.execute(() -> {
+            try {
+                segment.force();
+            } catch (UncheckedIOException e) {
+                Logger.error("Error writing save data for GameBoy cartridge: {}", e);
+            }
+        });
+        return true;
     }
 
-    protected Optional<int[]> getSaveData() {
-        return Optional.empty();
+    public void save() {
+        if (this.saveData == null || this.saveDataArena == null || this.saveDataFlusher == null) {
+            return;
+        }
+        this.updateSaveData();
+        this.saveDataFlusher.shutdown();
+        boolean flusherTerminated = false;
+        try {
+            flusherTerminated = this.saveDataFlusher.awaitTermination(5, TimeUnit.SECONDS);
+            if (!flusherTerminated) {
+                Logger.error("Timed out waiting for GameBoy save data to be flushed! Its file stays mapped until jemu exits");
+            }
+            this.saveData.getSegment().force();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (UncheckedIOException e) {
+            Logger.error("Error writing save data for GameBoy cartridge: {}", e);
+        } finally {
+            this.saveData = null;
+            this.saveDataReleased = true;
+            this.gameBoyEmulator.getBus().mapMemory();
+            // A flush that is still running would have the mapping closed from under it, so it is left to the
+            // process exit to unmap instead
+            if (flusherTerminated) {
+                this.saveDataArena.close();
+            }
+        }
     }
 
 }
@@ -1,6 +1,9 @@
 package io.github.arkosammy12.jemu.core.gameboy;
 
 import io.github.arkosammy12.jemu.core.common.Emulator;
+import io.github.arkosammy12.jemu.core.common.Scheduler;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.cpu.SM83;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 
@@ -11,8 +14,14 @@ public class GameBoyEmulator implements Emulator, SM83.SystemBus {
     public static final int T_CYCLES_PER_FRAME = 70224;
     public static final int M_CYCLES_PER_FRAME = T_CYCLES_PER_FRAME / 4;
 
+    private static final int STATE_SYSTEM_ID = 0x20474D44; // "DMG "
+    private static final int STATE_VERSION = 4;
+
     private final GameBoyHost host;
 
+    // Ticked once per M-cycle. Drives the serial controller, OAM DMA and the cartridge RTC only while they have work to do
+    private final Scheduler scheduler = new Scheduler();
+
     private final SM83<?> cpu;
     private final DMGBus<?> bus;
     private final DMGPPU<?> ppu;
@@ -25,6 +34,9 @@ public class GameBoyEmulator implements Emulator, SM83.SystemBus {
 
     private final GameBoyCartridge cartridge;
 
+    // M-cycles a compiled block ran past the end of the previous frame
+    private int frameCycleOverrun;
+
     public GameBoyEmulator(GameBoyHost host) {
         this.host = host;
 
@@ -39,10 +51,11 @@ public class GameBoyEmulator implements Emulator, SM83.SystemBus {
         this.serialController = this.createSerialController();
 
         this.cartridge = GameBoyCartridge.getCartridge(this);
+        this.bus.mapMemory();
     }
 
     protected SM83<?> createCpu() {
-        return new SM83<>(this);
+        return new SM83<>(this, this.host.isRecompilerEnabled());
     }
 
     protected DMGBus<?> createBus() {
@@ -98,6 +111,15 @@ public class GameBoyEmulator implements Emulator, SM83.SystemBus {
         return this.apu;
     }
 
+    public Scheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    // The amount of CPU M-cycles that happen during a single scheduler tick
+    public int getCpuCyclesPerTick() {
+        return 1;
+    }
+
     public GameBoyCartridge getCartridge() {
         return this.cartridge;
     }
@@ -114,10 +136,55 @@ public class GameBoyEmulator implements Emulator, SM83.SystemBus {
         return this.serialController;
     }
 
+    protected int getStateSystemId() {
+        return STATE_SYSTEM_ID;
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeHeader(this.getStateSystemId(), STATE_VERSION);
+        this.scheduler.saveState(writer);
+        this.cpu.saveState(writer);
+        this.bus.saveState(writer);
+        this.ppu.saveState(writer);
+        this.apu.saveState(writer);
+        this.mmioBus.saveState(writer);
+        this.timerController.saveState(writer);
+        this.serialController.saveState(writer);
+        this.cartridge.saveState(writer);
+        this.joypad.saveState(writer);
+        writer.writeInt(this.frameCycleOverrun);
+    }
+
+    // The joypad goes last, since driving its lines from the buttons that are held right now may request an interrupt
+    @Override
+    public void loadState(StateReader reader) {
+        reader.readHeader(this.getStateSystemId(), STATE_VERSION);
+        this.scheduler.loadState(reader);
+        this.cpu.loadState(reader);
+        this.bus.loadState(reader);
+        this.ppu.loadState(reader);
+        this.apu.loadState(reader);
+        this.mmioBus.loadState(reader);
+        this.timerController.loadState(reader);
+        this.serialController.loadState(reader);
+        this.cartridge.loadState(reader);
+        this.joypad.loadState(reader);
+        this.frameCycleOverrun = reader.readInt();
+        this.bus.mapMemory();
+    }
+
     @Override
     public void executeFrame() {
-        for (int i = 0; i < M_CYCLES_PER_FRAME; i++) {
-            this.runCycle();
+        int mCycles = this.frameCycleOverrun;
+        while (mCycles < M_CYCLES_PER_FRAME) {
+            mCycles += this.runCycle();
+        }
+        this.frameCycleOverrun = mCycles - M_CYCLES_PER_FRAME;
+        this.ppu.sync();
+        this.apu.sync();
+        if (!this.host.isSaveDataFlushedOnVBlank()) {
+            this.cartridge.flushSaveData();
         }
     }
 
@@ -126,7 +193,14 @@ public class GameBoyEmulator implements Emulator, SM83.SystemBus {
         this.runCycle();
     }
 
-    protected void runCycle() {
+    // Returns the amount of M-cycles that were emulated
+    protected int runCycle() {
+        int blockCycles = this.cpu.runCompiledBlock();
+        if (blockCycles > 0) {
+            this.catchUpCompiledBlock(blockCycles);
+            return blockCycles;
+        }
+
         this.cpu.cycle();
         boolean apuFrameSequencerTick = false;
         if (this.cpu.getMode() != SM83.Mode.STOPPED) {
@@ -135,9 +209,21 @@ public class GameBoyEmulator implements Emulator, SM83.SystemBus {
         this.cpu.nextState();
         this.ppu.cycle();
         this.apu.cycle(apuFrameSequencerTick);
-        this.serialController.cycle();
-        this.cartridge.cycle();
-        this.bus.cycleOamDMA();
+        this.scheduler.tick();
+        return 1;
+    }
+
+    // The CPU already ran the given amount of M-cycles ahead in a compiled block, so catch up the rest of the system
+    protected final void catchUpCompiledBlock(int blockCycles) {
+        for (int i = 1; i <= blockCycles; i++) {
+            boolean apuFrameSequencerTick = this.timerController.cycle();
+            if (i == blockCycles) {
+                this.cpu.nextState();
+            }
+            this.ppu.cycle();
+            this.apu.cycle(apuFrameSequencerTick);
+            this.scheduler.tick();
+        }
     }
 
     @Override
@@ -183,6 +269,19 @@ public class GameBoyEmulator implements Emulator, SM83.SystemBus {
         }
     }
 
+    @Override
+    public int getCodeBank(int address) {
+        if (address > DMGBus.ROMX_END || this.bus.isBootRomEnabled() || this.bus.isOamDmaActive()) {
+            return -1;
+        }
+        return this.cartridge.getRomBank(address);
+    }
+
+    @Override
+    public int readCode(int address) {
+        return this.cartridge.readByte(address);
+    }
+
     @Override
     public int getIF() {
         return this.mmioBus.getIF();
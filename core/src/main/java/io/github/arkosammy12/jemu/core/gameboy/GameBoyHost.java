@@ -3,13 +3,29 @@ package io.github.arkosammy12.jemu.core.gameboy;
 import io.github.arkosammy12.jemu.core.common.SystemHost;
 
 import java.nio.file.Path;
+import java.time.Duration;
 
 public interface GameBoyHost extends SystemHost {
 
+    Duration DEFAULT_SAVE_DATA_FLUSH_INTERVAL = Duration.ofSeconds(1);
+
     Model getModel();
 
     Path getSaveDataDirectory();
 
+    // How often changes to battery-backed cartridge RAM are written back to the save file. Zero writes them back at the
+    // end of every frame that changed them
+    default Duration getSaveDataFlushInterval() {
+        return DEFAULT_SAVE_DATA_FLUSH_INTERVAL;
+    }
+
+    // Whether changes to battery-backed cartridge RAM are written back as soon as the PPU enters VBlank instead of on
+    // the flush interval. Games usually finish writing a save before waiting for VBlank, so this gets saves to disk as
+    // early as possible
+    default boolean isSaveDataFlushedOnVBlank() {
+        return false;
+    }
+
     enum Model {
         DMG,
         CGB,
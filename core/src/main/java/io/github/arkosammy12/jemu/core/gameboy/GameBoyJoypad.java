@@ -2,9 +2,12 @@ package io.github.arkosammy12.jemu.core.gameboy;
 
 import io.github.arkosammy12.jemu.core.common.Processor;
 import io.github.arkosammy12.jemu.core.common.SystemController;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.cpu.SM83;
 
-public class GameBoyJoypad<E extends GameBoyEmulator> extends SystemController<E> {
+public class GameBoyJoypad<E extends GameBoyEmulator> extends SystemController<E> implements Snapshottable {
 
     private static final int SELECT_BUTTONS_MASK = 1 << 5;
     private static final int SELECT_DPAD_MASK = 1 << 4;
@@ -36,6 +39,19 @@ public class GameBoyJoypad<E extends GameBoyEmulator> extends SystemController<E
         super(emulator);
     }
 
+    // Only the register is part of the state. The buttons keep reflecting what the player is holding right now, so the
+    // lines are driven again from them as soon as the state is loaded
+    @Override
+    public synchronized void saveState(StateWriter writer) {
+        writer.writeByte(this.joyP);
+    }
+
+    @Override
+    public synchronized void loadState(StateReader reader) {
+        this.joyP = reader.readByte();
+        this.updateJoyP();
+    }
+
     public boolean isButtonHeld() {
         return (this.readJoyP() & 0b1111) != 0b1111;
     }
@@ -1,63 +1,81 @@
 package io.github.arkosammy12.jemu.core.gameboy;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import org.jetbrains.annotations.Nullable;
-import org.tinylog.Logger;
-
-import java.util.Optional;
-
 
 public class MBC0 extends GameBoyCartridge {
 
-    private final int[] rom = new int[0x8000];
-    private final int @Nullable [] sRam;
+    private final MemoryRegion romSpace;
+    private final @Nullable MemoryRegion sRam;
     private final boolean hasBattery;
 
     public MBC0(GameBoyEmulator emulator, int cartridgeType) {
         super(emulator, cartridgeType);
 
+        int ramSize;
         if (cartridgeType == 0x08 || cartridgeType == 0x09) {
-            this.sRam = switch (this.ramSizeHeader) {
-                case 0x00 -> null;
-                case 0x01 -> new int[0x800];
-                case 0x02 -> new int[0x2000];
+            ramSize = switch (this.ramSizeHeader) {
+                case 0x00 -> 0;
+                case 0x01 -> 0x800;
+                case 0x02 -> 0x2000;
                 default -> throw new EmulatorException("Incompatible RAM size header $%02X for MBC0 GameBoy cartridge type!".formatted(this.ramSizeHeader));
             };
         } else {
-            this.sRam = null;
+            ramSize = 0;
         }
 
         this.hasBattery = cartridgeType == 0x09;
 
         try {
-            System.arraycopy(this.originalRom, 0, this.rom, 0, this.rom.length);
+            this.romSpace = this.rom.slice(0, 0x8000);
         } catch (Exception e) {
             throw new EmulatorException("Error initializing GameBoy cartridge ROM!", e);
         }
 
-        if (this.hasBattery) {
-            this.readSaveData().ifPresent(saveData -> {
-                if (this.sRam == null) {
-                    return;
-                }
-                try {
-                    System.arraycopy(saveData, 0, this.sRam, 0, Math.min(saveData.length, this.sRam.length));
-                } catch (Exception e) {
-                    Logger.error("Error reading save data for GameBoy MBC2 cartridge: {}", e);
-                }
-            });
+        this.sRam = this.createRam(ramSize, this.hasBattery);
+
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        if (this.sRam != null) {
+            writer.writeRegion(this.sRam);
         }
+    }
 
+    @Override
+    public void loadState(StateReader reader) {
+        if (this.sRam != null && reader.readChangedRegion(this.sRam)) {
+            this.markSaveDataDirty();
+        }
+    }
+
+    @Override
+    public int getRomBank(int address) {
+        return address >>> 14;
+    }
+
+    @Override
+    public @Nullable MemoryRegion getReadMemory(int address) {
+        return address <= 0x7FFF ? this.romSpace : this.sRam;
+    }
+
+    @Override
+    public @Nullable MemoryRegion getWriteMemory(int address) {
+        return address <= 0x7FFF ? null : this.sRam;
     }
 
     @Override
     public int readByte(int address) {
         if (address >= 0x0000 && address <= 0x7FFF) {
-            return this.rom[address];
+            return this.romSpace.readByte(address);
         } else if (address >= 0xA000 && address <= 0xBFFF) {
             address -= 0xA000;
-            if (this.sRam != null && address < this.sRam.length) {
-                return this.sRam[address];
+            if (this.sRam != null && address < this.sRam.length()) {
+                return this.sRam.readByte(address);
             } else {
                 return 0xFF;
             }
@@ -70,16 +88,11 @@ public class MBC0 extends GameBoyCartridge {
     public void writeByte(int address, int value) {
         if (address >= 0xA000 && address <= 0xBFFF) {
             address -= 0xA000;
-            if (this.sRam != null && address < this.sRam.length) {
-                this.sRam[address] = value & 0xFF;
+            if (this.sRam != null && address < this.sRam.length()) {
+                this.sRam.writeByte(address, value);
             }
         }
     }
 
-    @Override
-    protected Optional<int[]> getSaveData() {
-        return Optional.ofNullable(this.hasBattery ? this.sRam : null);
-    }
-
 }
 
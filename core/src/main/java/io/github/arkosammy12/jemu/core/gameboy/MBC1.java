@@ -1,16 +1,16 @@
 package io.github.arkosammy12.jemu.core.gameboy;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import org.jetbrains.annotations.Nullable;
-import org.tinylog.Logger;
-
-import java.util.Arrays;
-import java.util.Optional;
 
 public class MBC1 extends GameBoyCartridge {
 
-    private final int[][] romBanks;
-    private final int @Nullable [][] ramBanks;
+    private final MemoryRegion[] romBanks;
+    private final @Nullable MemoryRegion sRam;
+    private final MemoryRegion @Nullable [] ramBanks;
     private final boolean hasBattery;
 
     private final int romBankMask;
@@ -24,80 +24,111 @@ public class MBC1 extends GameBoyCartridge {
     public MBC1(GameBoyEmulator emulator, int cartridgeType) {
         super(emulator, cartridgeType);
 
-        this.romBanks = switch (this.romSizeHeader) {
-            case 0x00 -> new int[2][0x4000];
-            case 0x01 -> new int[4][0x4000];
-            case 0x02 -> new int[8][0x4000];
-            case 0x03 -> new int[16][0x4000];
-            case 0x04 -> new int[32][0x4000];
-            case 0x05 -> new int[64][0x4000];
-            case 0x06 -> new int[128][0x4000];
+        int romBankCount = switch (this.romSizeHeader) {
+            case 0x00 -> 2;
+            case 0x01 -> 4;
+            case 0x02 -> 8;
+            case 0x03 -> 16;
+            case 0x04 -> 32;
+            case 0x05 -> 64;
+            case 0x06 -> 128;
             default -> throw new EmulatorException("Incompatible ROM size header $%02X for MBC1 GameBoy cartridge type!".formatted(this.romSizeHeader));
         };
 
+        int ramSize;
         if (cartridgeType == 0x02 || cartridgeType == 0x03) {
-            this.ramBanks = switch (this.ramSizeHeader) {
-                case 0x00 -> null;
-                case 0x01 -> new int[1][0x800];
-                case 0x02 -> new int[1][0x2000];
-                case 0x03 -> new int[4][0x2000];
+            ramSize = switch (this.ramSizeHeader) {
+                case 0x00 -> 0;
+                case 0x01 -> 0x800;
+                case 0x02 -> 0x2000;
+                case 0x03 -> 4 * 0x2000;
                 default -> throw new EmulatorException("Incompatible RAM size header $%02X for MBC1 GameBoy cartridge type!".formatted(this.ramSizeHeader));
             };
         } else {
-            this.ramBanks = null;
+            ramSize = 0;
         }
 
         this.hasBattery = cartridgeType == 0x03;
 
         try {
-            for (int i = 0; i < this.romBanks.length; i++) {
-                int[] romBank = this.romBanks[i];
-                int start = i * romBank.length;
-                System.arraycopy(this.originalRom, start, romBank, 0, romBank.length);
-            }
+            this.romBanks = this.rom.split(romBankCount, 0x4000);
         } catch (Exception e) {
             throw new EmulatorException("Error initializing GameBoy cartridge ROM!", e);
         }
 
+        this.sRam = this.createRam(ramSize, this.hasBattery);
+        this.ramBanks = this.sRam == null ? null : this.sRam.split(0x2000);
+
         this.romBankMask = ((1 << (32 - Integer.numberOfLeadingZeros(this.romBanks.length))) - 1) >> 1;
         this.ramBankMask = this.ramBanks == null ? 0 : ((1 << (32 - Integer.numberOfLeadingZeros(this.ramBanks.length))) - 1) >> 1;
 
-        if (this.hasBattery) {
-            this.readSaveData().ifPresent(saveData -> {
-                if (this.ramBanks == null) {
-                    return;
-                }
-                try {
-                    for (int i = 0; i < this.ramBanks.length; i++) {
-                        int[] bank = this.ramBanks[i];
-                        System.arraycopy(saveData, i * bank.length, bank, 0, bank.length);
-                    }
-                } catch (Exception e) {
-                    Logger.error("Error reading save data for GameBoy MBC1 cartridge: {}", e);
-                }
-            });
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeByte(this.ramGate);
+        writer.writeByte(this.bank1);
+        writer.writeByte(this.bank2);
+        writer.writeByte(this.mode);
+        if (this.sRam != null) {
+            writer.writeRegion(this.sRam);
         }
+    }
 
+    @Override
+    public void loadState(StateReader reader) {
+        this.ramGate = reader.readByte();
+        this.bank1 = reader.readByte();
+        this.bank2 = reader.readByte();
+        this.mode = reader.readByte();
+        if (this.sRam != null && reader.readChangedRegion(this.sRam)) {
+            this.markSaveDataDirty();
+        }
+    }
+
+    @Override
+    public int getRomBank(int address) {
+        if (address <= 0x3FFF) {
+            return (this.mode & 1) != 0 ? (this.bank2 << 5) & this.romBankMask : 0;
+        } else {
+            return ((this.bank2 << 5) | this.bank1) & this.romBankMask;
+        }
+    }
+
+    @Override
+    public @Nullable MemoryRegion getReadMemory(int address) {
+        if (address <= 0x7FFF) {
+            return this.romBanks[this.getRomBank(address)];
+        }
+        return this.getWriteMemory(address);
+    }
+
+    @Override
+    public @Nullable MemoryRegion getWriteMemory(int address) {
+        if (address <= 0x7FFF || this.ramGate != 0b1010 || this.ramBanks == null) {
+            return null;
+        }
+        return this.ramBanks[(this.mode & 1) != 0 ? this.bank2 & this.ramBankMask : 0];
     }
 
     @Override
     public int readByte(int address) {
         if (address >= 0x0000 && address <= 0x3FFF) {
             if ((this.mode & 1) != 0) {
-                return this.romBanks[(this.bank2 << 5) & this.romBankMask][address];
+                return this.romBanks[(this.bank2 << 5) & this.romBankMask].readByte(address);
             } else {
-                return this.romBanks[0][address];
+                return this.romBanks[0].readByte(address);
             }
         } else if (address >= 0x4000 && address <= 0x7FFF) {
-            return this.romBanks[((this.bank2 << 5) | this.bank1) & this.romBankMask][address - 0x4000];
+            return this.romBanks[((this.bank2 << 5) | this.bank1) & this.romBankMask].readByte(address - 0x4000);
         } else if (address >= 0xA000 && address <= 0xBFFF) {
             if (this.ramGate != 0b1010 || this.ramBanks == null) {
                 return 0xFF;
             }
-            int[] ramBank = this.ramBanks[(this.mode & 1) != 0 ? this.bank2 & this.ramBankMask : 0];
+            MemoryRegion ramBank = this.ramBanks[(this.mode & 1) != 0 ? this.bank2 & this.ramBankMask : 0];
             address -= 0xA000;
-            if (address < ramBank.length) {
-                return ramBank[address];
+            if (address < ramBank.length()) {
+                return ramBank.readByte(address);
             } else {
                 return 0xFF;
             }
@@ -122,18 +153,13 @@ public class MBC1 extends GameBoyCartridge {
             this.mode = value & 1;
         } else if (address >= 0xA000 && address <= 0xBFFF) {
             if (this.ramGate == 0b1010 && this.ramBanks != null) {
-                int[] ramBank = this.ramBanks[(this.mode & 1) != 0 ? this.bank2 & this.ramBankMask : 0];
+                MemoryRegion ramBank = this.ramBanks[(this.mode & 1) != 0 ? this.bank2 & this.ramBankMask : 0];
                 address -= 0xA000;
-                if (address < ramBank.length) {
-                    ramBank[address] = value & 0xFF;
+                if (address < ramBank.length()) {
+                    ramBank.writeByte(address, value);
                 }
             }
         }
     }
 
-    @Override
-    protected Optional<int[]> getSaveData() {
-        return Optional.ofNullable(this.hasBattery ? this.ramBanks : null).map(banks -> Arrays.stream(banks).flatMapToInt(Arrays::stream).toArray());
-    }
-
 }
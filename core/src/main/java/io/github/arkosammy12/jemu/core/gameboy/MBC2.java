@@ -1,18 +1,17 @@
 package io.github.arkosammy12.jemu.core.gameboy;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import org.jetbrains.annotations.Nullable;
-import org.tinylog.Logger;
-
-import java.util.Arrays;
-import java.util.Optional;
 
 public class MBC2 extends GameBoyCartridge {
 
     private static final int A8_MASK = 1 << 8;
 
-    private final int[][] romBanks;
-    private final int @Nullable [] sRam;
+    private final MemoryRegion[] romBanks;
+    private final @Nullable MemoryRegion sRam;
     private final boolean hasBattery;
 
     private final int romBankMask;
@@ -23,55 +22,66 @@ public class MBC2 extends GameBoyCartridge {
     public MBC2(GameBoyEmulator emulator, int cartridgeType) {
         super(emulator, cartridgeType);
 
-        this.romBanks = switch (this.romSizeHeader) {
-            case 0x00 -> new int[2][0x4000];
-            case 0x01 -> new int[4][0x4000];
-            case 0x02 -> new int[8][0x4000];
-            case 0x03 -> new int[16][0x4000];
+        int romBankCount = switch (this.romSizeHeader) {
+            case 0x00 -> 2;
+            case 0x01 -> 4;
+            case 0x02 -> 8;
+            case 0x03 -> 16;
             default -> throw new EmulatorException("Incompatible ROM size header $%02X for MBC2 GameBoy cartridge type!".formatted(this.romSizeHeader));
         };
 
-        if (cartridgeType == 0x06) {
-            this.sRam = new int[512];
-            this.hasBattery = true;
-        } else {
-            this.sRam = null;
-            this.hasBattery = false;
-        }
+        this.hasBattery = cartridgeType == 0x06;
 
         try {
-            for (int i = 0; i < this.romBanks.length; i++) {
-                int[] romBank = this.romBanks[i];
-                int start = i * romBank.length;
-                System.arraycopy(this.originalRom, start, romBank, 0, romBank.length);
-            }
+            this.romBanks = this.rom.split(romBankCount, 0x4000);
         } catch (Exception e) {
             throw new EmulatorException("Error initializing GameBoy cartridge ROM!", e);
         }
 
+        this.sRam = this.createRam(cartridgeType == 0x06 ? 512 : 0, this.hasBattery);
+
         this.romBankMask = ((1 << (32 - Integer.numberOfLeadingZeros(this.romBanks.length))) - 1) >> 1;
 
-        if (this.hasBattery) {
-            this.readSaveData().ifPresent(saveData -> {
-                try {
-                    System.arraycopy(saveData, 0, this.sRam, 0, Math.min(saveData.length, this.sRam.length));
-                } catch (Exception e) {
-                    Logger.error("Error reading save data for GameBoy MBC2 cartridge: {}", e);
-                }
-            });
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeByte(this.romBankNumber);
+        writer.writeByte(this.ramGate);
+        if (this.sRam != null) {
+            writer.writeRegion(this.sRam);
         }
+    }
 
+    @Override
+    public void loadState(StateReader reader) {
+        this.romBankNumber = reader.readByte();
+        this.ramGate = reader.readByte();
+        if (this.sRam != null && reader.readChangedRegion(this.sRam)) {
+            this.markSaveDataDirty();
+        }
+    }
+
+    @Override
+    public int getRomBank(int address) {
+        return address <= 0x3FFF ? 0 : (this.romBankNumber & 0xF) & this.romBankMask;
+    }
+
+    @Override
+    public @Nullable MemoryRegion getReadMemory(int address) {
+        // The built-in RAM only stores the lower nibble of each byte, so it isn't mapped
+        return address <= 0x7FFF ? this.romBanks[this.getRomBank(address)] : null;
     }
 
     @Override
     public int readByte(int address) {
         if (address >= 0x0000 && address <= 0x3FFF) {
-            return this.romBanks[0][address];
+            return this.romBanks[0].readByte(address);
         } else if (address >= 0x4000 && address <= 0x7FFF) {
-            return this.romBanks[(this.romBankNumber & 0xF) & this.romBankMask][address - 0x4000];
+            return this.romBanks[(this.romBankNumber & 0xF) & this.romBankMask].readByte(address - 0x4000);
         } else if (address >= 0xA000 && address <= 0xBFFF) {
             if ((this.ramGate & 0xF) == 0b1010 && this.sRam != null) {
-                return this.sRam[address & 0x1FF] | 0xF0;
+                return this.sRam.readByte(address & 0x1FF) | 0xF0;
             } else {
                 return 0xFF;
             }
@@ -94,14 +104,10 @@ public class MBC2 extends GameBoyCartridge {
             }
         } else if (address >= 0xA000 && address <= 0xBFFF) {
             if ((this.ramGate & 0xF) == 0b1010 && this.sRam != null) {
-                this.sRam[address & 0x1FF] = value & 0xFF;
+                this.sRam.writeByte(address & 0x1FF, value);
+                this.markSaveDataDirty();
             }
         }
     }
 
-    @Override
-    protected Optional<int[]> getSaveData() {
-        return Optional.ofNullable(this.hasBattery ? this.sRam : null);
-    }
-
 }
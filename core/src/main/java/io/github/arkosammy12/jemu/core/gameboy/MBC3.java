@@ -1,18 +1,18 @@
 package io.github.arkosammy12.jemu.core.gameboy;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import org.jetbrains.annotations.Nullable;
-import org.tinylog.Logger;
-
-import java.util.Arrays;
-import java.util.Optional;
 
 public class MBC3 extends GameBoyCartridge {
 
-    private final int[][] romBanks;
-    private final int @Nullable [][] ramBanks;
+    private final MemoryRegion[] romBanks;
+    private final @Nullable MemoryRegion sRam;
+    private final MemoryRegion @Nullable [] ramBanks;
 
-    protected int @Nullable [] saveData;
+    protected final @Nullable MemoryRegion saveData;
 
     private final int romBankMask;
     private final int ramBankMask;
@@ -25,74 +25,105 @@ public class MBC3 extends GameBoyCartridge {
     public MBC3(GameBoyEmulator emulator, int cartridgeType) {
         super(emulator, cartridgeType);
 
-        this.romBanks = switch (this.romSizeHeader) {
-            case 0x00 -> new int[2][0x4000];
-            case 0x01 -> new int[4][0x4000];
-            case 0x02 -> new int[8][0x4000];
-            case 0x03 -> new int[16][0x4000];
-            case 0x04 -> new int[32][0x4000];
-            case 0x05 -> new int[64][0x4000];
-            case 0x06 -> new int[128][0x4000];
+        int romBankCount = switch (this.romSizeHeader) {
+            case 0x00 -> 2;
+            case 0x01 -> 4;
+            case 0x02 -> 8;
+            case 0x03 -> 16;
+            case 0x04 -> 32;
+            case 0x05 -> 64;
+            case 0x06 -> 128;
             default -> throw new EmulatorException("Incompatible ROM size header $%02X for MBC3 GameBoy cartridge type!".formatted(this.romSizeHeader));
         };
 
+        int ramSize;
         if (cartridgeType == 0x10 || cartridgeType == 0x12 || cartridgeType == 0x13) {
-            this.ramBanks = switch (this.ramSizeHeader) {
-                case 0x00 -> null;
-                case 0x01 -> new int[1][0x800];
-                case 0x02 -> new int[1][0x2000];
-                case 0x03 -> new int[4][0x2000];
+            ramSize = switch (this.ramSizeHeader) {
+                case 0x00 -> 0;
+                case 0x01 -> 0x800;
+                case 0x02 -> 0x2000;
+                case 0x03 -> 4 * 0x2000;
                 default -> throw new EmulatorException("Incompatible RAM size header $%02X for MBC3 GameBoy cartridge type!".formatted(this.ramSizeHeader));
             };
         } else {
-            this.ramBanks = null;
+            ramSize = 0;
         }
 
         this.hasBattery = cartridgeType == 0x0F || cartridgeType == 0x10 || cartridgeType == 0x13;
 
         try {
-            for (int i = 0; i < this.romBanks.length; i++) {
-                int[] romBank = this.romBanks[i];
-                int start = i * romBank.length;
-                System.arraycopy(this.originalRom, start, romBank, 0, romBank.length);
-            }
+            this.romBanks = this.rom.split(romBankCount, 0x4000);
         } catch (Exception e) {
             throw new EmulatorException("Error initializing GameBoy cartridge ROM!", e);
         }
 
+        // Anything the cartridge keeps besides its RAM is stored after it in the same save file
+        this.saveData = this.createRam(ramSize + this.getClockDataLength(), this.hasBattery);
+        this.sRam = this.saveData == null || ramSize == 0 ? null : this.saveData.slice(0, ramSize);
+        this.ramBanks = this.sRam == null ? null : this.sRam.split(0x2000);
+
         this.romBankMask = ((1 << (32 - Integer.numberOfLeadingZeros(this.romBanks.length))) - 1) >> 1;
         this.ramBankMask = this.ramBanks == null ? 0 : ((1 << (32 - Integer.numberOfLeadingZeros(this.ramBanks.length))) - 1) >> 1;
 
-        if (this.hasBattery) {
-            this.readSaveData().ifPresent(saveData -> {
-                this.saveData = saveData;
-                if (this.ramBanks == null) {
-                    return;
-                }
-                try {
-                    for (int i = 0; i < this.ramBanks.length; i++) {
-                        int[] bank = this.ramBanks[i];
-                        System.arraycopy(saveData, i * bank.length, bank, 0, bank.length);
-                    }
-                } catch (Exception e) {
-                    Logger.error("Error reading save data for GameBoy MBC3 cartridge: {}", e);
-                }
-            });
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeByte(this.romBankNumber);
+        writer.writeByte(this.ramBankNumber);
+        writer.writeByte(this.ramEnable);
+        if (this.sRam != null) {
+            writer.writeRegion(this.sRam);
+        }
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.romBankNumber = reader.readByte();
+        this.ramBankNumber = reader.readByte();
+        this.ramEnable = reader.readByte();
+        if (this.sRam != null && reader.readChangedRegion(this.sRam)) {
+            this.markSaveDataDirty();
+        }
+    }
+
+    protected int getClockDataLength() {
+        return 0;
+    }
+
+    @Override
+    public int getRomBank(int address) {
+        return address <= 0x3FFF ? 0 : this.romBankNumber & this.romBankMask;
+    }
+
+    @Override
+    public @Nullable MemoryRegion getReadMemory(int address) {
+        if (address <= 0x7FFF) {
+            return this.romBanks[this.getRomBank(address)];
         }
+        return this.getWriteMemory(address);
+    }
+
+    @Override
+    public @Nullable MemoryRegion getWriteMemory(int address) {
+        if (address <= 0x7FFF || this.ramBankNumber > 0x07 || this.ramEnable != 0x0A || this.ramBanks == null) {
+            return null;
+        }
+        return this.ramBanks[this.ramBankNumber & this.ramBankMask];
     }
 
     @Override
     public int readByte(int address) {
         if (address >= 0x0000 && address <= 0x3FFF) {
-            return this.romBanks[0][address];
+            return this.romBanks[0].readByte(address);
         } else if (address >= 0x4000 && address <= 0x7FFF) {
-            return this.romBanks[this.romBankNumber & this.romBankMask][address - 0x4000];
+            return this.romBanks[this.romBankNumber & this.romBankMask].readByte(address - 0x4000);
         } else if (address >= 0xA000 && address <= 0xBFFF) {
             if (this.ramBankNumber <= 0x07 && this.ramEnable == 0x0A && this.ramBanks != null) {
-                int[] ramBank = this.ramBanks[this.ramBankNumber & this.ramBankMask];
+                MemoryRegion ramBank = this.ramBanks[this.ramBankNumber & this.ramBankMask];
                 address -= 0xA000;
-                if (address < ramBank.length) {
-                    return ramBank[address];
+                if (address < ramBank.length()) {
+                    return ramBank.readByte(address);
                 } else {
                     return 0xFF;
                 }
@@ -118,18 +149,13 @@ public class MBC3 extends GameBoyCartridge {
             this.ramBankNumber = value & 0xFF;
         } else if (address >= 0xA000 && address <= 0xBFFF) {
             if (this.ramBankNumber <= 0x07 && this.ramEnable == 0x0A && this.ramBanks != null) {
-                int[] ramBank = this.ramBanks[this.ramBankNumber & this.ramBankMask];
+                MemoryRegion ramBank = this.ramBanks[this.ramBankNumber & this.ramBankMask];
                 address -= 0xA000;
-                if (address < ramBank.length) {
-                    ramBank[address] = value & 0xFF;
+                if (address < ramBank.length()) {
+                    ramBank.writeByte(address, value);
                 }
             }
         }
     }
 
-    @Override
-    protected Optional<int[]> getSaveData() {
-        return Optional.ofNullable(this.hasBattery ? this.ramBanks : null).map(banks -> Arrays.stream(banks).flatMapToInt(Arrays::stream).toArray());
-    }
-
 }
@@ -0,0 +1,70 @@
+package io.github.arkosammy12.jemu.core.gameboy;
+
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+
+import java.util.Arrays;
+
+// A ring of at most 8 pixel entries. Slots that are not occupied are kept at 0, which the PPUs read as a transparent pixel
+public final class PixelFifo implements Snapshottable {
+
+    public static final int CAPACITY = 8;
+
+    private final int[] entries = new int[CAPACITY];
+    private int head;
+    private int size;
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size <= 0;
+    }
+
+    public void clear() {
+        Arrays.fill(this.entries, 0);
+        this.head = 0;
+        this.size = 0;
+    }
+
+    public void enqueue(int pixel) {
+        this.entries[(this.head + this.size) & (CAPACITY - 1)] = pixel;
+        this.size++;
+    }
+
+    public int dequeue() {
+        int pixel = this.entries[this.head];
+        this.entries[this.head] = 0;
+        this.head = (this.head + 1) & (CAPACITY - 1);
+        this.size--;
+        return pixel;
+    }
+
+    // Indexes are relative to the front of the queue
+    public int get(int index) {
+        return this.entries[(this.head + index) & (CAPACITY - 1)];
+    }
+
+    public void set(int index, int pixel) {
+        this.entries[(this.head + index) & (CAPACITY - 1)] = pixel;
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeByte(this.size);
+        for (int i = 0; i < this.size; i++) {
+            writer.writeInt(this.get(i));
+        }
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.clear();
+        for (int i = reader.readByte(); i > 0; i--) {
+            this.enqueue(reader.readInt());
+        }
+    }
+
+}
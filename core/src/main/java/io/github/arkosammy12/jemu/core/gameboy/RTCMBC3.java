@@ -1,12 +1,16 @@
 package io.github.arkosammy12.jemu.core.gameboy;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.Scheduler;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
-
-import java.util.Optional;
+import org.jetbrains.annotations.Nullable;
 
 public class RTCMBC3 extends MBC3 {
 
     private static final int CLOCK_FREQUENCY = 32768;
+    private static final int M_CYCLES_PER_CLOCK = 32;
 
     private static final int HALT_MASK = 1 << 6;
     private static final int DAY_CARRY = 1 << 7;
@@ -17,6 +21,8 @@ public class RTCMBC3 extends MBC3 {
     private static final int RTC_DL_ADDR = 0x0B;
     private static final int RTC_DH_ADDR = 0x0C;
 
+    private static final int CLOCK_DATA_LENGTH = 48;
+
     private int seconds;
     private int minutes;
     private int hours;
@@ -32,37 +38,82 @@ public class RTCMBC3 extends MBC3 {
     private int subSecondCounter;
     private int cycles;
 
+    private final Scheduler scheduler;
+    private final Scheduler.Event secondEvent;
+
+    // The first scheduler cycle that has not been applied to the clock yet
+    private long syncedCycle;
+
+    private final @Nullable MemoryRegion clockData;
+
     public RTCMBC3(GameBoyEmulator emulator, int cartridgeType) {
         super(emulator, cartridgeType);
+        this.scheduler = emulator.getScheduler();
+        this.secondEvent = this.scheduler.register(this::onSecondEvent);
+        this.scheduleNextSecond();
+
+        this.clockData = this.saveData == null ? null : this.saveData.slice(this.saveData.length() - CLOCK_DATA_LENGTH, CLOCK_DATA_LENGTH);
+        if (this.clockData != null) {
+            this.internalSeconds = this.clockData.readByte(0);
+            this.internalMinutes = this.clockData.readByte(4);
+            this.internalHours = this.clockData.readByte(8);
+            this.internalDays = ((this.clockData.readByte(16) != 0 ? 1 : 0) << 8) | this.clockData.readByte(12);
+            this.seconds = this.clockData.readByte(20);
+            this.minutes = this.clockData.readByte(24);
+            this.hours = this.clockData.readByte(28);
+            this.daysLower = this.clockData.readByte(32);
+            this.daysUpperAndControl |= (this.clockData.readByte(36) != 0) ? 1 : 0;
+        }
+    }
 
-        if (this.saveData != null) {
-            int rtcDataStart = switch (this.ramSizeHeader) {
-                  case 0x01 -> 0x800;
-                  case 0x02 -> 0x2000;
-                  case 0x03 -> 4 * 0x2000;
-                  default -> 0;
-            };
-            if (rtcDataStart + 36 >= saveData.length) {
-                return;
-            }
+    @Override
+    protected int getClockDataLength() {
+        return CLOCK_DATA_LENGTH;
+    }
 
-            this.internalSeconds = saveData[rtcDataStart] & 0xFF;
-            this.internalMinutes = saveData[rtcDataStart + 4] & 0xFF;
-            this.internalHours = saveData[rtcDataStart + 8] & 0xFF;
-            this.internalDays = ((saveData[rtcDataStart + 16] != 0 ? 1 : 0) << 8) | (saveData[rtcDataStart + 12] & 0xFF);
-            this.seconds = saveData[rtcDataStart + 20] & 0xFF;
-            this.minutes = saveData[rtcDataStart + 24] & 0xFF;
-            this.hours = saveData[rtcDataStart + 28] & 0xFF;
-            this.daysLower = saveData[rtcDataStart + 32] & 0xFF;
-            this.daysUpperAndControl |= (saveData[rtcDataStart + 36] != 0) ? 1 : 0;
+    // The clock is caught up first, since flushing the save data also syncs it at times that depend on the host
+    @Override
+    public void saveState(StateWriter writer) {
+        this.sync(this.scheduler.getCycle());
+        super.saveState(writer);
+        writer.writeByte(this.seconds);
+        writer.writeByte(this.minutes);
+        writer.writeByte(this.hours);
+        writer.writeByte(this.daysLower);
+        writer.writeByte(this.daysUpperAndControl);
+        writer.writeInt(this.internalSeconds);
+        writer.writeInt(this.internalMinutes);
+        writer.writeInt(this.internalHours);
+        writer.writeInt(this.internalDays);
+        writer.writeInt(this.latchControl);
+        writer.writeInt(this.subSecondCounter);
+        writer.writeInt(this.cycles);
+        writer.writeLong(this.syncedCycle);
+    }
 
-        }
+    @Override
+    public void loadState(StateReader reader) {
+        super.loadState(reader);
+        this.seconds = reader.readByte();
+        this.minutes = reader.readByte();
+        this.hours = reader.readByte();
+        this.daysLower = reader.readByte();
+        this.daysUpperAndControl = reader.readByte();
+        this.internalSeconds = reader.readInt();
+        this.internalMinutes = reader.readInt();
+        this.internalHours = reader.readInt();
+        this.internalDays = reader.readInt();
+        this.latchControl = reader.readInt();
+        this.subSecondCounter = reader.readInt();
+        this.cycles = reader.readInt();
+        this.syncedCycle = reader.readLong();
     }
 
     @Override
     public int readByte(int address) {
         if (address >= 0xA000 && address <= 0xBFFF) {
             if (this.ramBankNumber >= 0x08 && this.ramBankNumber <= 0x0C && this.ramEnable == 0x0A) {
+                this.sync(this.scheduler.getCycle());
                 return switch (this.ramBankNumber) {
                     case RTC_S_ADDR -> this.seconds;
                     case RTC_M_ADDR -> this.minutes;
@@ -80,6 +131,7 @@ public class RTCMBC3 extends MBC3 {
     public void writeByte(int address, int value) {
         if (address >= 0xA000 && address <= 0xBFFF) {
             if (this.ramBankNumber >= 0x08 && this.ramBankNumber <= 0x0C && this.ramEnable == 0x0A) {
+                this.sync(this.scheduler.getCycle());
                 switch (this.ramBankNumber) {
                     case RTC_S_ADDR -> {
                         this.internalSeconds = value & 0x3F;
@@ -94,11 +146,13 @@ public class RTCMBC3 extends MBC3 {
                     }
                     default -> throw new EmulatorException("Invalid RTC register address $%04X for the GameBoy MBC3 cartridge type!");
                 }
+                this.scheduleNextSecond();
             } else {
                 super.writeByte(address, value);
             }
         } else if (address >= 0x6000 && address <= 0x7FFF) {
             if (this.latchControl == 0x00 && (value & 0xFF) == 0x01) {
+                this.sync(this.scheduler.getCycle());
                 this.seconds = this.internalSeconds & 0xFF;
                 this.minutes = this.internalMinutes & 0xFF;
                 this.hours = this.internalHours & 0xFF;
@@ -112,83 +166,100 @@ public class RTCMBC3 extends MBC3 {
         }
     }
 
-    @Override
-    public void cycle() {
-        this.cycles++;
-
-        if (this.cycles >= 32) {
-            this.cycles = 0;
-
-            if ((this.daysUpperAndControl & HALT_MASK) == 0) {
-                this.subSecondCounter++;
-
-                if (this.subSecondCounter >= CLOCK_FREQUENCY) {
-                    this.subSecondCounter = 0;
-
-                    this.internalSeconds++;
-                    if (this.internalSeconds == 60) {
-                        this.internalSeconds = 0;
-
-                        this.internalMinutes++;
-                        if (this.internalMinutes == 60) {
-                            this.internalMinutes = 0;
-
-                            this.internalHours++;
-                            if (this.internalHours == 24) {
-                                this.internalHours = 0;
-
-                                this.internalDays++;
-                                if (this.internalDays >= 512) {
-                                    this.internalDays = 0;
-                                    this.daysUpperAndControl |= DAY_CARRY;
-                                }
-                            } else if (this.internalHours == 32) {
-                                this.internalHours = 0;
-                            }
-                        } else if (this.internalMinutes == 64) {
-                            this.internalMinutes = 0;
-                        }
-                    } else if (this.internalSeconds == 64) {
-                        this.internalSeconds = 0;
+    private void onSecondEvent() {
+        this.sync(this.scheduler.getCycle() + 1);
+        this.scheduleNextSecond();
+    }
+
+    private void scheduleNextSecond() {
+        if ((this.daysUpperAndControl & HALT_MASK) != 0) {
+            this.scheduler.cancel(this.secondEvent);
+            return;
+        }
+        long cyclesUntilNextSecond = (M_CYCLES_PER_CLOCK - this.cycles) + (long) M_CYCLES_PER_CLOCK * (CLOCK_FREQUENCY - 1 - this.subSecondCounter);
+        this.scheduler.schedule(this.secondEvent, this.syncedCycle + cyclesUntilNextSecond - 1);
+    }
+
+    // Applies every M-cycle before the given scheduler cycle. The 32768 Hz clock only ticks while the RTC is not halted,
+    // so the elapsed time is turned into whole seconds at once instead of being counted cycle by cycle
+    private void sync(long cycle) {
+        long elapsedCycles = cycle - this.syncedCycle;
+        if (elapsedCycles <= 0) {
+            return;
+        }
+        this.syncedCycle = cycle;
+
+        long totalCycles = this.cycles + elapsedCycles;
+        long clockTicks = totalCycles / M_CYCLES_PER_CLOCK;
+        this.cycles = (int) (totalCycles % M_CYCLES_PER_CLOCK);
+        if ((this.daysUpperAndControl & HALT_MASK) != 0) {
+            return;
+        }
+
+        long totalClockTicks = this.subSecondCounter + clockTicks;
+        this.subSecondCounter = (int) (totalClockTicks % CLOCK_FREQUENCY);
+        for (long i = totalClockTicks / CLOCK_FREQUENCY; i > 0; i--) {
+            this.tickSecond();
+        }
+    }
+
+    private void tickSecond() {
+        this.internalSeconds++;
+        if (this.internalSeconds == 60) {
+            this.internalSeconds = 0;
+
+            this.internalMinutes++;
+            if (this.internalMinutes == 60) {
+                this.internalMinutes = 0;
+
+                this.internalHours++;
+                if (this.internalHours == 24) {
+                    this.internalHours = 0;
+
+                    this.internalDays++;
+                    if (this.internalDays >= 512) {
+                        this.internalDays = 0;
+                        this.daysUpperAndControl |= DAY_CARRY;
                     }
+                } else if (this.internalHours == 32) {
+                    this.internalHours = 0;
                 }
+            } else if (this.internalMinutes == 64) {
+                this.internalMinutes = 0;
             }
+        } else if (this.internalSeconds == 64) {
+            this.internalSeconds = 0;
         }
     }
 
-
+    // VBA-M format 48-byte version. We write 7fffffff7fffffff in little-endian as we do not care about the UNIX timestamp
     @Override
-    protected Optional<int[]> getSaveData() {
-        return super.getSaveData().map(data -> {
-
-            // VBA-M format 48-byte version. We write 7fffffff7fffffff in little-endian as we do not care about the UNIX timestamp
-            int[] dataWithRtc = new int[data.length + 48];
-
-            System.arraycopy(data, 0, dataWithRtc, 0, data.length);
-
-            dataWithRtc[data.length] = this.internalSeconds & 0xFF;
-            dataWithRtc[data.length + 4] = this.internalMinutes & 0xFF;
-            dataWithRtc[data.length + 8] = this.internalHours & 0xFF;
-            dataWithRtc[data.length + 12] = this.internalDays & 0xFF;
-            dataWithRtc[data.length + 16] = (this.internalDays >>> 8) & 1;
-            dataWithRtc[data.length + 20] = this.seconds & 0xFF;
-            dataWithRtc[data.length + 24] = this.minutes & 0xFF;
-            dataWithRtc[data.length + 28] = this.hours & 0xFF;
-            dataWithRtc[data.length + 32] = this.daysLower & 0xFF;
-            dataWithRtc[data.length + 36] = this.daysUpperAndControl & 1;
-            dataWithRtc[data.length + 40] = 0xFF;
-            dataWithRtc[data.length + 41] = 0xFF;
-            dataWithRtc[data.length + 42] = 0xFF;
-            dataWithRtc[data.length + 43] = 0x7F;
-            dataWithRtc[data.length + 44] = 0xFF;
-            dataWithRtc[data.length + 45] = 0xFF;
-            dataWithRtc[data.length + 46] = 0xFF;
-            dataWithRtc[data.length + 47] = 0x7F;
-
-            return dataWithRtc;
-
-        });
+    protected void updateSaveData() {
+        if (this.clockData == null) {
+            return;
+        }
+        this.sync(this.scheduler.getCycle());
+        this.writeClockData(0, this.internalSeconds & 0xFF);
+        this.writeClockData(4, this.internalMinutes & 0xFF);
+        this.writeClockData(8, this.internalHours & 0xFF);
+        this.writeClockData(12, this.internalDays & 0xFF);
+        this.writeClockData(16, (this.internalDays >>> 8) & 1);
+        this.writeClockData(20, this.seconds & 0xFF);
+        this.writeClockData(24, this.minutes & 0xFF);
+        this.writeClockData(28, this.hours & 0xFF);
+        this.writeClockData(32, this.daysLower & 0xFF);
+        this.writeClockData(36, this.daysUpperAndControl & 1);
+        for (int i = 40; i < CLOCK_DATA_LENGTH; i++) {
+            this.writeClockData(i, (i & 3) == 3 ? 0x7F : 0xFF);
+        }
     }
 
+    // Only bytes that actually changed dirty the save data, so a clock that is only read doesn't cause flushes
+    private void writeClockData(int address, int value) {
+        if (this.clockData != null && this.clockData.readByte(address) != value) {
+            this.clockData.writeByte(address, value);
+            this.markSaveDataDirty();
+        }
+    }
 
 }
@@ -1,5 +1,7 @@
 package io.github.arkosammy12.jemu.core.gameboycolor;
 
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.gameboy.DMGAPU;
 
 import static io.github.arkosammy12.jemu.core.gameboy.DMGMMIOBus.WAVERAM_START;
@@ -28,6 +30,18 @@ public class CGBAPU<E extends GameBoyColorEmulator> extends DMGAPU<E> {
 
         private boolean triggeredThisCycle = false;
 
+        @Override
+        public void saveState(StateWriter writer) {
+            super.saveState(writer);
+            writer.writeBoolean(this.triggeredThisCycle);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            super.loadState(reader);
+            this.triggeredThisCycle = reader.readBoolean();
+        }
+
         @Override
         protected int readWaveRam(int address) {
             this.firstFetchConsumed = this.fetchedFirstByte;
@@ -54,18 +68,14 @@ public class CGBAPU<E extends GameBoyColorEmulator> extends DMGAPU<E> {
         }
 
         @Override
-        protected int tick() {
-            if (!this.getEnabled() || this.triggeredThisCycle) {
+        protected void run(int time, int cycles) {
+            // The first tick after a trigger doesn't clock the period timer
+            if (this.triggeredThisCycle && cycles > 0) {
                 this.triggeredThisCycle = false;
-                int amplitude;
-                if (this.waveRamIndex % 2 == 0) {
-                    amplitude = (this.waveSampleBuffer >>> 4) & 0xF;
-                } else {
-                    amplitude = this.waveSampleBuffer & 0xF;
-                }
-                return amplitude >>> this.getShiftAmount();
+                time++;
+                cycles--;
             }
-            return super.tick();
+            super.run(time, cycles);
         }
 
         @Override
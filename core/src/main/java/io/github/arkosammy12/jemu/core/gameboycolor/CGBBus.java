@@ -1,5 +1,9 @@
 package io.github.arkosammy12.jemu.core.gameboycolor;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.Scheduler;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.cpu.SM83;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.gameboy.DMGBus;
@@ -207,6 +211,9 @@ public class CGBBus<E extends GameBoyColorEmulator> extends DMGBus<E> {
             0x20, 0xf9, 0x2e, 0x0f, 0x18, 0xf5, 0xf1, 0xc9, 0x00, 0x00, 0x00, 0x00
     };
 
+    private static final MemoryRegion SAMEBOY_CGB_BOOT_ROM_REGION = MemoryRegion.copyOf(SAMEBOY_CGB_BOOT_ROM);
+    private static final DMAType[] DMA_TYPES = DMAType.values();
+
     private int hdmaSourceAddress;
     private int hdmaDestinationAddress;
     private int hdmaControl;
@@ -221,62 +228,113 @@ public class CGBBus<E extends GameBoyColorEmulator> extends DMGBus<E> {
     private boolean haltCpu;
     private int hdmaTransferredBytes;
 
+    private final Scheduler.Event vdmaEvent;
+
     public CGBBus(E emulator) {
         super(emulator);
+        this.vdmaEvent = emulator.getScheduler().register(this::onVdmaEvent);
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        super.saveState(writer);
+        writer.writeShort(this.hdmaSourceAddress);
+        writer.writeShort(this.hdmaDestinationAddress);
+        writer.writeByte(this.hdmaControl);
+        writer.writeByte(this.currentDmaType == null ? 0 : this.currentDmaType.ordinal() + 1);
+        writer.writeInt(this.oldPpuMode);
+        writer.writeInt(this.hdmaTransferDelay);
+        writer.writeInt(this.hdmaCurrentSize);
+        writer.writeBoolean(this.hdmaTransferInProgress);
+        writer.writeBoolean(this.hdmaCopyingBlock);
+        writer.writeBoolean(this.haltCpu);
+        writer.writeInt(this.hdmaTransferredBytes);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        super.loadState(reader);
+        this.hdmaSourceAddress = reader.readShort();
+        this.hdmaDestinationAddress = reader.readShort();
+        this.hdmaControl = reader.readByte();
+        int dmaType = reader.readByte();
+        this.currentDmaType = dmaType == 0 ? null : DMA_TYPES[dmaType - 1];
+        this.oldPpuMode = reader.readInt();
+        this.hdmaTransferDelay = reader.readInt();
+        this.hdmaCurrentSize = reader.readInt();
+        this.hdmaTransferInProgress = reader.readBoolean();
+        this.hdmaCopyingBlock = reader.readBoolean();
+        this.haltCpu = reader.readBoolean();
+        this.hdmaTransferredBytes = reader.readInt();
+    }
+
+    @Override
+    protected MemoryRegion[] createWorkRam() {
+        return MemoryRegion.allocate(8 * 0x1000).split(0x1000);
+    }
+
+    @Override
+    protected void mapBootRom() {
+        this.mapReadPages(0x0000, 0x00FF, SAMEBOY_CGB_BOOT_ROM_REGION, 0x0000);
+        this.mapReadPages(0x0200, 0x08FF, SAMEBOY_CGB_BOOT_ROM_REGION, 0x0200);
     }
 
     @Override
-    protected int[][] createWorkRam() {
-        return new int[8][0x1000];
+    protected void mapWorkRam() {
+        MemoryRegion workRamBank = this.workRam[this.emulator.getMMIOBus().getWorkRamBank()];
+        this.mapPages(WRAM0_START, WRAM0_END, this.workRam[0], 0);
+        this.mapPages(WRAMX_START, WRAMX_END, workRamBank, 0);
+        this.mapPages(ECHO_START, 0xEFFF, this.workRam[0], 0);
+        this.mapPages(0xF000, ECHO_END, workRamBank, 0);
     }
 
     @Override
-    public int readByte(int address) {
+    protected int readByteUnmapped(int address) {
         if (this.oamTransferInProgress) {
-            return super.readByte(address);
+            return super.readByteUnmapped(address);
         } else if (this.enableBootRom && address >= 0x0000 && address <= 0x08FF) {
             if (address <= 0x00FF) {
                 return SAMEBOY_CGB_BOOT_ROM[address];
             } else if (address <= 0x01FF) {
-                return super.readByte(address);
+                return super.readByteUnmapped(address);
             } else {
                 return SAMEBOY_CGB_BOOT_ROM[address];
             }
         } else if (address >= WRAMX_START && address <= WRAMX_END) {
-            return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()][address - WRAMX_START];
+            return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()].readByte(address - WRAMX_START);
         } else if (address >= ECHO_START && address <= ECHO_END) {
             address &= 0x1FFF;
-            if (address < this.workRam[0].length) {
-                return this.workRam[0][address];
+            if (address < this.workRam[0].length()) {
+                return this.workRam[0].readByte(address);
             } else {
-                return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()][address & 0xFFF];
+                return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()].readByte(address & 0xFFF);
             }
         } else if (address >= IO_START && address <= IO_END) {
             return switch (address) {
                 case HDMA_1, HDMA_2, HDMA_3, HDMA_4 -> 0xFF;
                 case HDMA_5 -> this.hdmaControl;
-                default -> super.readByte(address);
+                default -> super.readByteUnmapped(address);
             };
         } else {
-            return super.readByte(address);
+            return super.readByteUnmapped(address);
         }
     }
 
     @Override
-    public void writeByte(int address, int value) {
+    protected void writeByteUnmapped(int address, int value) {
         value &= 0xFF;
         if (this.oamTransferInProgress) {
-            super.writeByte(address, value);
+            super.writeByteUnmapped(address, value);
             return;
         }
         if (address >= WRAMX_START && address <= WRAMX_END) {
-            this.workRam[this.emulator.getMMIOBus().getWorkRamBank()][address - WRAMX_START] = value & 0xFF;
+            this.workRam[this.emulator.getMMIOBus().getWorkRamBank()].writeByte(address - WRAMX_START, value);
         } else if (address >= ECHO_START && address <= ECHO_END) {
             address &= 0x1FFF;
-            if (address < this.workRam[0].length) {
-                this.workRam[0][address] = value & 0xFF;
+            if (address < this.workRam[0].length()) {
+                this.workRam[0].writeByte(address, value);
             } else {
-                this.workRam[this.emulator.getMMIOBus().getWorkRamBank()][address & 0xFFF] = value & 0xFF;
+                this.workRam[this.emulator.getMMIOBus().getWorkRamBank()].writeByte(address & 0xFFF, value);
             }
         }  else if (address >= IO_START && address <= IO_END) {
             switch (address) {
@@ -294,6 +352,7 @@ public class CGBBus<E extends GameBoyColorEmulator> extends DMGBus<E> {
                                 case DOUBLE_SPEED -> 1;
                                 case SINGLE_SPEED -> 2;
                             };
+                            this.emulator.getScheduler().schedule(this.vdmaEvent, this.emulator.getScheduler().getCycle());
                         } else {
                             this.hdmaControl = (0x80 | value) & 0xFF;
                             this.currentDmaType = null;
@@ -309,12 +368,17 @@ public class CGBBus<E extends GameBoyColorEmulator> extends DMGBus<E> {
                             case DOUBLE_SPEED -> 1;
                             case SINGLE_SPEED -> 2;
                         };
+                        this.emulator.getScheduler().schedule(this.vdmaEvent, this.emulator.getScheduler().getCycle());
                     }
                 }
-                default -> super.writeByte(address, value);
+                case WBK -> {
+                    super.writeByteUnmapped(address, value);
+                    this.mapWorkRam();
+                }
+                default -> super.writeByteUnmapped(address, value);
             }
         } else {
-            super.writeByte(address, value);
+            super.writeByteUnmapped(address, value);
         }
     }
 
@@ -322,7 +386,15 @@ public class CGBBus<E extends GameBoyColorEmulator> extends DMGBus<E> {
         return this.haltCpu;
     }
 
-    public void cycleVDMA() {
+    private void onVdmaEvent() {
+        this.emulator.getVideoGenerator().sync(this.emulator.getScheduler().getCycle() + 1);
+        this.cycleVDMA();
+        if (this.hdmaTransferInProgress || this.hdmaTransferDelay > 0) {
+            this.emulator.getScheduler().schedule(this.vdmaEvent, this.emulator.getScheduler().getCycle() + 1);
+        }
+    }
+
+    private void cycleVDMA() {
         if (this.hdmaTransferInProgress) {
             switch (this.currentDmaType) {
                 case GENERAL -> {
@@ -429,9 +501,9 @@ public class CGBBus<E extends GameBoyColorEmulator> extends DMGBus<E> {
         } else if (address >= SRAM_START && address <= SRAM_END) {
             return this.emulator.getCartridge().readByte(address);
         } else if (address >= WRAM0_START && address <= WRAM0_END) {
-            return this.workRam[0][address - WRAM0_START];
+            return this.workRam[0].readByte(address - WRAM0_START);
         } else if (address >= WRAMX_START && address <= WRAMX_END) {
-            return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()][address - WRAMX_START];
+            return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()].readByte(address - WRAMX_START);
         } else if (address >= 0xE000 && address <= 0xFFFF) {
             return 0xFF;
             //return this.emulator.getCartridge().readByte(0xA000 + (address - 0xE000));
@@ -453,20 +525,20 @@ public class CGBBus<E extends GameBoyColorEmulator> extends DMGBus<E> {
                 return super.readByteDma(address);
             }
         } else if (address >= WRAMX_START && address <= WRAMX_END) {
-            return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()][address - WRAMX_START];
+            return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()].readByte(address - WRAMX_START);
         } else if (address >= ECHO_START && address <= ECHO_END) {
             address &= 0x1FFF;
-            if (address < this.workRam[0].length) {
-                return this.workRam[0][address];
+            if (address < this.workRam[0].length()) {
+                return this.workRam[0].readByte(address);
             } else {
-                return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()][address & 0xFFF];
+                return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()].readByte(address & 0xFFF);
             }
         } else if (address >= 0xFE00 && address <= 0xFFFF) {
             address &= 0x1FFF;
-            if (address < this.workRam[0].length) {
-                return this.workRam[0][address];
+            if (address < this.workRam[0].length()) {
+                return this.workRam[0].readByte(address);
             } else {
-                return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()][address & 0xFFF];
+                return this.workRam[this.emulator.getMMIOBus().getWorkRamBank()].readByte(address & 0xFFF);
             }
         } else {
             return super.readByteDma(address);
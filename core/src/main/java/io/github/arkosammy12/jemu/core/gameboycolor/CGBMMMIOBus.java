@@ -1,6 +1,8 @@
 package io.github.arkosammy12.jemu.core.gameboycolor;
 
 import io.github.arkosammy12.jemu.core.gameboy.DMGMMIOBus;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import org.tinylog.Logger;
 
 public class CGBMMMIOBus<E extends GameBoyColorEmulator> extends DMGMMIOBus<E> {
@@ -46,6 +48,32 @@ public class CGBMMMIOBus<E extends GameBoyColorEmulator> extends DMGMMIOBus<E> {
         super(emulator);
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        super.saveState(writer);
+        writer.writeBoolean(this.dmgCompatibilityMode);
+        writer.writeByte(this.key1);
+        writer.writeByte(this.workRamBank);
+        writer.writeByte(this.infraredPort);
+        writer.writeByte(this.unknownRegister1);
+        writer.writeByte(this.unknownRegister2);
+        writer.writeByte(this.unknownRegister3);
+        writer.writeByte(this.unknownRegister4);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        super.loadState(reader);
+        this.dmgCompatibilityMode = reader.readBoolean();
+        this.key1 = reader.readByte();
+        this.workRamBank = reader.readByte();
+        this.infraredPort = reader.readByte();
+        this.unknownRegister1 = reader.readByte();
+        this.unknownRegister2 = reader.readByte();
+        this.unknownRegister3 = reader.readByte();
+        this.unknownRegister4 = reader.readByte();
+    }
+
     public boolean isSwitchSpeedArmed() {
         return (this.key1 & 1) != 0;
     }
@@ -89,6 +117,7 @@ public class CGBMMMIOBus<E extends GameBoyColorEmulator> extends DMGMMIOBus<E> {
     public void writeByte(int address, int value) {
         if (address == KEY_0) {
             if (this.emulator.getBus().isBootRomEnabled()) {
+                this.emulator.getVideoGenerator().sync();
                 this.dmgCompatibilityMode = (value & 0b100) != 0;
             }
         } else if (address == KEY_1) {
@@ -1,5 +1,8 @@
 package io.github.arkosammy12.jemu.core.gameboycolor;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.gameboy.DMGPPU;
 
@@ -9,9 +12,11 @@ import static io.github.arkosammy12.jemu.core.gameboycolor.CGBMMMIOBus.*;
 
 public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
 
+    private static final VRAMBank[] VRAM_BANKS = VRAMBank.values();
+
     private VRAMBank vramBank = VRAMBank.BANK_0;
 
-    private final int[] vRamBank1 = new int[0x2000];
+    private final MemoryRegion vRamBank1 = MemoryRegion.allocate(0x2000);
 
     private final int[] bgPaletteRam = new int[0x40];
     private final int[] objPaletteRam = new int[0x40];
@@ -27,6 +32,34 @@ public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
         super(emulator);
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        super.saveState(writer);
+        writer.writeByte(this.vramBank.ordinal());
+        writer.writeRegion(this.vRamBank1);
+        writer.writeInts(this.bgPaletteRam);
+        writer.writeInts(this.objPaletteRam);
+        writer.writeByte(this.backgroundPaletteIndex);
+        writer.writeByte(this.objectPaletteIndex);
+        writer.writeBoolean(this.objectPriorityMode);
+        writer.writeInt(this.bgFifoTileNumberPointer);
+        writer.writeInt(this.bgFifoCurrentTileAttributes);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        super.loadState(reader);
+        this.vramBank = VRAM_BANKS[reader.readByte()];
+        reader.readRegion(this.vRamBank1);
+        reader.readInts(this.bgPaletteRam);
+        reader.readInts(this.objPaletteRam);
+        this.backgroundPaletteIndex = reader.readByte();
+        this.objectPaletteIndex = reader.readByte();
+        this.objectPriorityMode = reader.readBoolean();
+        this.bgFifoTileNumberPointer = reader.readInt();
+        this.bgFifoCurrentTileAttributes = reader.readInt();
+    }
+
     protected int getLcdOffColor() {
         return 0xFFFFFFFF;
     }
@@ -37,11 +70,12 @@ public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
 
     @Override
     public int readByte(int address) {
+        this.sync();
         if (address >= VRAM_START && address <= VRAM_END) {
             if (!Mode.MODE_3_DRAWING.matchesValue(this.getPpuMode()) || !this.getLcdPpuEnable()) {
                 return switch (this.vramBank) {
-                    case BANK_0 -> this.vRam[address - VRAM_START];
-                    case BANK_1 -> this.vRamBank1[address - VRAM_START];
+                    case BANK_0 -> this.vRam.readByte(address - VRAM_START);
+                    case BANK_1 -> this.vRamBank1.readByte(address - VRAM_START);
                 };
             } else {
                 return 0xFF;
@@ -76,11 +110,13 @@ public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
 
     @Override
     public void writeByte(int address, int value) {
+        this.sync();
         if (address >= VRAM_START && address <= VRAM_END) {
             if (!Mode.MODE_3_DRAWING.matchesValue(this.getPpuMode()) || !this.getLcdPpuEnable()) {
+                this.cancelScanlineRendering();
                 switch (this.vramBank) {
-                    case BANK_0 -> this.vRam[address - VRAM_START] = value & 0xFF;
-                    case BANK_1 -> this.vRamBank1[address - VRAM_START] = value & 0xFF;
+                    case BANK_0 -> this.vRam.writeByte(address - VRAM_START, value);
+                    case BANK_1 -> this.vRamBank1.writeByte(address - VRAM_START, value);
                 }
             }
         } else {
@@ -89,6 +125,7 @@ public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
                 case BGPI -> this.backgroundPaletteIndex = value & 0xFF;
                 case BGPD -> {
                     if (!Mode.MODE_3_DRAWING.matchesValue(this.getPpuMode()) || !this.getLcdPpuEnable()) {
+                        this.cancelScanlineRendering();
                         this.bgPaletteRam[this.getBgPaletteAddress()] = value & 0xFF;
                     }
                     if (this.getBgPaletteAddressAutoIncrement()) {
@@ -98,13 +135,17 @@ public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
                 case OBPI -> this.objectPaletteIndex = value & 0xFF;
                 case OBPD -> {
                     if (!Mode.MODE_3_DRAWING.matchesValue(this.getPpuMode()) || !this.getLcdPpuEnable()) {
+                        this.cancelScanlineRendering();
                         this.objPaletteRam[this.getObjPaletteAddress()] = value & 0xFF;
                     }
                     if (this.getObjPaletteAddressAutoIncrement()) {
                         this.incrementObjPaletteAddress();
                     }
                 }
-                case OPRI -> this.objectPriorityMode = (value & 1) != 0;
+                case OPRI -> {
+                    this.cancelScanlineRendering();
+                    this.objectPriorityMode = (value & 1) != 0;
+                }
                 default -> super.writeByte(address, value);
             }
         }
@@ -298,13 +339,13 @@ public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
                     if (colorNumber == 0) {
                         continue;
                     }
-                    Integer currentQueuedPixel = this.spriteFifo.get(i);
-                    if (currentQueuedPixel == null || getCgbColorNumberFromObjPixelEntry(currentQueuedPixel) == 0 || (!this.objectPriorityMode && this.spriteFifoCurrentEntryIndex < getCgbOamIndexForObjPixelEntry(currentQueuedPixel))) {
+                    int currentQueuedPixel = this.spriteFifo.get(i);
+                    if (getCgbColorNumberFromObjPixelEntry(currentQueuedPixel) == 0 || (!this.objectPriorityMode && this.spriteFifoCurrentEntryIndex < getCgbOamIndexForObjPixelEntry(currentQueuedPixel))) {
                         this.spriteFifo.set(i, createCgbObjPixelEntry(colorNumber, priority, palette, this.spriteFifoCurrentEntryIndex));
                     }
                 }
 
-                this.spriteBuffer[this.spriteFifoCurrentEntryIndex] = null;
+                this.fetchedSprites |= 1 << this.spriteFifoCurrentEntryIndex;
                 this.spriteFifoCurrentEntryIndex = -1;
                 this.spriteFifoStep = 0;
 
@@ -319,11 +360,12 @@ public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
             return;
         }
 
-        int bgPixel = this.backgroundFifo.dequeueInt();
-        Integer objPixel = this.spriteFifo.poll();
-        this.spriteFifo.offer(null);
+        int bgPixel = this.backgroundFifo.dequeue();
+        int objPixel = this.spriteFifo.dequeue();
+        this.spriteFifo.enqueue(0);
 
-        Integer finalPixel;
+        int finalPixel;
+        boolean discarded = false;
         if (this.emulator.isDmgCompatibilityMode()) {
             if (!this.getBackgroundAndWindowEnable()) {
                 bgPixel = 0;
@@ -335,21 +377,20 @@ public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
             int bgDiscardTarget = this.scrollX % 8;
             if (!this.isRenderingWindow() && this.discardedPixels < bgDiscardTarget) {
                 this.discardedPixels++;
-                finalPixel = null;
+                discarded = true;
             }
 
-            if (objPixel != null) {
-                int objColorNumber = getDmgColorNumberFromObjPixelEntry(objPixel);
-                if (!this.getObjectEnable()) {
-                    objColorNumber = 0;
-                }
-                boolean objPriority = getDmgPriorityForObjPixelEntry(objPixel);
-                boolean objPalette = getDmgPaletteForObjPixelEntry(objPixel);
-                if (objColorNumber != 0 && !(objPriority && bgPixel != 0)) {
-                    int objPaletteReg = objPalette ? this.objectPalette1 : this.objectPalette0;
-                    int objPaletteIndex = (objPaletteReg >>> (objColorNumber * 2)) & 0b11;
-                    finalPixel = this.getARGBForObjPixelEntry(objPaletteIndex, objPalette ? 1 : 0);
-                }
+            int objColorNumber = getDmgColorNumberFromObjPixelEntry(objPixel);
+            if (!this.getObjectEnable()) {
+                objColorNumber = 0;
+            }
+            boolean objPriority = getDmgPriorityForObjPixelEntry(objPixel);
+            boolean objPalette = getDmgPaletteForObjPixelEntry(objPixel);
+            if (objColorNumber != 0 && !(objPriority && bgPixel != 0)) {
+                int objPaletteReg = objPalette ? this.objectPalette1 : this.objectPalette0;
+                int objPaletteIndex = (objPaletteReg >>> (objColorNumber * 2)) & 0b11;
+                finalPixel = this.getARGBForObjPixelEntry(objPaletteIndex, objPalette ? 1 : 0);
+                discarded = false;
             }
         } else {
             int bgColor = getCgbColorNumberFromBgPixelEntry(bgPixel);
@@ -365,31 +406,124 @@ public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
             int bgDiscardTarget = this.scrollX % 8;
             if (!this.isRenderingWindow() && this.discardedPixels < bgDiscardTarget) {
                 this.discardedPixels++;
-                finalPixel = null;
+                discarded = true;
             }
 
-            if (objPixel != null) {
-                boolean objPriority = getDmgPriorityForObjPixelEntry(objPixel);
-                int objColor = getCgbColorNumberFromObjPixelEntry(objPixel);
-                if (!this.getObjectEnable()) {
-                    objColor = 0;
-                }
-                int objPalette = getCgbPaletteFromObjPixelEntry(objPixel);
-                if (objColor != 0 && (!this.getBackgroundAndWindowEnable() || bgColor == 0 || (!bgPriority && !objPriority))) {
-                    finalPixel = this.getARGBForObjPixelEntry(objColor, objPalette);
-                }
+            boolean objPriority = getDmgPriorityForObjPixelEntry(objPixel);
+            int objColor = getCgbColorNumberFromObjPixelEntry(objPixel);
+            if (!this.getObjectEnable()) {
+                objColor = 0;
+            }
+            int objPalette = getCgbPaletteFromObjPixelEntry(objPixel);
+            if (objColor != 0 && (!this.getBackgroundAndWindowEnable() || bgColor == 0 || (!bgPriority && !objPriority))) {
+                finalPixel = this.getARGBForObjPixelEntry(objColor, objPalette);
+                discarded = false;
             }
         }
 
-        if (finalPixel != null) {
+        if (!discarded) {
             if (this.pixelX >= 8 && this.enablePixelWrites) {
-                this.lcd[this.pixelX - 8][this.scanlineNumber] = finalPixel;
+                this.lcd[(this.scanlineNumber * WIDTH) + this.pixelX - 8] = finalPixel;
             }
             this.pixelX++;
         }
 
     }
 
+    // The tile's attributes are returned in bits 16-23, above its data
+    @Override
+    protected int fetchScanlineTile(boolean window, int fetcherX, int pixelX) {
+        if (this.emulator.isDmgCompatibilityMode()) {
+            return super.fetchScanlineTile(window, fetcherX, pixelX);
+        }
+        int tileMapIndex;
+        int row;
+        if (window) {
+            tileMapIndex = ((fetcherX & 0x1F) + ((this.windowLine >>> 3) * 32)) & 0x3FF;
+            row = this.windowLine & 7;
+        } else {
+            tileMapIndex = ((((pixelX + this.scrollX) >> 3) & 0x1F) + ((((this.scanlineNumber + this.scrollY) & 0xFF) >>> 3) * 32)) & 0x3FF;
+            row = (this.scanlineNumber + this.scrollY) & 7;
+        }
+        int tileNumberPointer = ((window ? this.getWindowTileMap() : this.getBackgroundTileMap()) ? 0x9C00 : 0x9800) + tileMapIndex;
+        int tileNumber = this.getVRamByte(tileNumberPointer);
+        int tileAttributes = this.getVRamByte(tileNumberPointer, VRAMBank.BANK_1);
+        int tileAddress = this.getBackgroundAndWindowTiles() ? 0x8000 + (tileNumber * 16) : 0x9000 + ((byte) tileNumber) * 16;
+        if (getCgbYFlipFromBgAttributes(tileAttributes)) {
+            row = 7 - row;
+        }
+        int effectiveAddress = tileAddress + row * 2;
+        VRAMBank bank = getCgbVRamBankFromBgAttributes(tileAttributes);
+        return this.getVRamByte(effectiveAddress, bank) | (this.getVRamByte(effectiveAddress + 1, bank) << 8) | (tileAttributes << 16);
+    }
+
+    @Override
+    protected int getScanlineBackgroundPixel(int tile, int index) {
+        if (this.emulator.isDmgCompatibilityMode()) {
+            return super.getScanlineBackgroundPixel(tile, index);
+        }
+        int tileAttributes = tile >>> 16;
+        int bit = getCgbXFlipFromBgAttributes(tileAttributes) ? index : (7 - index);
+        int color = (((tile >>> (8 + bit)) & 1) << 1) | ((tile >>> bit) & 1);
+        return createCgbBgPixelEntry(color, getCgbPriorityFromBgAttributes(tileAttributes), getCgbPaletteFromBgAttributes(tileAttributes));
+    }
+
+    @Override
+    @SuppressWarnings("DuplicatedCode")
+    protected void fetchScanlineSprite(int[] spriteFifo, int spriteFifoHead, int entryIndex) {
+        if (this.emulator.isDmgCompatibilityMode()) {
+            super.fetchScanlineSprite(spriteFifo, spriteFifoHead, entryIndex);
+            return;
+        }
+        int spriteEntry = this.spriteBuffer[entryIndex];
+        int spriteAttributes = getSpriteAttributesFromEntry(spriteEntry);
+        int effectiveAddress = this.getScanlineSpriteTileAddress(spriteEntry);
+        VRAMBank bank = getCgbVRamBankFromObjAttributes(spriteAttributes);
+        int tileDataLow = this.getVRamByte(effectiveAddress, bank);
+        int tileDataHigh = this.getVRamByte((effectiveAddress + 1) & 0xFFFF, bank);
+        int spriteX = getSpriteXFromSpriteEntry(spriteEntry);
+        boolean xFlip = getXFlipFromObjAttributes(spriteAttributes);
+        boolean priority = getPriorityFromObjAttributes(spriteAttributes);
+        int palette = getCgbPaletteFromObjAttributes(spriteAttributes);
+        for (int i = 0; i < 8; i++) {
+            if (spriteX + i < 8) {
+                continue;
+            }
+            int bit = xFlip ? i : 7 - i;
+            int colorNumber = (((tileDataHigh >>> bit) & 1) << 1) | ((tileDataLow >>> bit) & 1);
+            if (colorNumber == 0) {
+                continue;
+            }
+            int slot = (spriteFifoHead + i) & (spriteFifo.length - 1);
+            int currentQueuedPixel = spriteFifo[slot];
+            if (getCgbColorNumberFromObjPixelEntry(currentQueuedPixel) == 0 || (!this.objectPriorityMode && entryIndex < getCgbOamIndexForObjPixelEntry(currentQueuedPixel))) {
+                spriteFifo[slot] = createCgbObjPixelEntry(colorNumber, priority, palette, entryIndex);
+            }
+        }
+    }
+
+    @Override
+    protected int getScanlinePixelColor(int bgPixel, int objPixel) {
+        if (this.emulator.isDmgCompatibilityMode()) {
+            if (!this.getBackgroundAndWindowEnable()) {
+                bgPixel = 0;
+            }
+            int objColorNumber = this.getObjectEnable() ? getDmgColorNumberFromObjPixelEntry(objPixel) : 0;
+            if (objColorNumber != 0 && !(getDmgPriorityForObjPixelEntry(objPixel) && bgPixel != 0)) {
+                boolean objPalette = getDmgPaletteForObjPixelEntry(objPixel);
+                int objPaletteIndex = ((objPalette ? this.objectPalette1 : this.objectPalette0) >>> (objColorNumber * 2)) & 0b11;
+                return this.getARGBForObjPixelEntry(objPaletteIndex, objPalette ? 1 : 0);
+            }
+            return this.getARGBForBgPixelEntry((this.backgroundPalette >>> ((bgPixel & 0b11) * 2)) & 0b11, 0);
+        }
+        int bgColor = this.getBackgroundAndWindowEnable() ? getCgbColorNumberFromBgPixelEntry(bgPixel) : 0;
+        int objColor = this.getObjectEnable() ? getCgbColorNumberFromObjPixelEntry(objPixel) : 0;
+        if (objColor != 0 && (!this.getBackgroundAndWindowEnable() || bgColor == 0 || (!getCgbPriorityFromBgPixelEntry(bgPixel) && !getDmgPriorityForObjPixelEntry(objPixel)))) {
+            return this.getARGBForObjPixelEntry(objColor, getCgbPaletteFromObjPixelEntry(objPixel));
+        }
+        return this.getARGBForBgPixelEntry(getCgbColorNumberFromBgPixelEntry(bgPixel), getCgbPaletteFromBgPixelEntry(bgPixel));
+    }
+
     private int getARGBForBgPixelEntry(int colorNumber, int palette) {
         int colorRamIndex = (palette * 8) + (colorNumber * 2);
 
@@ -507,7 +641,7 @@ public class CGBPPU<E extends GameBoyColorEmulator> extends DMGPPU<E> {
         if (address >= VRAM_START && address <= VRAM_END) {
             return switch (bank) {
                 case BANK_0 -> super.getVRamByte(address);
-                case BANK_1 -> this.vRamBank1[address - VRAM_START];
+                case BANK_1 -> this.vRamBank1.readByte(address - VRAM_START);
             };
         } else {
             throw new EmulatorException("Invalid GameBoy VRAM address \"%04X\"!".formatted(address));
@@ -1,5 +1,7 @@
 package io.github.arkosammy12.jemu.core.gameboycolor;
 
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.gameboy.DMGTimerController;
 
 public class CGBTimerController<E extends GameBoyColorEmulator> extends DMGTimerController<E> {
@@ -13,6 +15,20 @@ public class CGBTimerController<E extends GameBoyColorEmulator> extends DMGTimer
         super(emulator);
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        super.saveState(writer);
+        writer.writeBoolean(this.oldDivBit5);
+        writer.writeBoolean(this.oldFrequencyBit);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        super.loadState(reader);
+        this.oldDivBit5 = reader.readBoolean();
+        this.oldFrequencyBit = reader.readBoolean();
+    }
+
     @Override
     protected boolean cycleSystemClock() {
         this.systemClock = (this.systemClock + 1) & 0xFFFF;
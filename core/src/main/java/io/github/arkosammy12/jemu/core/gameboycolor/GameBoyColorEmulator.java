@@ -1,5 +1,8 @@
 package io.github.arkosammy12.jemu.core.gameboycolor;
 
+import io.github.arkosammy12.jemu.core.common.Scheduler;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.cpu.CGBSM83;
 import io.github.arkosammy12.jemu.core.cpu.SM83;
 import io.github.arkosammy12.jemu.core.gameboy.*;
@@ -14,6 +17,10 @@ public class GameBoyColorEmulator extends GameBoyEmulator implements CGBSM83.Sys
     private CGBMMMIOBus<?> mmioBus;
     private CGBTimerController<?> timerController;
 
+    private static final int STATE_SYSTEM_ID = 0x20424743; // "CGB "
+
+    private int cpuCyclesPerTick = 1;
+
     public GameBoyColorEmulator(GameBoyHost host) {
         super(host);
     }
@@ -23,7 +30,7 @@ public class GameBoyColorEmulator extends GameBoyEmulator implements CGBSM83.Sys
     }
 
     protected CGBSM83<?> createCpu() {
-        this.cpu = new CGBSM83<>(this);
+        this.cpu = new CGBSM83<>(this, this.getHost().isRecompilerEnabled());
         return this.cpu;
     }
 
@@ -83,17 +90,47 @@ public class GameBoyColorEmulator extends GameBoyEmulator implements CGBSM83.Sys
     }
 
     @Override
-    protected void runCycle() {
+    protected int getStateSystemId() {
+        return STATE_SYSTEM_ID;
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        super.saveState(writer);
+        writer.writeInt(this.cpuCyclesPerTick);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        super.loadState(reader);
+        this.cpuCyclesPerTick = reader.readInt();
+    }
+
+    @Override
+    protected int runCycle() {
         CGBSM83<?> cpu = this.getCpu();
         CGBPPU<?> ppu = this.getVideoGenerator();
         CGBAPU<?> apu = this.getAudioGenerator();
-        GameBoyCartridge cartridge = this.getCartridge();
         CGBBus<?> bus = this.getBus();
         CGBTimerController<?> timerController = this.getTimerController();
         CGBMMMIOBus<?> mmio = this.getMMIOBus();
-        DMGSerialController<?> serialController = this.getSerialController();
+        Scheduler scheduler = this.getScheduler();
+
+        int cpuCyclesPerTick = mmio.getCpuSpeed() == CGBMMMIOBus.CPUSpeed.DOUBLE_SPEED ? 2 : 1;
+        if (cpuCyclesPerTick != this.cpuCyclesPerTick) {
+            // Let the serial controller account for the time it spent idle at the previous speed
+            this.getSerialController().sync();
+            this.cpuCyclesPerTick = cpuCyclesPerTick;
+        }
+
+        if (cpuCyclesPerTick == 1) {
+            // Compiled blocks only run in single speed mode, where CPU and PPU cycles line up one to one
+            int blockCycles = bus.haltCpu() ? 0 : cpu.runCompiledBlock();
+            if (blockCycles > 0) {
+                this.catchUpCompiledBlock(blockCycles);
+                return blockCycles;
+            }
 
-        if (mmio.getCpuSpeed() == CGBMMMIOBus.CPUSpeed.SINGLE_SPEED) {
             boolean haltCpu = bus.haltCpu();
             if (!haltCpu) {
                 cpu.cycle();
@@ -108,10 +145,7 @@ public class GameBoyColorEmulator extends GameBoyEmulator implements CGBSM83.Sys
 
             ppu.cycle();
             apu.cycle(apuFrameSequencerTick);
-            serialController.cycle();
-            cartridge.cycle();
-            bus.cycleOamDMA();
-            bus.cycleVDMA();
+            scheduler.tick();
         } else {
             boolean haltCpu = bus.haltCpu();
             if (!haltCpu) {
@@ -138,17 +172,14 @@ public class GameBoyColorEmulator extends GameBoyEmulator implements CGBSM83.Sys
 
             ppu.cycle();
             apu.cycle(apuFrameSequencerTick);
-
-            serialController.cycle();
-            serialController.cycle();
-
-            cartridge.cycle();
-
-            bus.cycleOamDMA();
-            bus.cycleOamDMA();
-
-            bus.cycleVDMA();
+            scheduler.tick();
         }
+        return 1;
+    }
+
+    @Override
+    public int getCpuCyclesPerTick() {
+        return this.cpuCyclesPerTick;
     }
 
     @Override
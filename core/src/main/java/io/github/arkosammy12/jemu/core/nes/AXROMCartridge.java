@@ -1,9 +1,11 @@
 package io.github.arkosammy12.jemu.core.nes;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.nes.ines.INESFile;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 import static io.github.arkosammy12.jemu.core.nes.RP2C02.*;
@@ -17,37 +19,53 @@ import static io.github.arkosammy12.jemu.core.nes.RP2C02.PALETTE_RAM_START;
 
 public class AXROMCartridge<E extends NESEmulator> extends NESCartridge<E> {
 
-    private final int[] programRom;
-    private final int[] characterRom;
-    private final int[] characterRam;
+    private final MemoryRegion programRom;
+    private final MemoryRegion characterRom;
+    private final MemoryRegion characterRam;
 
     private int bankSelect;
 
     public AXROMCartridge(E emulator, INESFile iNESFile) {
         super(emulator, iNESFile);
 
-        int[] programRomData = iNESFile.getProgramRom();
-        this.programRom = Arrays.copyOf(programRomData, programRomData.length);
+        this.programRom = iNESFile.getProgramRom();
 
-        Optional<int[]> characterRomOptional = iNESFile.getCharacterRom();
+        Optional<MemoryRegion> characterRomOptional = iNESFile.getCharacterRom();
         if (characterRomOptional.isEmpty()) {
             this.characterRom = null;
-            this.characterRam = new int[iNESFile.getCharacterRamSize()];
+            this.characterRam = MemoryRegion.allocate(iNESFile.getCharacterRamSize());
         } else {
-            int[] characterRomData = characterRomOptional.get();
-            this.characterRom = Arrays.copyOf(characterRomData, characterRomData.length);
+            this.characterRom = characterRomOptional.get();
             this.characterRam = null;
         }
 
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        super.saveState(writer);
+        if (this.characterRam != null) {
+            writer.writeRegion(this.characterRam);
+        }
+        writer.writeByte(this.bankSelect);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        super.loadState(reader);
+        if (this.characterRam != null) {
+            reader.readRegion(this.characterRam);
+        }
+        this.bankSelect = reader.readByte();
+    }
+
     @Override
     public int readBytePPU(int address) {
         if (address >= CHR_ROM_START && address <= CHR_ROM_END) {
             if (this.characterRom == null) {
-                return this.characterRam[address % this.characterRam.length];
+                return this.characterRam.readByte(address % this.characterRam.length());
             } else {
-                return this.characterRom[address % this.characterRom.length];
+                return this.characterRom.readByte(address % this.characterRom.length());
             }
         } else if (address >= CIRAM_START && address <= CIRAM_END) {
             return this.readByteVRAM(this.mapNametableAddress(address));
@@ -66,7 +84,7 @@ public class AXROMCartridge<E extends NESEmulator> extends NESCartridge<E> {
     public void writeBytePPU(int address, int value) {
         if (address >= CHR_ROM_START && address <= CHR_ROM_END) {
             if (this.characterRam != null) {
-                this.characterRam[address % this.characterRam.length] = value & 0xFF;
+                this.characterRam.writeByte(address % this.characterRam.length(), value);
             }
         } else if (address >= CIRAM_START && address <= CIRAM_END) {
             this.writeByteVRAM(this.mapNametableAddress(address), value);
@@ -87,10 +105,15 @@ public class AXROMCartridge<E extends NESEmulator> extends NESCartridge<E> {
         return (address & 0x3FF) | ((this.bankSelect & (1 << 4)) != 0 ? 0x400 : 0);
     }
 
+    @Override
+    public int getProgramRomBank(int address) {
+        return address >= 0x8000 && address <= 0xFFFF ? this.bankSelect & 0b111 : -1;
+    }
+
     @Override
     public int readByte(int address) {
         if (address >= 0x8000 && address <= 0xFFFF) {
-            return this.programRom[(((this.bankSelect & 0b111) << 15) | (address & 0x7FFF)) % this.programRom.length];
+            return this.programRom.readByte((((this.bankSelect & 0b111) << 15) | (address & 0x7FFF)) % this.programRom.length());
         } else {
             return -1;
         }
@@ -2,20 +2,48 @@ package io.github.arkosammy12.jemu.core.nes;
 
 import io.github.arkosammy12.jemu.core.common.AudioGenerator;
 import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.drivers.AudioDriver;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.util.ActionSignal;
-import org.jetbrains.annotations.NotNull;
+import io.github.arkosammy12.jemu.core.util.BlipBuffer;
 
 import java.util.Optional;
 
 import static io.github.arkosammy12.jemu.core.nes.RP2A03.*;
 
 // TODO: PAL implementation
-public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements Bus {
-
-    private final byte[] sampleBuffer;
-    private int currentSampleIndex;
+public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements Bus, Snapshottable {
+
+    private static final int QUARTER_FRAME_CLOCK = -1;
+    private static final int HALF_FRAME_CLOCK = -2;
+    private static final int DMC_OUTPUT = -3;
+    private static final int LOG_CAPACITY = 1024;
+
+    private static final FrameCounterStepMode[] FRAME_COUNTER_STEP_MODES = FrameCounterStepMode.values();
+
+    // The mixer's output is non-linear in the channels' outputs, so it is looked up for the pulse pair and for the
+    // triangle, noise and DMC trio, in units where 1.0 is MIXER_SCALE
+    private static final int MIXER_SCALE = 32767;
+    private static final int[] PULSE_MIXER_LUT = createPulseMixerLut();
+    private static final int[] TND_MIXER_LUT = createTndMixerLut();
+
+    // Used until an audio driver asks for samples
+    private static final int DEFAULT_SAMPLE_RATE = 48000;
+    private static final int BUFFERED_FRAMES = 5;
+    // Like on the GameBoy, rate control only needs the buffer's rates updated, and its capacity is only worked out
+    // again past this much of a change
+    private static final double RECONFIGURE_RATE_DELTA = 0.01;
+
+    private final int cyclesPerFrame;
+    private final BlipBuffer outputBuffer;
+    private int frameCycles;
+    private int outputLevel;
+    private int sampleRate;
+    private int configuredSampleRate;
+    private int[] frameSamples = new int[0];
 
     private final PulseChannel1 pulseChannel1 = new PulseChannel1();
     private final PulseChannel2 pulseChannel2 = new PulseChannel2();
@@ -35,9 +63,25 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
     private FrameCounterStepMode frameCounterStepMode = FrameCounterStepMode.STEP_4;
     private boolean frameCounterInterruptInhibitFlag;
 
-    public NESAPU(E emulator, int samplesPerFrame) {
+    // The frame counter and the DMC stay cycle accurate since they drive the IRQ line and the DMC DMA. Everything that
+    // only affects the other channels and the mixer is logged along with the APU cycle it happened on, and replayed
+    // in order whenever the channels are caught up
+    private final long[] logCycles = new long[LOG_CAPACITY];
+    private final int[] logAddresses = new int[LOG_CAPACITY];
+    private final int[] logValues = new int[LOG_CAPACITY];
+    private int logSize;
+
+    private long cycle;
+    private long syncedCycle;
+    private boolean lastCyclePut;
+    private int loggedDmcOutput;
+    private int dmcOutput;
+
+    public NESAPU(E emulator, int cyclesPerFrame) {
         super(emulator);
-        this.sampleBuffer = new byte[samplesPerFrame];
+        this.cyclesPerFrame = cyclesPerFrame;
+        this.outputBuffer = new BlipBuffer(this.getClockRate(), DEFAULT_SAMPLE_RATE, 0);
+        this.setSampleRate(DEFAULT_SAMPLE_RATE);
 
         this.frameCounterControlUpdateSignal = new ActionSignal(newJoy2Value -> {
             this.frameCounterStepMode = (newJoy2Value & (1 << 7)) != 0 ? FrameCounterStepMode.STEP_5 : FrameCounterStepMode.STEP_4;
@@ -49,8 +93,8 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
             }
         });
 
-        this.clockHalfFrameSignal = new ActionSignal(_ -> this.clockHalfFrame());
-        this.clockQuarterFrameSignal = new ActionSignal(_ -> this.clockQuarterFrame());
+        this.clockHalfFrameSignal = new ActionSignal(_ -> this.log(HALF_FRAME_CLOCK, 0));
+        this.clockQuarterFrameSignal = new ActionSignal(_ -> this.log(QUARTER_FRAME_CLOCK, 0));
         this.clearFrameInterruptFlagSignal = new ActionSignal(_ -> {
             this.frameInterruptFlag = false;
             this.frameInterruptFlagForIRQSignal = false;
@@ -63,33 +107,115 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
     }
 
     @Override
-    public @NotNull SampleSize getBytesPerSample() {
-        return SampleSize.BYTES_1;
-    }
-
-    @Override
-    public Optional<byte[]> getSampleFrame() {
+    public int getSampleFrame(short[] out) {
         Optional<? extends AudioDriver> optionalAudioDriver = this.emulator.getHost().getAudioDriver();
         if (optionalAudioDriver.isEmpty()) {
-            return Optional.empty();
+            return 0;
         }
 
         AudioDriver audioDriver = optionalAudioDriver.get();
         int samplesPerFrame = audioDriver.getSamplesPerFrame();
-
-        byte[] out = new byte[samplesPerFrame];
-        double step = (double) this.sampleBuffer.length / samplesPerFrame;
-        double pos = 0.0;
+        this.sync();
+        this.outputBuffer.endFrame(this.frameCycles);
+        this.frameCycles = 0;
+        // Everything up to here was mixed at the old rate, so a new one only starts with the next frame
+        if (audioDriver.getSampleRate() != this.sampleRate) {
+            this.setSampleRate(audioDriver.getSampleRate());
+        }
+        if (this.frameSamples.length < samplesPerFrame) {
+            this.frameSamples = new int[samplesPerFrame];
+        }
+        int[] samples = this.frameSamples;
+        int sampleCount = this.outputBuffer.readSamples(samples, 0, samplesPerFrame, 1);
+        // A frame that came up short repeats its last sample, and one that ran long only keeps a frame's worth around
+        for (int i = Math.max(sampleCount, 1); i < samplesPerFrame; i++) {
+            samples[i] = samples[i - 1];
+        }
+        this.outputBuffer.skipSamples(this.outputBuffer.getSamplesAvailable() - samplesPerFrame);
 
         for (int i = 0; i < samplesPerFrame; i++) {
-            int index = Math.toIntExact(Math.round(pos));
-            int nextIndex = Math.min(index + 1, this.sampleBuffer.length - 1);
-            out[i] = this.sampleBuffer[nextIndex];
-            pos += step;
+            out[i] = (short) Math.clamp((samples[i] * 2L) - MIXER_SCALE, Short.MIN_VALUE, Short.MAX_VALUE);
         }
+        return samplesPerFrame;
+    }
+
+    // Frames are paced to the host's frame rate, so that is the rate their cycles come out at
+    private double getClockRate() {
+        return (double) this.cyclesPerFrame * this.emulator.getFramerate();
+    }
+
+    private void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.outputBuffer.setRates(this.getClockRate(), sampleRate);
+        if (Math.abs(sampleRate - this.configuredSampleRate) > this.configuredSampleRate * RECONFIGURE_RATE_DELTA) {
+            this.configuredSampleRate = sampleRate;
+            this.outputBuffer.setCapacity(BUFFERED_FRAMES * (int) Math.ceil((double) sampleRate / this.emulator.getFramerate()));
+        }
+    }
+
+    // Like on the GameBoy, pending log entries are saved as they are instead of catching the channels up first
+    @Override
+    public void saveState(StateWriter writer) {
+        this.outputBuffer.saveState(writer);
+        writer.writeInt(this.frameCycles);
+        writer.writeInt(this.outputLevel);
+        this.pulseChannel1.saveState(writer);
+        this.pulseChannel2.saveState(writer);
+        this.triangleChannel.saveState(writer);
+        this.noiseChannel.saveState(writer);
+        this.dmcChannel.saveState(writer);
+        writer.writeInt(this.frameCounterCycleCounter);
+        this.frameCounterControlUpdateSignal.saveState(writer);
+        this.clockHalfFrameSignal.saveState(writer);
+        this.clockQuarterFrameSignal.saveState(writer);
+        this.clearFrameInterruptFlagSignal.saveState(writer);
+        writer.writeBoolean(this.frameInterruptFlag);
+        writer.writeBoolean(this.frameInterruptFlagForIRQSignal);
+        writer.writeByte(this.frameCounterStepMode.ordinal());
+        writer.writeBoolean(this.frameCounterInterruptInhibitFlag);
+        writer.writeInt(this.logSize);
+        for (int i = 0; i < this.logSize; i++) {
+            writer.writeLong(this.logCycles[i]);
+            writer.writeInt(this.logAddresses[i]);
+            writer.writeInt(this.logValues[i]);
+        }
+        writer.writeLong(this.cycle);
+        writer.writeLong(this.syncedCycle);
+        writer.writeBoolean(this.lastCyclePut);
+        writer.writeInt(this.loggedDmcOutput);
+        writer.writeInt(this.dmcOutput);
+    }
 
-        this.currentSampleIndex = 0;
-        return Optional.of(out);
+    @Override
+    public void loadState(StateReader reader) {
+        this.outputBuffer.loadState(reader);
+        this.frameCycles = reader.readInt();
+        this.outputLevel = reader.readInt();
+        this.pulseChannel1.loadState(reader);
+        this.pulseChannel2.loadState(reader);
+        this.triangleChannel.loadState(reader);
+        this.noiseChannel.loadState(reader);
+        this.dmcChannel.loadState(reader);
+        this.frameCounterCycleCounter = reader.readInt();
+        this.frameCounterControlUpdateSignal.loadState(reader);
+        this.clockHalfFrameSignal.loadState(reader);
+        this.clockQuarterFrameSignal.loadState(reader);
+        this.clearFrameInterruptFlagSignal.loadState(reader);
+        this.frameInterruptFlag = reader.readBoolean();
+        this.frameInterruptFlagForIRQSignal = reader.readBoolean();
+        this.frameCounterStepMode = FRAME_COUNTER_STEP_MODES[reader.readByte()];
+        this.frameCounterInterruptInhibitFlag = reader.readBoolean();
+        this.logSize = reader.readInt();
+        for (int i = 0; i < this.logSize; i++) {
+            this.logCycles[i] = reader.readLong();
+            this.logAddresses[i] = reader.readInt();
+            this.logValues[i] = reader.readInt();
+        }
+        this.cycle = reader.readLong();
+        this.syncedCycle = reader.readLong();
+        this.lastCyclePut = reader.readBoolean();
+        this.loggedDmcOutput = reader.readInt();
+        this.dmcOutput = reader.readInt();
     }
 
     @Override
@@ -100,6 +226,7 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
                  DMC_FREQ_ADDR, DMC_RAW_ADDR, DMC_START_ADDR, DMC_LEN_ADDR -> -1;
 
             case SND_CHN_ADDR -> {
+                this.sync();
                 // TODO: If an interrupt flag was set at the same moment of the read, it will read back as 1 but it will not be cleared.
                 int ret = this.dmcChannel.getInterruptFlag() ? 1 << 7 : 0;
                 ret |= this.frameInterruptFlag ? 1 << 6 : 0;
@@ -123,29 +250,14 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
     @Override
     public void writeByte(int address, int value) {
         switch (address) {
-            case SQ1_VOL_ADDR -> this.pulseChannel1.setVolume(value);
-            case SQ1_SWEEP_ADDR -> this.pulseChannel1.setSweep(value);
-            case SQ1_LO_ADDR -> this.pulseChannel1.setLO(value);
-            case SQ1_HI_ADDR -> this.pulseChannel1.setHI(value);
-            case SQ2_VOL_ADDR -> this.pulseChannel2.setVolume(value);
-            case SQ2_SWEEP_ADDR -> this.pulseChannel2.setSweep(value);
-            case SQ2_LO_ADDR -> this.pulseChannel2.setLO(value);
-            case SQ2_HI_ADDR -> this.pulseChannel2.setHI(value);
-            case TRI_LINEAR_ADDR -> this.triangleChannel.setLinear(value);
-            case TRI_LO_ADDR -> this.triangleChannel.setLO(value);
-            case TRI_HI_ADDR -> this.triangleChannel.setHI(value);
-            case NOISE_VOL_ADDR -> this.noiseChannel.setVolume(value);
-            case NOISE_LO_ADDR -> this.noiseChannel.setLO(value);
-            case NOISE_HI_ADDR -> this.noiseChannel.setHI(value);
+            case SQ1_VOL_ADDR, SQ1_SWEEP_ADDR, SQ1_LO_ADDR, SQ1_HI_ADDR, SQ2_VOL_ADDR, SQ2_SWEEP_ADDR, SQ2_LO_ADDR,
+                 SQ2_HI_ADDR, TRI_LINEAR_ADDR, TRI_LO_ADDR, TRI_HI_ADDR, NOISE_VOL_ADDR, NOISE_LO_ADDR, NOISE_HI_ADDR -> this.log(address, value);
             case DMC_FREQ_ADDR -> this.dmcChannel.setFreq(value);
             case DMC_RAW_ADDR -> this.dmcChannel.setRaw(value);
             case DMC_START_ADDR -> this.dmcChannel.setStart(value);
             case DMC_LEN_ADDR -> this.dmcChannel.setLength(value);
             case SND_CHN_ADDR -> {
-                this.pulseChannel1.setEnabled((value & 1) != 0);
-                this.pulseChannel2.setEnabled((value & (1 << 1)) != 0);
-                this.triangleChannel.setEnabled((value & (1 << 2)) != 0);
-                this.noiseChannel.setEnabled((value & (1 << 3)) != 0);
+                this.log(address, value);
                 this.dmcChannel.setEnabled((value & (1 << 4)) != 0);
                 this.dmcChannel.clearInterruptFlag();
             }
@@ -158,8 +270,8 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
 
 
                 if ((value & 0x80) != 0) {
-                    this.clockHalfFrame();
-                    this.clockQuarterFrame();
+                    this.log(HALF_FRAME_CLOCK, 0);
+                    this.log(QUARTER_FRAME_CLOCK, 0);
                 }
 
             }
@@ -167,6 +279,34 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
         }
     }
 
+    private void applyWrite(int address, int value) {
+        switch (address) {
+            case SQ1_VOL_ADDR -> this.pulseChannel1.setVolume(value);
+            case SQ1_SWEEP_ADDR -> this.pulseChannel1.setSweep(value);
+            case SQ1_LO_ADDR -> this.pulseChannel1.setLO(value);
+            case SQ1_HI_ADDR -> this.pulseChannel1.setHI(value);
+            case SQ2_VOL_ADDR -> this.pulseChannel2.setVolume(value);
+            case SQ2_SWEEP_ADDR -> this.pulseChannel2.setSweep(value);
+            case SQ2_LO_ADDR -> this.pulseChannel2.setLO(value);
+            case SQ2_HI_ADDR -> this.pulseChannel2.setHI(value);
+            case TRI_LINEAR_ADDR -> this.triangleChannel.setLinear(value);
+            case TRI_LO_ADDR -> this.triangleChannel.setLO(value);
+            case TRI_HI_ADDR -> this.triangleChannel.setHI(value);
+            case NOISE_VOL_ADDR -> this.noiseChannel.setVolume(value);
+            case NOISE_LO_ADDR -> this.noiseChannel.setLO(value);
+            case NOISE_HI_ADDR -> this.noiseChannel.setHI(value);
+            case SND_CHN_ADDR -> {
+                this.pulseChannel1.setEnabled((value & 1) != 0);
+                this.pulseChannel2.setEnabled((value & (1 << 1)) != 0);
+                this.triangleChannel.setEnabled((value & (1 << 2)) != 0);
+                this.noiseChannel.setEnabled((value & (1 << 3)) != 0);
+            }
+            case QUARTER_FRAME_CLOCK -> this.clockQuarterFrame();
+            case HALF_FRAME_CLOCK -> this.clockHalfFrame();
+            case DMC_OUTPUT -> this.dmcOutput = value;
+        }
+    }
+
     private void signalHalfFrameClock() {
         this.clockHalfFrameSignal.trigger(1, 0);
     }
@@ -192,37 +332,93 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
 
         this.clockFrameCounter();
 
-        this.triangleChannel.clockTimer();
-        // Clock the noise and dmc channels' timers in both APU halves to line up with the CPU cycles period amount
-        this.noiseChannel.clockTimer();
         this.dmcChannel.clockTimer();
-        if (this.getCurrentApuHalfCycleType() == APUHalfCycleType.PUT) {
-            this.pulseChannel1.clockTimer();
-            this.pulseChannel2.clockTimer();
+        int dmcOutput = this.dmcChannel.getDigitalOutput();
+        if (dmcOutput != this.loggedDmcOutput) {
+            this.loggedDmcOutput = dmcOutput;
+            this.log(DMC_OUTPUT, dmcOutput);
         }
+        this.lastCyclePut = this.getCurrentApuHalfCycleType() == APUHalfCycleType.PUT;
+        this.cycle++;
+    }
 
-        int pulse1 = this.pulseChannel1.getDigitalOutput();
-        int pulse2 = this.pulseChannel2.getDigitalOutput();
-        int triangle = this.triangleChannel.getDigitalOutput();
-        int noise = this.noiseChannel.getDigitalOutput();
-        int dmc = this.dmcChannel.getDigitalOutput();
+    public void sync() {
+        for (int i = 0; i < this.logSize; i++) {
+            this.synthesize(this.logCycles[i]);
+            this.applyWrite(this.logAddresses[i], this.logValues[i]);
+            this.updateOutput(this.frameCycles);
+        }
+        this.logSize = 0;
+        this.synthesize(this.cycle);
+    }
 
-        double pulseOut = 0;
-        double tndOut = 0;
+    private void log(int address, int value) {
+        if (this.logSize >= LOG_CAPACITY) {
+            this.sync();
+        }
+        this.logCycles[this.logSize] = this.cycle;
+        this.logAddresses[this.logSize] = address;
+        this.logValues[this.logSize] = value;
+        this.logSize++;
+    }
 
-        int pulseGroupSum = pulse1 + pulse2;
+    // Between events, the channels only change their output when their timers reload, so each one runs straight to
+    // its next reload instead of being clocked every cycle
+    private void synthesize(long cycle) {
+        if (cycle <= this.syncedCycle) {
+            return;
+        }
+        if (this.frameCycles >= this.cyclesPerFrame * 2) {
+            // Nobody has been reading frames, so drop what piled up
+            this.outputBuffer.endFrame(this.frameCycles);
+            this.frameCycles = 0;
+            this.outputBuffer.skipSamples(this.outputBuffer.getSamplesAvailable());
+        }
+        // APU half cycles alternate strictly, so the type of past ones follows from the last one that was run. The
+        // current type can't be used since DMA reads can cause a sync before the Ricoh core flips it
+        boolean put = this.lastCyclePut == (((this.cycle - 1 - this.syncedCycle) & 1) == 0);
+        int cycles = (int) (cycle - this.syncedCycle);
+        this.triangleChannel.run(this.frameCycles, cycles);
+        // Clock the noise channel's timer in both APU halves to line up with the CPU cycles period amount
+        this.noiseChannel.run(this.frameCycles, cycles);
+        this.pulseChannel1.run(this.frameCycles, cycles, put);
+        this.pulseChannel2.run(this.frameCycles, cycles, put);
+        this.frameCycles += cycles;
+        this.syncedCycle = cycle;
+    }
 
-        if (pulseGroupSum > 0) {
-            pulseOut = 95.88 / (((double) 8128 / pulseGroupSum) + 100);
+    private void updateOutput(int time) {
+        int pulse = this.pulseChannel1.getDigitalOutput() + this.pulseChannel2.getDigitalOutput();
+        int tnd = (this.triangleChannel.getDigitalOutput() << 11) | (this.noiseChannel.getDigitalOutput() << 7) | this.dmcOutput;
+        int level = PULSE_MIXER_LUT[pulse] + TND_MIXER_LUT[tnd];
+        if (level != this.outputLevel) {
+            this.outputBuffer.addDelta(time, level - this.outputLevel);
+            this.outputLevel = level;
         }
+    }
 
-        if (triangle != 0 || noise != 0 || dmc != 0) {
-            tndOut = 159.79 / (((double) 1 / (((double) triangle / 8227) + ((double) noise / 12241) + ((double) dmc / 22638))) + 100);
+    private static int[] createPulseMixerLut() {
+        int[] lut = new int[31];
+        for (int pulseGroupSum = 1; pulseGroupSum < lut.length; pulseGroupSum++) {
+            lut[pulseGroupSum] = (int) Math.round(95.88 / (((double) 8128 / pulseGroupSum) + 100) * MIXER_SCALE);
         }
+        return lut;
+    }
 
-        double output = Math.clamp(pulseOut + tndOut, 0, 1.0);
-        this.sampleBuffer[this.currentSampleIndex] = (byte) (((output * 2) - 1) * 127f);
-        this.currentSampleIndex = (this.currentSampleIndex + 1) % this.sampleBuffer.length;
+    // Indexed by the triangle, noise and DMC outputs packed as 4, 4 and 7 bits
+    private static int[] createTndMixerLut() {
+        int[] lut = new int[16 << 11];
+        for (int triangle = 0; triangle < 16; triangle++) {
+            for (int noise = 0; noise < 16; noise++) {
+                for (int dmc = 0; dmc < 128; dmc++) {
+                    if (triangle != 0 || noise != 0 || dmc != 0) {
+                        double tndOut = 159.79 / (((double) 1 / (((double) triangle / 8227) + ((double) noise / 12241) + ((double) dmc / 22638))) + 100);
+                        lut[(triangle << 11) | (noise << 7) | dmc] = (int) Math.round(tndOut * MIXER_SCALE);
+                    }
+                }
+            }
+        }
+        return lut;
     }
 
     private void clockFrameCounter() {
@@ -318,11 +514,19 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
         STEP_5
     }
 
-    private abstract static class AudioChannel {
+    private abstract class AudioChannel implements Snapshottable {
 
         private boolean enabled;
 
-        abstract protected void clockTimer();
+        @Override
+        public void saveState(StateWriter writer) {
+            writer.writeBoolean(this.enabled);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            this.enabled = reader.readBoolean();
+        }
 
         abstract protected int getDigitalOutput();
 
@@ -336,7 +540,7 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
 
     }
 
-    private abstract static class WaveformChannel extends AudioChannel {
+    private abstract class WaveformChannel extends AudioChannel {
 
         protected final int[] LENGTH_COUNTER_LUT = {
                 10, 254, 20,  2, 40,  4, 80,  6, 160,  8, 60, 10, 14, 12, 26, 14,
@@ -349,6 +553,24 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
 
         private int lengthCounter;
 
+        @Override
+        public void saveState(StateWriter writer) {
+            super.saveState(writer);
+            writer.writeInt(this.volume);
+            writer.writeInt(this.lo);
+            writer.writeInt(this.hi);
+            writer.writeInt(this.lengthCounter);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            super.loadState(reader);
+            this.volume = reader.readInt();
+            this.lo = reader.readInt();
+            this.hi = reader.readInt();
+            this.lengthCounter = reader.readInt();
+        }
+
         protected void setVolume(int value) {
             this.volume = value & 0xFF;
         }
@@ -392,7 +614,7 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
 
     }
 
-    private static class PulseChannel1 extends WaveformChannel {
+    private class PulseChannel1 extends WaveformChannel {
 
         private static final int[][] DUTY_CYCLES = {
                 {0, 0, 0, 0, 0, 0, 0, 1},
@@ -414,6 +636,34 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
         protected int sweepTargetPeriod;
         private int sweepDividerCounter;
 
+        @Override
+        public void saveState(StateWriter writer) {
+            super.saveState(writer);
+            writer.writeInt(this.sweep);
+            writer.writeInt(this.timer);
+            writer.writeInt(this.sequencerStep);
+            writer.writeBoolean(this.envelopeStartFlag);
+            writer.writeInt(this.envelopeDivider);
+            writer.writeInt(this.envelopeDecayCounter);
+            writer.writeBoolean(this.sweepReloadFlag);
+            writer.writeInt(this.sweepTargetPeriod);
+            writer.writeInt(this.sweepDividerCounter);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            super.loadState(reader);
+            this.sweep = reader.readInt();
+            this.timer = reader.readInt();
+            this.sequencerStep = reader.readInt();
+            this.envelopeStartFlag = reader.readBoolean();
+            this.envelopeDivider = reader.readInt();
+            this.envelopeDecayCounter = reader.readInt();
+            this.sweepReloadFlag = reader.readBoolean();
+            this.sweepTargetPeriod = reader.readInt();
+            this.sweepDividerCounter = reader.readInt();
+        }
+
         protected int getTimerReload() {
             return this.lo | ((this.hi & 0b111) << 8);
         }
@@ -458,13 +708,22 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
             this.sweepReloadFlag = true;
         }
 
-        @Override
-        protected void clockTimer() {
-            this.timer--;
-            if (this.timer < 0) {
+        // The timer is only clocked on put cycles, which are every other cycle starting with either the first or the
+        // second one
+        protected void run(int time, int cycles, boolean put) {
+            int firstCycle = put ? 0 : 1;
+            int ticks = cycles > firstCycle ? (cycles - firstCycle + 1) >>> 1 : 0;
+            time += firstCycle;
+            // The timer reloads on the tick that takes it below 0
+            while (Math.max(this.timer + 1, 1) <= ticks) {
+                int reloadTicks = Math.max(this.timer + 1, 1);
+                ticks -= reloadTicks;
+                time += reloadTicks * 2;
                 this.timer = this.getTimerReload();
                 this.sequencerStep = (this.sequencerStep - 1) & 0b111;
+                updateOutput(time - 2);
             }
+            this.timer -= ticks;
         }
 
         protected void clockEnvelope() {
@@ -527,7 +786,7 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
 
     }
 
-    private static class PulseChannel2 extends PulseChannel1 {
+    private class PulseChannel2 extends PulseChannel1 {
 
         @Override
         protected void calculateSweepTargetPeriod() {
@@ -540,7 +799,7 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
 
     }
 
-    private static class TriangleChannel extends WaveformChannel {
+    private class TriangleChannel extends WaveformChannel {
 
         private static final int[] TRIANGLE_WAVEFORM_LUT = {
                 15, 14, 13, 12, 11, 10,  9,  8,  7,  6,  5,  4,  3,  2,  1,  0,
@@ -555,6 +814,26 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
         private boolean linearCounterReloadFlag;
         private int linearCounter;
 
+        @Override
+        public void saveState(StateWriter writer) {
+            super.saveState(writer);
+            writer.writeInt(this.linear);
+            writer.writeInt(this.timer);
+            writer.writeInt(this.sequencerStep);
+            writer.writeBoolean(this.linearCounterReloadFlag);
+            writer.writeInt(this.linearCounter);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            super.loadState(reader);
+            this.linear = reader.readInt();
+            this.timer = reader.readInt();
+            this.sequencerStep = reader.readInt();
+            this.linearCounterReloadFlag = reader.readBoolean();
+            this.linearCounter = reader.readInt();
+        }
+
         @Override
         protected boolean haltLengthCounter() {
             return (this.linear & (1 << 7)) != 0;
@@ -582,15 +861,18 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
             this.linear = value & 0xFF;
         }
 
-        @Override
-        protected void clockTimer() {
-            this.timer--;
-            if (this.timer < 0) {
+        protected void run(int time, int cycles) {
+            while (Math.max(this.timer + 1, 1) <= cycles) {
+                int reloadTicks = Math.max(this.timer + 1, 1);
+                cycles -= reloadTicks;
+                time += reloadTicks;
+                this.timer = this.getTimerReload() + 1;
                 if (this.getLengthCounter() > 0 && this.linearCounter > 0) {
                     this.sequencerStep = (this.sequencerStep + 1) & 0x1F;
+                    updateOutput(time - 1);
                 }
-                this.timer = this.getTimerReload() + 1;
             }
+            this.timer -= cycles;
         }
 
         protected void clockLinearCounter() {
@@ -614,7 +896,7 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
 
     }
 
-    private static class NoiseChannel extends WaveformChannel {
+    private class NoiseChannel extends WaveformChannel {
 
         // TODO: PAL support
         private static final int[] NTSC_TIMER_PERIOD_LUT = {
@@ -632,6 +914,26 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
         private int envelopeDivider;
         private int envelopeDecayCounter;
 
+        @Override
+        public void saveState(StateWriter writer) {
+            super.saveState(writer);
+            writer.writeInt(this.lfsr);
+            writer.writeInt(this.timer);
+            writer.writeBoolean(this.envelopeStartFlag);
+            writer.writeInt(this.envelopeDivider);
+            writer.writeInt(this.envelopeDecayCounter);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            super.loadState(reader);
+            this.lfsr = reader.readInt();
+            this.timer = reader.readInt();
+            this.envelopeStartFlag = reader.readBoolean();
+            this.envelopeDivider = reader.readInt();
+            this.envelopeDecayCounter = reader.readInt();
+        }
+
         protected NoiseChannel() {
             // Value on power-up
             this.lfsr = 1;
@@ -660,16 +962,19 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
             this.envelopeStartFlag = true;
         }
 
-        @Override
-        protected void clockTimer() {
-            this.timer--;
-            if (this.timer < 0) {
+        protected void run(int time, int cycles) {
+            while (Math.max(this.timer + 1, 1) <= cycles) {
+                int reloadTicks = Math.max(this.timer + 1, 1);
+                cycles -= reloadTicks;
+                time += reloadTicks;
                 this.timer = this.cpuCyclesPeriodLut[this.getTimerPeriod()];
                 boolean feedback = ((this.lfsr & 1) ^ (this.getMode() ? ((this.lfsr >>> 6) & 1) : ((this.lfsr >>> 1) & 1))) != 0;
                 this.lfsr >>>= 1;
                 this.lfsr |= feedback ? (1 << 14) : 0;
                 this.lfsr &= 0x7FFF;
+                updateOutput(time - 1);
             }
+            this.timer -= cycles;
         }
 
         protected void clockEnvelope() {
@@ -730,6 +1035,42 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
         private int currentAddress;
         private int bytesRemainingCounter;
 
+        @Override
+        public void saveState(StateWriter writer) {
+            super.saveState(writer);
+            writer.writeInt(this.freq);
+            writer.writeInt(this.start);
+            writer.writeInt(this.length);
+            writer.writeBoolean(this.interruptFlag);
+            writer.writeInt(this.timer);
+            writer.writeBoolean(this.sampleBufferEmpty);
+            writer.writeInt(this.sampleBuffer);
+            writer.writeBoolean(this.silenceFlag);
+            writer.writeInt(this.shiftRegister);
+            writer.writeInt(this.outputLevel);
+            writer.writeInt(this.bitsRemainingCounter);
+            writer.writeInt(this.currentAddress);
+            writer.writeInt(this.bytesRemainingCounter);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            super.loadState(reader);
+            this.freq = reader.readInt();
+            this.start = reader.readInt();
+            this.length = reader.readInt();
+            this.interruptFlag = reader.readBoolean();
+            this.timer = reader.readInt();
+            this.sampleBufferEmpty = reader.readBoolean();
+            this.sampleBuffer = reader.readInt();
+            this.silenceFlag = reader.readBoolean();
+            this.shiftRegister = reader.readInt();
+            this.outputLevel = reader.readInt();
+            this.bitsRemainingCounter = reader.readInt();
+            this.currentAddress = reader.readInt();
+            this.bytesRemainingCounter = reader.readInt();
+        }
+
         protected DMCChannel() {
             this.ratePeriodLut = NTSC_RATE_PERIOD_LUT;
         }
@@ -807,7 +1148,6 @@ public class NESAPU<E extends NESEmulator> extends AudioGenerator<E> implements
             this.outputLevel = value & 0x7F;
         }
 
-        @Override
         protected void clockTimer() {
             this.timer--;
             if (this.timer <= 0) {
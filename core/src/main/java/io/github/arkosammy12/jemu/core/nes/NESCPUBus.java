@@ -1,14 +1,18 @@
 package io.github.arkosammy12.jemu.core.nes;
 
 import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 
 import static io.github.arkosammy12.jemu.core.nes.RP2A03.*;
 
-public class NESCPUBus<E extends NESEmulator> implements Bus {
+public class NESCPUBus<E extends NESEmulator> implements Bus, Snapshottable {
 
-    private static final int RAM_START = 0x0000;
-    private static final int RAM_END = 0x1FFF;
+    public static final int RAM_START = 0x0000;
+    public static final int RAM_END = 0x1FFF;
 
     public static final int PPU_START = 0x2000;
     public static final int PPU_END = 0x3FFF;
@@ -22,25 +26,75 @@ public class NESCPUBus<E extends NESEmulator> implements Bus {
     public static final int CARTRIDGE_START = 0x4020;
     public static final int CARTRIDGE_END = 0xFFFF;
 
+    // The CPU address space is decoded in blocks of 32 bytes, which is the finest granularity any of the devices on the
+    // bus are selected with. Each block is owned by exactly one device, except for the ones a cartridge declares it
+    // shares with the console, which go through the slower path that combines the output of every device
+    private static final int BLOCK_SHIFT = 5;
+
+    private static final byte RAM = 0;
+    private static final byte PPU = 1;
+    private static final byte APU_IO = 2;
+    private static final byte CARTRIDGE = 3;
+    private static final byte BUS_CONFLICT = 4;
+
     private final E emulator;
 
-    private final int[] ram = new int[0x800];
+    private final MemoryRegion ram = MemoryRegion.allocate(0x800);
+    private final byte[] blocks = new byte[0x10000 >>> BLOCK_SHIFT];
     private int dataBus;
 
     public NESCPUBus(E emulator) {
         this.emulator = emulator;
+        NESCartridge<?> cartridge = emulator.getCartridge();
+        for (int i = 0; i < this.blocks.length; i++) {
+            int address = i << BLOCK_SHIFT;
+            if (address >= CARTRIDGE_START) {
+                this.blocks[i] = CARTRIDGE;
+            } else if (cartridge.isMappedBelowCartridgeSpace(address)) {
+                this.blocks[i] = BUS_CONFLICT;
+            } else if (address <= RAM_END) {
+                this.blocks[i] = RAM;
+            } else if (address <= PPU_END) {
+                this.blocks[i] = PPU;
+            } else {
+                this.blocks[i] = APU_IO;
+            }
+        }
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeRegion(this.ram);
+        writer.writeByte(this.dataBus);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        reader.readRegion(this.ram);
+        this.dataBus = reader.readByte();
     }
 
     @Override
     public int readByte(int address) {
-        if (address == SND_CHN_ADDR) {
-            return this.emulator.getRicohCore().readByteIO(address);
-        }
+        return switch (this.blocks[address >>> BLOCK_SHIFT]) {
+            case RAM -> this.driveDataBus(address, this.ram.readByte(address & 0x7FF));
+            case PPU -> this.driveDataBus(address, this.emulator.getVideoGenerator().readByte(address));
+            // Reading the APU status doesn't drive the external data bus
+            case APU_IO -> address == SND_CHN_ADDR
+                    ? this.emulator.getRicohCore().readByteIO(address)
+                    : this.driveDataBus(address, this.emulator.getRicohCore().readByteIO(address));
+            case CARTRIDGE -> this.driveDataBus(address, this.emulator.getCartridge().readByte(address));
+            default -> address == SND_CHN_ADDR
+                    ? this.emulator.getRicohCore().readByteIO(address)
+                    : this.driveDataBus(address, this.readByteBusConflict(address));
+        };
+    }
 
+    private int readByteBusConflict(int address) {
         int ret = -1;
 
         if (address >= RAM_START && address <= RAM_END) {
-            ret = this.ram[address & 0x7FF];
+            ret = this.ram.readByte(address & 0x7FF);
 
         }
 
@@ -58,13 +112,16 @@ public class NESCPUBus<E extends NESEmulator> implements Bus {
         if (cartridgeByte >= 0) {
             ret = ret >= 0 ? cartridgeByte & ret : cartridgeByte;
         }
+        return ret;
+    }
 
-        if (ret >= 0) {
+    private int driveDataBus(int address, int value) {
+        if (value >= 0) {
             if (address == JOY1_ADDR || address == JOY2_ADDR) {
-                ret = (ret & ~0xE0) | (this.dataBus & 0xE0);
+                value = (value & ~0xE0) | (this.dataBus & 0xE0);
             }
-            this.dataBus = ret;
-            return ret;
+            this.dataBus = value;
+            return value;
         } else {
             return this.dataBus;
         }
@@ -74,13 +131,20 @@ public class NESCPUBus<E extends NESEmulator> implements Bus {
     public void writeByte(int address, int value) {
         value &= 0xFF;
         this.dataBus = value;
-        if (address >= RAM_START && address <= RAM_END) {
-            this.ram[address & 0x7FF] = value;
+        switch (this.blocks[address >>> BLOCK_SHIFT]) {
+            case RAM -> this.ram.writeByte(address & 0x7FF, value);
+            case PPU -> this.emulator.getVideoGenerator().writeByte(address, value);
+            case APU_IO -> this.emulator.getRicohCore().writeByteIO(address, value);
+            case CARTRIDGE -> this.emulator.getCartridge().writeByte(address, value);
+            default -> {
+                if (address >= RAM_START && address <= RAM_END) {
+                    this.ram.writeByte(address & 0x7FF, value);
+                }
+                this.emulator.getVideoGenerator().writeByte(address, value);
+                this.emulator.getRicohCore().writeByteIO(address, value);
+                this.emulator.getCartridge().writeByte(address, value);
+            }
         }
-
-        this.emulator.getVideoGenerator().writeByte(address, value);
-        this.emulator.getRicohCore().writeByteIO(address, value);
-        this.emulator.getCartridge().writeByte(address, value);
     }
 
 }
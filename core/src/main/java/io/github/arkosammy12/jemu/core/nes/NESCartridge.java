@@ -1,17 +1,21 @@
 package io.github.arkosammy12.jemu.core.nes;
 
 import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.nes.ines.INESFile;
 
 import static io.github.arkosammy12.jemu.core.nes.RP2C02.CIRAM_START;
 
-public abstract class NESCartridge<E extends NESEmulator> implements Bus {
+public abstract class NESCartridge<E extends NESEmulator> implements Bus, Snapshottable {
 
     protected final E emulator;
     protected final INESFile iNESFile;
 
-    private final int[] vRam = new int[0x800];
+    private final MemoryRegion vRam = MemoryRegion.allocate(0x800);
 
     public NESCartridge(E emulator, INESFile iNESFile) {
         this.emulator = emulator;
@@ -29,20 +33,39 @@ public abstract class NESCartridge<E extends NESEmulator> implements Bus {
         };
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeRegion(this.vRam);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        reader.readRegion(this.vRam);
+    }
+
     public INESFile getINESFile() {
         return this.iNESFile;
     }
 
+    // The index of the PRG-ROM bank mapped at the given CPU address, or -1 if the address isn't mapped to PRG-ROM
+    abstract public int getProgramRomBank(int address);
+
+    // Whether the cartridge also responds to the 32 byte block of CPU addresses starting at the given address below
+    // $4020, where its output has to be combined with the console's own devices
+    public boolean isMappedBelowCartridgeSpace(int address) {
+        return false;
+    }
+
     abstract public int readBytePPU(int address);
 
     abstract public void writeBytePPU(int address, int value);
 
     protected int readByteVRAM(int address) {
-        return this.vRam[address];
+        return this.vRam.readByte(address);
     }
 
     protected void writeByteVRAM(int address, int value) {
-        this.vRam[address] = value & 0xFF;
+        this.vRam.writeByte(address, value);
     }
 
     protected int mapNametableAddress(int address) {
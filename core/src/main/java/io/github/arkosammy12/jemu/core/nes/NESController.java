@@ -1,8 +1,11 @@
 package io.github.arkosammy12.jemu.core.nes;
 
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.common.SystemController;
 
-public class NESController<E extends NESEmulator> extends SystemController<E> {
+public class NESController<E extends NESEmulator> extends SystemController<E> implements Snapshottable {
 
     private static final int A_MASK = 1;
     private static final int B_MASK = 1 << 1;
@@ -22,6 +25,20 @@ public class NESController<E extends NESEmulator> extends SystemController<E> {
     public NESController(E emulator) {
         super(emulator);
     }
+
+    // The buttons themselves aren't part of the state, so the ones the player is holding stay held after a load
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeBoolean(this.strobeSignal);
+        writer.writeByte(this.joy1ShiftRegister);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.strobeSignal = reader.readBoolean();
+        this.joy1ShiftRegister = reader.readByte();
+    }
+
     @Override
     public void onActionPressed(Action action) {
         if (!(action instanceof Actions joypadAction)) {
@@ -16,6 +16,9 @@ public class NESEmulator implements Emulator, NMOS6502.SystemBus {
     private static final int PAL_PPU_CLOCK_DIVISOR = 5;
     private static final int PAL_FRAMERATE = 50;
 
+    private static final int STATE_SYSTEM_ID = 0x2053454E; // "NES "
+    private static final int STATE_VERSION = 4;
+
     private final SystemHost systemHost;
 
     private final RP2A03<?> ricohCore;
@@ -38,16 +41,16 @@ public class NESEmulator implements Emulator, NMOS6502.SystemBus {
 
     public NESEmulator(SystemHost systemHost) {
         this.systemHost = systemHost;
-        this.cartridge = NESCartridge.getCartridge(this, INESFile.getINESFile(SystemHost.byteToIntArray(this.getHost().getRom())));
+        this.cartridge = NESCartridge.getCartridge(this, INESFile.getINESFile(this.getHost().getRomImage().getRegion()));
         this.isPAL = this.cartridge.getINESFile().isPAL();
-        int apuSampleBufferSize;
+        int apuCyclesPerFrame;
         if (this.isPAL) {
             this.masterClockFrequency = PAL_MASTER_CLOCK_FREQUENCY_HZ;
             this.framerate = PAL_FRAMERATE;
             this.iterationsPerFrame = (PAL_MASTER_CLOCK_FREQUENCY_HZ * 2) / PAL_FRAMERATE;
             this.cpuSubCycleDivisor = PAL_CPU_CLOCK_DIVISOR;
             this.ppuSubCycleDivisor = PAL_PPU_CLOCK_DIVISOR;
-            apuSampleBufferSize = (PAL_MASTER_CLOCK_FREQUENCY_HZ * 2) / PAL_CPU_CLOCK_DIVISOR / PAL_FRAMERATE;
+            apuCyclesPerFrame = (PAL_MASTER_CLOCK_FREQUENCY_HZ * 2) / PAL_CPU_CLOCK_DIVISOR / PAL_FRAMERATE;
             this.deriveCyclesFromMasterClock = true;
         } else {
             this.masterClockFrequency = NTSC_MASTER_CLOCK_FREQUENCY_HZ;
@@ -55,11 +58,11 @@ public class NESEmulator implements Emulator, NMOS6502.SystemBus {
             this.iterationsPerFrame = NTSC_MASTER_CLOCK_FREQUENCY_HZ / NTSC_CPU_CLOCK_DIVISOR / NTSC_FRAMERATE;
             this.cpuSubCycleDivisor = NTSC_CPU_CLOCK_DIVISOR / 2;
             this.ppuSubCycleDivisor = NTSC_PPU_CLOCK_DIVISOR / 2;
-            apuSampleBufferSize = this.iterationsPerFrame;
+            apuCyclesPerFrame = this.iterationsPerFrame;
             this.deriveCyclesFromMasterClock = false;
         }
 
-        this.ricohCore = new RP2A03<>(this, apuSampleBufferSize);
+        this.ricohCore = new RP2A03<>(this, apuCyclesPerFrame);
         this.ppu = new RP2C02<>(this);
         this.cpuBus = new NESCPUBus<>(this);
     }
@@ -105,6 +108,28 @@ public class NESEmulator implements Emulator, NMOS6502.SystemBus {
         return this.cartridge;
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeHeader(STATE_SYSTEM_ID, STATE_VERSION);
+        this.ricohCore.saveState(writer);
+        this.ppu.saveState(writer);
+        this.cpuBus.saveState(writer);
+        this.cartridge.saveState(writer);
+        writer.writeInt(this.cpuDivisorCounter);
+        writer.writeInt(this.ppuDivisorCounter);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        reader.readHeader(STATE_SYSTEM_ID, STATE_VERSION);
+        this.ricohCore.loadState(reader);
+        this.ppu.loadState(reader);
+        this.cpuBus.loadState(reader);
+        this.cartridge.loadState(reader);
+        this.cpuDivisorCounter = reader.readInt();
+        this.ppuDivisorCounter = reader.readInt();
+    }
+
     @Override
     public void executeFrame() {
         if (this.deriveCyclesFromMasterClock) {
@@ -116,6 +141,7 @@ public class NESEmulator implements Emulator, NMOS6502.SystemBus {
                 this.runCycleWithRatio();
             }
         }
+        this.ricohCore.getApu().sync();
     }
 
     @Override
@@ -178,6 +204,21 @@ public class NESEmulator implements Emulator, NMOS6502.SystemBus {
         return this.ricohCore.getRDYSignal();
     }
 
+    @Override
+    public int getCodeBank(int address) {
+        return this.cartridge.getProgramRomBank(address);
+    }
+
+    @Override
+    public int readCode(int address) {
+        return this.cartridge.readByte(address);
+    }
+
+    @Override
+    public boolean isInternalRam(int address) {
+        return address >= NESCPUBus.RAM_START && address <= NESCPUBus.RAM_END;
+    }
+
     @Override
     public void close() throws Exception {
 
@@ -1,9 +1,11 @@
 package io.github.arkosammy12.jemu.core.nes;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.nes.ines.INESFile;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 import static io.github.arkosammy12.jemu.core.nes.RP2C02.*;
@@ -11,39 +13,55 @@ import static io.github.arkosammy12.jemu.core.nes.ines.INESFile.KB_8;
 
 public class NROMCartridge<E extends NESEmulator> extends NESCartridge<E> {
 
-    private final int[] programRom;
-    private final int[] programRam;
-    private final int[] characterRom;
-    private final int[] characterRam;
+    private final MemoryRegion programRom;
+    private final MemoryRegion programRam;
+    private final MemoryRegion characterRom;
+    private final MemoryRegion characterRam;
 
     public NROMCartridge(E emulator, INESFile iNESFile) {
         super(emulator, iNESFile);
 
         int programRamSize = Math.clamp(iNESFile.getProgramRamSize(), 0, KB_8);
-        this.programRam = new int[programRamSize];
+        this.programRam = MemoryRegion.allocate(programRamSize);
 
-        int[] programRomData = iNESFile.getProgramRom();
-        this.programRom = Arrays.copyOf(programRomData, programRomData.length);
+        this.programRom = iNESFile.getProgramRom();
 
-        Optional<int[]> characterRomOptional = iNESFile.getCharacterRom();
+        Optional<MemoryRegion> characterRomOptional = iNESFile.getCharacterRom();
         if (characterRomOptional.isEmpty()) {
             this.characterRom = null;
-            this.characterRam = new int[iNESFile.getCharacterRamSize()];
+            this.characterRam = MemoryRegion.allocate(iNESFile.getCharacterRamSize());
         } else {
-            int[] characterRomData = characterRomOptional.get();
-            this.characterRom = Arrays.copyOf(characterRomData, characterRomData.length);
+            this.characterRom = characterRomOptional.get();
             this.characterRam = null;
         }
 
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        super.saveState(writer);
+        writer.writeRegion(this.programRam);
+        if (this.characterRam != null) {
+            writer.writeRegion(this.characterRam);
+        }
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        super.loadState(reader);
+        reader.readRegion(this.programRam);
+        if (this.characterRam != null) {
+            reader.readRegion(this.characterRam);
+        }
+    }
+
     @Override
     public int readBytePPU(int address) {
         if (address >= CHR_ROM_START && address <= CHR_ROM_END) {
             if (this.characterRom == null) {
-                return this.characterRam[(address - CHR_ROM_START) % this.characterRam.length];
+                return this.characterRam.readByte((address - CHR_ROM_START) % this.characterRam.length());
             } else {
-                return this.characterRom[(address - CHR_ROM_START) % this.characterRom.length];
+                return this.characterRom.readByte((address - CHR_ROM_START) % this.characterRom.length());
             }
         } else if (address >= CIRAM_START && address <= CIRAM_END) {
             return this.readByteVRAM(this.mapNametableAddress(address));
@@ -62,7 +80,7 @@ public class NROMCartridge<E extends NESEmulator> extends NESCartridge<E> {
     public void writeBytePPU(int address, int value) {
         if (address >= CHR_ROM_START && address <= CHR_ROM_END) {
             if (this.characterRam != null) {
-                this.characterRam[(address - CHR_ROM_START) % this.characterRam.length] = value & 0xFF;
+                this.characterRam.writeByte((address - CHR_ROM_START) % this.characterRam.length(), value);
             }
         } else if (address >= CIRAM_START && address <= CIRAM_END) {
             this.writeByteVRAM(this.mapNametableAddress(address), value);
@@ -77,18 +95,23 @@ public class NROMCartridge<E extends NESEmulator> extends NESCartridge<E> {
         }
     }
 
+    @Override
+    public int getProgramRomBank(int address) {
+        return address >= 0x8000 && address <= 0xFFFF ? 0 : -1;
+    }
+
     @Override
     public int readByte(int address) {
         if (address >= 0x6000 && address <= 0x7FFF) {
-            if (this.programRam.length > 0) {
-                return this.programRam[(address - 0x6000) % this.programRam.length];
+            if (this.programRam.length() > 0) {
+                return this.programRam.readByte((address - 0x6000) % this.programRam.length());
             } else {
                 return -1;
             }
         } else if (address >= 0x8000 && address <= 0xBFFF) {
-            return this.programRom[(address - 0x8000) % this.programRom.length];
+            return this.programRom.readByte((address - 0x8000) % this.programRom.length());
         } else if (address >= 0xC000 && address <= 0xFFFF) {
-            return this.programRom[(address - 0x8000) % this.programRom.length];
+            return this.programRom.readByte((address - 0x8000) % this.programRom.length());
         } else {
             return -1;
         }
@@ -97,8 +120,8 @@ public class NROMCartridge<E extends NESEmulator> extends NESCartridge<E> {
     @Override
     public void writeByte(int address, int value) {
         if (address >= 0x6000 && address <= 0x7FFF) {
-            if (this.programRam.length > 0) {
-                this.programRam[(address - 0x6000) % this.programRam.length] = value & 0xFF;
+            if (this.programRam.length() > 0) {
+                this.programRam.writeByte((address - 0x6000) % this.programRam.length(), value);
             }
         }
     }
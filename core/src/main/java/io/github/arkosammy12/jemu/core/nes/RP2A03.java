@@ -1,12 +1,15 @@
 package io.github.arkosammy12.jemu.core.nes;
 
 import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.cpu.NES6502;
 
 import static io.github.arkosammy12.jemu.core.nes.RP2C02.OAMDATA_ADDR;
 
 // TODO: PAL implementation
-public class RP2A03<E extends NESEmulator> implements Bus {
+public class RP2A03<E extends NESEmulator> implements Bus, Snapshottable {
 
     public static final int SQ1_VOL_ADDR = 0x4000;
     public static final int SQ1_SWEEP_ADDR = 0x4001;
@@ -34,6 +37,9 @@ public class RP2A03<E extends NESEmulator> implements Bus {
     public static final int JOY1_ADDR = 0x4016;
     public static final int JOY2_ADDR = 0x4017;
 
+    private static final APUHalfCycleType[] APU_HALF_CYCLE_TYPES = APUHalfCycleType.values();
+    private static final DmcDmaStep[] DMC_DMA_STEPS = DmcDmaStep.values();
+
     private final E emulator;
     private final NES6502 cpu;
     private final NESAPU<?> apu;
@@ -51,10 +57,10 @@ public class RP2A03<E extends NESEmulator> implements Bus {
 
     private int internalDataBus;
 
-    public RP2A03(E emulator, int apuSampleBufferSize) {
+    public RP2A03(E emulator, int apuCyclesPerFrame) {
         this.emulator = emulator;
-        this.cpu = new NES6502(emulator);
-        this.apu = new NESAPU<>(emulator, apuSampleBufferSize);
+        this.cpu = new NES6502(emulator, emulator.getHost().isRecompilerEnabled());
+        this.apu = new NESAPU<>(emulator, apuCyclesPerFrame);
         this.controller = new NESController<>(emulator);
     }
 
@@ -74,6 +80,36 @@ public class RP2A03<E extends NESEmulator> implements Bus {
         return this.apuHalfCycleType;
     }
 
+    @Override
+    public void saveState(StateWriter writer) {
+        this.cpu.saveState(writer);
+        this.apu.saveState(writer);
+        this.controller.saveState(writer);
+        writer.writeInt(this.oamDmaTransferredBytes);
+        writer.writeByte(this.oamDmaSourceAddressHighByte);
+        writer.writeInt(this.oamDmaCurrentData);
+        writer.writeByte(this.apuHalfCycleType.ordinal());
+        writer.writeInt(this.scheduleDmcDmaHaltCountdown);
+        writer.writeByte(this.dmcDmaStep.ordinal());
+        writer.writeShort(this.dmcDmaAddress);
+        writer.writeByte(this.internalDataBus);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.cpu.loadState(reader);
+        this.apu.loadState(reader);
+        this.controller.loadState(reader);
+        this.oamDmaTransferredBytes = reader.readInt();
+        this.oamDmaSourceAddressHighByte = reader.readByte();
+        this.oamDmaCurrentData = reader.readInt();
+        this.apuHalfCycleType = APU_HALF_CYCLE_TYPES[reader.readByte()];
+        this.scheduleDmcDmaHaltCountdown = reader.readInt();
+        this.dmcDmaStep = DMC_DMA_STEPS[reader.readByte()];
+        this.dmcDmaAddress = reader.readShort();
+        this.internalDataBus = reader.readByte();
+    }
+
     @Override
     public int readByte(int address) {
         this.internalDataBus = this.emulator.getCpuBus().readByte(address);
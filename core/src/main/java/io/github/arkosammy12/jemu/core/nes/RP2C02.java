@@ -1,18 +1,20 @@
 package io.github.arkosammy12.jemu.core.nes;
 
 import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import io.github.arkosammy12.jemu.core.common.VideoGenerator;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import io.github.arkosammy12.jemu.core.util.ActionSignal;
 
 import java.util.Arrays;
-import java.util.LinkedList;
 
 import static io.github.arkosammy12.jemu.core.nes.NESCPUBus.PPU_END;
 import static io.github.arkosammy12.jemu.core.nes.NESCPUBus.PPU_START;
 
 // TODO: PAL implementation
-public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements Bus {
+public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements Bus, Snapshottable {
 
     public static final int[] PALETTE_2C02G_WIKI = {
             0x62, 0x62, 0x62, 0x00, 0x1c, 0x95, 0x19, 0x04, 0xac, 0x42, 0x00, 0x9d,
@@ -171,6 +173,9 @@ public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements
 
     private static final int WIDTH = 256;
 
+    private static final DotHalf[] DOT_HALVES = DotHalf.values();
+    private static final FrameParity[] FRAME_PARITIES = FrameParity.values();
+
     private static final int DOTS_PER_SCANLINE = 341;
     private static final int FIRST_VISIBLE_DOT = 1;
     private static final int LAST_VISIBLE_DOT = 256;
@@ -184,7 +189,7 @@ public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements
     private static final int PAL_VBL_SCANLINE = 241;
     private static final int PAL_VISIBLE_SCANLINES = 239;
 
-    private final int[][] video;
+    private final int[] video;
     private final int scanlinesPerFrame;
     private final int visibleScanlines;
     private final int vblScanline;
@@ -230,8 +235,12 @@ public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements
 
     private int decayPpuDataBusCountdown;
 
-    private final LinkedList<Integer> backgroundShiftRegister = new LinkedList<>();
-    private final LinkedList<Integer> attributeShiftRegister = new LinkedList<>();
+    // Like the real shifters, pattern bits go through a pair of 16-bit registers and the attribute bits through a pair
+    // of 8-bit registers fed from a 1-bit latch. The next pixel is at the most significant bit, offset by fine X
+    private int backgroundPatternShiftRegisterLow;
+    private int backgroundPatternShiftRegisterHigh;
+    private int attributeShiftRegisterLow;
+    private int attributeShiftRegisterHigh;
 
     private int attributeRegisterLatch = 0b00;
 
@@ -266,15 +275,9 @@ public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements
         this.doOddFrameDotSkipping = true;
 
         this.dotsPerFrame = this.scanlinesPerFrame * DOTS_PER_SCANLINE;
-        this.video = new int[WIDTH][this.visibleScanlines];
-        for (int[] ints : this.video) {
-            Arrays.fill(ints, 0xFF000000);
-        }
-        for (int i = 0; i < 16; i++) {
-            this.backgroundShiftRegister.offer(0b00);
-        }
+        this.video = new int[WIDTH * this.visibleScanlines];
+        Arrays.fill(this.video, 0xFF000000);
         for (int i = 0; i < 8; i++) {
-            this.attributeShiftRegister.offer(0b00);
             this.spriteShifters[i] = new SpriteShifter();
         }
 
@@ -301,6 +304,127 @@ public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements
         return this.visibleScanlines;
     }
 
+    // The picture is saved too, so a loaded state shows the same frame it was saved on
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeInts(this.video);
+        writer.writeInts(this.primaryOAM);
+        writer.writeInts(this.secondaryOAM);
+        writer.writeInts(this.paletteRam);
+        writer.writeByte(this.ppuControl);
+        writer.writeByte(this.ppuMask);
+        writer.writeByte(this.ppuStatus);
+        writer.writeByte(this.dataBus);
+        writer.writeShort(this.currentVRAMAddress);
+        writer.writeShort(this.temporaryVRAMAddress);
+        writer.writeByte(this.fineXScroll);
+        writer.writeBoolean(this.writeLatch);
+        writer.writeByte(this.primaryOamAddress);
+        writer.writeByte(this.secondaryOamAddress);
+        writer.writeByte(this.currentDotHalf.ordinal());
+        writer.writeInt(this.dotNumber);
+        writer.writeInt(this.scanlineNumber);
+        writer.writeBoolean(this.vBlankFlagForNMI);
+        writer.writeBoolean(this.nmiOutput);
+        writer.writeBoolean(this.ppuInit);
+        writer.writeBoolean(this.isRendering);
+        writer.writeByte(this.frameParity.ordinal());
+        writer.writeBoolean(this.dotSkipped);
+        writer.writeInt(this.ppuDataReadBuffer);
+        writer.writeBoolean(this.sprite0OnNextScanline);
+        writer.writeBoolean(this.sprite0OnThisScanline);
+        this.copyTtoVSignal.saveState(writer);
+        this.toggleRenderingSignal.saveState(writer);
+        this.clearVblOnPpuStatusReadSignal.saveState(writer);
+        this.setSprite0HItSignal.saveState(writer);
+        writer.writeInt(this.decayPpuDataBusCountdown);
+        writer.writeShort(this.backgroundPatternShiftRegisterLow);
+        writer.writeShort(this.backgroundPatternShiftRegisterHigh);
+        writer.writeByte(this.attributeShiftRegisterLow);
+        writer.writeByte(this.attributeShiftRegisterHigh);
+        writer.writeInt(this.attributeRegisterLatch);
+        writer.writeInt(this.bgFetcherStep);
+        writer.writeInt(this.bgFetcherTileNumber);
+        writer.writeInt(this.bgFetcherAttributeByte);
+        writer.writeInt(this.bgFetcherPatternTableLow);
+        writer.writeInt(this.secondaryOamClearStep);
+        writer.writeInt(this.primaryOamBuffer);
+        writer.writeInt(this.spriteEvaluationStep);
+        writer.writeInt(this.spriteEvaluationOamReadingCounter);
+        writer.writeBoolean(this.spriteEvaluationOriginalPrimaryOamAddressOverflowed);
+        writer.writeBoolean(this.spriteEvaluationPrimaryOamAddressOverflowed);
+        writer.writeBoolean(this.spriteEvaluationSecondaryOamAddressOverflowed);
+        for (SpriteShifter spriteShifter : this.spriteShifters) {
+            spriteShifter.saveState(writer);
+        }
+        writer.writeInt(this.spriteShifterInitIndex);
+        writer.writeInt(this.spriteFetcherStep);
+        writer.writeInt(this.spriteFetcherYPosition);
+        writer.writeInt(this.spriteFetcherTileNumber);
+        writer.writeInt(this.spriteFetcherAttributeByte);
+        writer.writeInt(this.spriteFetcherPatternTableLow);
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        reader.readInts(this.video);
+        reader.readInts(this.primaryOAM);
+        reader.readInts(this.secondaryOAM);
+        reader.readInts(this.paletteRam);
+        this.ppuControl = reader.readByte();
+        this.ppuMask = reader.readByte();
+        this.ppuStatus = reader.readByte();
+        this.dataBus = reader.readByte();
+        this.currentVRAMAddress = reader.readShort();
+        this.temporaryVRAMAddress = reader.readShort();
+        this.fineXScroll = reader.readByte();
+        this.writeLatch = reader.readBoolean();
+        this.primaryOamAddress = reader.readByte();
+        this.secondaryOamAddress = reader.readByte();
+        this.currentDotHalf = DOT_HALVES[reader.readByte()];
+        this.dotNumber = reader.readInt();
+        this.scanlineNumber = reader.readInt();
+        this.vBlankFlagForNMI = reader.readBoolean();
+        this.nmiOutput = reader.readBoolean();
+        this.ppuInit = reader.readBoolean();
+        this.isRendering = reader.readBoolean();
+        this.frameParity = FRAME_PARITIES[reader.readByte()];
+        this.dotSkipped = reader.readBoolean();
+        this.ppuDataReadBuffer = reader.readInt();
+        this.sprite0OnNextScanline = reader.readBoolean();
+        this.sprite0OnThisScanline = reader.readBoolean();
+        this.copyTtoVSignal.loadState(reader);
+        this.toggleRenderingSignal.loadState(reader);
+        this.clearVblOnPpuStatusReadSignal.loadState(reader);
+        this.setSprite0HItSignal.loadState(reader);
+        this.decayPpuDataBusCountdown = reader.readInt();
+        this.backgroundPatternShiftRegisterLow = reader.readShort();
+        this.backgroundPatternShiftRegisterHigh = reader.readShort();
+        this.attributeShiftRegisterLow = reader.readByte();
+        this.attributeShiftRegisterHigh = reader.readByte();
+        this.attributeRegisterLatch = reader.readInt();
+        this.bgFetcherStep = reader.readInt();
+        this.bgFetcherTileNumber = reader.readInt();
+        this.bgFetcherAttributeByte = reader.readInt();
+        this.bgFetcherPatternTableLow = reader.readInt();
+        this.secondaryOamClearStep = reader.readInt();
+        this.primaryOamBuffer = reader.readInt();
+        this.spriteEvaluationStep = reader.readInt();
+        this.spriteEvaluationOamReadingCounter = reader.readInt();
+        this.spriteEvaluationOriginalPrimaryOamAddressOverflowed = reader.readBoolean();
+        this.spriteEvaluationPrimaryOamAddressOverflowed = reader.readBoolean();
+        this.spriteEvaluationSecondaryOamAddressOverflowed = reader.readBoolean();
+        for (SpriteShifter spriteShifter : this.spriteShifters) {
+            spriteShifter.loadState(reader);
+        }
+        this.spriteShifterInitIndex = reader.readInt();
+        this.spriteFetcherStep = reader.readInt();
+        this.spriteFetcherYPosition = reader.readInt();
+        this.spriteFetcherTileNumber = reader.readInt();
+        this.spriteFetcherAttributeByte = reader.readInt();
+        this.spriteFetcherPatternTableLow = reader.readInt();
+    }
+
     @Override
     public int readByte(int address) {
         if (!(address >= PPU_START && address <= PPU_END)) {
@@ -616,7 +740,7 @@ public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements
                     if (this.dotNumber == 0) {
                         this.vBlankFlagForNMI = true;
                     } else if (this.dotNumber == 1) {
-                        this.emulator.getHost().getVideoDriver().ifPresent(driver -> driver.outputFrame(this.video));
+                        this.emulator.getHost().getVideoDriver().ifPresent(driver -> driver.outputFrame(this.video, WIDTH));
                         this.setVBlankFlag(true);
                     }
                 }
@@ -749,21 +873,23 @@ public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements
         int blue = PALETTE_2C02G_WIKI[videoColorIndex + 2];
         int argb = 0xFF000000 | (red << 16) | (green << 8) | blue;
         if (this.isVisibleDot() && this.isVisibleScanline()) {
-            this.video[this.dotNumber - 1][this.scanlineNumber] = argb;
+            this.video[(this.scanlineNumber * WIDTH) + this.dotNumber - 1] = argb;
         }
     }
 
     private int shiftBackgroundRegister(int select) {
-        int ret = this.backgroundShiftRegister.get(select);
-        this.backgroundShiftRegister.poll();
-        this.backgroundShiftRegister.offer(0b01);
+        int bit = 15 - select;
+        int ret = (((this.backgroundPatternShiftRegisterHigh >>> bit) & 1) << 1) | ((this.backgroundPatternShiftRegisterLow >>> bit) & 1);
+        this.backgroundPatternShiftRegisterLow = ((this.backgroundPatternShiftRegisterLow << 1) | 1) & 0xFFFF;
+        this.backgroundPatternShiftRegisterHigh = (this.backgroundPatternShiftRegisterHigh << 1) & 0xFFFF;
         return ret;
     }
 
     private int shiftAttributeRegister(int select) {
-        int ret = this.attributeShiftRegister.get(select);
-        this.attributeShiftRegister.poll();
-        this.attributeShiftRegister.offer(this.attributeRegisterLatch);
+        int bit = 7 - select;
+        int ret = (((this.attributeShiftRegisterHigh >>> bit) & 1) << 1) | ((this.attributeShiftRegisterLow >>> bit) & 1);
+        this.attributeShiftRegisterLow = ((this.attributeShiftRegisterLow << 1) | (this.attributeRegisterLatch & 1)) & 0xFF;
+        this.attributeShiftRegisterHigh = ((this.attributeShiftRegisterHigh << 1) | ((this.attributeRegisterLatch >>> 1) & 1)) & 0xFF;
         return ret;
     }
 
@@ -799,12 +925,8 @@ public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements
                 int bgFetcherPatternTableHigh = this.readBytePPU(this.getBackgroundPatternByteAddress(true));
 
                 if (this.isRenderingEnabled()) {
-                    for (int i = 0; i < 8; i++) {
-                        int bit = 7 - i;
-                        int hi = (bgFetcherPatternTableHigh >>> bit) & 1;
-                        int lo = (this.bgFetcherPatternTableLow >>> bit) & 1;
-                        this.backgroundShiftRegister.set(i + 8, (hi << 1) | lo);
-                    }
+                    this.backgroundPatternShiftRegisterLow = (this.backgroundPatternShiftRegisterLow & 0xFF00) | (this.bgFetcherPatternTableLow & 0xFF);
+                    this.backgroundPatternShiftRegisterHigh = (this.backgroundPatternShiftRegisterHigh & 0xFF00) | (bgFetcherPatternTableHigh & 0xFF);
 
                     int coarseX = this.getV() & 0x1F;
                     int coarseY = (this.getV() >>> 5) & 0x1F;
@@ -1149,35 +1271,47 @@ public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements
 
     }
 
-    private static class SpriteShifter {
+    private static class SpriteShifter implements Snapshottable {
 
-        private final LinkedList<Integer> shiftRegister = new LinkedList<>();
+        private int shiftRegisterLow;
+        private int shiftRegisterHigh;
         private int xPosition = 0xFF;
         private int attributes = 0xFF;
         private int xPositionCounter = 0xFF;
 
-        private SpriteShifter() {
-            for (int i = 0; i < 8; i++) {
-                this.shiftRegister.add(0b00);
-            }
-        }
-
         private void initialize(int patternBitsLow, int patternBitsHigh, int xPosition, int attributes) {
             this.xPosition = xPosition & 0xFF;
             this.attributes = attributes & 0xFF;
             this.xPositionCounter = this.xPosition;
 
-            boolean xFlip = this.getSpriteHorizontalFlip();
-
-            for (int i = 0; i < 8; i++) {
-                int bit = xFlip ? i : 7 - i;
-                int hi = (patternBitsHigh >>> bit) & 1;
-                int lo = (patternBitsLow >>> bit) & 1;
-                this.shiftRegister.set(i, (hi << 1) | lo);
+            if (this.getSpriteHorizontalFlip()) {
+                this.shiftRegisterLow = Integer.reverse(patternBitsLow & 0xFF) >>> 24;
+                this.shiftRegisterHigh = Integer.reverse(patternBitsHigh & 0xFF) >>> 24;
+            } else {
+                this.shiftRegisterLow = patternBitsLow & 0xFF;
+                this.shiftRegisterHigh = patternBitsHigh & 0xFF;
             }
 
         }
 
+        @Override
+        public void saveState(StateWriter writer) {
+            writer.writeByte(this.shiftRegisterLow);
+            writer.writeByte(this.shiftRegisterHigh);
+            writer.writeByte(this.xPosition);
+            writer.writeByte(this.attributes);
+            writer.writeByte(this.xPositionCounter);
+        }
+
+        @Override
+        public void loadState(StateReader reader) {
+            this.shiftRegisterLow = reader.readByte();
+            this.shiftRegisterHigh = reader.readByte();
+            this.xPosition = reader.readByte();
+            this.attributes = reader.readByte();
+            this.xPositionCounter = reader.readByte();
+        }
+
         private void decrementXPositionCounter() {
             if (this.xPositionCounter > 0) {
                 this.xPositionCounter--;
@@ -1201,8 +1335,9 @@ public class RP2C02<E extends NESEmulator> extends VideoGenerator<E> implements
         }
 
         private int shiftOutPixel() {
-            int ret = this.shiftRegister.poll();
-            this.shiftRegister.offer(0b00);
+            int ret = (((this.shiftRegisterHigh >>> 7) & 1) << 1) | ((this.shiftRegisterLow >>> 7) & 1);
+            this.shiftRegisterLow = (this.shiftRegisterLow << 1) & 0xFF;
+            this.shiftRegisterHigh = (this.shiftRegisterHigh << 1) & 0xFF;
             return ret;
         }
 
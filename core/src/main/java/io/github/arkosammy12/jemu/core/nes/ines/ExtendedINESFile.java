@@ -1,17 +1,19 @@
 package io.github.arkosammy12.jemu.core.nes.ines;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+
 public class ExtendedINESFile extends INESFile {
 
-    public ExtendedINESFile(int[] file) {
+    public ExtendedINESFile(MemoryRegion file) {
         super(file);
     }
 
-    protected int getMapperNumber(int[] file) {
-        return (file[7] & 0xF0) | ((file[6] >>> 4) & 0x0F);
+    protected int getMapperNumber(MemoryRegion file) {
+        return (file.readByte(7) & 0xF0) | ((file.readByte(6) >>> 4) & 0x0F);
     }
 
-    protected int getProgramRamSize(int[] file) {
-        int flags8 = file[8];
+    protected int getProgramRamSize(MemoryRegion file) {
+        int flags8 = file.readByte(8);
         return flags8 == 0 ? KB_8 : flags8 * KB_8;
     }
 
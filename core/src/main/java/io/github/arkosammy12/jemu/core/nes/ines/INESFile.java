@@ -1,9 +1,9 @@
 package io.github.arkosammy12.jemu.core.nes.ines;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
 import io.github.arkosammy12.jemu.core.exceptions.EmulatorException;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 public class INESFile {
@@ -15,21 +15,21 @@ public class INESFile {
     private final NametableArrangement nametableArrangement;
     private final boolean hasBattery;
     private final boolean hasAlternativeNametableLayout;
-    private final int[] programRomData;
-    private final int @Nullable [] characterRomData;
-    private final int @Nullable [] byteTrainer;
+    private final MemoryRegion programRomData;
+    private final @Nullable MemoryRegion characterRomData;
+    private final @Nullable MemoryRegion byteTrainer;
 
     private final int mapperNumber;
     private final int programRamSizeBytes;
     private final int characterRamSizeBytes;
 
-    public INESFile(int[] file) {
+    public INESFile(MemoryRegion file) {
 
         this.mapperNumber = this.getMapperNumber(file);
         this.programRamSizeBytes = this.getProgramRamSize(file);
         this.characterRamSizeBytes = this.getCharacterRamSize(file);
 
-        int flags6 = file[6] & 0xFF;
+        int flags6 = file.readByte(6) & 0xFF;
         this.nametableArrangement = (flags6 & 1) != 0 ? NametableArrangement.HORIZONTAL : NametableArrangement.VERTICAL;
         this.hasBattery = (flags6 & (1 << 1)) != 0;
         this.hasAlternativeNametableLayout = (flags6 & (1 << 3)) != 0;
@@ -46,12 +46,10 @@ public class INESFile {
             throw new EmulatorException("PRG-ROM size header cannot be 0!");
         }
 
-        this.programRomData = new int[programRomSizeBytes];
-        System.arraycopy(file, programRomDataBeginIndex, this.programRomData, 0, this.programRomData.length);
+        this.programRomData = file.slice(programRomDataBeginIndex, programRomSizeBytes);
 
         if (hasByeTrainer) {
-            this.byteTrainer = new int[512];
-            System.arraycopy(file, 16, this.byteTrainer, 0, this.byteTrainer.length);
+            this.byteTrainer = file.slice(16, 512);
         } else {
             this.byteTrainer = null;
         }
@@ -60,43 +58,43 @@ public class INESFile {
         if (characterRomSizeBytes <= 0) {
             this.characterRomData = null;
         } else {
-            int characterRomDataBeginIndex = programRomDataBeginIndex + this.programRomData.length;
-            this.characterRomData = new int[characterRomSizeBytes];
-            System.arraycopy(file, characterRomDataBeginIndex, this.characterRomData, 0, this.characterRomData.length);
+            int characterRomDataBeginIndex = programRomDataBeginIndex + this.programRomData.length();
+            this.characterRomData = file.slice(characterRomDataBeginIndex, characterRomSizeBytes);
         }
 
     }
 
-    protected int getProgramRomSizeBytes(int[] file) {
-        return (file[4] & 0xFF) * KB_16;
+    protected int getProgramRomSizeBytes(MemoryRegion file) {
+        return (file.readByte(4) & 0xFF) * KB_16;
     }
 
-    protected int getCharacterRomSizeBytes(int[] file) {
-        return (file[5] & 0xFF) * KB_8;
+    protected int getCharacterRomSizeBytes(MemoryRegion file) {
+        return (file.readByte(5) & 0xFF) * KB_8;
     }
 
-    protected int getMapperNumber(int[] file) {
-        return (file[6] >>> 4) & 0xF;
+    protected int getMapperNumber(MemoryRegion file) {
+        return (file.readByte(6) >>> 4) & 0xF;
     }
 
-    protected int getProgramRamSize(int[] file) {
+    protected int getProgramRamSize(MemoryRegion file) {
         return KB_8;
     }
 
-    protected int getCharacterRamSize(int[] file) {
-        return (file[5] & 0xFF) == 0 ? KB_8 : 0;
+    protected int getCharacterRamSize(MemoryRegion file) {
+        return (file.readByte(5) & 0xFF) == 0 ? KB_8 : 0;
     }
 
-    public int[] getProgramRom() {
-        return Arrays.copyOf(this.programRomData, this.programRomData.length);
+    // The ROM regions are slices of the file, so they must not be written to
+    public MemoryRegion getProgramRom() {
+        return this.programRomData;
     }
 
-    public Optional<int[]> getCharacterRom() {
-        return Optional.ofNullable(this.characterRomData == null ? null : Arrays.copyOf(this.characterRomData, this.characterRomData.length));
+    public Optional<MemoryRegion> getCharacterRom() {
+        return Optional.ofNullable(this.characterRomData);
     }
 
-    public Optional<int[]> getByteTrainer() {
-        return Optional.ofNullable(this.byteTrainer == null ? null : Arrays.copyOf(this.byteTrainer, this.byteTrainer.length));
+    public Optional<MemoryRegion> getByteTrainer() {
+        return Optional.ofNullable(this.byteTrainer);
     }
 
     public int getMapperNumber() {
@@ -127,18 +125,18 @@ public class INESFile {
         return false;
     }
 
-    public static INESFile getINESFile(int[] file) {
+    public static INESFile getINESFile(MemoryRegion file) {
         try {
-            int maskedByte7 = file[7] & 0x0C;
+            int maskedByte7 = file.readByte(7) & 0x0C;
             boolean bytes12To15AreZero = true;
             for (int i = 12; i <= 15; i++) {
-                if (file[i] != 0) {
+                if (file.readByte(i) != 0) {
                     bytes12To15AreZero = false;
                     break;
                 }
             }
 
-            boolean hasByeTrainer = (file[6] & (1 << 2)) != 0;
+            boolean hasByeTrainer = (file.readByte(6) & (1 << 2)) != 0;
             int programRomSizeBytes = NES20File.parseNes20ProgramRomSizeBytes(file);
             int characterRomSizeBytes = NES20File.parseNes20CharacterRomSizeBytes(file);
 
@@ -150,7 +148,7 @@ public class INESFile {
             finalIndex += programRomSizeBytes;
             finalIndex += characterRomSizeBytes;
 
-            if (maskedByte7 == 0x08 && finalIndex <= file.length) {
+            if (maskedByte7 == 0x08 && finalIndex <= file.length()) {
                 return new NES20File(file);
             } else if (maskedByte7 == 0x04) {
                 return new INESFile(file);
@@ -160,7 +158,7 @@ public class INESFile {
                 return new INESFile(file);
             }
 
-        } catch (ArrayIndexOutOfBoundsException e) {
+        } catch (IndexOutOfBoundsException e) {
             throw new EmulatorException("Error initializing from iNES file!", e);
         }
     }
@@ -1,20 +1,22 @@
 package io.github.arkosammy12.jemu.core.nes.ines;
 
+import io.github.arkosammy12.jemu.core.common.MemoryRegion;
+
 public class NES20File extends ExtendedINESFile {
 
     private final int nonVolatileProgramRamSize;
     private final int nonVolatileCharacterRamSize;
 
-    public NES20File(int[] file) {
+    public NES20File(MemoryRegion file) {
         super(file);
 
         this.nonVolatileProgramRamSize = this.getNonVolatileProgramRamSize(file);
         this.nonVolatileCharacterRamSize = this.getNonVolatileCharacterRamSize(file);
     }
 
-    public static int parseNes20ProgramRomSizeBytes(int[] file) {
-        int programRomLsb = file[4] & 0xFF;
-        int programRomMsb = file[9] & 0x0F;
+    public static int parseNes20ProgramRomSizeBytes(MemoryRegion file) {
+        int programRomLsb = file.readByte(4) & 0xFF;
+        int programRomMsb = file.readByte(9) & 0x0F;
         if (programRomMsb == 0xF) {
             int multiplier = (programRomLsb & 0b11) * 2 + 1;
             int exponent = (programRomLsb >>> 2) & 0b111111;
@@ -24,9 +26,9 @@ public class NES20File extends ExtendedINESFile {
         }
     }
 
-    public static int parseNes20CharacterRomSizeBytes(int[] file) {
-        int characterRomLsb = file[5] & 0xFF;
-        int characterRomMsb = file[9] & 0x0F;
+    public static int parseNes20CharacterRomSizeBytes(MemoryRegion file) {
+        int characterRomLsb = file.readByte(5) & 0xFF;
+        int characterRomMsb = file.readByte(9) & 0x0F;
         if (characterRomMsb == 0xF) {
             int multiplier = (characterRomLsb & 0b11) * 2 + 1;
             int exponent = (characterRomMsb >>> 2) & 0b111111;
@@ -37,42 +39,42 @@ public class NES20File extends ExtendedINESFile {
     }
 
     @Override
-    protected int getProgramRomSizeBytes(int[] file) {
+    protected int getProgramRomSizeBytes(MemoryRegion file) {
         return parseNes20ProgramRomSizeBytes(file);
     }
 
     @Override
-    protected int getCharacterRomSizeBytes(int[] file) {
+    protected int getCharacterRomSizeBytes(MemoryRegion file) {
         return parseNes20CharacterRomSizeBytes(file);
     }
 
     @Override
-    protected int getMapperNumber(int[] file) {
-        return ((file[8] & 0x0F) << 4) | (file[7] & 0xF0) | ((file[6] >>> 4) & 0x0F);
+    protected int getMapperNumber(MemoryRegion file) {
+        return ((file.readByte(8) & 0x0F) << 4) | (file.readByte(7) & 0xF0) | ((file.readByte(6) >>> 4) & 0x0F);
     }
 
     @Override
-    protected int getProgramRamSize(int[] file) {
-        int flags10 = file[10] & 0xFF;
+    protected int getProgramRamSize(MemoryRegion file) {
+        int flags10 = file.readByte(10) & 0xFF;
         int volatileShiftCount = flags10 & 0x0F;
         return volatileShiftCount == 0 ? 0 : 64 << volatileShiftCount;
     }
 
-    private int getNonVolatileProgramRamSize(int[] file) {
-        int flags10 = file[10] & 0xFF;
+    private int getNonVolatileProgramRamSize(MemoryRegion file) {
+        int flags10 = file.readByte(10) & 0xFF;
         int nonVolatileShiftCount = (flags10 >>> 4) & 0x0F;
         return nonVolatileShiftCount == 0 ? 0 : 64 << nonVolatileShiftCount;
     }
 
-    private int getNonVolatileCharacterRamSize(int[] file) {
-        int flags10 = file[11] & 0xFF;
+    private int getNonVolatileCharacterRamSize(MemoryRegion file) {
+        int flags10 = file.readByte(11) & 0xFF;
         int nonVolatileShiftCount = (flags10 >>> 4) & 0x0F;
         return nonVolatileShiftCount == 0 ? 0 : 64 << nonVolatileShiftCount;
     }
 
 
-    protected int getCharacterRamSize(int[] file) {
-        int flags10 = file[11] & 0xFF;
+    protected int getCharacterRamSize(MemoryRegion file) {
+        int flags10 = file.readByte(11) & 0xFF;
         int volatileShiftCount = flags10 & 0x0F;
         return volatileShiftCount == 0 ? 0 : 64 << volatileShiftCount;
     }
@@ -1,13 +1,17 @@
 package io.github.arkosammy12.jemu.core.util;
 
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
 import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMaps;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongHeapPriorityQueue;
 import it.unimi.dsi.fastutil.longs.LongPriorityQueue;
 
 import java.util.function.IntConsumer;
 
-public final class ActionSignal {
+public final class ActionSignal implements Snapshottable {
 
     private final IntConsumer action;
     private final Long2IntMap pendingValues = new Long2IntOpenHashMap();
@@ -32,4 +36,28 @@ public final class ActionSignal {
         }
     }
 
+    // Triggers that are pending are saved as the tick they fire at and their value, so the queue can be rebuilt from them
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeLong(this.ticks);
+        writer.writeInt(this.pendingValues.size());
+        for (Long2IntMap.Entry entry : Long2IntMaps.fastIterable(this.pendingValues)) {
+            writer.writeLong(entry.getLongKey());
+            writer.writeInt(entry.getIntValue());
+        }
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.ticks = reader.readLong();
+        this.timers.clear();
+        this.pendingValues.clear();
+        int pendingCount = reader.readInt();
+        for (int i = 0; i < pendingCount; i++) {
+            long fireAt = reader.readLong();
+            this.timers.enqueue(fireAt);
+            this.pendingValues.put(fireAt, reader.readInt());
+        }
+    }
+
 }
@@ -0,0 +1,163 @@
+package io.github.arkosammy12.jemu.core.util;
+
+import io.github.arkosammy12.jemu.core.common.Snapshottable;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+
+import java.util.Arrays;
+
+// Turns a signal given as amplitude changes at arbitrary clock cycles into samples at the host's sample rate. Every change
+// is added as a band-limited step, a windowed sinc picked from a table by the fraction of a sample it lands on, so
+// square waves come out without the aliasing that point sampling them would cause. The buffer holds the difference
+// between consecutive samples, and reading integrates it back into amplitudes
+public final class BlipBuffer implements Snapshottable {
+
+    private static final int FRACTION_BITS = 32;
+    private static final int PHASE_BITS = 6;
+    private static final int PHASE_COUNT = 1 << PHASE_BITS;
+    private static final int HALF_WIDTH = 8;
+    private static final int WIDTH = HALF_WIDTH * 2;
+    private static final int KERNEL_BITS = 15;
+    // As a fraction of the sample rate, just under the Nyquist limit so the kernel can roll off before it
+    private static final double CUTOFF = 0.45;
+
+    private static final int[][] KERNELS = createKernels();
+
+    private long factor;
+    private int[] buffer;
+    // Position of the end of the last frame in the buffer, in samples with FRACTION_BITS bits of fraction
+    private long offset;
+    // Amount of buffer slots that may hold something other than 0
+    private int end;
+    private long accumulator;
+
+    public BlipBuffer(double clockRate, double sampleRate, int capacity) {
+        this.buffer = new int[capacity + WIDTH];
+        this.setRates(clockRate, sampleRate);
+    }
+
+    public void setRates(double clockRate, double sampleRate) {
+        this.factor = (long) Math.ceil(sampleRate / clockRate * (1L << FRACTION_BITS));
+    }
+
+    public void setCapacity(int capacity) {
+        if (capacity + WIDTH > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, capacity + WIDTH);
+        }
+    }
+
+    // The time is in clock cycles since the end of the last frame
+    public void addDelta(int time, int delta) {
+        long position = this.offset + time * this.factor;
+        int index = (int) (position >>> FRACTION_BITS);
+        this.ensureCapacity(index);
+        int[] kernel = KERNELS[(int) (position >>> (FRACTION_BITS - PHASE_BITS)) & (PHASE_COUNT - 1)];
+        int[] buffer = this.buffer;
+        for (int i = 0; i < WIDTH; i++) {
+            buffer[index + i] += kernel[i] * delta;
+        }
+        this.end = Math.max(this.end, index + WIDTH);
+    }
+
+    // Makes the samples up to the given amount of clock cycles after the end of the last frame available
+    public void endFrame(int time) {
+        this.offset += time * this.factor;
+        this.ensureCapacity(this.getSamplesAvailable());
+    }
+
+    // Frames are expected to fit in the capacity the buffer was sized for, but one that runs longer grows it instead of
+    // losing steps, which would offset every sample after them
+    private void ensureCapacity(int samples) {
+        if (samples + WIDTH > this.buffer.length) {
+            this.setCapacity(Math.max(samples, this.buffer.length * 2));
+        }
+    }
+
+    public int getSamplesAvailable() {
+        return (int) (this.offset >>> FRACTION_BITS);
+    }
+
+    // Reads up to the given amount of samples into the array, each as many elements apart as the stride, and returns
+    // how many were read
+    public int readSamples(int[] out, int outOffset, int count, int stride) {
+        count = Math.min(count, this.getSamplesAvailable());
+        long accumulator = this.accumulator;
+        int[] buffer = this.buffer;
+        for (int i = 0, j = outOffset; i < count; i++, j += stride) {
+            accumulator += buffer[i];
+            out[j] = (int) (accumulator >> KERNEL_BITS);
+        }
+        this.accumulator = accumulator;
+        this.removeSamples(count);
+        return count;
+    }
+
+    // Drops the given amount of samples while keeping the amplitude they lead up to
+    public void skipSamples(int count) {
+        count = Math.min(count, this.getSamplesAvailable());
+        if (count <= 0) {
+            return;
+        }
+        long accumulator = this.accumulator;
+        for (int i = 0; i < count; i++) {
+            accumulator += this.buffer[i];
+        }
+        this.accumulator = accumulator;
+        this.removeSamples(count);
+    }
+
+    private void removeSamples(int count) {
+        int remaining = Math.max(this.end - count, 0);
+        System.arraycopy(this.buffer, count, this.buffer, 0, remaining);
+        Arrays.fill(this.buffer, remaining, Math.max(this.end, remaining), 0);
+        this.end = remaining;
+        this.offset -= (long) count << FRACTION_BITS;
+    }
+
+    @Override
+    public void saveState(StateWriter writer) {
+        writer.writeLong(this.offset);
+        writer.writeLong(this.accumulator);
+        writer.writeInt(this.end);
+        for (int i = 0; i < this.end; i++) {
+            writer.writeInt(this.buffer[i]);
+        }
+    }
+
+    @Override
+    public void loadState(StateReader reader) {
+        this.offset = reader.readLong();
+        this.accumulator = reader.readLong();
+        Arrays.fill(this.buffer, 0, this.end, 0);
+        this.end = reader.readInt();
+        this.setCapacity(this.end);
+        for (int i = 0; i < this.end; i++) {
+            this.buffer[i] = reader.readInt();
+        }
+    }
+
+    // Each phase is rounded so its taps add up to exactly one, which keeps the integrated amplitudes from drifting
+    private static int[][] createKernels() {
+        int[][] kernels = new int[PHASE_COUNT][WIDTH];
+        double[] taps = new double[WIDTH];
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            double sum = 0;
+            for (int i = 0; i < WIDTH; i++) {
+                double x = i - (HALF_WIDTH - 1) - (double) phase / PHASE_COUNT;
+                double sinc = x == 0 ? 1 : Math.sin(Math.PI * 2 * CUTOFF * x) / (Math.PI * 2 * CUTOFF * x);
+                double n = (x + HALF_WIDTH) / WIDTH;
+                double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * n) + 0.08 * Math.cos(4 * Math.PI * n);
+                taps[i] = sinc * window;
+                sum += taps[i];
+            }
+            int total = 0;
+            for (int i = 0; i < WIDTH; i++) {
+                kernels[phase][i] = (int) Math.round(taps[i] / sum * (1 << KERNEL_BITS));
+                total += kernels[phase][i];
+            }
+            kernels[phase][HALF_WIDTH - 1] += (1 << KERNEL_BITS) - total;
+        }
+        return kernels;
+    }
+
+}
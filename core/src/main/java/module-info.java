@@ -14,5 +14,6 @@ module core {
     exports io.github.arkosammy12.jemu.core.gameboycolor;
     exports io.github.arkosammy12.jemu.core.nes;
     exports io.github.arkosammy12.jemu.core.nes.ines;
+    exports io.github.arkosammy12.jemu.core.util to core.test;
 
 }
\ No newline at end of file
@@ -10,22 +10,70 @@ public class TestNES6502 extends NES6502 {
         super(systemBus);
     }
 
+    public TestNES6502(SystemBus systemBus, boolean useRecompiler) {
+        super(systemBus, useRecompiler);
+    }
+
+    public TestNES6502(SystemBus systemBus, boolean useMicroOpTable, boolean useRecompiler) {
+        super(systemBus, useMicroOpTable, useRecompiler);
+    }
+
+    // Compile every instruction on its first execution, one instruction per block
+    @Override
+    protected int getMaxCompiledBlockLength() {
+        return 1;
+    }
+
+    @Override
+    protected int getCompileThreshold() {
+        return 0;
+    }
+
     public void acceptTestCase(NES6502TestCase testCase) {
 
         NES6502TestState initialState = testCase.getInitialState();
+        this.acceptState(initialState.getPC(), initialState.getA(), initialState.getSP(), initialState.getX(), initialState.getY(), initialState.getP());
+
+    }
 
-        this.setPC(initialState.getPC());
-        this.setA(initialState.getA());
-        this.setS(initialState.getSP());
-        this.setX(initialState.getX());
-        this.setY(initialState.getY());
-        this.setP(initialState.getP());
+    public void acceptState(int pc, int a, int s, int x, int y, int p) {
+
+        this.setPC(pc);
+        this.setA(a);
+        this.setS(s);
+        this.setX(x);
+        this.setY(y);
+        this.setP(p);
 
         // Prevent the initial reset from being triggered
         this.brkSource = null;
 
     }
 
+    @Override
+    protected MicroOp[][] createMicroOpTable() {
+        MicroOp[][] table = super.createMicroOpTable();
+        table[0xAB] = new MicroOp[] { // LXA, immediate
+                cpu -> ((TestNES6502) cpu).setPC(cpu.getPC() + 1),
+                cpu -> {
+                    TestNES6502 testCpu = (TestNES6502) cpu;
+                    testCpu.setOperand(testCpu.systemBus.getBus().readByte(testCpu.getPC()));
+                    testCpu.pollInterrupts();
+                },
+                cpu -> {
+                    TestNES6502 testCpu = (TestNES6502) cpu;
+                    testCpu.setPC(testCpu.getPC() + 1);
+                    int value = ((testCpu.getA() | 0xEE) & testCpu.getOperand()) & 0xFF;
+                    testCpu.setA(value);
+                    testCpu.setX(value);
+                    testCpu.setFN((value & 0x80) != 0);
+                    testCpu.setFZ(value == 0);
+                },
+                cpu -> ((TestNES6502) cpu).subCycleIndex = TERMINATE_INSTRUCTION
+        };
+        return table;
+    }
+
     @Override
     protected void executeAX(int digit) {
         switch (digit) {
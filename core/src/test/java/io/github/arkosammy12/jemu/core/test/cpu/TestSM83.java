@@ -10,6 +10,21 @@ public class TestSM83 extends SM83 {
         super(systemBus);
     }
 
+    public TestSM83(SystemBus systemBus, boolean useRecompiler) {
+        super(systemBus, useRecompiler);
+    }
+
+    // Compile every instruction on its first execution, one instruction per block
+    @Override
+    protected int getMaxCompiledBlockLength() {
+        return 1;
+    }
+
+    @Override
+    protected int getCompileThreshold() {
+        return 0;
+    }
+
     public void acceptTestCase(SM83TestCase testCase) {
         SM83TestState initialState = testCase.getInitialState();
 
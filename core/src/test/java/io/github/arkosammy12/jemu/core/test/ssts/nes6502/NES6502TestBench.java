@@ -12,8 +12,20 @@ import java.util.List;
 public class NES6502TestBench {
 
     private final NES6502TestFile testFile;
+    private final boolean useMicroOpTable;
+    private final boolean useRecompiler;
 
     public NES6502TestBench(Path filePath) throws IOException {
+        this(filePath, false);
+    }
+
+    public NES6502TestBench(Path filePath, boolean useRecompiler) throws IOException {
+        this(filePath, true, useRecompiler);
+    }
+
+    public NES6502TestBench(Path filePath, boolean useMicroOpTable, boolean useRecompiler) throws IOException {
+        this.useMicroOpTable = useMicroOpTable;
+        this.useRecompiler = useRecompiler;
         Gson gson = new Gson();
         Type type = new TypeToken<List<NES6502TestCase>>() {}.getType();
         this.testFile = new NES6502TestFile(gson.fromJson(Files.readString(filePath), type));
@@ -22,7 +34,7 @@ public class NES6502TestBench {
     public void runTest() {
         List<NES6502TestCase> testCases = this.testFile.testCases();
         for (NES6502TestCase testCase : testCases) {
-            NES6502TestCaseBench testCaseBench = new NES6502TestCaseBench(testCase);
+            NES6502TestCaseBench testCaseBench = new NES6502TestCaseBench(testCase, this.useMicroOpTable, this.useRecompiler);
             testCaseBench.runTest();
         }
     }
@@ -15,9 +15,13 @@ public class NES6502TestCaseBench implements NMOS6502.SystemBus {
     private final TestNES6502 cpu;
     private final FlatTestBus bus;
 
-    public NES6502TestCaseBench(NES6502TestCase testCase) {
+    public NES6502TestCaseBench(NES6502TestCase testCase, boolean useRecompiler) {
+        this(testCase, true, useRecompiler);
+    }
+
+    public NES6502TestCaseBench(NES6502TestCase testCase, boolean useMicroOpTable, boolean useRecompiler) {
         this.testCase = testCase;
-        this.cpu = new TestNES6502(this);
+        this.cpu = new TestNES6502(this, useMicroOpTable, useRecompiler);
         this.cpu.acceptTestCase(testCase);
         this.bus = new FlatTestBus(0xFFFF + 1);
         List<List<Integer>> ram = testCase.getInitialState().getRam();
@@ -80,4 +84,14 @@ public class NES6502TestCaseBench implements NMOS6502.SystemBus {
     public Bus getBus() {
         return this.bus;
     }
+
+    @Override
+    public int getCodeBank(int address) {
+        return 0;
+    }
+
+    @Override
+    public boolean isInternalRam(int address) {
+        return true;
+    }
 }
@@ -12,8 +12,14 @@ import java.util.List;
 public class SM83TestBench {
 
     private final SM83TestFile testFile;
+    private final boolean useRecompiler;
 
     public SM83TestBench(Path filePath) throws IOException {
+        this(filePath, false);
+    }
+
+    public SM83TestBench(Path filePath, boolean useRecompiler) throws IOException {
+        this.useRecompiler = useRecompiler;
         Gson gson = new Gson();
         Type type = new TypeToken<List<SM83TestCase>>() {}.getType();
         this.testFile = new SM83TestFile(gson.fromJson(Files.readString(filePath), type));
@@ -22,7 +28,7 @@ public class SM83TestBench {
     public void runTest() {
         List<SM83TestCase> testCases = this.testFile.testCases();
         for (SM83TestCase testCase : testCases) {
-            SM83TestCaseBench testCaseBench = new SM83TestCaseBench(testCase);
+            SM83TestCaseBench testCaseBench = new SM83TestCaseBench(testCase, this.useRecompiler);
             testCaseBench.runTest();
         }
     }
@@ -15,10 +15,12 @@ public class SM83TestCaseBench implements SM83.SystemBus {
     private final SM83TestCase testCase;
     private final TestSM83 cpu;
     private final FlatTestBus bus;
+    private final boolean useRecompiler;
 
-    public SM83TestCaseBench(SM83TestCase testCase) {
+    public SM83TestCaseBench(SM83TestCase testCase, boolean useRecompiler) {
         this.testCase = testCase;
-        this.cpu = new TestSM83(this);
+        this.useRecompiler = useRecompiler;
+        this.cpu = new TestSM83(this, useRecompiler);
         this.cpu.acceptTestCase(testCase);
         this.bus = new FlatTestBus(0xFFFF + 1);
         List<List<Integer>> ram = testCase.getInitialState().getRam();
@@ -40,15 +42,18 @@ public class SM83TestCaseBench implements SM83.SystemBus {
         if (this.testCase.getName().startsWith("10") || this.testCase.getName().startsWith("76")) {
             return;
         }
-        boolean prefixed = false;
         this.cpu.cycle();
         this.cpu.nextState();
-        if (this.cpu.getIR() == PREFIX) {
-            this.cpu.cycle();
-            this.cpu.nextState();
-            prefixed = true;
+        boolean prefixed = this.cpu.getIR() == PREFIX;
+        int remainingCycles = cycles.size() + (prefixed ? 1 : 0);
+        if (this.useRecompiler) {
+            int blockCycles = this.cpu.runCompiledBlock();
+            if (blockCycles > 0) {
+                this.cpu.nextState();
+                remainingCycles -= blockCycles;
+            }
         }
-        for (List<Object> cycle : cycles) {
+        for (int i = 0; i < remainingCycles; i++) {
             this.cpu.cycle();
             this.cpu.nextState();
             // TODO: Test bus values
@@ -109,4 +114,9 @@ public class SM83TestCaseBench implements SM83.SystemBus {
 
     }
 
+    @Override
+    public int getCodeBank(int address) {
+        return 0;
+    }
+
 }
@@ -0,0 +1,90 @@
+package io.github.arkosammy12.jemu.core.test.tests;
+
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+import io.github.arkosammy12.jemu.core.util.BlipBuffer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BlipBufferTest {
+
+    private static final double CLOCK_RATE = 1_000_000;
+    private static final double SAMPLE_RATE = 48000;
+    // About a frame at 60 Hz
+    private static final int FRAME_CYCLES = 16667;
+    private static final int CAPACITY = 1024;
+
+    @Test
+    public void steps_settle_to_their_exact_size() {
+        BlipBuffer buffer = new BlipBuffer(CLOCK_RATE, SAMPLE_RATE, CAPACITY);
+        // Every cycle lands on a different fraction of a sample, so this goes through every kernel phase
+        int amplitude = 0;
+        for (int time = 0; time < 200; time++) {
+            int delta = (time & 1) == 0 ? 1000 + time : -(500 + time);
+            buffer.addDelta(time, delta);
+            amplitude += delta;
+        }
+        buffer.endFrame(FRAME_CYCLES);
+        int[] samples = readAll(buffer);
+        // Once past the last step plus the kernel's width, the samples hold exactly the sum of the steps
+        for (int i = 40; i < samples.length; i++) {
+            assertEquals(amplitude, samples[i], "Sample %d".formatted(i));
+        }
+    }
+
+    @Test
+    public void skipping_samples_keeps_the_amplitude() {
+        BlipBuffer buffer = new BlipBuffer(CLOCK_RATE, SAMPLE_RATE, CAPACITY);
+        buffer.addDelta(100, 3000);
+        buffer.addDelta(5000, -1000);
+        buffer.endFrame(FRAME_CYCLES);
+        buffer.skipSamples(buffer.getSamplesAvailable());
+
+        buffer.endFrame(FRAME_CYCLES);
+        for (int sample : readAll(buffer)) {
+            assertEquals(2000, sample);
+        }
+    }
+
+    @Test
+    public void frames_longer_than_the_capacity_keep_their_steps() {
+        BlipBuffer buffer = new BlipBuffer(CLOCK_RATE, SAMPLE_RATE, 16);
+        buffer.addDelta(10, 700);
+        buffer.addDelta(FRAME_CYCLES * 3, 300);
+        buffer.endFrame(FRAME_CYCLES * 4);
+        int[] samples = readAll(buffer);
+        assertEquals(1000, samples[samples.length - 1]);
+    }
+
+    @Test
+    public void save_and_load_round_trip() {
+        BlipBuffer saved = new BlipBuffer(CLOCK_RATE, SAMPLE_RATE, CAPACITY);
+        for (int time = 0; time < FRAME_CYCLES; time += 37) {
+            saved.addDelta(time, (time % 3) - 1);
+        }
+        saved.endFrame(FRAME_CYCLES / 2);
+        // Leave some samples unread and steps past the end of the frame in the buffer
+        saved.readSamples(new int[CAPACITY], 0, saved.getSamplesAvailable() / 2, 1);
+
+        StateWriter writer = new StateWriter();
+        saved.saveState(writer);
+        BlipBuffer loaded = new BlipBuffer(CLOCK_RATE, SAMPLE_RATE, 16);
+        loaded.addDelta(50, 12345);
+        loaded.loadState(new StateReader(writer.toByteArray()));
+
+        for (BlipBuffer buffer : new BlipBuffer[]{saved, loaded}) {
+            buffer.addDelta(20, 400);
+            buffer.endFrame(FRAME_CYCLES);
+        }
+        assertArrayEquals(readAll(saved), readAll(loaded));
+    }
+
+    private static int[] readAll(BlipBuffer buffer) {
+        int[] samples = new int[buffer.getSamplesAvailable()];
+        assertEquals(samples.length, buffer.readSamples(samples, 0, samples.length, 1));
+        return samples;
+    }
+
+}
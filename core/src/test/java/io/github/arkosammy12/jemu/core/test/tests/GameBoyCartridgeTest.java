@@ -0,0 +1,165 @@
+package io.github.arkosammy12.jemu.core.test.tests;
+
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+import io.github.arkosammy12.jemu.core.gameboy.DMGBus;
+import io.github.arkosammy12.jemu.core.gameboy.GameBoyCartridge;
+import io.github.arkosammy12.jemu.core.gameboy.GameBoyEmulator;
+import io.github.arkosammy12.jemu.core.gameboy.GameBoyHost;
+import io.github.arkosammy12.jemu.core.test.util.TestHosts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GameBoyCartridgeTest {
+
+    // MBC1 + RAM + battery, with a single 8 KiB RAM bank
+    private static final int CARTRIDGE_TYPE = 0x03;
+    private static final int RAM_SIZE = 0x02;
+
+    @Test
+    public void ram_written_through_the_bus_is_flushed_after_it_is_turned_off(@TempDir Path saveDataDirectory) {
+        GameBoyEmulator emulator = TestHosts.createGameBoy(createRom(), GameBoyHost.Model.DMG, false, saveDataDirectory, Duration.ZERO);
+        GameBoyCartridge cartridge = emulator.getCartridge();
+        DMGBus<?> bus = emulator.getBus();
+        assertFalse(cartridge.flushSaveData(), "Untouched RAM was flushed");
+
+        bus.writeByte(0x0000, 0x0A);
+        bus.writeByte(DMGBus.SRAM_START, 0x42);
+        bus.writeByte(0x0000, 0x00);
+        assertTrue(cartridge.flushSaveData(), "RAM written while it was mapped was not flushed");
+        assertFalse(cartridge.flushSaveData(), "Unchanged RAM was flushed again");
+        emulator.close();
+    }
+
+    @Test
+    public void ram_stays_dirty_while_it_is_mapped(@TempDir Path saveDataDirectory) {
+        GameBoyEmulator emulator = TestHosts.createGameBoy(createRom(), GameBoyHost.Model.DMG, false, saveDataDirectory, Duration.ZERO);
+        GameBoyCartridge cartridge = emulator.getCartridge();
+        DMGBus<?> bus = emulator.getBus();
+
+        bus.writeByte(0x0000, 0x0A);
+        assertTrue(cartridge.flushSaveData());
+        bus.writeByte(DMGBus.SRAM_START + 1, 0x24);
+        bus.writeByte(0x0000, 0x00);
+        assertTrue(cartridge.flushSaveData(), "RAM written after a flush while it was still mapped was not flushed");
+        assertFalse(cartridge.flushSaveData());
+        emulator.close();
+    }
+
+    @Test
+    public void flushes_wait_while_suppressed(@TempDir Path saveDataDirectory) {
+        AtomicBoolean suppressed = new AtomicBoolean(true);
+        GameBoyEmulator emulator = TestHosts.createGameBoy(createRom(), GameBoyHost.Model.DMG, false, saveDataDirectory, Duration.ZERO, suppressed::get);
+        GameBoyCartridge cartridge = emulator.getCartridge();
+        DMGBus<?> bus = emulator.getBus();
+
+        bus.writeByte(0x0000, 0x0A);
+        bus.writeByte(DMGBus.SRAM_START, 0x42);
+        bus.writeByte(0x0000, 0x00);
+        assertFalse(cartridge.flushSaveData(), "RAM was flushed while flushes were suppressed");
+        suppressed.set(false);
+        assertTrue(cartridge.flushSaveData(), "RAM changed while flushes were suppressed was not flushed afterwards");
+        emulator.close();
+    }
+
+    @Test
+    public void ram_is_flushed_on_vblank_when_the_host_asks_for_it(@TempDir Path saveDataDirectory) {
+        GameBoyEmulator emulator = TestHosts.createGameBoy(createRom(), GameBoyHost.Model.DMG, false, saveDataDirectory, Duration.ofDays(1), () -> false, true);
+        GameBoyCartridge cartridge = emulator.getCartridge();
+        DMGBus<?> bus = emulator.getBus();
+
+        bus.writeByte(0x0000, 0x0A);
+        bus.writeByte(DMGBus.SRAM_START, 0x42);
+        bus.writeByte(0x0000, 0x00);
+        assertFalse(cartridge.flushSaveData(), "RAM was flushed before the flush interval passed");
+        assertTrue(cartridge.onVBlank(), "RAM changed before VBlank was not flushed");
+        assertFalse(cartridge.onVBlank(), "Unchanged RAM was flushed again");
+
+        // Once the boot ROM has turned the LCD on, the PPU enters VBlank every frame and flushes the RAM written before it
+        for (int i = 0; i < 10; i++) {
+            emulator.executeFrame();
+        }
+        bus.writeByte(0x0000, 0x0A);
+        bus.writeByte(DMGBus.SRAM_START, 0x24);
+        bus.writeByte(0x0000, 0x00);
+        emulator.executeFrame();
+        assertFalse(cartridge.onVBlank(), "The PPU did not flush the RAM on VBlank");
+        emulator.close();
+    }
+
+    @Test
+    public void ram_is_not_flushed_on_vblank_by_default(@TempDir Path saveDataDirectory) {
+        GameBoyEmulator emulator = TestHosts.createGameBoy(createRom(), GameBoyHost.Model.DMG, false, saveDataDirectory, Duration.ZERO);
+        GameBoyCartridge cartridge = emulator.getCartridge();
+        DMGBus<?> bus = emulator.getBus();
+
+        bus.writeByte(0x0000, 0x0A);
+        bus.writeByte(DMGBus.SRAM_START, 0x42);
+        bus.writeByte(0x0000, 0x00);
+        assertFalse(cartridge.onVBlank());
+        assertTrue(cartridge.flushSaveData());
+        emulator.close();
+    }
+
+    @Test
+    public void loading_unchanged_ram_does_not_dirty_it(@TempDir Path saveDataDirectory) {
+        GameBoyEmulator emulator = TestHosts.createGameBoy(createRom(), GameBoyHost.Model.DMG, false, saveDataDirectory, Duration.ZERO);
+        GameBoyCartridge cartridge = emulator.getCartridge();
+        DMGBus<?> bus = emulator.getBus();
+        StateWriter writer = new StateWriter();
+        emulator.saveState(writer);
+        byte[] state = writer.toByteArray();
+
+        emulator.loadState(new StateReader(state));
+        assertFalse(cartridge.flushSaveData(), "Loading a state with the same RAM dirtied it");
+
+        bus.writeByte(0x0000, 0x0A);
+        bus.writeByte(DMGBus.SRAM_START, 0x42);
+        bus.writeByte(0x0000, 0x00);
+        assertTrue(cartridge.flushSaveData());
+        emulator.loadState(new StateReader(state));
+        assertTrue(cartridge.flushSaveData(), "Loading a state with different RAM did not dirty it");
+        assertEquals(0x00, readRam(emulator, 0));
+        emulator.close();
+    }
+
+    @Test
+    public void ram_is_unmapped_and_written_back_on_close(@TempDir Path saveDataDirectory) throws IOException {
+        GameBoyEmulator emulator = TestHosts.createGameBoy(createRom(), GameBoyHost.Model.DMG, false, saveDataDirectory, Duration.ZERO);
+        DMGBus<?> bus = emulator.getBus();
+        bus.writeByte(0x0000, 0x0A);
+        bus.writeByte(DMGBus.SRAM_START + 2, 0x99);
+        emulator.close();
+
+        assertTrue(emulator.getCartridge().isSaveDataReleased());
+        byte[] saveData = Files.readAllBytes(saveDataDirectory.resolve("test.sav"));
+        assertEquals(0x2000, saveData.length);
+        assertEquals(0x99, saveData[2] & 0xFF);
+    }
+
+    private static int readRam(GameBoyEmulator emulator, int address) {
+        DMGBus<?> bus = emulator.getBus();
+        bus.writeByte(0x0000, 0x0A);
+        int value = bus.readByte(DMGBus.SRAM_START + address);
+        bus.writeByte(0x0000, 0x00);
+        return value;
+    }
+
+    private static byte[] createRom() {
+        byte[] rom = new byte[0x8000];
+        rom[GameBoyCartridge.CARTRIDGE_TYPE_ADDRESS] = CARTRIDGE_TYPE;
+        rom[GameBoyCartridge.RAM_SIZE_ADDRESS] = RAM_SIZE;
+        return rom;
+    }
+
+}
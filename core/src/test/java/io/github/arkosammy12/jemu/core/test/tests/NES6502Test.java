@@ -16,16 +16,30 @@ public class NES6502Test {
 
     @Test
     public void nes6502_ssts() {
+        runSsts(true, false);
+    }
+
+    @Test
+    public void nes6502_ssts_instruction_switches() {
+        runSsts(false, false);
+    }
+
+    @Test
+    public void nes6502_ssts_recompiler() {
+        runSsts(true, true);
+    }
+
+    private static void runSsts(boolean useMicroOpTable, boolean useRecompiler) {
         URL url = NES6502Test.class.getClassLoader().getResource("submodules/tests/65x02-ssts/nes6502/v1");
         if (url == null) {
             Logger.warn("SST files for NES6502 CPU not found!");
             return;
         }
         try (Stream<Path> testFilePaths = Files.list(Paths.get(url.toURI()))) {
-            Logger.info("Running SSTs for NES6502 CPU");
+            Logger.info("Running SSTs for NES6502 CPU{}{}", useMicroOpTable ? "" : " with instruction switches", useRecompiler ? " with recompiler" : "");
             testFilePaths.forEach(path -> {
                 try {
-                    NES6502TestBench testBench = new NES6502TestBench(path);
+                    NES6502TestBench testBench = new NES6502TestBench(path, useMicroOpTable, useRecompiler);
                     testBench.runTest();
                 } catch (IOException e) {
                     Logger.error("Exception running NES6502 SSTs: {}", e);
@@ -0,0 +1,116 @@
+package io.github.arkosammy12.jemu.core.test.tests;
+
+import io.github.arkosammy12.jemu.core.common.Bus;
+import io.github.arkosammy12.jemu.core.cpu.NMOS6502;
+import io.github.arkosammy12.jemu.core.test.cpu.TestNES6502;
+import io.github.arkosammy12.jemu.core.test.util.FlatTestBus;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NMOS6502EngineTest {
+
+    private static final int STATES_PER_OPCODE = 16;
+    private static final int HALF_CYCLES = 64;
+
+    // Runs every opcode from random states on both the micro-op table and the instruction switches, with the interrupt
+    // and ready lines changing at random, and expects both to agree on the registers and bus accesses of every
+    // half-cycle. The SSTs only cover the switches when their files are checked out, and nothing else runs them
+    @Test
+    public void micro_op_table_matches_instruction_switches() {
+        for (int opcode = 0; opcode <= 0xFF; opcode++) {
+            for (int i = 0; i < STATES_PER_OPCODE; i++) {
+                Random random = new Random((opcode * STATES_PER_OPCODE) + i);
+                byte[] memory = new byte[0x10000];
+                random.nextBytes(memory);
+                int pc = random.nextInt(0x10000);
+                memory[pc] = (byte) opcode;
+                int[] registers = {pc, random.nextInt(0x100), random.nextInt(0x100), random.nextInt(0x100), random.nextInt(0x100), random.nextInt(0x100)};
+                // Sparse, so instructions mostly get to finish between interrupts
+                long irq = random.nextLong() & random.nextLong() & random.nextLong();
+                long nmi = random.nextLong() & random.nextLong() & random.nextLong() & random.nextLong();
+                long rdy = random.nextLong() & random.nextLong() & random.nextLong() & random.nextLong();
+
+                EngineBench table = new EngineBench(true, memory, registers, irq, nmi, rdy);
+                EngineBench switches = new EngineBench(false, memory, registers, irq, nmi, rdy);
+                for (int halfCycle = 0; halfCycle < HALF_CYCLES; halfCycle++) {
+                    table.cycle(halfCycle);
+                    switches.cycle(halfCycle);
+                    String name = "Opcode $%02X, state %d, half-cycle %d".formatted(opcode, i, halfCycle);
+                    assertEquals(switches.describe(), table.describe(), name);
+                }
+                assertArrayEquals(switches.dumpMemory(), table.dumpMemory(), "Opcode $%02X, state %d".formatted(opcode, i));
+            }
+        }
+    }
+
+    private static final class EngineBench implements NMOS6502.SystemBus {
+
+        private final TestNES6502 cpu;
+        private final FlatTestBus bus = new FlatTestBus(0x10000);
+        private final long irq;
+        private final long nmi;
+        private final long rdy;
+        private int halfCycle;
+
+        private EngineBench(boolean useMicroOpTable, byte[] memory, int[] registers, long irq, long nmi, long rdy) {
+            for (int address = 0; address < memory.length; address++) {
+                this.bus.writeByte(address, memory[address]);
+            }
+            this.irq = irq;
+            this.nmi = nmi;
+            this.rdy = rdy;
+            this.cpu = new TestNES6502(this, useMicroOpTable, false);
+            this.cpu.acceptState(registers[0], registers[1], registers[2], registers[3], registers[4], registers[5]);
+        }
+
+        private void cycle(int halfCycle) {
+            this.halfCycle = halfCycle;
+            this.cpu.cycle();
+        }
+
+        private int[] dumpMemory() {
+            int[] memory = new int[0x10000];
+            for (int address = 0; address < memory.length; address++) {
+                memory[address] = this.bus.readByte(address);
+            }
+            return memory;
+        }
+
+        private String describe() {
+            return "PC=%04X A=%02X X=%02X Y=%02X S=%02X P=%02X address=%04X %s %s halted=%b".formatted(
+                    this.cpu.getPC(), this.cpu.getA(), this.cpu.getX(), this.cpu.getY(), this.cpu.getS(), this.cpu.getP(),
+                    this.cpu.getLastAddress(), this.cpu.getReadWriteCycle(), this.cpu.getHalfCyclePhase(), this.cpu.isHalted());
+        }
+
+        @Override
+        public boolean getIRQ() {
+            return (this.irq & (1L << this.halfCycle)) != 0;
+        }
+
+        @Override
+        public boolean getNMI() {
+            return (this.nmi & (1L << this.halfCycle)) != 0;
+        }
+
+        @Override
+        public boolean getRES() {
+            return false;
+        }
+
+        @Override
+        public boolean getRDY() {
+            return (this.rdy & (1L << this.halfCycle)) != 0;
+        }
+
+        @Override
+        public Bus getBus() {
+            return this.bus;
+        }
+
+    }
+
+}
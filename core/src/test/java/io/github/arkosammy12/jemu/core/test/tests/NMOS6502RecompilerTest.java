@@ -0,0 +1,183 @@
+package io.github.arkosammy12.jemu.core.test.tests;
+
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+import io.github.arkosammy12.jemu.core.nes.NESEmulator;
+import io.github.arkosammy12.jemu.core.test.util.TestHosts;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NMOS6502RecompilerTest {
+
+    private static final int RESULTS_ADDRESS = 0x0200;
+    private static final int DONE_ADDRESS = 0x0300;
+    private static final int CHECKSUM_ADDRESS = 0x12;
+    private static final int REPETITIONS = 16;
+    private static final int FRAMES = 30;
+    private static final int RAM_SIZE = 0x0800;
+    // The whole system program records its results in the page after the one it copies to OAM
+    private static final int SYSTEM_DONE_ADDRESS = 0x0400;
+
+    // A hot loop of register and zero page instructions gets compiled into multi-instruction blocks, and is spun until
+    // the PPU raises the vblank flag. The amount of spins per frame only stays the same as with the interpreter if the
+    // PPU and APU were caught up by exactly the sub-cycles the blocks ran ahead
+    @Test
+    public void compiled_blocks_match_interpreter() throws Exception {
+        byte[] rom = createRom();
+        int[] interpreted = run(rom, false);
+        int[] compiled = run(rom, true);
+        assertEquals(REPETITIONS, interpreted[interpreted.length - 1], "Test program did not finish");
+        assertArrayEquals(interpreted, compiled);
+    }
+
+    // Runs a program with rendering, sprite DMA and a square channel going through the whole system, and expects the
+    // compiled run to leave RAM and the PPU exactly as the interpreted one does once the program has parked itself.
+    // NMIs stay off, since compiled blocks only take interrupts once they finish
+    @Test
+    public void whole_system_matches_interpreter() throws Exception {
+        byte[] rom = createSystemRom();
+        byte[][] interpreted = runSystem(rom, false);
+        byte[][] compiled = runSystem(rom, true);
+        assertEquals(1, interpreted[0][SYSTEM_DONE_ADDRESS], "Test program did not finish");
+        assertArrayEquals(interpreted[0], compiled[0], "RAM differs");
+        assertArrayEquals(interpreted[1], compiled[1], "PPU state differs");
+    }
+
+    // Returns the contents of RAM and the state of the PPU
+    private static byte[][] runSystem(byte[] rom, boolean useRecompiler) throws Exception {
+        try (NESEmulator emulator = TestHosts.createNES(rom, useRecompiler)) {
+            for (int i = 0; i < FRAMES; i++) {
+                emulator.executeFrame();
+            }
+            int compiledBlocks = emulator.getRicohCore().getCpu().getCompiledBlockCount();
+            if (useRecompiler) {
+                assertTrue(compiledBlocks > 0, "No blocks were compiled");
+            } else {
+                assertEquals(0, compiledBlocks);
+            }
+            byte[] ram = new byte[RAM_SIZE];
+            for (int i = 0; i < RAM_SIZE; i++) {
+                ram[i] = (byte) emulator.getCpuBus().readByte(i);
+            }
+            StateWriter writer = new StateWriter();
+            emulator.getVideoGenerator().saveState(writer);
+            return new byte[][]{ram, writer.toByteArray()};
+        }
+    }
+
+    private static int[] run(byte[] rom, boolean useRecompiler) throws Exception {
+        NESEmulator emulator = TestHosts.createNES(rom, useRecompiler);
+        for (int i = 0; i < FRAMES; i++) {
+            emulator.executeFrame();
+        }
+        int[] results = new int[(REPETITIONS * 3) + 2];
+        for (int i = 0; i < REPETITIONS * 3; i++) {
+            results[i] = emulator.getCpuBus().readByte(RESULTS_ADDRESS + i);
+        }
+        results[REPETITIONS * 3] = emulator.getCpuBus().readByte(CHECKSUM_ADDRESS);
+        results[(REPETITIONS * 3) + 1] = emulator.getCpuBus().readByte(DONE_ADDRESS);
+        emulator.close();
+        return results;
+    }
+
+    private static byte[] createRom() {
+        byte[] rom = new byte[16 + 0x4000 + 0x2000];
+        rom[0] = 'N';
+        rom[1] = 'E';
+        rom[2] = 'S';
+        rom[3] = 0x1A;
+        rom[4] = 1;
+        rom[5] = 1;
+        int[] program = {
+                0x78, 0xD8,             // SEI; CLD
+                0xA2, 0xFF, 0x9A,       // LDX #$FF; TXS
+                0xA9, 0x00,             // LDA #$00
+                0x8D, 0x17, 0x40,       // STA $4017
+                0xA0, 0x00,             // LDY #$00
+                0x2C, 0x02, 0x20,       // vsync: BIT $2002
+                0x10, 0xFB,             // BPL vsync
+                // frame: clear the spin counter
+                0xA9, 0x00, 0x85, 0x10, 0x85, 0x11,
+                // spin: LDX #4; inner: TXA; ADC #$13; ROL A; EOR $12; STA $12; DEX; BNE inner
+                0xA2, 0x04, 0x8A, 0x69, 0x13, 0x2A, 0x45, 0x12, 0x85, 0x12, 0xCA, 0xD0, 0xF5,
+                0xE6, 0x10, 0xD0, 0x02, // INC $10; BNE +2
+                0xE6, 0x11,             // INC $11
+                0x2C, 0x02, 0x20,       // BIT $2002
+                0x10, 0xE8,             // BPL spin
+                0xA5, 0x10, 0x99, 0x00, 0x02, 0xC8, // LDA $10; STA $0200, Y; INY
+                0xA5, 0x11, 0x99, 0x00, 0x02, 0xC8, // LDA $11; STA $0200, Y; INY
+                0xAD, 0x15, 0x40, 0x99, 0x00, 0x02, 0xC8, // LDA $4015; STA $0200, Y; INY
+                0xC0, REPETITIONS * 3,  // CPY #REPETITIONS * 3
+                0xD0, 0xCB,             // BNE frame
+                0xA9, REPETITIONS,      // LDA #REPETITIONS
+                0x8D, 0x00, 0x03,       // STA $0300
+                0x4C, 0x4B, 0xC0        // JMP $
+        };
+        for (int i = 0; i < program.length; i++) {
+            rom[16 + i] = (byte) program[i];
+        }
+        // RTI for both NMI and IRQ
+        rom[16 + 0x3F00] = 0x40;
+        int vectors = 16 + 0x3FFA;
+        int[] addresses = {0xFF00, 0xC000, 0xFF00};
+        for (int i = 0; i < addresses.length; i++) {
+            rom[vectors + (i * 2)] = (byte) addresses[i];
+            rom[vectors + (i * 2) + 1] = (byte) (addresses[i] >>> 8);
+        }
+        return rom;
+    }
+
+    // Like the program above, but with rendering turned on, a sprite DMA every frame and a square channel playing, and
+    // it records its checksum every frame instead of only at the end
+    private static byte[] createSystemRom() {
+        byte[] rom = new byte[16 + 0x4000 + 0x2000];
+        rom[0] = 'N';
+        rom[1] = 'E';
+        rom[2] = 'S';
+        rom[3] = 0x1A;
+        rom[4] = 1;
+        rom[5] = 1;
+        int[] program = {
+                0x78, 0xD8,             // SEI; CLD
+                0xA2, 0xFF, 0x9A,       // LDX #$FF; TXS
+                0xA9, 0x01, 0x8D, 0x15, 0x40, // LDA #$01; STA $4015
+                0xA9, 0x9F, 0x8D, 0x00, 0x40, // LDA #$9F; STA $4000
+                0xA9, 0x08, 0x8D, 0x03, 0x40, // LDA #$08; STA $4003
+                0xA9, 0x00, 0x8D, 0x00, 0x20, // LDA #$00; STA $2000
+                0xA9, 0x1E, 0x8D, 0x01, 0x20, // LDA #$1E; STA $2001
+                0xA0, 0x00,             // LDY #$00
+                0x2C, 0x02, 0x20,       // vsync: BIT $2002
+                0x10, 0xFB,             // BPL vsync
+                0xA9, 0x02, 0x8D, 0x14, 0x40, // frame: LDA #$02; STA $4014
+                0xA9, 0x00, 0x85, 0x10, // LDA #$00; STA $10
+                // spin: LDX #8; inner: TXA; ADC $00; ROL A; EOR $01; STA $01; INC $00; DEX; BNE inner
+                0xA2, 0x08, 0x8A, 0x65, 0x00, 0x2A, 0x45, 0x01, 0x85, 0x01, 0xE6, 0x00, 0xCA, 0xD0, 0xF3,
+                0xE6, 0x10,             // INC $10
+                0x2C, 0x02, 0x20,       // BIT $2002
+                0x10, 0xEA,             // BPL spin
+                0xA5, 0x10, 0x99, 0x00, 0x03, 0xC8, // LDA $10; STA $0300, Y; INY
+                0xAD, 0x15, 0x40, 0x99, 0x00, 0x03, 0xC8, // LDA $4015; STA $0300, Y; INY
+                0xA5, 0x01, 0x99, 0x00, 0x03, 0xC8, // LDA $01; STA $0300, Y; INY
+                0xC0, REPETITIONS * 3,  // CPY #REPETITIONS * 3
+                0xD0, 0xCA,             // BNE frame
+                0xA9, 0x01,             // LDA #$01
+                0x8D, 0x00, 0x04,       // STA $0400
+                0x4C, 0x60, 0xC0        // JMP $
+        };
+        for (int i = 0; i < program.length; i++) {
+            rom[16 + i] = (byte) program[i];
+        }
+        // RTI for both NMI and IRQ
+        rom[16 + 0x3F00] = 0x40;
+        int vectors = 16 + 0x3FFA;
+        int[] addresses = {0xFF00, 0xC000, 0xFF00};
+        for (int i = 0; i < addresses.length; i++) {
+            rom[vectors + (i * 2)] = (byte) addresses[i];
+            rom[vectors + (i * 2) + 1] = (byte) (addresses[i] >>> 8);
+        }
+        return rom;
+    }
+
+}
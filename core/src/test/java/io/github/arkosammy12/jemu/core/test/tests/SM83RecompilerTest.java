@@ -0,0 +1,96 @@
+package io.github.arkosammy12.jemu.core.test.tests;
+
+import io.github.arkosammy12.jemu.core.gameboy.GameBoyEmulator;
+import io.github.arkosammy12.jemu.core.gameboy.GameBoyHost;
+import io.github.arkosammy12.jemu.core.test.util.TestHosts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SM83RecompilerTest {
+
+    private static final int RESULTS_ADDRESS = 0xC000;
+    private static final int REPETITIONS = 16;
+    // Enough for the boot ROM to scroll the logo and hand over to the cartridge, with room to spare for the program
+    private static final int FRAMES = 240;
+
+    // A hot loop of register-only instructions gets compiled into multi-instruction blocks. Reading TIMA at 4 M-cycle
+    // resolution after every run of the loop only gives the same values as the interpreter if the rest of the system
+    // was caught up by exactly the cycles the blocks took
+    @Test
+    public void compiled_blocks_match_interpreter_dmg(@TempDir Path saveDataDirectory) {
+        runBlocks(GameBoyHost.Model.DMG, saveDataDirectory);
+    }
+
+    @Test
+    public void compiled_blocks_match_interpreter_cgb(@TempDir Path saveDataDirectory) {
+        runBlocks(GameBoyHost.Model.CGB, saveDataDirectory);
+    }
+
+    private static void runBlocks(GameBoyHost.Model model, Path saveDataDirectory) {
+        byte[] rom = createRom(model == GameBoyHost.Model.CGB);
+        int[] interpreted = run(rom, model, false, saveDataDirectory);
+        int[] compiled = run(rom, model, true, saveDataDirectory);
+        assertEquals(REPETITIONS, interpreted[interpreted.length - 1], "Test program did not finish");
+        assertArrayEquals(interpreted, compiled);
+    }
+
+    private static int[] run(byte[] rom, GameBoyHost.Model model, boolean useRecompiler, Path saveDataDirectory) {
+        GameBoyEmulator emulator = TestHosts.createGameBoy(rom, model, useRecompiler, saveDataDirectory, Duration.ZERO);
+        for (int i = 0; i < FRAMES; i++) {
+            emulator.executeFrame();
+        }
+        // The PC is left out since a compiled block may run past the end of the frame while the program idles
+        int[] results = new int[(REPETITIONS * 3) + 4];
+        for (int i = 0; i < REPETITIONS * 3; i++) {
+            results[i] = emulator.getBus().readByte(RESULTS_ADDRESS + i);
+        }
+        results[REPETITIONS * 3] = emulator.getCpu().getA();
+        results[(REPETITIONS * 3) + 1] = emulator.getCpu().getB();
+        results[(REPETITIONS * 3) + 2] = emulator.getCpu().getC();
+        results[(REPETITIONS * 3) + 3] = emulator.getBus().readByte(RESULTS_ADDRESS + (REPETITIONS * 3));
+        emulator.close();
+        return results;
+    }
+
+    private static byte[] createRom(boolean cgb) {
+        byte[] rom = new byte[0x8000];
+        if (cgb) {
+            rom[0x143] = (byte) 0x80;
+        }
+        int[] entry = {0x00, 0xC3, 0x50, 0x01};
+        int[] program = {
+                0xF3,                   // DI
+                0x31, 0xFE, 0xDF,       // LD SP, $DFFE
+                0x3E, 0x05, 0xE0, 0x07, // LD A, $05; LDH (TAC), A
+                0x21, 0x00, 0xC0,       // LD HL, $C000
+                0x1E, REPETITIONS,      // LD E, REPETITIONS
+                0xAF,                   // XOR A
+                0xEA, 0x30, 0xC0,       // LD ($C030), A
+                // outer: B = 3 * E
+                0x7B, 0x87, 0x83, 0x47, // LD A, E; ADD A, A; ADD A, E; LD B, A
+                // inner: INC A; ADD A, B; RLCA; XOR C; LD C, A; DEC B; JR NZ, inner
+                0x3C, 0x80, 0x07, 0xA9, 0x4F, 0x05, 0x20, 0xF8,
+                0xF0, 0x05, 0x22,       // LDH A, (TIMA); LD (HL+), A
+                0xF0, 0x44, 0x22,       // LDH A, (LY); LD (HL+), A
+                0x79, 0x22,             // LD A, C; LD (HL+), A
+                0x1D, 0x20, 0xE9,       // DEC E; JR NZ, outer
+                0x3E, REPETITIONS,      // LD A, REPETITIONS
+                0xEA, 0x30, 0xC0,       // LD ($C030), A
+                0x18, 0xFE              // JR $
+        };
+        for (int i = 0; i < entry.length; i++) {
+            rom[0x100 + i] = (byte) entry[i];
+        }
+        for (int i = 0; i < program.length; i++) {
+            rom[0x150 + i] = (byte) program[i];
+        }
+        return rom;
+    }
+
+}
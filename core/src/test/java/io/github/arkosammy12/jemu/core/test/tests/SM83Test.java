@@ -16,16 +16,25 @@ public class SM83Test {
 
     @Test
     public void sm83_ssts() {
+        runSsts(false);
+    }
+
+    @Test
+    public void sm83_ssts_recompiler() {
+        runSsts(true);
+    }
+
+    private static void runSsts(boolean useRecompiler) {
         URL url = SM83Test.class.getClassLoader().getResource("submodules/tests/sm83-ssts/v1");
         if (url == null) {
             Logger.warn("SST files for SM83 CPU not found!");
             return;
         }
         try (Stream<Path> testFilePaths = Files.list(Paths.get(url.toURI()))) {
-            Logger.info("Running SSTs for SM83 CPU");
+            Logger.info("Running SSTs for SM83 CPU{}", useRecompiler ? " with recompiler" : "");
             testFilePaths.forEach(path -> {
                 try {
-                    SM83TestBench testBench = new SM83TestBench(path);
+                    SM83TestBench testBench = new SM83TestBench(path, useRecompiler);
                     testBench.runTest();
                 } catch (IOException e) {
                     Logger.error("Exception running SM83 SSTs: {}", e);
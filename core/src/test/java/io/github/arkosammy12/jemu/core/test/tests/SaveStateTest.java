@@ -0,0 +1,178 @@
+package io.github.arkosammy12.jemu.core.test.tests;
+
+import io.github.arkosammy12.jemu.core.common.Emulator;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+import io.github.arkosammy12.jemu.core.gameboy.GameBoyHost;
+import io.github.arkosammy12.jemu.core.test.util.TestHosts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SaveStateTest {
+
+    private static final int FRAMES = 20;
+    // Long enough for the boot ROMs to hand over to the cartridge, so the state covers the program rather than the logo
+    private static final int GAME_BOY_STARTUP_FRAMES = 240;
+    // Saving in the middle of a frame and of an instruction covers more state than saving at the end of a frame
+    private static final int EXTRA_CYCLES = 1237;
+
+    @Test
+    public void game_boy_round_trip(@TempDir Path saveDataDirectory) throws Exception {
+        byte[] rom = createGameBoyRom(false);
+        roundTrip(() -> TestHosts.createGameBoy(rom, GameBoyHost.Model.DMG, false, saveDataDirectory.resolve("saved"), Duration.ZERO),
+                () -> TestHosts.createGameBoy(rom, GameBoyHost.Model.DMG, false, saveDataDirectory.resolve("loaded"), Duration.ZERO), GAME_BOY_STARTUP_FRAMES);
+    }
+
+    @Test
+    public void game_boy_color_round_trip(@TempDir Path saveDataDirectory) throws Exception {
+        byte[] rom = createGameBoyRom(true);
+        roundTrip(() -> TestHosts.createGameBoy(rom, GameBoyHost.Model.CGB, false, saveDataDirectory.resolve("saved"), Duration.ZERO),
+                () -> TestHosts.createGameBoy(rom, GameBoyHost.Model.CGB, false, saveDataDirectory.resolve("loaded"), Duration.ZERO), GAME_BOY_STARTUP_FRAMES);
+    }
+
+    @Test
+    public void nes_round_trip() throws Exception {
+        byte[] rom = createNESRom();
+        roundTrip(() -> TestHosts.createNES(rom, false), () -> TestHosts.createNES(rom, false), 0);
+    }
+
+    @Test
+    public void truncated_state_is_rejected(@TempDir Path saveDataDirectory) throws Exception {
+        byte[] rom = createGameBoyRom(false);
+        try (Emulator emulator = TestHosts.createGameBoy(rom, GameBoyHost.Model.DMG, false, saveDataDirectory, Duration.ZERO)) {
+            emulator.executeFrame();
+            byte[] state = save(emulator);
+            assertThrows(IndexOutOfBoundsException.class, () -> emulator.loadState(new StateReader(state, state.length - 1)));
+        }
+    }
+
+    // A loaded state has to save back to the same bytes, and has to keep running exactly like the emulator it was
+    // saved from, both in a fresh emulator and in one that had already moved past it
+    private static void roundTrip(Supplier<Emulator> savedEmulator, Supplier<Emulator> loadedEmulator, int startupFrames) throws Exception {
+        try (Emulator saved = savedEmulator.get(); Emulator loaded = loadedEmulator.get()) {
+            for (int i = 0; i < startupFrames; i++) {
+                saved.executeFrame();
+            }
+            run(saved);
+            byte[] state = save(saved);
+            run(saved);
+            byte[] expected = save(saved);
+
+            loaded.loadState(new StateReader(state));
+            assertArrayEquals(state, save(loaded), "State changed after loading it into a fresh emulator");
+            run(loaded);
+            assertArrayEquals(expected, save(loaded), "Fresh emulator diverged after loading the state");
+
+            saved.loadState(new StateReader(state));
+            assertArrayEquals(state, save(saved), "State changed after loading it back");
+            run(saved);
+            assertArrayEquals(expected, save(saved), "Emulator diverged after loading the state back");
+        }
+    }
+
+    private static void run(Emulator emulator) {
+        for (int i = 0; i < FRAMES; i++) {
+            emulator.executeFrame();
+        }
+        for (int i = 0; i < EXTRA_CYCLES; i++) {
+            emulator.executeCycle();
+        }
+    }
+
+    private static byte[] save(Emulator emulator) {
+        StateWriter writer = new StateWriter();
+        emulator.saveState(writer);
+        return writer.toByteArray();
+    }
+
+    // Turns on the LCD, timer, interrupts and a square channel, then keeps writing LY into battery-backed RAM
+    private static byte[] createGameBoyRom(boolean cgb) {
+        byte[] rom = new byte[0x8000];
+        if (cgb) {
+            rom[0x143] = (byte) 0x80;
+        }
+        // MBC1 + RAM + battery with 8 KiB of RAM
+        rom[0x147] = 0x03;
+        rom[0x149] = 0x02;
+        // VBlank and timer handlers: INC D; RETI
+        rom[0x40] = 0x14;
+        rom[0x41] = (byte) 0xD9;
+        rom[0x50] = 0x14;
+        rom[0x51] = (byte) 0xD9;
+        int[] entry = {0x00, 0xC3, 0x50, 0x01};
+        int[] program = {
+                0xF3,                   // DI
+                0x31, 0xFE, 0xDF,       // LD SP, $DFFE
+                0x3E, 0x0A, 0xEA, 0x00, 0x00, // LD A, $0A; LD ($0000), A
+                0x3E, 0x80, 0xE0, 0x26, // LD A, $80; LDH (NR52), A
+                0x3E, 0x77, 0xE0, 0x24, // LD A, $77; LDH (NR50), A
+                0x3E, 0xFF, 0xE0, 0x25, // LD A, $FF; LDH (NR51), A
+                0x3E, 0xF3, 0xE0, 0x12, // LD A, $F3; LDH (NR12), A
+                0x3E, 0x87, 0xE0, 0x14, // LD A, $87; LDH (NR14), A
+                0x3E, 0x05, 0xE0, 0x07, // LD A, $05; LDH (TAC), A
+                0x3E, 0x05, 0xE0, 0xFF, // LD A, $05; LDH (IE), A
+                0x3E, 0x91, 0xE0, 0x40, // LD A, $91; LDH (LCDC), A
+                0xFB,                   // EI
+                0x21, 0x00, 0xA0,       // loop: LD HL, $A000
+                0xF0, 0x44, 0xAA, 0x22, // inner: LDH A, (LY); XOR D; LD (HL+), A
+                0x7C, 0xFE, 0xA2,       // LD A, H; CP $A2
+                0x20, 0xF7,             // JR NZ, inner
+                0x18, 0xF2              // JR loop
+        };
+        for (int i = 0; i < entry.length; i++) {
+            rom[0x100 + i] = (byte) entry[i];
+        }
+        for (int i = 0; i < program.length; i++) {
+            rom[0x150 + i] = (byte) program[i];
+        }
+        return rom;
+    }
+
+    // Turns on rendering, NMIs and a square channel, then keeps polling the PPU status into RAM
+    private static byte[] createNESRom() {
+        byte[] rom = new byte[16 + 0x4000 + 0x2000];
+        rom[0] = 'N';
+        rom[1] = 'E';
+        rom[2] = 'S';
+        rom[3] = 0x1A;
+        rom[4] = 1;
+        rom[5] = 1;
+        int[] program = {
+                0x78, 0xD8,             // SEI; CLD
+                0xA2, 0xFF, 0x9A,       // LDX #$FF; TXS
+                0xA9, 0x01, 0x8D, 0x15, 0x40, // LDA #$01; STA $4015
+                0xA9, 0xBF, 0x8D, 0x00, 0x40, // LDA #$BF; STA $4000
+                0xA9, 0xFF, 0x8D, 0x02, 0x40, // LDA #$FF; STA $4002
+                0xA9, 0x08, 0x8D, 0x03, 0x40, // LDA #$08; STA $4003
+                0xA9, 0x80, 0x8D, 0x00, 0x20, // LDA #$80; STA $2000
+                0xA9, 0x1E, 0x8D, 0x01, 0x20, // LDA #$1E; STA $2001
+                0xE6, 0x00,             // loop: INC $00
+                0xAD, 0x02, 0x20,       // LDA $2002
+                0x45, 0x00, 0x85, 0x01, // EOR $00; STA $01
+                0x4C, 0x23, 0xC0        // JMP loop
+        };
+        for (int i = 0; i < program.length; i++) {
+            rom[16 + i] = (byte) program[i];
+        }
+        // NMI: INC $02; RTI. IRQ: RTI
+        int[] handlers = {0xE6, 0x02, 0x40, 0x40};
+        for (int i = 0; i < handlers.length; i++) {
+            rom[16 + 0x3F00 + i] = (byte) handlers[i];
+        }
+        int vectors = 16 + 0x3FFA;
+        int[] addresses = {0xFF00, 0xC000, 0xFF03};
+        for (int i = 0; i < addresses.length; i++) {
+            rom[vectors + (i * 2)] = (byte) addresses[i];
+            rom[vectors + (i * 2) + 1] = (byte) (addresses[i] >>> 8);
+        }
+        return rom;
+    }
+
+}
@@ -0,0 +1,104 @@
+package io.github.arkosammy12.jemu.core.test.tests;
+
+import io.github.arkosammy12.jemu.core.common.Scheduler;
+import io.github.arkosammy12.jemu.core.common.StateReader;
+import io.github.arkosammy12.jemu.core.common.StateWriter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SchedulerTest {
+
+    @Test
+    public void events_run_on_their_cycle() {
+        Scheduler scheduler = new Scheduler();
+        List<Long> runs = new ArrayList<>();
+        Scheduler.Event event = scheduler.register(() -> runs.add(scheduler.getCycle()));
+        scheduler.schedule(event, 5);
+        assertTrue(scheduler.isScheduled(event));
+        tick(scheduler, 10);
+        assertEquals(List.of(5L), runs);
+        assertFalse(scheduler.isScheduled(event));
+    }
+
+    @Test
+    public void cancelled_events_do_not_run() {
+        Scheduler scheduler = new Scheduler();
+        List<String> runs = new ArrayList<>();
+        Scheduler.Event cancelled = scheduler.register(() -> runs.add("cancelled"));
+        Scheduler.Event kept = scheduler.register(() -> runs.add("kept"));
+        scheduler.schedule(cancelled, 3);
+        scheduler.schedule(kept, 6);
+        scheduler.cancel(cancelled);
+        assertFalse(scheduler.isScheduled(cancelled));
+        tick(scheduler, 10);
+        assertEquals(List.of("kept"), runs);
+    }
+
+    @Test
+    public void events_due_on_the_same_cycle_run_in_registration_order() {
+        Scheduler scheduler = new Scheduler();
+        List<String> runs = new ArrayList<>();
+        Scheduler.Event first = scheduler.register(() -> runs.add("first"));
+        Scheduler.Event second = scheduler.register(() -> runs.add("second"));
+        Scheduler.Event third = scheduler.register(() -> runs.add("third"));
+        scheduler.schedule(third, 4);
+        scheduler.schedule(second, 4);
+        scheduler.schedule(first, 4);
+        tick(scheduler, 5);
+        assertEquals(List.of("first", "second", "third"), runs);
+    }
+
+    @Test
+    public void events_rescheduled_from_their_action_run_again() {
+        Scheduler scheduler = new Scheduler();
+        List<Long> runs = new ArrayList<>();
+        Scheduler.Event[] event = new Scheduler.Event[1];
+        event[0] = scheduler.register(() -> {
+            runs.add(scheduler.getCycle());
+            scheduler.schedule(event[0], scheduler.getCycle() + 4);
+        });
+        scheduler.schedule(event[0], 2);
+        tick(scheduler, 11);
+        assertEquals(List.of(2L, 6L, 10L), runs);
+    }
+
+    @Test
+    public void save_and_load_round_trip() {
+        List<String> runs = new ArrayList<>();
+        Scheduler scheduler = new Scheduler();
+        Scheduler.Event first = scheduler.register(() -> runs.add("first " + scheduler.getCycle()));
+        Scheduler.Event second = scheduler.register(() -> runs.add("second " + scheduler.getCycle()));
+        scheduler.schedule(first, 12);
+        scheduler.schedule(second, 7);
+        tick(scheduler, 3);
+
+        StateWriter writer = new StateWriter();
+        scheduler.saveState(writer);
+
+        Scheduler loaded = new Scheduler();
+        loaded.register(() -> runs.add("first " + loaded.getCycle()));
+        loaded.register(() -> runs.add("second " + loaded.getCycle()));
+        loaded.loadState(new StateReader(writer.toByteArray()));
+        assertEquals(3, loaded.getCycle());
+
+        tick(scheduler, 10);
+        List<String> expected = List.copyOf(runs);
+        runs.clear();
+        tick(loaded, 10);
+        assertEquals(List.of("second 7", "first 12"), expected);
+        assertEquals(expected, runs);
+    }
+
+    private static void tick(Scheduler scheduler, int cycles) {
+        for (int i = 0; i < cycles; i++) {
+            scheduler.tick();
+        }
+    }
+
+}
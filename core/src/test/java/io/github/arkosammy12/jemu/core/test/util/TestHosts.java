@@ -0,0 +1,143 @@
+package io.github.arkosammy12.jemu.core.test.util;
+
+import io.github.arkosammy12.jemu.core.common.RomImage;
+import io.github.arkosammy12.jemu.core.drivers.AudioDriver;
+import io.github.arkosammy12.jemu.core.drivers.VideoDriver;
+import io.github.arkosammy12.jemu.core.gameboy.GameBoyEmulator;
+import io.github.arkosammy12.jemu.core.gameboy.GameBoyHost;
+import io.github.arkosammy12.jemu.core.gameboycolor.GameBoyColorEmulator;
+import io.github.arkosammy12.jemu.core.nes.NESEmulator;
+import io.github.arkosammy12.jemu.core.common.SystemHost;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+// Hosts for running whole systems in tests, without video or audio output
+public final class TestHosts {
+
+    private TestHosts() {
+
+    }
+
+    public static GameBoyEmulator createGameBoy(byte[] rom, GameBoyHost.Model model, boolean useRecompiler, Path saveDataDirectory, Duration saveDataFlushInterval) {
+        return createGameBoy(rom, model, useRecompiler, saveDataDirectory, saveDataFlushInterval, () -> false);
+    }
+
+    public static GameBoyEmulator createGameBoy(byte[] rom, GameBoyHost.Model model, boolean useRecompiler, Path saveDataDirectory, Duration saveDataFlushInterval, BooleanSupplier saveDataFlushSuppressed) {
+        return createGameBoy(rom, model, useRecompiler, saveDataDirectory, saveDataFlushInterval, saveDataFlushSuppressed, false);
+    }
+
+    public static GameBoyEmulator createGameBoy(byte[] rom, GameBoyHost.Model model, boolean useRecompiler, Path saveDataDirectory, Duration saveDataFlushInterval, BooleanSupplier saveDataFlushSuppressed, boolean saveDataFlushedOnVBlank) {
+        RomImage romImage = RomImage.of(rom);
+        GameBoyHost host = new GameBoyHost() {
+
+            @Override
+            public Model getModel() {
+                return model;
+            }
+
+            @Override
+            public Path getSaveDataDirectory() {
+                return saveDataDirectory;
+            }
+
+            @Override
+            public Duration getSaveDataFlushInterval() {
+                return saveDataFlushInterval;
+            }
+
+            @Override
+            public boolean isSaveDataFlushedOnVBlank() {
+                return saveDataFlushedOnVBlank;
+            }
+
+            @Override
+            public RomImage getRomImage() {
+                return romImage;
+            }
+
+            @Override
+            public Path getRomPath() {
+                return saveDataDirectory.resolve("test.gb");
+            }
+
+            @Override
+            public String getSystemName() {
+                return "GameBoy";
+            }
+
+            @Override
+            public Optional<String> getRomTitle() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<? extends VideoDriver> getVideoDriver() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<? extends AudioDriver> getAudioDriver() {
+                return Optional.empty();
+            }
+
+            @Override
+            public boolean isRecompilerEnabled() {
+                return useRecompiler;
+            }
+
+            @Override
+            public boolean isSaveDataFlushSuppressed() {
+                return saveDataFlushSuppressed.getAsBoolean();
+            }
+
+        };
+        return model == GameBoyHost.Model.CGB ? new GameBoyColorEmulator(host) : new GameBoyEmulator(host);
+    }
+
+    public static NESEmulator createNES(byte[] rom, boolean useRecompiler) {
+        RomImage romImage = RomImage.of(rom);
+        SystemHost host = new SystemHost() {
+
+            @Override
+            public RomImage getRomImage() {
+                return romImage;
+            }
+
+            @Override
+            public Path getRomPath() {
+                return Path.of("test.nes");
+            }
+
+            @Override
+            public String getSystemName() {
+                return "NES";
+            }
+
+            @Override
+            public Optional<String> getRomTitle() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<? extends VideoDriver> getVideoDriver() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<? extends AudioDriver> getAudioDriver() {
+                return Optional.empty();
+            }
+
+            @Override
+            public boolean isRecompilerEnabled() {
+                return useRecompiler;
+            }
+
+        };
+        return new NESEmulator(host);
+    }
+
+}
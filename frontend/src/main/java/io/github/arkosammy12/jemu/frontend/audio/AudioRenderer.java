@@ -1,14 +1,21 @@
 package io.github.arkosammy12.jemu.frontend.audio;
 
-import org.jetbrains.annotations.Nullable;
+import org.jctools.queues.SpscArrayQueue;
 
 import javax.sound.sampled.*;
 import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
 
 public abstract class AudioRenderer implements Closeable {
 
     public static final int SAMPLE_RATE = 48000;
-    protected static final int TARGET_FRAME_LATENCY = 3;
+    protected static final int TARGET_FRAME_LATENCY = 1;
+    // How far off the nominal sample rate the generators may be asked to run, which is too little to hear as a change
+    // of pitch but enough to make up for the host's frame and audio clocks not quite agreeing
+    private static final double MAX_RATE_DELTA = 0.005;
+    private static final int QUEUED_BLOCKS = 8;
+    private static final long WRITER_IDLE_NANOS = 500_000;
 
     protected final int samplesPerFrame;
     protected final int bytesPerFrame;
@@ -22,6 +29,21 @@ public abstract class AudioRenderer implements Closeable {
     protected boolean paused = true;
     protected boolean started = false;
 
+    private int sampleRate = SAMPLE_RATE;
+    private int frameSamples;
+    private double frameSampleRemainder;
+
+    // Frames are handed to the writer thread, which is the only one that writes to the line, so a slow audio device
+    // never blocks the emulator thread. The blocks go back through the second queue to be filled again
+    private final SpscArrayQueue<SampleBlock> queuedBlocks = new SpscArrayQueue<>(QUEUED_BLOCKS);
+    private final SpscArrayQueue<SampleBlock> freeBlocks = new SpscArrayQueue<>(QUEUED_BLOCKS);
+    private final Thread writerThread;
+    private volatile boolean writerRunning = true;
+    private volatile int lineQueuedBytes;
+    // Only the writer thread counts underruns and only the emulator thread counts overruns
+    private volatile long underruns;
+    private volatile long overruns;
+
     public AudioRenderer(int framerate) {
         this.framerate = framerate;
         try {
@@ -32,23 +54,40 @@ public abstract class AudioRenderer implements Closeable {
             this.volumeControl = (FloatControl) audioLine.getControl(FloatControl.Type.MASTER_GAIN);
             this.muteControl = (BooleanControl) audioLine.getControl(BooleanControl.Type.MUTE);
             this.samplesPerFrame = SAMPLE_RATE / framerate;
+            this.frameSamples = this.samplesPerFrame;
             this.bytesPerFrame = this.samplesPerFrame * this.getBytesPerOutputSample();
             this.targetByteLatency = this.bytesPerFrame * TARGET_FRAME_LATENCY;
-            this.emptySamples = new byte[this.bytesPerFrame];
+            int maxBytesPerFrame = this.getMaxSamplesPerFrame() * this.getBytesPerOutputSample();
+            this.emptySamples = new byte[Math.max(maxBytesPerFrame, this.targetByteLatency)];
+            for (int i = 0; i < QUEUED_BLOCKS; i++) {
+                this.freeBlocks.offer(new SampleBlock(maxBytesPerFrame));
+            }
 
             this.volumeControl.setValue(20.0f * (float) Math.log10(50 / 100.0));
             this.muteControl.setValue(false);
         } catch (Exception e) {
             throw new RuntimeException("Failed to create Source Data Line for audio", e);
         }
+        this.writerThread = Thread.ofPlatform().daemon().name("jemu-audio-writer-thread").start(this::writerLoop);
     }
 
+    // The rate the samples of the current frame should be generated at, as set by the last rate control update
     public final int getSampleRate() {
-        return SAMPLE_RATE;
+        return this.sampleRate;
     }
 
-    public boolean needsFrame() {
-        return (this.audioLine.getBufferSize() - this.audioLine.available()) <= this.targetByteLatency;
+    // Checks how much audio is still queued in the line and nudges the sample rate towards keeping it at the target,
+    // generating a bit more when the line is running dry and a bit less when it is filling up. Meant to be called once
+    // before generating each frame
+    public void updateRateControl() {
+        int queuedBytes = this.lineQueuedBytes + (this.queuedBlocks.size() * this.bytesPerFrame);
+        double fillError = Math.clamp((double) (queuedBytes - this.targetByteLatency) / this.targetByteLatency, -1.0, 1.0);
+        this.sampleRate = (int) Math.round(SAMPLE_RATE * (1 - (MAX_RATE_DELTA * fillError)));
+
+        // Frame sizes carry over the fractions of a sample so they add up to the sample rate over time
+        double samples = this.frameSampleRemainder + ((double) this.sampleRate / this.framerate);
+        this.frameSamples = (int) samples;
+        this.frameSampleRemainder = samples - this.frameSamples;
     }
 
     public void setPaused(boolean paused) {
@@ -59,14 +98,29 @@ public abstract class AudioRenderer implements Closeable {
         this.muteControl.setValue(muted);
     }
 
+    // The amount of samples the current frame should have, as set by the last rate control update
     public int getSamplesPerFrame() {
-        return this.samplesPerFrame;
+        return this.frameSamples;
+    }
+
+    public int getMaxSamplesPerFrame() {
+        return (int) Math.ceil(SAMPLE_RATE * (1 + MAX_RATE_DELTA) / this.framerate) + 1;
     }
 
     public int getBytesPerFrame() {
         return this.bytesPerFrame;
     }
 
+    // Times the line ran out of audio before the next frame reached it
+    public long getUnderruns() {
+        return this.underruns;
+    }
+
+    // Frames that were dropped because the writer thread had fallen too far behind to take them
+    public long getOverruns() {
+        return this.overruns;
+    }
+
     public void setVolume(int volume) {
         this.volumeControl.setValue(20.0f * (float) Math.log10(Math.clamp(volume, 0, 100) / 100.0));
     }
@@ -75,35 +129,89 @@ public abstract class AudioRenderer implements Closeable {
 
     abstract protected int getBytesPerOutputSample();
 
-    public void pushSampleFrame(byte @Nullable [] samples) {
-        if (!this.started) {
-            //byte[] prefill = new byte[this.bytesPerFrame];
-            this.audioLine.flush();
-            //this.audioLine.write(prefill, 0, prefill.length);
-            this.audioLine.start();
-            this.started = true;
-            //return;
+    // The samples are interleaved by channel, and the count is per channel
+    public void pushSampleFrame(short[] samples, int sampleCount) {
+        SampleBlock block = this.freeBlocks.relaxedPoll();
+        if (block == null) {
+            this.overruns++;
+            return;
         }
 
-        if (this.paused) {
-            this.audioLine.write(this.emptySamples, 0, this.emptySamples.length);
-            return;
+        int frameSize = this.getBytesPerOutputSample();
+        int frameLength = this.frameSamples * frameSize;
+        byte[] out = block.data;
+        block.length = frameLength;
+        if (this.paused || sampleCount <= 0) {
+            Arrays.fill(out, 0, frameLength, (byte) 0);
+        } else {
+            int length = Math.min(sampleCount, this.frameSamples) * this.getChannels();
+            for (int i = 0; i < length; i++) {
+                short sample = samples[i];
+                out[i * 2] = (byte) (sample >>> 8);
+                out[(i * 2) + 1] = (byte) sample;
+            }
+            // A frame that came up short repeats its last sample
+            for (int i = length * 2; i < frameLength; i += frameSize) {
+                System.arraycopy(out, (length * 2) - frameSize, out, i, frameSize);
+            }
         }
+        this.queuedBlocks.offer(block);
+        LockSupport.unpark(this.writerThread);
+    }
 
-        byte[] writtenSamples = this.emptySamples;
-        if (samples != null) {
-            writtenSamples = samples;
+    private void writerLoop() {
+        while (this.writerRunning) {
+            SampleBlock block = this.queuedBlocks.relaxedPoll();
+            if (block == null) {
+                this.lineQueuedBytes = this.getLineQueuedBytes();
+                LockSupport.parkNanos(WRITER_IDLE_NANOS);
+                continue;
+            }
+            if (!this.started) {
+                // Starting out with the target latency already queued keeps the first frames from running the line dry
+                this.audioLine.flush();
+                this.audioLine.write(this.emptySamples, 0, this.targetByteLatency);
+                this.audioLine.start();
+                this.started = true;
+            } else if (this.getLineQueuedBytes() <= 0) {
+                this.underruns++;
+            }
+            this.audioLine.write(block.data, 0, block.length);
+            this.freeBlocks.offer(block);
+            this.lineQueuedBytes = this.getLineQueuedBytes();
         }
-        writtenSamples = this.ensureBufferLength(writtenSamples);
-        this.audioLine.write(writtenSamples, 0, writtenSamples.length);
     }
 
-    abstract protected byte[] ensureBufferLength(byte[] buf);
+    private int getLineQueuedBytes() {
+        return this.audioLine.getBufferSize() - this.audioLine.available();
+    }
+
+    public int getChannels() {
+        return this.getBytesPerOutputSample() / 2;
+    }
 
     public void close() {
+        this.writerRunning = false;
+        LockSupport.unpark(this.writerThread);
+        try {
+            this.writerThread.join();
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
         this.audioLine.stop();
         this.audioLine.flush();
         this.audioLine.close();
     }
 
+    private static final class SampleBlock {
+
+        private final byte[] data;
+        private int length;
+
+        private SampleBlock(int capacity) {
+            this.data = new byte[capacity];
+        }
+
+    }
+
 }
@@ -18,11 +18,14 @@ public class StatusBar {
     private final JTextField systemField = createField();
     private final JTextField romTitleField = createField();
     private final JTextField fpsField = createField();
+    private final JTextField runAheadField = createField();
+    private final JTextField audioField = createField();
 
     private long lastWindowTitleUpdate = 0;
     private long lastFrameTime = System.nanoTime();
     private int framesSinceLastUpdate = 0;
     private double totalFrameTimeSinceLastUpdate = 0;
+    private double totalRunAheadTimeSinceLastUpdate = 0;
 
     public StatusBar(MainWindow mainWindow) {
         MigLayout migLayout = new MigLayout(new LC().insets("1"), new AC(), new AC());
@@ -30,17 +33,22 @@ public class StatusBar {
 
         this.jPanel.add(createPanel(systemField, "The system used by the currently running ROM.", true), new CC().growX());
         this.jPanel.add(createPanel(romTitleField, "The name or file name of the currently running ROM.", true), new CC().growX());
-        this.jPanel.add(createPanel(fpsField, "The emulation framerate and frame time of the currently running system.", false), new CC().growX());
+        this.jPanel.add(createPanel(fpsField, "The emulation framerate and frame time of the currently running system.", true), new CC().growX());
+        this.jPanel.add(createPanel(runAheadField, "The time spent every frame running ahead to reduce input lag.", true), new CC().growX());
+        this.jPanel.add(createPanel(audioField, "How many times the audio device ran out of samples, and how many frames of audio were dropped because it fell behind.", false), new CC().growX());
 
         mainWindow.<StopCommandCallback>addEmulatorCommandCallback(_ -> {
             this.lastWindowTitleUpdate = 0;
             this.lastFrameTime = System.nanoTime();
             this.framesSinceLastUpdate = 0;
             this.totalFrameTimeSinceLastUpdate = 0;
+            this.totalRunAheadTimeSinceLastUpdate = 0;
             SwingUtilities.invokeLater(() -> {
                 this.systemField.setText("");
                 this.romTitleField.setText("");
                 this.fpsField.setText("");
+                this.runAheadField.setText("");
+                this.audioField.setText("");
                 this.jPanel.revalidate();
                 this.jPanel.repaint();
             });
@@ -73,6 +81,10 @@ public class StatusBar {
     }
 
     public void update(String romTitle, String systemName) {
+        this.update(romTitle, systemName, 0, 0, 0, 0);
+    }
+
+    public void update(String romTitle, String systemName, int runAheadFrames, long runAheadTimeNanos, long audioUnderruns, long audioOverruns) {
 
         boolean updateTitleNow = false;
         boolean updateStatsNow = false;
@@ -85,21 +97,25 @@ public class StatusBar {
         double lastFrameDuration = now - lastFrameTime;
         lastFrameTime = now;
         totalFrameTimeSinceLastUpdate += lastFrameDuration;
+        totalRunAheadTimeSinceLastUpdate += runAheadTimeNanos;
         framesSinceLastUpdate++;
 
         long deltaTime = now - lastWindowTitleUpdate;
 
         double fps = 0;
         double averageFrameTimeMs = 0;
+        double averageRunAheadTimeMs = 0;
 
         if (deltaTime >= 1_000_000_000L) {
             updateStatsNow = true;
 
             fps = framesSinceLastUpdate / (deltaTime / 1_000_000_000.0);
             averageFrameTimeMs = (totalFrameTimeSinceLastUpdate / framesSinceLastUpdate) / 1_000_000.0;
+            averageRunAheadTimeMs = (totalRunAheadTimeSinceLastUpdate / framesSinceLastUpdate) / 1_000_000.0;
 
             framesSinceLastUpdate = 0;
             totalFrameTimeSinceLastUpdate = 0;
+            totalRunAheadTimeSinceLastUpdate = 0;
             lastWindowTitleUpdate = now;
         }
 
@@ -110,6 +126,7 @@ public class StatusBar {
             final String fVariantName = systemName;
             final double fFps = fps;
             final double fAverageFrameTimeMs = averageFrameTimeMs;
+            final double fAverageRunAheadTimeMs = averageRunAheadTimeMs;
 
             SwingUtilities.invokeLater(() -> {
                 if (fUpdateTitle) {
@@ -119,6 +136,8 @@ public class StatusBar {
 
                 if (fUpdateStats) {
                     this.fpsField.setText("%.2f FPS (%.2f ms)".formatted(fFps, fAverageFrameTimeMs));
+                    this.runAheadField.setText(runAheadFrames > 0 ? "Run-ahead %d (+%.2f ms)".formatted(runAheadFrames, fAverageRunAheadTimeMs) : "");
+                    this.audioField.setText(audioUnderruns > 0 || audioOverruns > 0 ? "Audio underruns %d, overruns %d".formatted(audioUnderruns, audioOverruns) : "");
                 }
 
                 this.jPanel.revalidate();
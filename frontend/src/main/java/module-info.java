@@ -6,6 +6,7 @@ module frontend {
     requires java.desktop;
     requires org.apache.commons.collections4;
     requires org.apache.commons.io;
+    requires org.jctools.core;
     requires org.jetbrains.annotations;
     requires org.tinylog.api;
 